@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the JMH command line, writing the results as JSON by default.
+ *
+ * Unless <code>-rf</code> or <code>-rff</code> is given, results are written to
+ * <code>jmh-result-&lt;version&gt;.json</code> so that runs of successive versions can be compared.
+ *
+ * @author Eric Boukobza
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+            arguments.add("-rf");
+            arguments.add("json");
+            arguments.add("-rff");
+            arguments.add("jmh-result-" + (version == null ? "dev" : version) + ".json");
+        }
+
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+    }
+}
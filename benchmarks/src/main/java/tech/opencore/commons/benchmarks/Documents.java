@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks;
+
+import java.util.Random;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+
+/**
+ * Document shapes shared by the benchmarks. Documents are generated from a fixed seed so runs are comparable.
+ *
+ * @author Eric Boukobza
+ */
+public final class Documents {
+    private static final String[] TYPES = { "click", "view", "purchase", "login", "logout" };
+
+    private Documents() {}
+
+    /**
+     * Build an event record with a few typed fields and a small nested object.
+     *
+     * @param factory The factory creating the data
+     * @param random The source of the values
+     * @param index The index of the event
+     * @return The event
+     */
+    public static Data event(DataFactory factory, Random random, int index) {
+        Data device = factory.createData()
+                .setString("os", random.nextBoolean() ? "android" : "ios")
+                .setInt("version", 10 + random.nextInt(5));
+
+        return factory.createData()
+                .setLong("id", 1000000L + index)
+                .setLong("timestamp", 1660000000000L + index * 250L)
+                .setString("type", TYPES[random.nextInt(TYPES.length)])
+                .setString("user", "user-" + random.nextInt(1000))
+                .setDouble("amount", random.nextInt(100000) / 100.0)
+                .setBoolean("mobile", random.nextBoolean())
+                .set("device", device);
+    }
+
+    /**
+     * Build a batch of events keyed by their position.
+     *
+     * @param factory The factory creating the data
+     * @param count The number of events
+     * @return The batch
+     */
+    public static Data eventBatch(DataFactory factory, int count) {
+        Random random = new Random(42);
+        Data batch = factory.createData();
+        for (int i = 0 ; i < count ; i++) {
+            batch.set(Integer.toString(i), event(factory, random, i));
+        }
+        return batch;
+    }
+
+    /**
+     * Build a wide object with typed fields <code>field0</code> to <code>fieldN</code>.
+     *
+     * @param factory The factory creating the data
+     * @param fields The number of fields
+     * @return The object
+     */
+    public static Data wide(DataFactory factory, int fields) {
+        Random random = new Random(42);
+        Data result = factory.createData();
+        for (int i = 0 ; i < fields ; i++) {
+            String name = "field" + i;
+            switch (i % 4) {
+                case 0:
+                    result.setLong(name, random.nextLong());
+                    break;
+                case 1:
+                    result.setDouble(name, random.nextDouble());
+                    break;
+                case 2:
+                    result.setString(name, "value-" + random.nextInt(10000));
+                    break;
+                default:
+                    result.setBoolean(name, random.nextBoolean());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build a chain of nested objects, each holding its level, a name and a <code>child</code>. The innermost
+     * object holds a <code>value</code>.
+     *
+     * @param factory The factory creating the data
+     * @param depth The number of nested objects
+     * @return The outermost object
+     */
+    public static Data deep(DataFactory factory, int depth) {
+        Data result = factory.createData().setLong("value", 42);
+        for (int level = depth - 1 ; level >= 0 ; level--) {
+            result = factory.createData()
+                    .setLong("level", level)
+                    .setString("name", "level-" + level)
+                    .set("child", result);
+        }
+        return result;
+    }
+
+    /**
+     * Build an object holding an <code>items</code> array of small records.
+     *
+     * @param factory The factory creating the data
+     * @param size The number of items
+     * @return The object
+     */
+    public static Data array(DataFactory factory, int size) {
+        Random random = new Random(42);
+        Data items = factory.createData();
+        for (int i = 0 ; i < size ; i++) {
+            items.set(i, factory.createData()
+                    .setLong("id", i)
+                    .setString("sku", "sku-" + random.nextInt(1000))
+                    .setDouble("price", random.nextInt(100000) / 100.0));
+        }
+        return factory.createData().setLong("count", size).set("items", items);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.data;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.arena.DataArena;
+
+/**
+ * Allocation of short lived data trees, built per message with new nodes or from an arena reset per message.
+ *
+ * Run with <code>-prof gc</code> to compare the allocation rate, <code>gc.alloc.rate.norm</code> being the
+ * bytes allocated per message.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AllocationBenchmark {
+    @Param({"new", "arena"})
+    public String allocation;
+
+    @Param({"1", "20"})
+    public int events;
+
+    private DataFactory factory;
+    private DataArena arena;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        if ("arena".equals(allocation)) {
+            arena = new DataArena();
+            factory = arena;
+        } else {
+            factory = DataFactory.getDefaultFactory();
+        }
+    }
+
+    @Benchmark
+    public long buildAndRead() {
+        if (arena != null) {
+            arena.reset();
+        }
+
+        Data message = factory.createData();
+        for (int i = 0 ; i < events ; i++) {
+            message.set(Integer.toString(i), Documents.event(factory, random, i));
+        }
+
+        long result = 0;
+        for (String key : message.keySet()) {
+            Data event = message.get(key);
+            result += event.getLong("timestamp") + event.get("device").getLong("version");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.compress.BlockCodec;
+import tech.opencore.commons.data.compress.BlockCodecs;
+import tech.opencore.commons.data.compress.BlockInputStream;
+import tech.opencore.commons.data.compress.BlockOutputStream;
+import tech.opencore.commons.data.compress.CompressingDataFactory;
+
+/**
+ * Throughput of serialization with and without block compression.
+ *
+ * <code>none</code> is the uncompressed path of the default factory. The <code>raw*</code> benchmarks measure
+ * the codecs alone on the serialized bytes, and the compressed size is reported as an auxiliary counter.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"none", "lz", "deflate"})
+    public String codec;
+
+    @Param({"1000"})
+    public int events;
+
+    private DataFactory factory;
+    private Data document;
+    private byte[] raw;
+    private byte[] serialized;
+    private byte[] compressed;
+    private ExecutorService executor;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+        public long rawBytes;
+        public long storedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DataFactory defaultFactory = DataFactory.getDefaultFactory();
+        document = Documents.eventBatch(defaultFactory, events);
+
+        if (codec() == null) {
+            factory = defaultFactory;
+        } else {
+            factory = new CompressingDataFactory(defaultFactory, codec());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        defaultFactory.serialize(document, out);
+        raw = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        factory.serialize(document, out);
+        serialized = out.toByteArray();
+
+        compressed = rawCompress();
+
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private BlockCodec codec() {
+        switch (codec) {
+            case "lz":
+                return BlockCodecs.FAST;
+            case "deflate":
+                return BlockCodecs.HIGH_RATIO;
+            default:
+                return null;
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(Sizes sizes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.length);
+        factory.serialize(document, out);
+        sizes.rawBytes += raw.length;
+        sizes.storedBytes += out.size();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Data deserialize() throws Exception {
+        return factory.deserialize(new ByteArrayInputStream(serialized));
+    }
+
+    @Benchmark
+    public byte[] rawCompress() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        if (codec() == null) {
+            out.write(raw);
+        } else {
+            try (BlockOutputStream output = new BlockOutputStream(out, codec())) {
+                output.write(raw);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] rawDecompressParallel() throws Exception {
+        if (codec() == null) {
+            return compressed.clone();
+        }
+        return BlockInputStream.readAll(new ByteArrayInputStream(compressed), executor);
+    }
+}
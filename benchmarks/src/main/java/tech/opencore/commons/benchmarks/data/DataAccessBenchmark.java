@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.data;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+
+/**
+ * Typed access on the hot path. Run with <code>-prof gc</code>: the setters updating existing leaves, the
+ * defaulted getters and the <code>appendTo</code> and <code>writeTo</code> benchmarks are expected to allocate
+ * nothing, <code>getString</code> is the allocating baseline.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+    private Data event;
+    private Data timestamp;
+    private Data amount;
+    private StringBuilder text;
+    private ByteBuffer buffer;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        event = Documents.event(DataFactory.getDefaultFactory(), new Random(42), 0);
+        timestamp = event.get("timestamp");
+        amount = event.get("amount");
+        text = new StringBuilder(64);
+        buffer = ByteBuffer.allocate(64);
+    }
+
+    @Benchmark
+    public Data setLong() {
+        return event.setLong("timestamp", counter++);
+    }
+
+    @Benchmark
+    public Data setDouble() {
+        return event.setDouble("amount", counter++);
+    }
+
+    @Benchmark
+    public long getLongDefault() {
+        return event.getLong("id", -1) + event.getLong("missing", -1);
+    }
+
+    @Benchmark
+    public String getString() {
+        return timestamp.getString();
+    }
+
+    @Benchmark
+    public StringBuilder appendLong() throws Exception {
+        text.setLength(0);
+        timestamp.appendTo(text);
+        return text;
+    }
+
+    @Benchmark
+    public ByteBuffer writeLong() {
+        buffer.clear();
+        return timestamp.writeTo(buffer);
+    }
+
+    @Benchmark
+    public ByteBuffer writeDouble() {
+        buffer.clear();
+        return amount.writeTo(buffer);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * The core operations of <code>GenericData</code> on the document shapes of <code>Documents</code>.
+ *
+ * <code>get</code> and <code>set</code> reach a leaf of the document: the middle field of the wide object, the
+ * innermost value of the nested chain and the middle item of the array.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenericDataBenchmark {
+    @Param({"wide", "deep", "array"})
+    public String shape;
+
+    private DataFactory factory;
+    private Data document;
+    private Data copy;
+    private byte[] serialized;
+    private long counter;
+
+    @Setup
+    public void setUp() throws Exception {
+        factory = DataFactory.getDefaultFactory();
+        document = build();
+        copy = build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(document, out);
+        serialized = out.toByteArray();
+    }
+
+    private Data build() {
+        switch (shape) {
+            case "wide":
+                return Documents.wide(factory, 500);
+            case "deep":
+                return Documents.deep(factory, 32);
+            default:
+                return Documents.array(factory, 10000);
+        }
+    }
+
+    /**
+     * Get the object holding the benchmarked leaf, which is named <code>leafName()</code>.
+     */
+    private Data parent() {
+        switch (shape) {
+            case "wide":
+                return document;
+            case "deep":
+                Data result = document;
+                Data child;
+                while (!(child = result.get("child")).isNull()) {
+                    result = child;
+                }
+                return result;
+            default:
+                return document.get("items").get(5000);
+        }
+    }
+
+    private String leafName() {
+        switch (shape) {
+            case "wide":
+                return "field248";
+            case "deep":
+                return "value";
+            default:
+                return "id";
+        }
+    }
+
+    @Benchmark
+    public long get() {
+        return parent().getLong(leafName());
+    }
+
+    @Benchmark
+    public Data set() {
+        return parent().setLong(leafName(), counter++);
+    }
+
+    @Benchmark
+    public Data deepCopy() {
+        return new GenericData(document);
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return document.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return document.hashCode();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.length);
+        factory.serialize(document, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Data deserialize() throws Exception {
+        return factory.deserialize(new ByteArrayInputStream(serialized));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.nio.framing.DataChannel;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Throughput of sending <code>Data</code> messages to the loopback TLS server of <code>LoopbackTls</code>.
+ *
+ * <code>byteArray</code> serializes each message to a byte array and writes it with its length, as done without
+ * a transport. <code>dataChannel</code> writes each message with a <code>DataChannel</code> flushing it at once,
+ * and <code>dataChannelBatched</code> flushes the 16 messages of an operation together.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataChannelBenchmark {
+    private static final int BATCH = 16;
+
+    private final DataFactory factory = DataFactory.getDefaultFactory();
+    private LoopbackTls sink;
+    private LoopbackTls.Client client;
+    private SSLChannel channel;
+    private DataChannel<SSLChannel> dataChannel;
+    private Data[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sink = new LoopbackTls(LoopbackTls.Mode.SINK);
+        client = sink.connect();
+        channel = client.getChannel();
+        dataChannel = new DataChannel<>(channel, factory);
+
+        Random random = new Random(42);
+        messages = new Data[BATCH];
+        for (int i = 0 ; i < BATCH ; i++) {
+            messages[i] = Documents.event(factory, random, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        sink.close();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void flushFully() throws IOException {
+        while (!dataChannel.flush()) {
+            // Spin on the non-blocking socket
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void byteArray() throws Exception {
+        for (Data message : messages) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            factory.serialize(message, out);
+            byte[] bytes = out.toByteArray();
+            ByteBuffer length = ByteBuffer.allocate(4).putInt(0, bytes.length);
+            writeFully(length);
+            writeFully(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dataChannel() throws Exception {
+        for (Data message : messages) {
+            dataChannel.writeData(message);
+            flushFully();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dataChannelBatched() throws Exception {
+        for (Data message : messages) {
+            dataChannel.writeData(message);
+        }
+        flushFully();
+    }
+}
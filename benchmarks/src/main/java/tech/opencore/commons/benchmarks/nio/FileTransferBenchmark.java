@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.DelegatedChannel;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Files sent per second to the loopback TLS server of <code>LoopbackTls</code>.
+ *
+ * <code>heapCopy</code> reads the file into a heap buffer and writes it, and <code>transferFrom</code> lets the
+ * channel encrypt it straight from the file mapped in memory.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTransferBenchmark {
+    @Param({"16777216"})
+    public int size;
+
+    private LoopbackTls sink;
+    private LoopbackTls.Client client;
+    private DelegatedChannel<SSLChannel> channel;
+    private Path path;
+    private FileChannel file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(65536);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        path = Files.createTempFile("transfer", ".bin");
+        Files.write(path, data);
+        file = FileChannel.open(path);
+
+        sink = new LoopbackTls(LoopbackTls.Mode.SINK);
+        client = sink.connect();
+        channel = new DelegatedChannel<>(client.getChannel());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        sink.close();
+        file.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public long heapCopy() throws IOException {
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            position += file.read(buffer, position);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                // Spin on the non-blocking socket
+                channel.write(buffer);
+            }
+        }
+        return position;
+    }
+
+    @Benchmark
+    public long transferFrom() throws IOException {
+        long position = 0;
+        while (position < size) {
+            // Spins on the non-blocking socket
+            position += channel.transferFrom(file, position, size - position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.ConnectionHandler;
+import tech.opencore.commons.nio.reactor.Reactor;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * Throughput of concurrent TLS handshakes between two reactors, in handshakes per second.
+ *
+ * Each operation opens <code>connections</code> connections at once and waits for all their handshakes. With
+ * <code>tasks=inline</code> the delegated tasks of the engines run on the event loops, and with
+ * <code>tasks=pool</code> in a pool of one thread per processor, while the loops serve other connections.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandshakeBenchmark {
+    private static final int CONNECTIONS = 64;
+    private static final ConnectionHandler IDLE = connection -> connection.setReadable(false);
+
+    @Param({"inline", "pool"})
+    public String tasks;
+
+    private ExecutorService pool;
+    private Reactor server;
+    private Reactor client;
+    private Acceptor acceptor;
+    private InetSocketAddress address;
+    private EngineFactory engines;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        pool = "pool".equals(tasks) ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+        server = new Reactor(threads, pool);
+        client = new Reactor(threads, pool);
+
+        SSLContext context = LoopbackTls.context();
+        acceptor = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EngineFactory.server(context), IDLE);
+        address = acceptor.getAddress();
+        engines = EngineFactory.client(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        acceptor.close();
+        client.close();
+        server.close();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONNECTIONS)
+    public int handshakes() throws Exception {
+        CompletableFuture<?>[] connections = new CompletableFuture<?>[CONNECTIONS];
+        for (int i = 0 ; i < CONNECTIONS ; i++) {
+            connections[i] = client.connect(address, engines, IDLE);
+        }
+
+        int count = 0;
+        for (CompletableFuture<?> connection : connections) {
+            ((Connection) connection.get(30, TimeUnit.SECONDS)).close();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+import tech.opencore.commons.nio.ssl.SelfSignedCertificate;
+
+/**
+ * A TLS server on the loopback interface, using a generated self-signed certificate.
+ *
+ * The server accepts any number of connections, each served by a thread, a virtual thread if a factory of
+ * virtual threads is given, with a server-mode <code>SSLChannel</code> over a blocking socket channel, and depending on its mode discards what it receives,
+ * sends data continuously or echoes what it receives. Clients are <code>SSLChannel</code> instances on
+ * non-blocking socket channels. When a cipher suite is given, both ends only enable it, with TLS 1.3 for the
+ * suites of TLS 1.3 and TLS 1.2 for the others; the certificate has an RSA key for the suites authenticated
+ * with RSA and an EC key otherwise.
+ *
+ * @author Eric Boukobza
+ */
+public final class LoopbackTls implements Closeable {
+    private static final long HANDSHAKE_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+    private static SSLContext defaultContext;
+
+    /**
+     * What the server does with its connections.
+     */
+    public enum Mode {
+        /**
+         * Read and discard everything.
+         */
+        SINK,
+        /**
+         * Write data until the connection is closed.
+         */
+        SOURCE,
+        /**
+         * Write back everything it reads.
+         */
+        ECHO
+    }
+
+    private final SSLContext context;
+    private final String cipherSuite;
+    private final ServerSocketChannel server;
+    private final Mode mode;
+    private final ThreadFactory threads;
+    private final Thread acceptor;
+
+    public LoopbackTls(Mode mode) throws Exception {
+        this(mode, null);
+    }
+
+    /**
+     * Start a server.
+     *
+     * @param mode What the server does with its connections
+     * @param cipherSuite The only cipher suite enabled, or null for the defaults.
+     * @throws Exception if the server cannot be started
+     */
+    public LoopbackTls(Mode mode, String cipherSuite) throws Exception {
+        this(mode, cipherSuite, null);
+    }
+
+    /**
+     * Start a server.
+     *
+     * @param mode What the server does with its connections
+     * @param cipherSuite The only cipher suite enabled, or null for the defaults.
+     * @param threads The factory of the threads serving the connections, or null for daemon platform threads.
+     * @throws Exception if the server cannot be started
+     */
+    public LoopbackTls(Mode mode, String cipherSuite, ThreadFactory threads) throws Exception {
+        this.mode = mode;
+        this.threads = threads;
+        this.cipherSuite = cipherSuite;
+        if (cipherSuite == null) {
+            this.context = context();
+        } else {
+            String algorithm = cipherSuite.contains("_RSA_") ? "RSA" : "EC";
+            this.context = SelfSignedCertificate.generate("localhost", algorithm, 1).createContext();
+        }
+        this.server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.acceptor = new Thread(this::accept, "loopback-tls-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Get a context trusting and presenting a self-signed EC certificate of localhost, generated once.
+     *
+     * @return The context
+     * @throws GeneralSecurityException if the certificate cannot be generated
+     */
+    public static synchronized SSLContext context() throws GeneralSecurityException {
+        if (defaultContext == null) {
+            defaultContext = SelfSignedCertificate.generate("localhost").createContext();
+        }
+        return defaultContext;
+    }
+
+    public SSLContext getContext() {
+        return context;
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Create an engine. The engines are not given the address of the peer, so that the sessions are never
+     * resumed and each connection performs a full handshake.
+     */
+    private SSLEngine createEngine(boolean client) {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(client);
+        if (cipherSuite != null) {
+            boolean tls13 = cipherSuite.startsWith("TLS_AES_") || cipherSuite.startsWith("TLS_CHACHA20_");
+            engine.setEnabledProtocols(new String[] {tls13 ? "TLSv1.3" : "TLSv1.2"});
+            engine.setEnabledCipherSuites(new String[] {cipherSuite});
+        }
+        return engine;
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel socket = server.accept();
+                Thread handler;
+                if (threads == null) {
+                    handler = new Thread(() -> serve(socket), "loopback-tls-" + socket.socket().getPort());
+                    handler.setDaemon(true);
+                } else {
+                    handler = threads.newThread(() -> serve(socket));
+                }
+                handler.start();
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(SocketChannel socket) {
+        // Echoed data arrives a record at a time, and thousands of connections may be echoing
+        ByteBuffer buffer = ByteBuffer.allocate(mode == Mode.ECHO ? 16384 : 65536);
+        try (SocketChannel s = socket) {
+            SSLChannel channel = new SSLChannel(s, createEngine(false), null);
+            switch (mode) {
+                case SINK:
+                    while (channel.read(buffer) >= 0) {
+                        buffer.clear();
+                    }
+                    break;
+                case SOURCE:
+                    while (true) {
+                        buffer.clear();
+                        channel.write(buffer);
+                    }
+                default:
+                    while (channel.read(buffer) >= 0) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            // The client closed the connection
+        }
+    }
+
+    /**
+     * Connect to the server and complete the TLS handshake.
+     *
+     * @return The client, using an <code>SSLChannel</code> over a non-blocking socket channel.
+     * @throws Exception if the connection or the handshake fails
+     */
+    public Client connect() throws Exception {
+        SocketChannel socket = SocketChannel.open(getAddress());
+        socket.configureBlocking(false);
+
+        SSLChannel channel = new SSLChannel(socket, createEngine(true), null);
+        long deadline = System.nanoTime() + HANDSHAKE_TIMEOUT;
+        while (channel.isHandshaking()) {
+            if (System.nanoTime() > deadline) {
+                socket.close();
+                throw new IOException("TLS handshake timed out");
+            }
+        }
+        return new Client(socket, channel);
+    }
+
+    /**
+     * A connection to the loopback server.
+     */
+    public static final class Client implements Closeable {
+        private final SocketChannel socket;
+        private final SSLChannel channel;
+
+        private Client(SocketChannel socket, SSLChannel channel) {
+            this.socket = socket;
+            this.channel = channel;
+        }
+
+        public SSLChannel getChannel() {
+            return channel;
+        }
+
+        /**
+         * Close the socket without sending close_notify, as a benchmark would only measure the close.
+         */
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
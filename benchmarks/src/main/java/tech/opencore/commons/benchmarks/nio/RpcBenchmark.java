@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.benchmarks.Documents;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Reactor;
+import tech.opencore.commons.nio.rpc.RpcClient;
+import tech.opencore.commons.nio.rpc.RpcServer;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * Requests per second of <code>RpcClient</code> calls to a loopback <code>RpcServer</code> echoing them over
+ * TLS, depending on the number of connections.
+ *
+ * Each operation makes 64 concurrent calls spread over the connections in turn and waits for their responses,
+ * so that with a single connection the calls are multiplexed over it.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcBenchmark {
+    private static final int CALLS = 64;
+
+    @Param({"1", "4", "16"})
+    public int connections;
+
+    private final DataFactory factory = DataFactory.getDefaultFactory();
+    private Reactor reactor;
+    private Acceptor acceptor;
+    private RpcClient[] clients;
+    private Data[] messages;
+    @SuppressWarnings("unchecked")
+    private final CompletableFuture<Data>[] calls = new CompletableFuture[CALLS];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SSLContext context = LoopbackTls.context();
+        reactor = new Reactor();
+        RpcServer server = new RpcServer(factory, CompletableFuture::completedFuture);
+        acceptor = server.listen(reactor, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EngineFactory.server(context));
+
+        clients = new RpcClient[connections];
+        for (int i = 0 ; i < connections ; i++) {
+            clients[i] = RpcClient.connect(reactor, acceptor.getAddress(), EngineFactory.client(context), factory).get(30, TimeUnit.SECONDS);
+        }
+
+        Random random = new Random(42);
+        messages = new Data[CALLS];
+        for (int i = 0 ; i < CALLS ; i++) {
+            messages[i] = Documents.event(factory, random, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (RpcClient client : clients) {
+            client.close();
+        }
+        acceptor.close();
+        reactor.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public Data call() throws Exception {
+        for (int i = 0 ; i < CALLS ; i++) {
+            calls[i] = clients[i % connections].call(messages[i]);
+        }
+        Data last = null;
+        for (CompletableFuture<Data> call : calls) {
+            last = call.get(30, TimeUnit.SECONDS);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Throughput of <code>SSLChannel</code> against the loopback TLS server of <code>LoopbackTls</code>.
+ *
+ * <code>write</code> sends a payload per operation to a server discarding it, the bytes sent being reported as
+ * an auxiliary counter. <code>writeHeaderSeparately</code> and <code>writeHeaderGathering</code> send a 16 bytes
+ * header with each payload, with two writes or a gathering write. <code>read</code> receives up to a payload per
+ * operation from a server writing continuously. <code>handshake</code> opens a connection and completes a full
+ * handshake per operation. Each benchmark runs with TLS 1.3 cipher suites and a TLS 1.2 one, the latter
+ * with an RSA certificate.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SSLChannelBenchmark {
+    @Param({"1024", "16384", "65536"})
+    public int payload;
+
+    @Param({"TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256", "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384"})
+    public String cipher;
+
+    private LoopbackTls sink;
+    private LoopbackTls source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sink = new LoopbackTls(LoopbackTls.Mode.SINK, cipher);
+        source = new LoopbackTls(LoopbackTls.Mode.SOURCE, cipher);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sink.close();
+        source.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+        LoopbackTls.Client client;
+        SSLChannel channel;
+        ByteBuffer buffer;
+        ByteBuffer header;
+        ByteBuffer[] message;
+
+        @Setup(Level.Trial)
+        public void open(SSLChannelBenchmark benchmark) throws Exception {
+            client = benchmark.sink.connect();
+            channel = client.getChannel();
+            buffer = ByteBuffer.allocate(benchmark.payload);
+            header = ByteBuffer.allocate(16);
+            message = new ByteBuffer[] {header, buffer};
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Download {
+        LoopbackTls.Client client;
+        SSLChannel channel;
+        ByteBuffer buffer;
+
+        @Setup(Level.Trial)
+        public void open(SSLChannelBenchmark benchmark) throws Exception {
+            client = benchmark.source.connect();
+            channel = client.getChannel();
+            buffer = ByteBuffer.allocate(benchmark.payload);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Benchmark
+    public int write(Connection connection, Bytes bytes) throws IOException {
+        ByteBuffer buffer = connection.buffer;
+        buffer.clear();
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += connection.channel.write(buffer);
+        }
+        bytes.bytes += written;
+        return written;
+    }
+
+    /**
+     * Write a header and a payload with a call each.
+     */
+    @Benchmark
+    public long writeHeaderSeparately(Connection connection, Bytes bytes) throws IOException {
+        long written = 0;
+        for (ByteBuffer buffer : connection.message) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                written += connection.channel.write(buffer);
+            }
+        }
+        bytes.bytes += written;
+        return written;
+    }
+
+    /**
+     * Write a header and a payload with a gathering write.
+     */
+    @Benchmark
+    public long writeHeaderGathering(Connection connection, Bytes bytes) throws IOException {
+        ByteBuffer[] message = connection.message;
+        message[0].clear();
+        message[1].clear();
+        long written = 0;
+        while (message[1].hasRemaining()) {
+            written += connection.channel.write(message);
+        }
+        bytes.bytes += written;
+        return written;
+    }
+
+    @Benchmark
+    public int read(Download download, Bytes bytes) throws IOException {
+        ByteBuffer buffer = download.buffer;
+        buffer.clear();
+        int read;
+        while ((read = download.channel.read(buffer)) == 0) {
+            // Spin on the non-blocking socket
+        }
+        if (read < 0) {
+            throw new IOException("Connection closed");
+        }
+        bytes.bytes += read;
+        return read;
+    }
+
+    @Benchmark
+    public boolean handshake() throws Exception {
+        try (LoopbackTls.Client client = sink.connect()) {
+            return client.getChannel().isOpen();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Round trip latency of <code>SSLChannel</code> against the echo server of <code>LoopbackTls</code>.
+ *
+ * <code>roundTrip</code> writes a payload and reads it back per operation. The samples give the latency
+ * distribution, with its p99, for each payload size and cipher suite.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsLatencyBenchmark {
+    @Param({"64", "1024", "16384"})
+    public int payload;
+
+    @Param({"TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256", "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384"})
+    public String cipher;
+
+    private LoopbackTls echo;
+    private LoopbackTls.Client client;
+    private SSLChannel channel;
+    private ByteBuffer request;
+    private ByteBuffer response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        echo = new LoopbackTls(LoopbackTls.Mode.ECHO, cipher);
+        client = echo.connect();
+        channel = client.getChannel();
+        request = ByteBuffer.allocate(payload);
+        response = ByteBuffer.allocate(payload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        echo.close();
+    }
+
+    @Benchmark
+    public ByteBuffer roundTrip() throws IOException {
+        request.clear();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+
+        response.clear();
+        while (response.hasRemaining()) {
+            if (channel.read(response) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.SSLEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Round trips over thousands of concurrent TLS connections served by one thread per connection, with
+ * <code>SSLChannel</code> in blocking mode at both ends of the loopback server of <code>LoopbackTls</code>.
+ *
+ * Each operation makes one round trip on every connection at once, each from its own thread, and the round trips
+ * per second are reported as an auxiliary counter. The threads are virtual threads on Java 21 and later, found by
+ * reflection, and platform threads otherwise, which at 10000 connections needs a limit of threads and file
+ * descriptors above 20000.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    @Param({"1000", "10000"})
+    public int connections;
+
+    @Param({"64"})
+    public int payload;
+
+    private LoopbackTls echo;
+    private ExecutorService platformThreads;
+    private Executor threads;
+    private SSLChannel[] clients;
+    private ByteBuffer[] requests;
+    private ByteBuffer[] responses;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class RoundTrips {
+        public long roundTrips;
+    }
+
+    /**
+     * Get a factory of virtual threads.
+     *
+     * @return The factory, or null before Java 21.
+     */
+    static ThreadFactory virtualThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ThreadFactory virtual = virtualThreads();
+        if (virtual == null) {
+            platformThreads = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+            threads = platformThreads;
+        } else {
+            threads = task -> virtual.newThread(task).start();
+        }
+        echo = new LoopbackTls(LoopbackTls.Mode.ECHO, null, virtual);
+
+        clients = new SSLChannel[connections];
+        requests = new ByteBuffer[connections];
+        responses = new ByteBuffer[connections];
+        for (int i = 0 ; i < connections ; i++) {
+            SSLEngine engine = echo.getContext().createSSLEngine();
+            engine.setUseClientMode(true);
+            clients[i] = new SSLChannel(SocketChannel.open(echo.getAddress()), engine, null);
+            requests[i] = ByteBuffer.allocate(payload);
+            responses[i] = ByteBuffer.allocate(payload);
+        }
+
+        // The handshakes run concurrently, and complete in blocking mode
+        run(i -> {
+            if (clients[i].isHandshaking()) {
+                throw new IOException("Handshake not complete");
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (SSLChannel client : clients) {
+            if (client != null) {
+                client.close();
+            }
+        }
+        echo.close();
+        if (platformThreads != null) {
+            platformThreads.shutdownNow();
+        }
+    }
+
+    private interface Action {
+        void run(int connection) throws IOException;
+    }
+
+    /**
+     * Run an action on every connection at once, each in its own thread.
+     */
+    private void run(Action action) throws Exception {
+        CountDownLatch done = new CountDownLatch(connections);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int i = 0 ; i < connections ; i++) {
+            int connection = i;
+            threads.execute(() -> {
+                try {
+                    action.run(connection);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(RoundTrips counter) throws Exception {
+        run(this::roundTrip);
+        counter.roundTrips += connections;
+    }
+
+    private void roundTrip(int connection) throws IOException {
+        ByteBuffer request = requests[connection];
+        ByteBuffer response = responses[connection];
+        request.clear();
+        clients[connection].write(request);
+        response.clear();
+        while (response.hasRemaining()) {
+            if (clients[connection].read(response) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.benchmarks.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * Messages per second written to a TLS connection, with and without write buffering.
+ *
+ * Each operation writes a batch of small messages and flushes, so that without buffering each message makes its
+ * own record and network write, and with buffering the batch shares them.
+ *
+ * @author Eric Boukobza
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBufferingBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"32", "256"})
+    public int payload;
+
+    @Param({"false", "true"})
+    public boolean buffering;
+
+    private LoopbackTls sink;
+    private LoopbackTls.Client client;
+    private SSLChannel channel;
+    private ByteBuffer message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sink = new LoopbackTls(LoopbackTls.Mode.SINK);
+        client = sink.connect();
+        channel = client.getChannel();
+        channel.setWriteBuffering(buffering);
+        message = ByteBuffer.allocate(payload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        sink.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean messages() throws IOException {
+        for (int i = 0 ; i < BATCH ; i++) {
+            message.clear();
+            while (message.hasRemaining()) {
+                channel.write(message);
+            }
+        }
+        while (!channel.flush()) {
+            // Spin on the non-blocking socket
+        }
+        return channel.hasPendingOutput();
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data;
+
+/**
+ * Base class for read only data implementations.
+ *
+ * Named and indexed getters resolve the value with <code>get</code> and read it, scalar getters
+ * of non atomic data read their first value, and all the setters fail as the data is immutable.
+ * Implementations override what they can do faster or what they allow.
+ *
+ * @author Eric Boukobza
+ */
+public abstract class AbstractData implements Data {
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean getBoolean() {
+        return get(0).getBoolean();
+    }
+
+    @Override
+    public boolean getBoolean(String property) {
+        return get(property).getBoolean();
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return get(index).getBoolean();
+    }
+
+    @Override
+    public String getString() {
+        return get(0).getString();
+    }
+
+    @Override
+    public String getString(String property) {
+        return get(property).getString();
+    }
+
+    @Override
+    public String getString(int index) {
+        return get(index).getString();
+    }
+
+    @Override
+    public long getLong() {
+        return get(0).getLong();
+    }
+
+    @Override
+    public long getLong(String property) {
+        return get(property).getLong();
+    }
+
+    @Override
+    public long getLong(int index) {
+        return get(index).getLong();
+    }
+
+    @Override
+    public int getInt() {
+        return (int) getLong();
+    }
+
+    @Override
+    public int getInt(String property) {
+        return get(property).getInt();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return get(index).getInt();
+    }
+
+    @Override
+    public short getShort() {
+        return (short) getLong();
+    }
+
+    @Override
+    public short getShort(String property) {
+        return get(property).getShort();
+    }
+
+    @Override
+    public short getShort(int index) {
+        return get(index).getShort();
+    }
+
+    @Override
+    public byte getByte() {
+        return (byte) getLong();
+    }
+
+    @Override
+    public byte getByte(String property) {
+        return get(property).getByte();
+    }
+
+    @Override
+    public byte getByte(int index) {
+        return get(index).getByte();
+    }
+
+    @Override
+    public double getDouble() {
+        return get(0).getDouble();
+    }
+
+    @Override
+    public double getDouble(String property) {
+        return get(property).getDouble();
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return get(index).getDouble();
+    }
+
+    @Override
+    public float getFloat() {
+        return (float) getDouble();
+    }
+
+    @Override
+    public float getFloat(String property) {
+        return get(property).getFloat();
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return get(index).getFloat();
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    protected Data immutable() {
+        throw new IllegalStateException("Data is immutable");
+    }
+
+    @Override
+    public void clear() {
+        immutable();
+    }
+
+    @Override
+    public Data set(Data value) {
+        return immutable();
+    }
+
+    @Override
+    public Data set(Data value, boolean mutable) {
+        return immutable();
+    }
+
+    @Override
+    public Data set(String property, Data value) {
+        return immutable();
+    }
+
+    @Override
+    public Data set(int index, Data value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setBoolean(boolean value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setBoolean(String property, boolean value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setBoolean(int index, boolean value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setString(String value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setString(String property, String value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setString(int index, String value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setLong(long value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setLong(String property, long value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setLong(int index, long value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setInt(int value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setInt(String property, int value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setInt(int index, int value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setShort(short value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setShort(String property, short value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setShort(int index, short value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setByte(byte value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setByte(String property, byte value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setByte(int index, byte value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setDouble(double value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setDouble(String property, double value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setDouble(int index, double value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setFloat(float value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setFloat(String property, float value) {
+        return immutable();
+    }
+
+    @Override
+    public Data setFloat(int index, float value) {
+        return immutable();
+    }
+}
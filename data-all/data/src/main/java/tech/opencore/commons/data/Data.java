@@ -15,8 +15,11 @@
  */
 package tech.opencore.commons.data;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 /**
@@ -48,6 +51,16 @@ public interface Data {
     public boolean isIntegral();
     public boolean isNumeric();
     
+    /**
+     * Check if the value of this data is stored as a string. Boolean, integral and numeric checks also accept
+     * strings that parse as such, this tells a string like "007" from the integer it parses as.
+     * 
+     * @return true if this atomic data holds a string
+     */
+    public default boolean isString() {
+        return isAtomic() && !isBoolean() && !isIntegral() && !isNumeric();
+    }
+    
     /**
      * Check if this data has no values. If this returns true, <code>size()</code> must return 0.
      * 
@@ -84,6 +97,10 @@ public interface Data {
     
     public boolean getBoolean();
     public boolean getBoolean(String property);
+    public default boolean getBoolean(String property, boolean defaultValue) {
+        Data propData = get(property);
+        return propData == null || propData.isNull() ? defaultValue : propData.getBoolean();
+    }
     public boolean getBoolean(int index);
     
     public String getString();
@@ -101,12 +118,16 @@ public interface Data {
         if (propData == null || propData.isNull()) {
             return defaultValue;
         }
-        return getLong(property);
+        return propData.getLong();
     }
     public long getLong(int index);
     
     public int getInt();
     public int getInt(String property);
+    public default int getInt(String property, int defaultValue) {
+        Data propData = get(property);
+        return propData == null || propData.isNull() ? defaultValue : propData.getInt();
+    }
     public int getInt(int index);
     
     public short getShort();
@@ -119,12 +140,48 @@ public interface Data {
     
     public double getDouble();
     public double getDouble(String property);
+    public default double getDouble(String property, double defaultValue) {
+        Data propData = get(property);
+        return propData == null || propData.isNull() ? defaultValue : propData.getDouble();
+    }
     public double getDouble(int index);
     
     public float getFloat();
     public float getFloat(String property);
     public float getFloat(int index);
     
+    /**
+     * Append the value of this data as text, as returned by <code>getString()</code>. Implementations write
+     * numbers without creating strings, so this is the way to format leaves on a hot path.
+     * 
+     * @param out The destination
+     * @return The destination
+     * @throws IOException if the destination fails
+     */
+    public default Appendable appendTo(Appendable out) throws IOException {
+        String value = getString();
+        if (value != null) {
+            out.append(value);
+        }
+        return out;
+    }
+    
+    /**
+     * Write the value of this data as UTF-8 text, as returned by <code>getString()</code>. Implementations write
+     * numbers without creating strings.
+     * 
+     * @param buffer The destination
+     * @return The destination
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public default ByteBuffer writeTo(ByteBuffer buffer) {
+        String value = getString();
+        if (value != null) {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer;
+    }
+    
     public boolean isMutable();
     
     public void clear();
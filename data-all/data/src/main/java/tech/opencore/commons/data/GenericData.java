@@ -15,22 +15,33 @@
  */
 package tech.opencore.commons.data;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Histogram;
+import tech.opencore.commons.metrics.Metrics;
 
 /**
  *
  * @author ericb
  */
 public class GenericData implements Data, DataFactory, Serializable {
+    private static final Counter CREATED = Metrics.counter("data.generic.created");
+    private static final Histogram SERIALIZE = Metrics.histogram("data.generic.serialize");
+    private static final Histogram DESERIALIZE = Metrics.histogram("data.generic.deserialize");
+    
     static public final Data NULL = new GenericData(false);
     static private final Set<String> NO_KEYS = new HashSet<>();
     
@@ -49,8 +60,10 @@ public class GenericData implements Data, DataFactory, Serializable {
     private String stringValue = null;
     private long integralValue = 0;
     private double numericValue = 0;
-    private Map<String,Data> content = new LinkedHashMap<>();
+    private Map<String,Data> content = null;
     private Data[] array = null;
+    // the data that created this leaf, the only one allowed to update it in place
+    private transient GenericData owner = null;
 
     private boolean isMutable = true;
     
@@ -94,12 +107,7 @@ public class GenericData implements Data, DataFactory, Serializable {
             case numericType:
                 return false;
             case stringType:
-                try {
-                    Boolean.parseBoolean(stringValue);
-                    return true;
-                } catch (Exception e) {
-                    return false;
-                }
+                return "true".equalsIgnoreCase(stringValue) || "false".equalsIgnoreCase(stringValue);
             default:
                 return size() == 1 && get(0).isBoolean();
         }
@@ -150,6 +158,18 @@ public class GenericData implements Data, DataFactory, Serializable {
         }
     }
 
+    @Override
+    public boolean isString() {
+        switch (valueType) {
+            case stringType:
+                return true;
+            case array:
+                return size() == 1 && get(0).isString();
+            default:
+                return false;
+        }
+    }
+
     @Override
     public boolean isEmpty() {
         return size() == 0;
@@ -185,7 +205,7 @@ public class GenericData implements Data, DataFactory, Serializable {
 
     @Override
     public Data get(String property) {
-        Data result = content.get(property);
+        Data result = content == null ? null : content.get(property);
         
         return result == null ? NULL : result;
     }
@@ -218,7 +238,7 @@ public class GenericData implements Data, DataFactory, Serializable {
                 
                 return NULL;
             case array:
-                if (index < 0 && index > array.length) {
+                if (index < 0 || index >= array.length) {
                     return NULL;
                 }
 
@@ -274,6 +294,61 @@ public class GenericData implements Data, DataFactory, Serializable {
         }
     }
     
+    @Override
+    public Appendable appendTo(Appendable out) throws IOException {
+        switch (valueType) {
+            case nullType:
+                return out;
+            case booleanType:
+                return out.append(booleanValue ? "true" : "false");
+            case integralType:
+                Numbers.appendLong(integralValue, out);
+                return out;
+            case numericType:
+                Numbers.appendDouble(numericValue, out);
+                return out;
+            case stringType:
+                return stringValue == null ? out : out.append(stringValue);
+            default:
+                return get(0).appendTo(out);
+        }
+    }
+    
+    @Override
+    public ByteBuffer writeTo(ByteBuffer buffer) {
+        switch (valueType) {
+            case nullType:
+                return buffer;
+            case booleanType:
+                return putAscii(booleanValue ? "true" : "false", buffer);
+            case integralType:
+                Numbers.putLong(integralValue, buffer);
+                return buffer;
+            case numericType:
+                Numbers.putDouble(numericValue, buffer);
+                return buffer;
+            case stringType:
+                return stringValue == null ? buffer : putAscii(stringValue, buffer);
+            default:
+                return get(0).writeTo(buffer);
+        }
+    }
+    
+    private static ByteBuffer putAscii(String value, ByteBuffer buffer) {
+        for (int i = 0 ; i < value.length() ; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return buffer.put(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (buffer.remaining() < value.length()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0 ; i < value.length() ; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+        return buffer;
+    }
+    
     @Override
     public String getString(String property) {
         return get(property).getString();
@@ -465,7 +540,9 @@ public class GenericData implements Data, DataFactory, Serializable {
     	
         checkMutable();
         valueType = ValueType.nullType;
-        content.clear();
+        if (content != null) {
+            content.clear();
+        }
         array = null;
     }
     
@@ -484,16 +561,19 @@ public class GenericData implements Data, DataFactory, Serializable {
         
         if (!value.keySet().isEmpty()) {
             for (String key : value.keySet()) {
-                set(key, new GenericData(value.get(key), mutable));
+                set(key, newLeaf().set(value.get(key), mutable));
             }
         } else if (value.size() > 1) {
             valueType = ValueType.array;
             array = new Data[value.size()];
             for (int i = 0 ; i < array.length ; i++) {
-                array[i] = new GenericData(value.get(i), mutable);
+                array[i] = newLeaf().set(value.get(i), mutable);
             }
         } else {
-            if (value.isIntegral()) {
+            if (value.isString()) {
+                valueType = ValueType.stringType;
+                stringValue = value.getString();
+            } else if (value.isIntegral()) {
                 valueType = ValueType.integralType;
                 integralValue = value.getLong();
             } else if (value.isNumeric()) {
@@ -525,6 +605,9 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
                 content.put(property, value);
                 break;
@@ -540,25 +623,14 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data set(int index, Data value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    set(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return set(value);
+            }
+            toArray();
         }
+        ensureCapacity(index + 1);
+        array[index] = newLeaf().set(value);
         
         return this;
     }
@@ -584,11 +656,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setBoolean(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setBoolean(value);
+                } else {
+                    content.put(property, newLeaf().setBoolean(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setBoolean(value));
+                get(0).setBoolean(property, value);
                 break;
         }
         
@@ -599,24 +679,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setBoolean(int index, boolean value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setBoolean(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setBoolean(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setBoolean(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setBoolean(value);
+        } else {
+            array[index] = newLeaf().setBoolean(value);
         }
         
         return this;
@@ -643,11 +718,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setString(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setString(value);
+                } else {
+                    content.put(property, newLeaf().setString(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setString(value));
+                get(0).setString(property, value);
                 break;
         }
         
@@ -658,24 +741,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setString(int index, String value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setString(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setString(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setString(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setString(value);
+        } else {
+            array[index] = newLeaf().setString(value);
         }
         
         return this;
@@ -702,11 +780,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setLong(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setLong(value);
+                } else {
+                    content.put(property, newLeaf().setLong(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setLong(value));
+                get(0).setLong(property, value);
                 break;
         }
         
@@ -717,24 +803,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setLong(int index, long value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setLong(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setLong(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setLong(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setLong(value);
+        } else {
+            array[index] = newLeaf().setLong(value);
         }
         
         return this;
@@ -761,11 +842,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setInt(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setInt(value);
+                } else {
+                    content.put(property, newLeaf().setInt(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setInt(value));
+                get(0).setInt(property, value);
                 break;
         }
         
@@ -776,24 +865,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setInt(int index, int value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setInt(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setInt(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setInt(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setInt(value);
+        } else {
+            array[index] = newLeaf().setInt(value);
         }
         
         return this;
@@ -820,11 +904,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setShort(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setShort(value);
+                } else {
+                    content.put(property, newLeaf().setShort(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setShort(value));
+                get(0).setShort(property, value);
                 break;
         }
         
@@ -835,24 +927,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setShort(int index, short value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setShort(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setShort(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setShort(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setShort(value);
+        } else {
+            array[index] = newLeaf().setShort(value);
         }
         
         return this;
@@ -879,11 +966,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setByte(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setByte(value);
+                } else {
+                    content.put(property, newLeaf().setByte(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setByte(value));
+                get(0).setByte(property, value);
                 break;
         }
         
@@ -894,24 +989,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setByte(int index, byte value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setByte(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setByte(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setByte(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setByte(value);
+        } else {
+            array[index] = newLeaf().setByte(value);
         }
         
         return this;
@@ -938,11 +1028,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setDouble(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setDouble(value);
+                } else {
+                    content.put(property, newLeaf().setDouble(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setDouble(value));
+                get(0).setDouble(property, value);
                 break;
         }
         
@@ -953,24 +1051,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setDouble(int index, double value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setDouble(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setDouble(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setDouble(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setDouble(value);
+        } else {
+            array[index] = newLeaf().setDouble(value);
         }
         
         return this;
@@ -997,11 +1090,19 @@ public class GenericData implements Data, DataFactory, Serializable {
                 clear();
             case nullType:
                 valueType = ValueType.object;
+                if (content == null) {
+                    content = new LinkedHashMap<>();
+                }
             case object:
-                content.put(property, new GenericData().setFloat(value));
+                GenericData leaf = ownLeaf(content.get(property));
+                if (leaf != null) {
+                    leaf.setFloat(value);
+                } else {
+                    content.put(property, newLeaf().setFloat(value));
+                }
                 break;
             case array:
-                get(0).set(property, new GenericData().setFloat(value));
+                get(0).setFloat(property, value);
                 break;
         }
         
@@ -1012,24 +1113,19 @@ public class GenericData implements Data, DataFactory, Serializable {
     public Data setFloat(int index, float value) {
         checkMutable();
         
-        switch (valueType) {
-            case booleanType:
-            case integralType:
-            case numericType:
-            case stringType:
-            case object:
-                if (index == 0) {
-                    setFloat(value);
-                    return this;
-                }
-            case nullType:
-                array = new Data[index];
-                valueType = ValueType.array;
-                Data data = new GenericData(this);
-                array[0] = data;
-            case array:
-                ensureCapacity(index+1);
-                array[index] = new GenericData().setFloat(value);
+        if (valueType != ValueType.array) {
+            if (index == 0) {
+                return setFloat(value);
+            }
+            toArray();
+        }
+        ensureCapacity(index + 1);
+        
+        GenericData leaf = ownLeaf(array[index]);
+        if (leaf != null) {
+            leaf.setFloat(value);
+        } else {
+            array[index] = newLeaf().setFloat(value);
         }
         
         return this;
@@ -1038,9 +1134,76 @@ public class GenericData implements Data, DataFactory, Serializable {
     private void ensureCapacity(int capacity) {
         if (array.length < capacity) {
             Data[] newArray = new Data[capacity];
-            Arrays.fill(newArray, NULL);
             System.arraycopy(array, 0, newArray, 0, array.length);
+            Arrays.fill(newArray, array.length, capacity, NULL);
+            array = newArray;
+        }
+    }
+    
+    /**
+     * Turn this data into an array holding its current value, if any, at index 0.
+     */
+    private void toArray() {
+        Data first = isNull() ? NULL : newLeaf().set(this, true);
+        clear();
+        valueType = ValueType.array;
+        array = new Data[] { first };
+    }
+    
+    /**
+     * Get a node that setters can update in place instead of replacing it. Nodes given by callers are never
+     * updated, as they may be held or shared elsewhere.
+     * 
+     * @param data The current value
+     * @return The value if it is a mutable atomic node created by this data, else null.
+     */
+    private GenericData ownLeaf(Data data) {
+        if (!(data instanceof GenericData) || ((GenericData) data).owner != this) {
+            return null;
         }
+        
+        GenericData node = (GenericData) data;
+        switch (node.valueType) {
+            case booleanType:
+            case integralType:
+            case numericType:
+            case stringType:
+                return node.isMutable ? node : null;
+            default:
+                return null;
+        }
+    }
+    
+    private GenericData newLeaf() {
+        GenericData node = newNode();
+        node.owner = this;
+        return node;
+    }
+    
+    /**
+     * Create the node holding a value set in this data. Subclasses override it to allocate nodes elsewhere.
+     * 
+     * @return A new empty mutable node
+     */
+    protected GenericData newNode() {
+        return new GenericData();
+    }
+    
+    /**
+     * Reset this node to an empty mutable node, keeping its map for reuse.
+     */
+    protected void recycle() {
+        valueType = ValueType.nullType;
+        booleanValue = false;
+        stringValue = null;
+        integralValue = 0;
+        numericValue = 0;
+        if (content != null) {
+            content.clear();
+        }
+        array = null;
+        owner = null;
+        isMutable = true;
     }
     
     private void checkMutable() {
@@ -1056,23 +1219,28 @@ public class GenericData implements Data, DataFactory, Serializable {
 
     @Override
     public Data createData() {
+        CREATED.increment();
         return new GenericData();
     }
 
     @Override
     public Data deserialize(InputStream in) throws Exception {
+        long start = DESERIALIZE.startTimer();
         ObjectInputStream input = new ObjectInputStream(in);
         
         Object data = input.readObject();
         
+        DESERIALIZE.stopTimer(start);
         return (Data) data;
     }
 
     @Override
     public void serialize(Data data, OutputStream out) throws Exception {
+        long start = SERIALIZE.startTimer();
         ObjectOutputStream output = new ObjectOutputStream(out);
         
-        output.writeObject(data);
+        output.writeObject(data instanceof GenericData ? data : new GenericData(data));
+        SERIALIZE.stopTimer(start);
     }
     
     @Override
@@ -1129,7 +1297,7 @@ public class GenericData implements Data, DataFactory, Serializable {
         }
         
         if (isAtomic()) {
-            return getInt();
+            return getString().hashCode();
         }
         
         if (!keySet().isEmpty()) {
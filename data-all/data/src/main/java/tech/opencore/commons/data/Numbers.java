@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes numbers as text without creating strings.
+ *
+ * @author Eric Boukobza
+ */
+final class Numbers {
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    private Numbers() {}
+
+    /**
+     * Count the digits of a number.
+     *
+     * @param negative The number, negated if positive, as the opposite of <code>Long.MIN_VALUE</code> does not fit a long
+     * @return The number of digits
+     */
+    private static int digits(long negative) {
+        long bound = -10;
+        for (int digits = 1 ; digits < 19 ; digits++) {
+            if (negative > bound) {
+                return digits;
+            }
+            bound *= 10;
+        }
+        return 19;
+    }
+
+    /**
+     * Append the decimal representation of a long, as <code>Long.toString</code> would return it.
+     *
+     * @param value The value
+     * @param out The destination
+     * @throws IOException if the destination fails
+     */
+    static void appendLong(long value, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+
+        StringBuilder scratch = SCRATCH.get();
+        scratch.setLength(0);
+        scratch.append(value);
+        for (int i = 0 ; i < scratch.length() ; i++) {
+            out.append(scratch.charAt(i));
+        }
+    }
+
+    /**
+     * Write the decimal representation of a long as ASCII, as <code>Long.toString</code> would return it.
+     *
+     * @param value The value
+     * @param buffer The destination
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    static void putLong(long value, ByteBuffer buffer) {
+        long remainder = value < 0 ? value : -value;
+        int length = digits(remainder) + (value < 0 ? 1 : 0);
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+
+        int index = buffer.position() + length;
+        do {
+            buffer.put(--index, (byte) ('0' - remainder % 10));
+            remainder /= 10;
+        } while (remainder != 0);
+        if (value < 0) {
+            buffer.put(--index, (byte) '-');
+        }
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Append the representation of a double, as <code>Double.toString</code> would return it.
+     *
+     * @param value The value
+     * @param out The destination
+     * @throws IOException if the destination fails
+     */
+    static void appendDouble(double value, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+
+        StringBuilder scratch = format(value);
+        for (int i = 0 ; i < scratch.length() ; i++) {
+            out.append(scratch.charAt(i));
+        }
+    }
+
+    /**
+     * Write the representation of a double as ASCII, as <code>Double.toString</code> would return it.
+     *
+     * @param value The value
+     * @param buffer The destination
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    static void putDouble(double value, ByteBuffer buffer) {
+        StringBuilder scratch = format(value);
+        if (buffer.remaining() < scratch.length()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0 ; i < scratch.length() ; i++) {
+            buffer.put((byte) scratch.charAt(i));
+        }
+    }
+
+    private static StringBuilder format(double value) {
+        StringBuilder scratch = SCRATCH.get();
+        scratch.setLength(0);
+        return scratch.append(value);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.arena;
+
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * A node allocated from an arena. The values set in it are held by nodes of the same arena.
+ *
+ * @author Eric Boukobza
+ */
+final class ArenaData extends GenericData {
+    private static final long serialVersionUID = 1L;
+
+    private final transient DataArena arena;
+
+    ArenaData(DataArena arena) {
+        this.arena = arena;
+    }
+
+    @Override
+    protected GenericData newNode() {
+        return arena.allocate();
+    }
+
+    /**
+     * Reset this node for its next allocation by the arena.
+     */
+    void reuse() {
+        recycle();
+    }
+
+    @Override
+    public DataFactory getDataFactory() {
+        return arena;
+    }
+
+    @Override
+    public Data createData() {
+        return arena.allocate();
+    }
+
+    /**
+     * Arena nodes are serialized as plain generic data, as the arena does not outlive the process.
+     */
+    private Object writeReplace() {
+        return new GenericData(this);
+    }
+}
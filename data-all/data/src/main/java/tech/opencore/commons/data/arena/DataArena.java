@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.arena;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * A factory allocating data nodes from a reusable pool, for trees built, read and dropped within a request.
+ *
+ * <code>createData()</code>, <code>copy</code> and the setters of the data they create take their nodes from the
+ * arena, and <code>reset()</code> releases all of them at once: the next allocations reuse them, along with the
+ * maps they allocated, instead of creating new objects. Data obtained from the arena must not be used
+ * after a reset, copy it with <code>new GenericData(data)</code> to keep it.
+ *
+ * An arena is not thread safe, it is meant to be owned by one thread, for example in a <code>ThreadLocal</code>.
+ *
+ * @author Eric Boukobza
+ */
+public class DataArena implements DataFactory {
+    private final DataFactory delegate;
+    private final List<ArenaData> nodes;
+    private int used = 0;
+
+    public DataArena() {
+        this(DataFactory.getDefaultFactory(), 64);
+    }
+
+    /**
+     * Create an arena.
+     *
+     * @param delegate The factory decoding and encoding the data
+     * @param initialCapacity The number of nodes expected per reset cycle
+     */
+    public DataArena(DataFactory delegate, int initialCapacity) {
+        this.delegate = delegate;
+        this.nodes = new ArrayList<>(initialCapacity);
+    }
+
+    GenericData allocate() {
+        if (used < nodes.size()) {
+            return nodes.get(used++);
+        }
+
+        ArenaData node = new ArenaData(this);
+        nodes.add(node);
+        used++;
+        return node;
+    }
+
+    /**
+     * Release all the nodes allocated since the last reset. They are cleared at once, so that the values and
+     * children they held can be collected while they wait for their next allocation.
+     */
+    public void reset() {
+        for (int i = 0 ; i < used ; i++) {
+            nodes.get(i).reuse();
+        }
+        used = 0;
+    }
+
+    /**
+     * Get the number of nodes allocated since the last reset.
+     *
+     * @return The number of used nodes
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    /**
+     * Get the number of nodes held by the arena.
+     *
+     * @return The number of nodes, used or not
+     */
+    public int getCapacity() {
+        return nodes.size();
+    }
+
+    @Override
+    public Data createData() {
+        return allocate();
+    }
+
+    /**
+     * Copy data into nodes of this arena.
+     *
+     * @param data The data to copy
+     * @return The copy
+     */
+    public Data copy(Data data) {
+        return allocate().set(data);
+    }
+
+    /**
+     * Decode data with the delegate factory. The decoders build their own nodes, so the result is not allocated
+     * from this arena.
+     */
+    @Override
+    public Data deserialize(InputStream in) throws Exception {
+        return delegate.deserialize(in);
+    }
+
+    @Override
+    public void serialize(Data data, OutputStream out) throws Exception {
+        delegate.serialize(data, out);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.bind;
+
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+import tech.opencore.commons.data.columnar.Column;
+
+/**
+ * Converts the values of reference fields to and from data.
+ *
+ * @author Eric Boukobza
+ */
+abstract class Converter {
+
+    abstract Object fromData(Data value);
+
+    Object fromColumn(Column column, int row) {
+        return fromData(column.get(row));
+    }
+
+    abstract void write(Data data, String name, Object value);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Converter of(Class<?> type) {
+        if (type == Boolean.class) {
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return value.getBoolean();
+                }
+
+                @Override
+                Object fromColumn(Column column, int row) {
+                    return column.getBoolean(row);
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.setBoolean(name, (Boolean) value);
+                }
+            };
+        }
+        if (type == Byte.class || type == Short.class || type == Integer.class || type == Long.class) {
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return box(value.getLong());
+                }
+
+                @Override
+                Object fromColumn(Column column, int row) {
+                    return box(column.getLong(row));
+                }
+
+                private Object box(long value) {
+                    if (type == Long.class) {
+                        return value;
+                    }
+                    Property.checkRange(value, type);
+                    if (type == Integer.class) {
+                        return (int) value;
+                    }
+                    return type == Short.class ? (Object) (short) value : (Object) (byte) value;
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.setLong(name, ((Number) value).longValue());
+                }
+            };
+        }
+        if (type == Float.class || type == Double.class) {
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return box(value.getDouble());
+                }
+
+                @Override
+                Object fromColumn(Column column, int row) {
+                    return box(column.getDouble(row));
+                }
+
+                private Object box(double value) {
+                    return type == Double.class ? (Object) value : (Object) (float) value;
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.setDouble(name, ((Number) value).doubleValue());
+                }
+            };
+        }
+        if (type == String.class) {
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return value.getString();
+                }
+
+                @Override
+                Object fromColumn(Column column, int row) {
+                    return column.getString(row);
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.setString(name, (String) value);
+                }
+            };
+        }
+        if (type.isEnum()) {
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return Enum.valueOf((Class<Enum>) type, value.getString());
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.setString(name, ((Enum<?>) value).name());
+                }
+            };
+        }
+        if (type == Data.class) {
+            // Mutable values are copied so that the object and the data never share a tree
+            return new Converter() {
+                @Override
+                Object fromData(Data value) {
+                    return value.isMutable() ? new GenericData(value) : value;
+                }
+
+                @Override
+                void write(Data data, String name, Object value) {
+                    data.set(name, ((Data) value).isMutable() ? new GenericData((Data) value) : (Data) value);
+                }
+            };
+        }
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.getName().startsWith("java.")) {
+            throw new IllegalArgumentException("Unsupported property type " + type.getName());
+        }
+
+        // Nested objects resolve their binder on first use, so that classes can refer to themselves
+        return new Converter() {
+            private DataBinder<Object> binder;
+
+            private DataBinder<Object> binder() {
+                if (binder == null) {
+                    binder = (DataBinder<Object>) DataBinder.of(type);
+                }
+                return binder;
+            }
+
+            @Override
+            Object fromData(Data value) {
+                return binder().read(value);
+            }
+
+            @Override
+            void write(Data data, String name, Object value) {
+                data.set(name, binder().write(value, DataFactory.getDefaultFactory().createData()));
+            }
+        };
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.bind;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+import tech.opencore.commons.data.columnar.Column;
+import tech.opencore.commons.data.columnar.ColumnarData;
+
+/**
+ * Binds Java objects to and from data.
+ *
+ * The binder of a class is built once, on the first call to <code>of</code>, and holds a method handle per
+ * field, typed so that primitive fields are read and written without boxing. All the non static, non transient
+ * fields of the class and of its superclasses are bound, under their name or the name given by
+ * <code>DataProperty</code>. Supported field types are primitives except <code>char</code>, their wrappers,
+ * strings, enums, <code>Data</code> and other bindable classes. Bound classes need a constructor without
+ * arguments, which may be private.
+ *
+ * Columnar data is bound directly from its decoded columns with <code>readAll</code>, without creating a
+ * data node per row.
+ *
+ * @param <T> The bound class
+ * @author Eric Boukobza
+ */
+public final class DataBinder<T> {
+    private static final ClassValue<DataBinder<?>> BINDERS = new ClassValue<DataBinder<?>>() {
+        @Override
+        protected DataBinder<?> computeValue(Class<?> type) {
+            return new DataBinder<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Property[] properties;
+
+    private DataBinder(Class<T> type) {
+        this.type = type;
+
+        try {
+            Constructor<T> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+                    .asType(MethodType.methodType(Object.class));
+
+            Map<String, Property> bound = new LinkedHashMap<>();
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type ; c != null && c != Object.class ; c = c.getSuperclass()) {
+                hierarchy.add(c);
+            }
+            Collections.reverse(hierarchy);
+
+            for (Class<?> c : hierarchy) {
+                for (java.lang.reflect.Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+
+                    DataProperty annotation = field.getAnnotation(DataProperty.class);
+                    if (annotation != null && annotation.ignore()) {
+                        continue;
+                    }
+                    String name = annotation == null || annotation.value().isEmpty() ? field.getName() : annotation.value();
+                    if (bound.containsKey(name)) {
+                        throw new IllegalArgumentException("Duplicate property " + name + " in " + type.getName());
+                    }
+                    bound.put(name, Property.of(name, field));
+                }
+            }
+
+            this.properties = bound.values().toArray(new Property[bound.size()]);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no constructor without arguments", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " cannot be bound", e);
+        }
+    }
+
+    /**
+     * Get the binder of a class.
+     *
+     * @param <T> The bound class
+     * @param type The class
+     * @return The binder, shared by all the callers.
+     * @throws IllegalArgumentException if the class cannot be bound
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DataBinder<T> of(Class<T> type) {
+        return (DataBinder<T>) BINDERS.get(type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Get the names of the bound properties.
+     *
+     * @return The property names, in the order of the fields.
+     */
+    public List<String> getPropertyNames() {
+        List<String> names = new ArrayList<>(properties.length);
+        for (Property property : properties) {
+            names.add(property.getName());
+        }
+        return names;
+    }
+
+    private T newInstance() throws Throwable {
+        return type.cast((Object) constructor.invokeExact());
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    /**
+     * Create an object from data. Fields whose property is missing keep the value set by the constructor.
+     *
+     * @param data The data
+     * @return The object, or null if the data is null.
+     */
+    public T read(Data data) {
+        if (data == null || data.isNull()) {
+            return null;
+        }
+
+        try {
+            T result = newInstance();
+            for (Property property : properties) {
+                property.read(data, result);
+            }
+            return result;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Create the objects of the rows of columnar data, reading the values from the columns.
+     *
+     * @param table The columnar data
+     * @return The objects, one per row.
+     */
+    public List<T> readAll(ColumnarData table) {
+        Column[] columns = new Column[properties.length];
+        for (int p = 0 ; p < properties.length ; p++) {
+            columns[p] = table.getColumn(properties[p].getName());
+        }
+
+        int rowCount = table.getRowCount();
+        List<T> result = new ArrayList<>(rowCount);
+        try {
+            for (int row = 0 ; row < rowCount ; row++) {
+                T instance = newInstance();
+                for (int p = 0 ; p < properties.length ; p++) {
+                    Column column = columns[p];
+                    if (column != null && !column.isNull(row)) {
+                        properties[p].read(null, instance, column, row);
+                    }
+                }
+                result.add(instance);
+            }
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+        return result;
+    }
+
+    /**
+     * Write the fields of an object into data. Null fields are not written.
+     *
+     * @param value The object
+     * @param data The data to write into
+     * @return The data
+     */
+    public Data write(T value, Data data) {
+        try {
+            for (Property property : properties) {
+                property.write(value, data);
+            }
+            return data;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Write the fields of an object into new data of the default factory.
+     *
+     * @param value The object
+     * @return The data, or <code>GenericData.NULL</code> if the object is null.
+     */
+    public Data write(T value) {
+        if (value == null) {
+            return GenericData.NULL;
+        }
+        return write(value, DataFactory.getDefaultFactory().createData());
+    }
+}
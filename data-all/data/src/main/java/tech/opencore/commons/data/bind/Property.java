@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.bind;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.columnar.Column;
+
+/**
+ * The binding of one field, reading and writing it through method handles precomputed for its type.
+ *
+ * Primitive fields have handles typed with a <code>boolean</code>, <code>long</code> or <code>double</code>
+ * value and are invoked exactly, so values are never boxed. Reference fields go through a <code>Converter</code>.
+ *
+ * @author Eric Boukobza
+ */
+abstract class Property {
+    protected final String name;
+
+    protected Property(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Read the property from an object into a field, leaving the field unchanged if the property is missing.
+     *
+     * @param data The object holding the property
+     * @param target The instance to set the field of
+     */
+    void read(Data data, Object target) throws Throwable {
+        Data value = data.get(name);
+        if (value != null && !value.isNull()) {
+            read(value, target, null, 0);
+        }
+    }
+
+    /**
+     * Read the property from a value, or from the row of a column when the value is null.
+     */
+    abstract void read(Data value, Object target, Column column, int row) throws Throwable;
+
+    abstract void write(Object source, Data data) throws Throwable;
+
+    static Property of(String name, java.lang.reflect.Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle getter = lookup.unreflectGetter(field);
+        MethodHandle setter = lookup.unreflectSetter(field);
+        Class<?> type = field.getType();
+
+        if (type == boolean.class) {
+            return new BooleanProperty(name, getter, setter);
+        }
+        if (type == byte.class || type == short.class || type == int.class || type == long.class) {
+            return new LongProperty(name, getter, setter, type);
+        }
+        if (type == float.class || type == double.class) {
+            return new DoubleProperty(name, getter, setter);
+        }
+        return new ReferenceProperty(name, getter, setter, Converter.of(type));
+    }
+
+    /**
+     * Check that a value fits in an integral type before it is narrowed.
+     *
+     * @param value The value
+     * @param type The primitive or boxed integral type
+     * @return The value
+     * @throws ArithmeticException if the value would be truncated
+     */
+    static long checkRange(long value, Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return Math.toIntExact(value);
+        }
+        if ((type == short.class || type == Short.class) && value != (short) value) {
+            throw new ArithmeticException("short overflow");
+        }
+        if ((type == byte.class || type == Byte.class) && value != (byte) value) {
+            throw new ArithmeticException("byte overflow");
+        }
+        return value;
+    }
+
+    private static MethodHandle getter(MethodHandle getter, Class<?> type) {
+        return MethodHandles.explicitCastArguments(getter, MethodType.methodType(type, Object.class));
+    }
+
+    private static MethodHandle setter(MethodHandle setter, Class<?> type) {
+        return MethodHandles.explicitCastArguments(setter, MethodType.methodType(void.class, Object.class, type));
+    }
+
+    private static final class BooleanProperty extends Property {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        BooleanProperty(String name, MethodHandle getter, MethodHandle setter) {
+            super(name);
+            this.getter = getter(getter, boolean.class);
+            this.setter = setter(setter, boolean.class);
+        }
+
+        @Override
+        void read(Data value, Object target, Column column, int row) throws Throwable {
+            setter.invokeExact(target, value == null ? column.getBoolean(row) : value.getBoolean());
+        }
+
+        @Override
+        void write(Object source, Data data) throws Throwable {
+            data.setBoolean(name, (boolean) getter.invokeExact(source));
+        }
+    }
+
+    private static final class LongProperty extends Property {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Class<?> type;
+
+        LongProperty(String name, MethodHandle getter, MethodHandle setter, Class<?> type) {
+            super(name);
+            this.getter = getter(getter, long.class);
+            this.setter = setter(setter, long.class);
+            this.type = type;
+        }
+
+        @Override
+        void read(Data value, Object target, Column column, int row) throws Throwable {
+            long result = value == null ? column.getLong(row) : value.getLong();
+            setter.invokeExact(target, type == long.class ? result : checkRange(result, type));
+        }
+
+        @Override
+        void write(Object source, Data data) throws Throwable {
+            data.setLong(name, (long) getter.invokeExact(source));
+        }
+    }
+
+    private static final class DoubleProperty extends Property {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        DoubleProperty(String name, MethodHandle getter, MethodHandle setter) {
+            super(name);
+            this.getter = getter(getter, double.class);
+            this.setter = setter(setter, double.class);
+        }
+
+        @Override
+        void read(Data value, Object target, Column column, int row) throws Throwable {
+            setter.invokeExact(target, value == null ? column.getDouble(row) : value.getDouble());
+        }
+
+        @Override
+        void write(Object source, Data data) throws Throwable {
+            data.setDouble(name, (double) getter.invokeExact(source));
+        }
+    }
+
+    private static final class ReferenceProperty extends Property {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Converter converter;
+
+        ReferenceProperty(String name, MethodHandle getter, MethodHandle setter, Converter converter) {
+            super(name);
+            this.getter = getter(getter, Object.class);
+            this.setter = setter(setter, Object.class);
+            this.converter = converter;
+        }
+
+        @Override
+        void read(Data value, Object target, Column column, int row) throws Throwable {
+            setter.invokeExact(target, value == null ? converter.fromColumn(column, row) : converter.fromData(value));
+        }
+
+        @Override
+        void write(Object source, Data data) throws Throwable {
+            Object value = (Object) getter.invokeExact(source);
+            if (value != null) {
+                converter.write(data, name, value);
+            }
+        }
+    }
+}
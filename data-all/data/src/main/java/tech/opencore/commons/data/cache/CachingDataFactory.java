@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+
+/**
+ * A <code>DataFactory</code> decorator reusing the data it already loaded or deserialized from identical inputs.
+ *
+ * Files are cached by canonical path and are reloaded when their modification time or length changes.
+ * Streams are fully read and cached by the SHA-256 fingerprint of their content.
+ *
+ * Cached data are shared between callers, so they are returned immutable. Callers needing to modify
+ * them must copy them first.
+ *
+ * @author Eric Boukobza
+ */
+public class CachingDataFactory implements DataFactory {
+    private static final class FileVersion {
+        final long lastModified;
+        final long length;
+
+        FileVersion(File file) {
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileVersion)) {
+                return false;
+            }
+            FileVersion v = (FileVersion) o;
+            return lastModified == v.lastModified && length == v.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(lastModified) * 31 + Long.hashCode(length);
+        }
+    }
+
+    private static final class Fingerprint {
+        final byte[] digest;
+        final int hash;
+
+        Fingerprint(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Fingerprint && Arrays.equals(digest, ((Fingerprint) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final DataFactory factory;
+    private final DataCache cache;
+
+    public CachingDataFactory(DataFactory factory, long maximumWeight) {
+        this(factory, new DataCache(maximumWeight));
+    }
+
+    public CachingDataFactory(DataFactory factory, DataCache cache) {
+        this.factory = factory;
+        this.cache = cache;
+    }
+
+    public DataFactory getDelegate() {
+        return factory;
+    }
+
+    public DataCache getCache() {
+        return cache;
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public Data createData() {
+        return factory.createData();
+    }
+
+    @Override
+    public Data load(String filename) throws Exception {
+        return load(new File(filename));
+    }
+
+    @Override
+    public Data load(File file) throws Exception {
+        File key = file.getCanonicalFile();
+        if (!key.isFile()) {
+            cache.invalidate(key);
+            throw new FileNotFoundException(file.getPath());
+        }
+
+        FileVersion version = new FileVersion(key);
+        Data result = cache.get(key, version);
+        if (result == null) {
+            result = freeze(factory.load(key));
+            cache.put(key, result, DataWeigher.weigh(result), version);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Data deserialize(InputStream in) throws Exception {
+        byte[] content = readFully(in);
+        Fingerprint key = new Fingerprint(MessageDigest.getInstance("SHA-256").digest(content));
+
+        Data result = cache.get(key, null);
+        if (result == null) {
+            result = freeze(factory.deserialize(new ByteArrayInputStream(content)));
+            cache.put(key, result, DataWeigher.weigh(result), null);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void store(Data data, String filename) throws Exception {
+        store(data, new File(filename));
+    }
+
+    @Override
+    public void store(Data data, File file) throws Exception {
+        try {
+            factory.store(data, file);
+        } finally {
+            cache.invalidate(file.getCanonicalFile());
+        }
+    }
+
+    @Override
+    public void serialize(Data data, OutputStream out) throws Exception {
+        factory.serialize(data, out);
+    }
+
+    private Data freeze(Data data) {
+        return data.isMutable() ? factory.createData().set(data, false) : data;
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+}
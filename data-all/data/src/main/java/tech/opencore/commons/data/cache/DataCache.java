@@ -0,0 +1,266 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * A cache of data bounded by the estimated size of the cached trees.
+ *
+ * Each entry carries a version, for instance the modification time of the file it was loaded from.
+ * A lookup with a different version is a miss and drops the stale entry.
+ *
+ * Two eviction policies are available:
+ * <ul>
+ * <li><code>LRU</code> evicts the least recently used entries.</li>
+ * <li><code>WTINYLFU</code> admits new entries in a small LRU window. Entries leaving the window only
+ * enter the main LRU region if they were accessed more often than the entry they would evict, as
+ * estimated by a frequency sketch. This keeps one-off loads from flushing the popular entries.</li>
+ * </ul>
+ *
+ * @author Eric Boukobza
+ */
+public class DataCache {
+    private static final Counter HITS = Metrics.counter("data.cache.hits");
+    private static final Counter MISSES = Metrics.counter("data.cache.misses");
+    private static final Counter EVICTIONS = Metrics.counter("data.cache.evictions");
+
+    public enum Policy {
+        LRU,
+        WTINYLFU
+    }
+
+    private static final class Entry {
+        final Object key;
+        final Data value;
+        final long weight;
+        final Object version;
+
+        Entry(Object key, Data value, long weight, Object version) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.version = version;
+        }
+    }
+
+    private final Policy policy;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final LinkedHashMap<Object, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long windowWeight = 0;
+    private long mainWeight = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    public DataCache(long maximumWeight) {
+        this(maximumWeight, Policy.WTINYLFU);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumWeight The maximum estimated size in bytes of the cached data
+     * @param policy The eviction policy
+     */
+    public DataCache(long maximumWeight, Policy policy) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+
+        this.policy = policy;
+        this.maximumWeight = maximumWeight;
+
+        if (policy == Policy.WTINYLFU) {
+            windowMaximum = Math.max(1, maximumWeight / 100);
+            sketch = new FrequencySketch((int) Math.min(1 << 20, maximumWeight >>> 10));
+        } else {
+            windowMaximum = maximumWeight;
+            sketch = null;
+        }
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Get a cached data.
+     *
+     * @param key The key of the entry
+     * @param version The expected version of the entry
+     * @return The cached data, or null if there is no entry for the key with the expected version.
+     */
+    public synchronized Data get(Object key, Object version) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+
+        Entry entry = window.get(key);
+        if (entry == null) {
+            entry = main.get(key);
+        }
+
+        if (entry == null) {
+            missCount++;
+            MISSES.increment();
+            return null;
+        }
+
+        if (!Objects.equals(entry.version, version)) {
+            remove(key);
+            invalidationCount++;
+            missCount++;
+            MISSES.increment();
+            return null;
+        }
+
+        hitCount++;
+        HITS.increment();
+        return entry.value;
+    }
+
+    /**
+     * Cache a data, replacing any entry with the same key.
+     * A data weighing more than the maximum weight of the cache is not cached, nor with <code>WTINYLFU</code> a
+     * data weighing more than both the window and the main region.
+     *
+     * @param key The key of the entry
+     * @param value The data to cache, which must not be modified afterwards
+     * @param weight The estimated size of the data
+     * @param version The version of the entry
+     */
+    public synchronized void put(Object key, Data value, long weight, Object version) {
+        remove(key);
+
+        long limit = policy == Policy.LRU ? maximumWeight : Math.max(windowMaximum, maximumWeight - windowMaximum);
+        if (weight > limit) {
+            return;
+        }
+
+        window.put(key, new Entry(key, value, weight, version));
+        windowWeight += weight;
+
+        while (windowWeight > windowMaximum && !window.isEmpty()) {
+            Entry candidate = removeEldest(window);
+            windowWeight -= candidate.weight;
+
+            if (policy == Policy.LRU) {
+                evictionCount++;
+                EVICTIONS.increment();
+            } else {
+                admit(candidate);
+            }
+        }
+    }
+
+    private void admit(Entry candidate) {
+        long mainMaximum = maximumWeight - windowMaximum;
+        if (candidate.weight > mainMaximum) {
+            evictionCount++;
+            EVICTIONS.increment();
+            return;
+        }
+
+        // Find the victims making room for the candidate, and evict them only if it beats all of them
+        int frequency = sketch.frequency(candidate.key);
+        long excess = mainWeight + candidate.weight - mainMaximum;
+        int victims = 0;
+        for (Iterator<Entry> iterator = main.values().iterator() ; excess > 0 ; victims++) {
+            Entry victim = iterator.next();
+            if (frequency <= sketch.frequency(victim.key)) {
+                evictionCount++;
+                EVICTIONS.increment();
+                return;
+            }
+            excess -= victim.weight;
+        }
+
+        Iterator<Entry> iterator = main.values().iterator();
+        for (int i = 0 ; i < victims ; i++) {
+            mainWeight -= iterator.next().weight;
+            iterator.remove();
+            evictionCount++;
+            EVICTIONS.increment();
+        }
+
+        main.put(candidate.key, candidate);
+        mainWeight += candidate.weight;
+    }
+
+    private static Entry removeEldest(LinkedHashMap<Object, Entry> map) {
+        Iterator<Entry> iterator = map.values().iterator();
+        Entry eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    private boolean remove(Object key) {
+        Entry entry = window.remove(key);
+        if (entry != null) {
+            windowWeight -= entry.weight;
+            return true;
+        }
+
+        entry = main.remove(key);
+        if (entry != null) {
+            mainWeight -= entry.weight;
+            return true;
+        }
+
+        return false;
+    }
+
+    public synchronized void invalidate(Object key) {
+        if (remove(key)) {
+            invalidationCount++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidationCount += window.size() + main.size();
+        window.clear();
+        main.clear();
+        windowWeight = 0;
+        mainWeight = 0;
+    }
+
+    public synchronized long size() {
+        return window.size() + main.size();
+    }
+
+    public synchronized long weightedSize() {
+        return windowWeight + mainWeight;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hitCount, missCount, evictionCount, invalidationCount, window.size() + main.size(), windowWeight + mainWeight);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.cache;
+
+import tech.opencore.commons.data.Data;
+
+/**
+ * Estimates the heap footprint of a data tree, in bytes.
+ *
+ * The estimate is based on the layout of <code>GenericData</code> on a 64 bits JVM with compressed oops.
+ * It is meant to bound a cache, not to be exact.
+ *
+ * @author Eric Boukobza
+ */
+public final class DataWeigher {
+    static final int NODE = 80;
+    static final int MAP_ENTRY = 40;
+    static final int STRING = 40;
+    static final int REFERENCE = 4;
+
+    private DataWeigher() {}
+
+    public static long weigh(Data data) {
+        if (data == null || data.isNull()) {
+            return NODE;
+        }
+
+        if (data.isObject()) {
+            long weight = NODE;
+            for (String key : data.keySet()) {
+                weight += MAP_ENTRY + weigh(key) + weigh(data.get(key));
+            }
+            return weight;
+        }
+
+        int size = data.size();
+        if (size > 1 || (size == 1 && data.get(0) != data)) {
+            long weight = NODE + 16 + (long) size * REFERENCE;
+            for (int i = 0 ; i < size ; i++) {
+                weight += weigh(data.get(i));
+            }
+            return weight;
+        }
+
+        if (data.isIntegral() || data.isNumeric() || data.isBoolean()) {
+            return NODE;
+        }
+
+        return NODE + weigh(data.getString());
+    }
+
+    static long weigh(String value) {
+        return value == null ? 0 : STRING + value.length();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class BooleanColumn extends Column {
+    private final BitSet values;
+
+    public BooleanColumn(String name, int size, BitSet values, BitSet nulls) {
+        super(name, size, nulls);
+        this.values = values;
+    }
+
+    BitSet getValues() {
+        return values;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.BOOLEAN;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return values.get(row);
+    }
+
+    @Override
+    public long getLong(int row) {
+        return values.get(row) ? 1 : 0;
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values.get(row) ? 1 : 0;
+    }
+
+    @Override
+    public String getString(int row) {
+        return isNull(row) ? null : Boolean.toString(values.get(row));
+    }
+
+    /**
+     * Count the rows holding true.
+     *
+     * @return The number of true values
+     */
+    public int countTrue() {
+        return values.cardinality();
+    }
+
+    @Override
+    public double sum() {
+        return countTrue();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * The values of one key for all the rows of a <code>ColumnarData</code>.
+ *
+ * Typed getters convert the value of a row the same way <code>Data</code> does. Reading a null row
+ * returns 0, false or null depending on the type.
+ *
+ * @author Eric Boukobza
+ */
+public abstract class Column {
+    protected final String name;
+    protected final int size;
+    protected final BitSet nulls;
+
+    protected Column(String name, int size, BitSet nulls) {
+        this.name = name;
+        this.size = size;
+        this.nulls = nulls == null || nulls.isEmpty() ? null : nulls;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract ColumnType getType();
+
+    /**
+     * Get the number of rows of this column, including null rows.
+     *
+     * @return The number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls != null && nulls.get(row);
+    }
+
+    public boolean hasNulls() {
+        return nulls != null;
+    }
+
+    /**
+     * Get the number of non null rows.
+     *
+     * @return The number of non null values of this column
+     */
+    public int count() {
+        return nulls == null ? size : size - nulls.cardinality();
+    }
+
+    public abstract boolean getBoolean(int row);
+    public abstract long getLong(int row);
+    public abstract double getDouble(int row);
+    public abstract String getString(int row);
+
+    /**
+     * Get the value of a row as data.
+     *
+     * @param row The row
+     * @return The value, or <code>GenericData.NULL</code> if the row is null.
+     */
+    public Data get(int row) {
+        if (row < 0 || row >= size || isNull(row)) {
+            return GenericData.NULL;
+        }
+
+        return new ColumnarValue(this, row);
+    }
+
+    protected UnsupportedOperationException notNumeric() {
+        return new UnsupportedOperationException("Column " + name + " of type " + getType() + " is not numeric");
+    }
+
+    /**
+     * Sum the non null values of a numeric column.
+     *
+     * @return The sum of the values
+     */
+    public double sum() {
+        throw notNumeric();
+    }
+
+    public double min() {
+        throw notNumeric();
+    }
+
+    public double max() {
+        throw notNumeric();
+    }
+
+    public double average() {
+        int count = count();
+        return count == 0 ? Double.NaN : sum() / count;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * Encodings of the on-disk columnar format.
+ *
+ * Sequences of longs are written with whichever of the following encodings is the smallest:
+ * <ul>
+ * <li><code>PLAIN</code>: zigzag varints.</li>
+ * <li><code>DELTA</code>: the first value then the zigzag varint differences between consecutive values,
+ * suited to sorted or slowly changing values like timestamps and ids.</li>
+ * <li><code>RLE</code>: runs of equal values, as the zigzag varint value and the varint run length.</li>
+ * <li><code>RAW</code>: 8 bytes per value, suited to the bits of doubles.</li>
+ * </ul>
+ *
+ * @author Eric Boukobza
+ */
+final class ColumnEncoding {
+    static final byte PLAIN = 0;
+    static final byte DELTA = 1;
+    static final byte RLE = 2;
+    static final byte RAW = 3;
+
+    private ColumnEncoding() {}
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0 ; shift < 64 ; shift += 7) {
+            byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeBitSet(DataOutput out, BitSet bits) throws IOException {
+        long[] words = bits == null ? new long[0] : bits.toLongArray();
+        writeVarInt(out, words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static BitSet readBitSet(DataInput in) throws IOException {
+        long[] words = new long[readVarInt(in)];
+        for (int i = 0 ; i < words.length ; i++) {
+            words[i] = in.readLong();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Write a sequence of longs with the smallest encoding.
+     *
+     * @param out The output
+     * @param values The values
+     * @param count The number of values to write
+     * @return The encoding used
+     * @throws IOException if the output fails
+     */
+    static byte writeLongs(DataOutput out, long[] values, int count) throws IOException {
+        long plain = 0;
+        long delta = 0;
+        long rle = 0;
+        for (int i = 0 ; i < count ; i++) {
+            plain += varLongSize(zigzag(values[i]));
+            delta += varLongSize(zigzag(i == 0 ? values[0] : values[i] - values[i - 1]));
+            if (i == 0 || values[i] != values[i - 1]) {
+                int run = 1;
+                while (i + run < count && values[i + run] == values[i]) {
+                    run++;
+                }
+                rle += varLongSize(zigzag(values[i])) + varLongSize(run);
+            }
+        }
+        long raw = 8L * count;
+
+        byte encoding = PLAIN;
+        long best = plain;
+        if (delta < best) {
+            encoding = DELTA;
+            best = delta;
+        }
+        if (rle < best) {
+            encoding = RLE;
+            best = rle;
+        }
+        if (raw < best) {
+            encoding = RAW;
+        }
+
+        out.writeByte(encoding);
+        switch (encoding) {
+            case PLAIN:
+                for (int i = 0 ; i < count ; i++) {
+                    writeVarLong(out, zigzag(values[i]));
+                }
+                break;
+            case DELTA:
+                for (int i = 0 ; i < count ; i++) {
+                    writeVarLong(out, zigzag(i == 0 ? values[0] : values[i] - values[i - 1]));
+                }
+                break;
+            case RLE:
+                for (int i = 0 ; i < count ; ) {
+                    int run = 1;
+                    while (i + run < count && values[i + run] == values[i]) {
+                        run++;
+                    }
+                    writeVarLong(out, zigzag(values[i]));
+                    writeVarInt(out, run);
+                    i += run;
+                }
+                break;
+            default:
+                for (int i = 0 ; i < count ; i++) {
+                    out.writeLong(values[i]);
+                }
+        }
+
+        return encoding;
+    }
+
+    static long[] readLongs(DataInput in, int count) throws IOException {
+        long[] values = new long[count];
+        byte encoding = in.readByte();
+
+        switch (encoding) {
+            case PLAIN:
+                for (int i = 0 ; i < count ; i++) {
+                    values[i] = unzigzag(readVarLong(in));
+                }
+                break;
+            case DELTA:
+                for (int i = 0 ; i < count ; i++) {
+                    long value = unzigzag(readVarLong(in));
+                    values[i] = i == 0 ? value : values[i - 1] + value;
+                }
+                break;
+            case RLE:
+                for (int i = 0 ; i < count ; ) {
+                    long value = unzigzag(readVarLong(in));
+                    int run = readVarInt(in);
+                    if (run <= 0 || i + run > count) {
+                        throw new IOException("Invalid run length " + run);
+                    }
+                    for (int j = 0 ; j < run ; j++) {
+                        values[i++] = value;
+                    }
+                }
+                break;
+            case RAW:
+                for (int i = 0 ; i < count ; i++) {
+                    values[i] = in.readLong();
+                }
+                break;
+            default:
+                throw new IOException("Unknown encoding " + encoding);
+        }
+
+        return values;
+    }
+}
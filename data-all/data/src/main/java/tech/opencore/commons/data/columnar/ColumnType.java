@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+/**
+ * The physical type of a column.
+ *
+ * @author Eric Boukobza
+ */
+public enum ColumnType {
+    BOOLEAN,
+    LONG,
+    DOUBLE,
+    STRING,
+    /**
+     * Non atomic or mixed values, kept as data.
+     */
+    DATA;
+
+    /**
+     * Get the type able to hold the values of both types as they are.
+     *
+     * @param other The type of other values of the column, or null
+     * @return The widened type
+     */
+    ColumnType widen(ColumnType other) {
+        if (other == null || other == this) {
+            return this;
+        }
+
+        // converting would change the values read back, like 12 turning into 12.0 or "12"
+        return DATA;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import tech.opencore.commons.data.AbstractData;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * Immutable array of records stored column by column.
+ *
+ * Each key of the records is stored as a typed column: integral and numeric values in primitive arrays,
+ * booleans in a bit set, strings dictionary encoded, and nested or mixed values as data. Rows are still
+ * available as objects through <code>get(int)</code>, while columns can be scanned and aggregated directly.
+ *
+ * @author Eric Boukobza
+ */
+public class ColumnarData extends AbstractData {
+    private final int rowCount;
+    private final Column[] columns;
+    private final Map<String, Column> columnsByName;
+    private final Set<String> columnNames;
+
+    public ColumnarData(int rowCount, Column... columns) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.columnsByName = new HashMap<>(columns.length * 2);
+
+        Set<String> names = new LinkedHashSet<>();
+        for (Column column : columns) {
+            if (column.size() != rowCount) {
+                throw new IllegalArgumentException("Column " + column.getName() + " has " + column.size() + " rows instead of " + rowCount);
+            }
+            columnsByName.put(column.getName(), column);
+            names.add(column.getName());
+        }
+        this.columnNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Convert an array of records. Non object values of the array are kept as records with no keys.
+     *
+     * @param rows The records
+     * @return The columnar representation of the records
+     */
+    public static ColumnarData of(Data rows) {
+        if (rows instanceof ColumnarData) {
+            return (ColumnarData) rows;
+        }
+
+        Builder builder = new Builder();
+        int size = rows.isObject() ? 1 : rows.size();
+        for (int i = 0 ; i < size ; i++) {
+            builder.add(rows.isObject() ? rows : rows.get(i));
+        }
+        return builder.build();
+    }
+
+    public static ColumnarData of(Iterable<? extends Data> rows) {
+        Builder builder = new Builder();
+        for (Data row : rows) {
+            builder.add(row);
+        }
+        return builder.build();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Column getColumn(String name) {
+        return columnsByName.get(name);
+    }
+
+    public Set<String> getColumnNames() {
+        return columnNames;
+    }
+
+    Column[] getColumns() {
+        return columns;
+    }
+
+    private Column requireColumn(String name) {
+        Column column = columnsByName.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column " + name);
+        }
+        return column;
+    }
+
+    public int count(String column) {
+        return requireColumn(column).count();
+    }
+
+    public double sum(String column) {
+        return requireColumn(column).sum();
+    }
+
+    public double min(String column) {
+        return requireColumn(column).min();
+    }
+
+    public double max(String column) {
+        return requireColumn(column).max();
+    }
+
+    public double average(String column) {
+        return requireColumn(column).average();
+    }
+
+    @Override
+    public boolean isAtomic() {
+        return false;
+    }
+
+    @Override
+    public boolean isObject() {
+        return false;
+    }
+
+    @Override
+    public boolean isBoolean() {
+        return false;
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return false;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public DataFactory getDataFactory() {
+        return ColumnarDataFactory.getInstance();
+    }
+
+    @Override
+    public Data get(String property) {
+        return GenericData.NULL;
+    }
+
+    @Override
+    public Data get(int index) {
+        if (index < 0 || index >= rowCount) {
+            return GenericData.NULL;
+        }
+
+        return new ColumnarRow(this, index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Data)) {
+            return false;
+        }
+
+        Data d = (Data) o;
+        if (d.size() != rowCount || !d.keySet().isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0 ; i < rowCount ; i++) {
+            if (!get(i).equals(d.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return rowCount * 31 + columnNames.hashCode();
+    }
+
+    /**
+     * Accumulates records and infers the type of each column when building.
+     */
+    public static class Builder {
+        private final List<Data> rows = new ArrayList<>();
+
+        public Builder add(Data row) {
+            rows.add(row);
+            return this;
+        }
+
+        public ColumnarData build() {
+            Map<String, ColumnType> types = new LinkedHashMap<>();
+            for (Data row : rows) {
+                for (String key : row.keySet()) {
+                    ColumnType type = typeOf(row.get(key));
+                    if (type == null) {
+                        types.putIfAbsent(key, null);
+                    } else {
+                        types.put(key, type.widen(types.get(key)));
+                    }
+                }
+            }
+
+            List<Column> columns = new ArrayList<>(types.size());
+            for (Map.Entry<String, ColumnType> entry : types.entrySet()) {
+                // a column null in every row has no type to infer and is kept as data
+                ColumnType type = entry.getValue() == null ? ColumnType.DATA : entry.getValue();
+                columns.add(buildColumn(entry.getKey(), type));
+            }
+
+            return new ColumnarData(rows.size(), columns.toArray(new Column[columns.size()]));
+        }
+
+        private static ColumnType typeOf(Data value) {
+            if (value == null || value.isNull()) {
+                return null;
+            }
+            if (value.isObject() || !value.isAtomic()) {
+                return ColumnType.DATA;
+            }
+            if (value.isString()) {
+                return ColumnType.STRING;
+            }
+            if (value.isIntegral()) {
+                return ColumnType.LONG;
+            }
+            if (value.isNumeric()) {
+                return ColumnType.DOUBLE;
+            }
+            if (value.isBoolean()) {
+                return ColumnType.BOOLEAN;
+            }
+            return ColumnType.STRING;
+        }
+
+        private Column buildColumn(String name, ColumnType type) {
+            int size = rows.size();
+            BitSet nulls = new BitSet(size);
+            for (int i = 0 ; i < size ; i++) {
+                Data value = rows.get(i).get(name);
+                if (value == null || value.isNull()) {
+                    nulls.set(i);
+                }
+            }
+
+            switch (type) {
+                case LONG: {
+                    long[] values = new long[size];
+                    for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                        values[i] = rows.get(i).getLong(name);
+                    }
+                    return new LongColumn(name, values, nulls);
+                }
+                case DOUBLE: {
+                    double[] values = new double[size];
+                    for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                        values[i] = rows.get(i).getDouble(name);
+                    }
+                    return new DoubleColumn(name, values, nulls);
+                }
+                case BOOLEAN: {
+                    BitSet values = new BitSet(size);
+                    for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                        values.set(i, rows.get(i).getBoolean(name));
+                    }
+                    return new BooleanColumn(name, size, values, nulls);
+                }
+                case STRING: {
+                    Map<String, Integer> dictionary = new LinkedHashMap<>();
+                    int[] codes = new int[size];
+                    for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                        String value = rows.get(i).getString(name);
+                        Integer code = dictionary.get(value);
+                        if (code == null) {
+                            code = dictionary.size();
+                            dictionary.put(value, code);
+                        }
+                        codes[i] = code;
+                    }
+                    return new StringColumn(name, dictionary.keySet().toArray(new String[dictionary.size()]), codes, nulls);
+                }
+                default: {
+                    Data[] values = new Data[size];
+                    for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                        Data value = rows.get(i).get(name);
+                        values[i] = value.isMutable() ? new GenericData(value, false) : value;
+                    }
+                    return new DataColumn(name, values, nulls);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.BitSet;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Histogram;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * Codec of the on-disk columnar format. Serializing data that is not a <code>ColumnarData</code> converts it first.
+ *
+ * The format is:
+ * <pre>
+ * magic "OCCL", version byte, row count, column count
+ * for each column: name, type byte, null bit set, then the values of the non null rows
+ *   BOOLEAN: bit set of the values
+ *   LONG:    long sequence
+ *   DOUBLE:  long sequence of the bits of the values
+ *   STRING:  dictionary size, dictionary strings, long sequence of the codes
+ *   DATA:    length prefixed values serialized by the nested factory
+ * </pre>
+ * Counts and lengths are varints and strings are length prefixed UTF-8. Long sequences use the smallest
+ * of the plain, delta, run length and raw encodings, see <code>ColumnEncoding</code>.
+ *
+ * @author Eric Boukobza
+ */
+public class ColumnarDataFactory implements DataFactory {
+    private static final Histogram SERIALIZE = Metrics.histogram("data.columnar.serialize");
+    private static final Histogram DESERIALIZE = Metrics.histogram("data.columnar.deserialize");
+
+    public static final int MAGIC = 0x4F43434C;
+    public static final byte VERSION = 1;
+
+    private static final ColumnarDataFactory INSTANCE = new ColumnarDataFactory(DataFactory.getDefaultFactory());
+
+    private final DataFactory factory;
+
+    public static ColumnarDataFactory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Create a codec.
+     *
+     * @param factory The factory used for new data and for the values of <code>DATA</code> columns
+     */
+    public ColumnarDataFactory(DataFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Columnar data is immutable and built from complete records, so this returns data of the nested factory.
+     *
+     * @return New data of the nested factory
+     */
+    @Override
+    public Data createData() {
+        return factory.createData();
+    }
+
+    @Override
+    public Data deserialize(InputStream in) throws Exception {
+        long start = DESERIALIZE.startTimer();
+        DataInputStream input = new DataInputStream(in);
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a columnar data stream");
+        }
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar data version " + version);
+        }
+
+        int rowCount = ColumnEncoding.readVarInt(input);
+        Column[] columns = new Column[ColumnEncoding.readVarInt(input)];
+        for (int c = 0 ; c < columns.length ; c++) {
+            columns[c] = readColumn(input, rowCount);
+        }
+
+        DESERIALIZE.stopTimer(start);
+        return new ColumnarData(rowCount, columns);
+    }
+
+    private Column readColumn(DataInputStream in, int rowCount) throws Exception {
+        String name = ColumnEncoding.readString(in);
+        ColumnType[] types = ColumnType.values();
+        int typeIndex = in.readByte();
+        if (typeIndex < 0 || typeIndex >= types.length) {
+            throw new IOException("Unknown column type " + typeIndex);
+        }
+        ColumnType type = types[typeIndex];
+        BitSet nulls = ColumnEncoding.readBitSet(in);
+        int count = rowCount - nulls.cardinality();
+
+        switch (type) {
+            case BOOLEAN:
+                return new BooleanColumn(name, rowCount, ColumnEncoding.readBitSet(in), nulls);
+            case LONG: {
+                long[] values = ColumnEncoding.readLongs(in, count);
+                return new LongColumn(name, expand(values, nulls, rowCount), nulls);
+            }
+            case DOUBLE: {
+                long[] bits = expand(ColumnEncoding.readLongs(in, count), nulls, rowCount);
+                double[] values = new double[rowCount];
+                for (int i = 0 ; i < rowCount ; i++) {
+                    values[i] = Double.longBitsToDouble(bits[i]);
+                }
+                return new DoubleColumn(name, values, nulls);
+            }
+            case STRING: {
+                String[] dictionary = new String[ColumnEncoding.readVarInt(in)];
+                for (int i = 0 ; i < dictionary.length ; i++) {
+                    dictionary[i] = ColumnEncoding.readString(in);
+                }
+                long[] codes = expand(ColumnEncoding.readLongs(in, count), nulls, rowCount);
+                int[] intCodes = new int[rowCount];
+                for (int i = 0 ; i < rowCount ; i++) {
+                    if (codes[i] < 0 || codes[i] >= Math.max(1, dictionary.length)) {
+                        throw new IOException("Invalid dictionary code " + codes[i] + " in column " + name);
+                    }
+                    intCodes[i] = (int) codes[i];
+                }
+                return new StringColumn(name, dictionary, intCodes, nulls);
+            }
+            default: {
+                Data[] values = new Data[rowCount];
+                for (int i = nulls.nextClearBit(0) ; i < rowCount ; i = nulls.nextClearBit(i + 1)) {
+                    byte[] bytes = new byte[ColumnEncoding.readVarInt(in)];
+                    in.readFully(bytes);
+                    Data value = factory.deserialize(new ByteArrayInputStream(bytes));
+                    values[i] = value.isMutable() ? factory.createData().set(value, false) : value;
+                }
+                return new DataColumn(name, values, nulls);
+            }
+        }
+    }
+
+    private static long[] expand(long[] values, BitSet nulls, int rowCount) {
+        if (nulls.isEmpty()) {
+            return values;
+        }
+
+        long[] result = new long[rowCount];
+        int j = 0;
+        for (int i = nulls.nextClearBit(0) ; i < rowCount ; i = nulls.nextClearBit(i + 1)) {
+            result[i] = values[j++];
+        }
+        return result;
+    }
+
+    @Override
+    public void serialize(Data data, OutputStream out) throws Exception {
+        long start = SERIALIZE.startTimer();
+        ColumnarData table = ColumnarData.of(data);
+        DataOutputStream output = new DataOutputStream(out);
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        ColumnEncoding.writeVarInt(output, table.getRowCount());
+        ColumnEncoding.writeVarInt(output, table.getColumns().length);
+
+        for (Column column : table.getColumns()) {
+            writeColumn(output, column);
+        }
+
+        output.flush();
+        SERIALIZE.stopTimer(start);
+    }
+
+    private void writeColumn(DataOutputStream out, Column column) throws Exception {
+        ColumnEncoding.writeString(out, column.getName());
+        out.writeByte(column.getType().ordinal());
+
+        BitSet nulls = new BitSet(column.size());
+        for (int i = 0 ; i < column.size() ; i++) {
+            if (column.isNull(i)) {
+                nulls.set(i);
+            }
+        }
+        ColumnEncoding.writeBitSet(out, nulls);
+
+        int size = column.size();
+        long[] values = new long[column.count()];
+        int count = 0;
+
+        switch (column.getType()) {
+            case BOOLEAN:
+                ColumnEncoding.writeBitSet(out, ((BooleanColumn) column).getValues());
+                return;
+            case LONG:
+                for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                    values[count++] = column.getLong(i);
+                }
+                ColumnEncoding.writeLongs(out, values, count);
+                return;
+            case DOUBLE:
+                for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                    values[count++] = Double.doubleToLongBits(column.getDouble(i));
+                }
+                ColumnEncoding.writeLongs(out, values, count);
+                return;
+            case STRING: {
+                StringColumn strings = (StringColumn) column;
+                ColumnEncoding.writeVarInt(out, strings.getDictionary().length);
+                for (String value : strings.getDictionary()) {
+                    ColumnEncoding.writeString(out, value);
+                }
+                int[] codes = strings.getCodes();
+                for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                    values[count++] = codes[i];
+                }
+                ColumnEncoding.writeLongs(out, values, count);
+                return;
+            }
+            default: {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                    buffer.reset();
+                    factory.serialize(column.get(i), buffer);
+                    ColumnEncoding.writeVarInt(out, buffer.size());
+                    buffer.writeTo(out);
+                }
+            }
+        }
+    }
+}
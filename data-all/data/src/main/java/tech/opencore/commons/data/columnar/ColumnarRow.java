@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import tech.opencore.commons.data.AbstractData;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * Object view of a row of a <code>ColumnarData</code>. Its keys are the columns holding a value for the row.
+ *
+ * @author Eric Boukobza
+ */
+final class ColumnarRow extends AbstractData {
+    private final ColumnarData table;
+    private final int row;
+
+    ColumnarRow(ColumnarData table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    @Override
+    public boolean isAtomic() {
+        return false;
+    }
+
+    @Override
+    public boolean isBoolean() {
+        return false;
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return false;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return keySet().size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        Column[] columns = table.getColumns();
+        boolean complete = true;
+        for (Column column : columns) {
+            if (column.isNull(row)) {
+                complete = false;
+                break;
+            }
+        }
+
+        if (complete) {
+            return table.getColumnNames();
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        for (Column column : columns) {
+            if (!column.isNull(row)) {
+                keys.add(column.getName());
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public DataFactory getDataFactory() {
+        return ColumnarDataFactory.getInstance();
+    }
+
+    @Override
+    public Data get(String property) {
+        Column column = table.getColumn(property);
+        return column == null ? GenericData.NULL : column.get(row);
+    }
+
+    @Override
+    public Data get(int index) {
+        int i = 0;
+        for (Column column : table.getColumns()) {
+            if (!column.isNull(row) && i++ == index) {
+                return column.get(row);
+            }
+        }
+        return GenericData.NULL;
+    }
+
+    @Override
+    public long getLong(String property) {
+        Column column = table.getColumn(property);
+        return column == null || column.isNull(row) ? 0 : column.getLong(row);
+    }
+
+    @Override
+    public double getDouble(String property) {
+        Column column = table.getColumn(property);
+        return column == null || column.isNull(row) ? 0 : column.getDouble(row);
+    }
+
+    @Override
+    public String getString(String property) {
+        Column column = table.getColumn(property);
+        return column == null ? null : column.getString(row);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return new GenericData(this).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return keySet().hashCode();
+    }
+}
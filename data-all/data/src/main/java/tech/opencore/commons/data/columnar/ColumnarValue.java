@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.Collections;
+import java.util.Set;
+import tech.opencore.commons.data.AbstractData;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * Atomic view of the value of a row in a column.
+ *
+ * @author Eric Boukobza
+ */
+final class ColumnarValue extends AbstractData {
+    private final Column column;
+    private final int row;
+
+    ColumnarValue(Column column, int row) {
+        this.column = column;
+        this.row = row;
+    }
+
+    @Override
+    public boolean isAtomic() {
+        return true;
+    }
+
+    @Override
+    public boolean isBoolean() {
+        return column.getType() == ColumnType.BOOLEAN;
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return column.getType() == ColumnType.LONG;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return column.getType() == ColumnType.DOUBLE;
+    }
+
+    @Override
+    public boolean isString() {
+        return column.getType() == ColumnType.STRING;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public DataFactory getDataFactory() {
+        return ColumnarDataFactory.getInstance();
+    }
+
+    @Override
+    public Data get(String property) {
+        return GenericData.NULL;
+    }
+
+    @Override
+    public Data get(int index) {
+        return index == 0 ? this : GenericData.NULL;
+    }
+
+    @Override
+    public boolean getBoolean() {
+        return column.getBoolean(row);
+    }
+
+    @Override
+    public String getString() {
+        return column.getString(row);
+    }
+
+    @Override
+    public long getLong() {
+        return column.getLong(row);
+    }
+
+    @Override
+    public double getDouble() {
+        return column.getDouble(row);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Data && ((Data) o).isAtomic() && getString().equals(((Data) o).getString());
+    }
+
+    @Override
+    public int hashCode() {
+        return getString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getString();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * Column of nested or mixed values, kept as data.
+ *
+ * @author Eric Boukobza
+ */
+public class DataColumn extends Column {
+    private final Data[] values;
+
+    public DataColumn(String name, Data[] values, BitSet nulls) {
+        super(name, values.length, nulls);
+        this.values = values;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.DATA;
+    }
+
+    @Override
+    public Data get(int row) {
+        if (row < 0 || row >= size || values[row] == null) {
+            return GenericData.NULL;
+        }
+
+        return values[row];
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return get(row).getBoolean();
+    }
+
+    @Override
+    public long getLong(int row) {
+        return get(row).getLong();
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return get(row).getDouble();
+    }
+
+    @Override
+    public String getString(int row) {
+        return get(row).getString();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DoubleColumn extends Column {
+    private final double[] values;
+
+    public DoubleColumn(String name, double[] values, BitSet nulls) {
+        super(name, values.length, nulls);
+        this.values = values;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.DOUBLE;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return values[row] != 0;
+    }
+
+    @Override
+    public long getLong(int row) {
+        return (long) values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    public String getString(int row) {
+        return isNull(row) ? null : Double.toString(values[row]);
+    }
+
+    @Override
+    public double sum() {
+        double result = 0;
+        if (nulls == null) {
+            for (int i = 0 ; i < size ; i++) {
+                result += values[i];
+            }
+        } else {
+            for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                result += values[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double min() {
+        double result = Double.NaN;
+        for (int i = 0 ; i < size ; i++) {
+            if (!isNull(i) && !(values[i] >= result)) {
+                result = values[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double max() {
+        double result = Double.NaN;
+        for (int i = 0 ; i < size ; i++) {
+            if (!isNull(i) && !(values[i] <= result)) {
+                result = values[i];
+            }
+        }
+        return result;
+    }
+}
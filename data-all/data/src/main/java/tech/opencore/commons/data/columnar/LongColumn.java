@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class LongColumn extends Column {
+    private final long[] values;
+
+    public LongColumn(String name, long[] values, BitSet nulls) {
+        super(name, values.length, nulls);
+        this.values = values;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.LONG;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return values[row] != 0;
+    }
+
+    @Override
+    public long getLong(int row) {
+        return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    public String getString(int row) {
+        return isNull(row) ? null : Long.toString(values[row]);
+    }
+
+    /**
+     * Sum the values without the rounding of <code>sum()</code>.
+     *
+     * @return The sum of the non null values
+     */
+    public long sumLong() {
+        long result = 0;
+        if (nulls == null) {
+            for (int i = 0 ; i < size ; i++) {
+                result += values[i];
+            }
+        } else {
+            for (int i = nulls.nextClearBit(0) ; i < size ; i = nulls.nextClearBit(i + 1)) {
+                result += values[i];
+            }
+        }
+        return result;
+    }
+
+    public long minLong() {
+        long result = Long.MAX_VALUE;
+        for (int i = 0 ; i < size ; i++) {
+            if (values[i] < result && !isNull(i)) {
+                result = values[i];
+            }
+        }
+        return result;
+    }
+
+    public long maxLong() {
+        long result = Long.MIN_VALUE;
+        for (int i = 0 ; i < size ; i++) {
+            if (values[i] > result && !isNull(i)) {
+                result = values[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double sum() {
+        return sumLong();
+    }
+
+    @Override
+    public double min() {
+        return count() == 0 ? Double.NaN : minLong();
+    }
+
+    @Override
+    public double max() {
+        return count() == 0 ? Double.NaN : maxLong();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.util.BitSet;
+
+/**
+ * Dictionary encoded string column: each distinct string is held once and rows hold its code.
+ *
+ * @author Eric Boukobza
+ */
+public class StringColumn extends Column {
+    private final String[] dictionary;
+    private final int[] codes;
+
+    public StringColumn(String name, String[] dictionary, int[] codes, BitSet nulls) {
+        super(name, codes.length, nulls);
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    String[] getDictionary() {
+        return dictionary;
+    }
+
+    int[] getCodes() {
+        return codes;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.STRING;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return Boolean.parseBoolean(getString(row));
+    }
+
+    @Override
+    public long getLong(int row) {
+        return isNull(row) ? 0 : Long.parseLong(dictionary[codes[row]]);
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return isNull(row) ? 0 : Double.parseDouble(dictionary[codes[row]]);
+    }
+
+    @Override
+    public String getString(int row) {
+        return isNull(row) ? null : dictionary[codes[row]];
+    }
+
+    /**
+     * Get the number of distinct non null values.
+     *
+     * @return The size of the dictionary
+     */
+    public int countDistinct() {
+        return dictionary.length;
+    }
+
+    /**
+     * Count the rows holding the given value. The value is looked up once in the dictionary
+     * and the rows are scanned comparing codes.
+     *
+     * @param value The value to count
+     * @return The number of rows holding the value
+     */
+    public int countEqual(String value) {
+        int code = -1;
+        for (int i = 0 ; i < dictionary.length ; i++) {
+            if (dictionary[i].equals(value)) {
+                code = i;
+                break;
+            }
+        }
+
+        if (code < 0) {
+            return 0;
+        }
+
+        int result = 0;
+        for (int i = 0 ; i < size ; i++) {
+            if (codes[i] == code && !isNull(i)) {
+                result++;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.IOException;
+
+/**
+ * Compression algorithm applied to independent blocks of a stream.
+ *
+ * A codec must not keep any state between blocks, so that each block can be decompressed on its own.
+ * Implementations must be thread safe. Codecs are identified in streams by their id,
+ * see <code>BlockCodecs</code>.
+ *
+ * @author Eric Boukobza
+ */
+public interface BlockCodec {
+
+    /**
+     * Get the identifier written in the header of each block compressed with this codec.
+     *
+     * @return An id between 1 and 127
+     */
+    public int getId();
+
+    public String getName();
+
+    /**
+     * Get the size of the buffer needed to compress a block of the given length.
+     *
+     * @param length The length of the block
+     * @return The worst case compressed length
+     */
+    public int maxCompressedLength(int length);
+
+    /**
+     * Compress a block.
+     *
+     * @param src The source buffer
+     * @param srcOff The offset of the block in the source buffer
+     * @param srcLen The length of the block
+     * @param dst The destination buffer, which must have at least <code>maxCompressedLength(srcLen)</code> bytes from dstOff
+     * @param dstOff The offset to write the compressed block at
+     * @return The compressed length
+     */
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+
+    /**
+     * Decompress a block.
+     *
+     * @param src The source buffer
+     * @param srcOff The offset of the compressed block in the source buffer
+     * @param srcLen The compressed length
+     * @param dst The destination buffer
+     * @param dstOff The offset to write the block at
+     * @param rawLength The expected length of the block
+     * @throws IOException if the block is corrupted
+     */
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength) throws IOException;
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the codecs that can be read from a block stream, by id.
+ *
+ * Id 0 is reserved for blocks stored uncompressed. The LZ and deflate codecs are always registered,
+ * other codecs must be registered before reading streams they wrote.
+ *
+ * @author Eric Boukobza
+ */
+public final class BlockCodecs {
+    public static final int STORED = 0;
+
+    /**
+     * The default codec, favoring throughput.
+     */
+    public static final BlockCodec FAST = new LZBlockCodec();
+
+    /**
+     * The codec favoring compression ratio.
+     */
+    public static final BlockCodec HIGH_RATIO = new DeflateBlockCodec();
+
+    private static final ConcurrentMap<Integer, BlockCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(FAST);
+        register(HIGH_RATIO);
+    }
+
+    private BlockCodecs() {}
+
+    public static void register(BlockCodec codec) {
+        if (codec.getId() <= STORED || codec.getId() > 127) {
+            throw new IllegalArgumentException("Invalid codec id " + codec.getId());
+        }
+
+        BlockCodec previous = CODECS.putIfAbsent(codec.getId(), codec);
+        if (previous != null && previous.getClass() != codec.getClass()) {
+            throw new IllegalStateException("Codec id " + codec.getId() + " is already used by " + previous.getName());
+        }
+    }
+
+    /**
+     * Get the codec able to decompress blocks with the given id.
+     *
+     * @param id The id of the codec
+     * @return The codec, or null if no codec is registered with this id.
+     */
+    public static BlockCodec get(int id) {
+        return CODECS.get(id);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Input stream reading a block stream written by <code>BlockOutputStream</code>.
+ *
+ * The stream reads exactly up to the end of the block stream, so data following it in the underlying stream
+ * can still be read. The codec of each block is read from its header, so streams written with any registered
+ * codec can be read.
+ *
+ * @author Eric Boukobza
+ */
+public class BlockInputStream extends InputStream {
+    private final DataInputStream in;
+    private final int blockSize;
+    private final byte[] buffer;
+    private byte[] stored = new byte[0];
+    private int position = 0;
+    private int limit = 0;
+    private boolean finished = false;
+
+    public BlockInputStream(InputStream in) throws IOException {
+        this.in = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+        this.blockSize = readHeader(this.in);
+        this.buffer = new byte[blockSize];
+    }
+
+    private static int readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != BlockOutputStream.MAGIC) {
+            throw new IOException("Not a block stream");
+        }
+
+        byte version = in.readByte();
+        if (version != BlockOutputStream.VERSION) {
+            throw new IOException("Unsupported block stream version " + version);
+        }
+
+        int blockSize = in.readInt();
+        if (blockSize <= 0 || blockSize > BlockOutputStream.MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid block size " + blockSize);
+        }
+
+        return blockSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * A block read from the stream, not decompressed yet.
+     */
+    private static final class Block {
+        final int codecId;
+        final int rawLength;
+        final int crc;
+        final byte[] content;
+        final int length;
+
+        Block(int codecId, int rawLength, int crc, byte[] content, int length) {
+            this.codecId = codecId;
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.content = content;
+            this.length = length;
+        }
+
+        void decode(byte[] dst, int dstOff) throws IOException {
+            if (codecId == BlockCodecs.STORED) {
+                if (length != rawLength) {
+                    throw new IOException("Corrupted stored block");
+                }
+                System.arraycopy(content, 0, dst, dstOff, length);
+            } else {
+                BlockCodec codec = BlockCodecs.get(codecId);
+                if (codec == null) {
+                    throw new IOException("Unknown block codec " + codecId);
+                }
+                codec.decompress(content, 0, length, dst, dstOff, rawLength);
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(dst, dstOff, rawLength);
+            if ((int) checksum.getValue() != crc) {
+                throw new IOException("Block checksum mismatch");
+            }
+        }
+    }
+
+    /**
+     * Read the next block.
+     *
+     * @param in The stream
+     * @param blockSize The block size of the stream
+     * @param reuse A buffer to read the stored content into if it is large enough, or null
+     * @return The block, or null at the end of the block stream.
+     */
+    private static Block readBlock(DataInputStream in, int blockSize, byte[] reuse) throws IOException {
+        int codecId = in.readUnsignedByte();
+        int rawLength = in.readInt();
+        if (rawLength == 0) {
+            return null;
+        }
+        if (rawLength < 0 || rawLength > blockSize) {
+            throw new IOException("Invalid block length " + rawLength);
+        }
+
+        int storedLength = in.readInt();
+        if (storedLength < 0 || storedLength > blockSize + (blockSize >>> 6) + 4096) {
+            throw new IOException("Invalid stored block length " + storedLength);
+        }
+        int crc = in.readInt();
+
+        byte[] content = reuse != null && reuse.length >= storedLength ? reuse : new byte[storedLength];
+        in.readFully(content, 0, storedLength);
+
+        return new Block(codecId, rawLength, crc, content, storedLength);
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+
+        Block block = readBlock(in, blockSize, stored);
+        if (block == null) {
+            finished = true;
+            return false;
+        }
+
+        stored = block.content;
+        block.decode(buffer, 0);
+        position = 0;
+        limit = block.rawLength;
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= limit && !nextBlock()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= limit && !nextBlock()) {
+            return -1;
+        }
+
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Skip what is left of the block stream, leaving the underlying stream positioned after its end.
+     *
+     * @throws IOException if the stream cannot be read or a block is corrupted
+     */
+    public void skipToEnd() throws IOException {
+        while (nextBlock()) {
+            position = limit;
+        }
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Read a whole block stream and decompress its blocks in parallel.
+     *
+     * @param in The stream positioned at the start of a block stream
+     * @param executor The executor decompressing the blocks
+     * @return The decompressed content
+     * @throws IOException if the stream cannot be read or a block is corrupted
+     */
+    public static byte[] readAll(InputStream in, Executor executor) throws IOException {
+        DataInputStream input = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+        int blockSize = readHeader(input);
+
+        List<Block> blocks = new ArrayList<>();
+        long total = 0;
+        Block block;
+        while ((block = readBlock(input, blockSize, null)) != null) {
+            blocks.add(block);
+            total += block.rawLength;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("Block stream too large: " + total + " bytes");
+        }
+
+        byte[] result = new byte[(int) total];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(blocks.size());
+        int offset = 0;
+        for (Block b : blocks) {
+            int blockOffset = offset;
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    b.decode(result, blockOffset);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+            offset += b.rawLength;
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+
+        return result;
+    }
+}
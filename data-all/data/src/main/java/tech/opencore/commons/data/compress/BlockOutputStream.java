@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * Output stream compressing its content in independent blocks.
+ *
+ * The stream starts with a header:
+ * <pre>
+ * magic "OCBZ" (4 bytes), version (1 byte), block size (4 bytes)
+ * </pre>
+ * followed by blocks:
+ * <pre>
+ * codec id (1 byte), raw length (4 bytes), stored length (4 bytes), CRC32 of the raw content (4 bytes), stored content
+ * </pre>
+ * and ends with a block of raw length 0 holding only the codec id and the raw length. Blocks that do not
+ * shrink are stored with codec id 0. Integers are big endian.
+ *
+ * <code>finish()</code> ends the block stream without closing the underlying stream, so that other data
+ * can follow it.
+ *
+ * @author Eric Boukobza
+ */
+public class BlockOutputStream extends OutputStream {
+    private static final Counter RAW_BYTES = Metrics.counter("data.compress.raw.bytes");
+    private static final Counter STORED_BYTES = Metrics.counter("data.compress.stored.bytes");
+
+    public static final int MAGIC = 0x4F43425A;
+    public static final byte VERSION = 1;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+    static final int HEADER_LENGTH = 9;
+    static final int BLOCK_HEADER_LENGTH = 13;
+
+    private final OutputStream out;
+    private final BlockCodec codec;
+    private final byte[] buffer;
+    private final byte[] block;
+    private final CRC32 crc = new CRC32();
+    private int count = 0;
+    private boolean started = false;
+    private boolean finished = false;
+
+    public BlockOutputStream(OutputStream out) {
+        this(out, BlockCodecs.FAST, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockOutputStream(OutputStream out, BlockCodec codec) {
+        this(out, codec, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockOutputStream(OutputStream out, BlockCodec codec, int blockSize) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+
+        this.out = out;
+        this.codec = codec;
+        this.buffer = new byte[blockSize];
+        this.block = new byte[HEADER_LENGTH + BLOCK_HEADER_LENGTH + Math.max(blockSize, codec.maxCompressedLength(blockSize))];
+    }
+
+    public BlockCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buffer.length) {
+                writeBlock();
+            }
+
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private int writeHeader() {
+        if (started) {
+            return 0;
+        }
+
+        started = true;
+        putInt(block, 0, MAGIC);
+        block[4] = VERSION;
+        putInt(block, 5, buffer.length);
+        return HEADER_LENGTH;
+    }
+
+    private void writeBlock() throws IOException {
+        if (finished) {
+            throw new IOException("Block stream is finished");
+        }
+
+        int start = writeHeader();
+        if (count == 0) {
+            if (start > 0) {
+                out.write(block, 0, start);
+            }
+            return;
+        }
+
+        int dataOff = start + BLOCK_HEADER_LENGTH;
+        int stored = codec.compress(buffer, 0, count, block, dataOff);
+        int codecId = codec.getId();
+        if (stored >= count) {
+            System.arraycopy(buffer, 0, block, dataOff, count);
+            stored = count;
+            codecId = BlockCodecs.STORED;
+        }
+
+        crc.reset();
+        crc.update(buffer, 0, count);
+
+        block[start] = (byte) codecId;
+        putInt(block, start + 1, count);
+        putInt(block, start + 5, stored);
+        putInt(block, start + 9, (int) crc.getValue());
+        out.write(block, 0, dataOff + stored);
+        RAW_BYTES.add(count);
+        STORED_BYTES.add(stored);
+
+        count = 0;
+    }
+
+    /**
+     * Compress the pending bytes in a block and flush the underlying stream.
+     * Flushing often produces small blocks and lowers the compression ratio.
+     *
+     * @throws IOException if the underlying stream fails
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished) {
+            writeBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the pending bytes and the end of the block stream, without closing the underlying stream.
+     *
+     * @throws IOException if the underlying stream fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        writeBlock();
+        finished = true;
+
+        byte[] end = new byte[5];
+        end[0] = BlockCodecs.STORED;
+        out.write(end);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    static void putInt(byte[] b, int off, int value) {
+        b[off] = (byte) (value >>> 24);
+        b[off + 1] = (byte) (value >>> 16);
+        b[off + 2] = (byte) (value >>> 8);
+        b[off + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Histogram;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * A <code>DataFactory</code> decorator compressing the serialized data of another factory in independent blocks.
+ *
+ * Serialization streams the output of the nested factory through a <code>BlockOutputStream</code>, so the
+ * serialized data is never held in memory as a whole. Deserialization reads any block stream, whatever codec
+ * wrote it, and can decompress the blocks in parallel with <code>deserialize(InputStream, Executor)</code>.
+ *
+ * @author Eric Boukobza
+ */
+public class CompressingDataFactory implements DataFactory {
+    private static final Histogram SERIALIZE = Metrics.histogram("data.compress.serialize");
+    private static final Histogram DESERIALIZE = Metrics.histogram("data.compress.deserialize");
+
+    private final DataFactory factory;
+    private final BlockCodec codec;
+    private final int blockSize;
+
+    public CompressingDataFactory(DataFactory factory) {
+        this(factory, BlockCodecs.FAST, BlockOutputStream.DEFAULT_BLOCK_SIZE);
+    }
+
+    public CompressingDataFactory(DataFactory factory, BlockCodec codec) {
+        this(factory, codec, BlockOutputStream.DEFAULT_BLOCK_SIZE);
+    }
+
+    public CompressingDataFactory(DataFactory factory, BlockCodec codec, int blockSize) {
+        this.factory = factory;
+        this.codec = codec;
+        this.blockSize = blockSize;
+    }
+
+    public DataFactory getDelegate() {
+        return factory;
+    }
+
+    public BlockCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public Data createData() {
+        return factory.createData();
+    }
+
+    @Override
+    public Data deserialize(InputStream in) throws Exception {
+        long start = DESERIALIZE.startTimer();
+        BlockInputStream input = new BlockInputStream(in);
+        Data data = factory.deserialize(input);
+        input.skipToEnd();
+        DESERIALIZE.stopTimer(start);
+        return data;
+    }
+
+    /**
+     * Deserialize data, decompressing its blocks in parallel before handing them to the nested factory.
+     *
+     * @param in The stream to read from
+     * @param executor The executor decompressing the blocks
+     * @return The deserialized data
+     * @throws Exception if the stream is corrupted or the nested factory fails
+     */
+    public Data deserialize(InputStream in, Executor executor) throws Exception {
+        long start = DESERIALIZE.startTimer();
+        Data data = factory.deserialize(new ByteArrayInputStream(BlockInputStream.readAll(in, executor)));
+        DESERIALIZE.stopTimer(start);
+        return data;
+    }
+
+    @Override
+    public void serialize(Data data, OutputStream out) throws Exception {
+        long start = SERIALIZE.startTimer();
+        BlockOutputStream output = new BlockOutputStream(out, codec, blockSize);
+        factory.serialize(data, output);
+        output.finish();
+        SERIALIZE.stopTimer(start);
+    }
+}
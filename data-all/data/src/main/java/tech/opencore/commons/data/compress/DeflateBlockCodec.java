@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * High ratio codec using raw deflate blocks. Deflaters and inflaters are reused per thread
+ * as allocating them is expensive.
+ *
+ * @author Eric Boukobza
+ */
+public class DeflateBlockCodec implements BlockCodec {
+    public static final int ID = 2;
+
+    private final int level;
+    private final ThreadLocal<Deflater> deflaters;
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    public DeflateBlockCodec() {
+        this(Deflater.BEST_COMPRESSION);
+    }
+
+    /**
+     * Create a deflate codec.
+     *
+     * @param level The compression level, from <code>Deflater.BEST_SPEED</code> to <code>Deflater.BEST_COMPRESSION</code>
+     */
+    public DeflateBlockCodec(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level " + level);
+        }
+
+        this.level = level;
+        this.deflaters = new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                return new Deflater(DeflateBlockCodec.this.level, true);
+            }
+        };
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 64;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        Deflater deflater = deflaters.get();
+        try {
+            deflater.setInput(src, srcOff, srcLen);
+            deflater.finish();
+
+            int dp = dstOff;
+            while (!deflater.finished()) {
+                int len = deflater.deflate(dst, dp, dst.length - dp);
+                if (len == 0 && dp == dst.length) {
+                    throw new IllegalStateException("Compressed block larger than " + maxCompressedLength(srcLen));
+                }
+                dp += len;
+            }
+
+            return dp - dstOff;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        try {
+            inflater.setInput(src, srcOff, srcLen);
+
+            int dp = dstOff;
+            int dstEnd = dstOff + rawLength;
+            while (dp < dstEnd && !inflater.finished()) {
+                int len = inflater.inflate(dst, dp, dstEnd - dp);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                dp += len;
+            }
+
+            if (dp != dstEnd) {
+                throw new IOException("Corrupted block: " + (dp - dstOff) + " bytes decompressed instead of " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
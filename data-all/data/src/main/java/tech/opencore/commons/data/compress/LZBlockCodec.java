@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 codec using the LZ4 block layout, implemented with the JDK only.
+ *
+ * A block is a list of sequences. Each sequence is a token whose high nibble is the literal length and
+ * low nibble the match length minus 4, the extra literal length bytes, the literals, the little endian
+ * 16 bits offset of the match and the extra match length bytes. A nibble of 15 is followed by bytes
+ * added to it until one is not 255. The last sequence only holds literals.
+ *
+ * Matches are found with a single probe in a hash table of 4 bytes sequences, and the search skips
+ * faster through incompressible data.
+ *
+ * @author Eric Boukobza
+ */
+public class LZBlockCodec implements BlockCodec {
+    public static final int ID = 1;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final ThreadLocal<int[]> TABLES = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "lz";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    private static int readInt(byte[] buf, int i) {
+        return (buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8 | (buf[i + 2] & 0xFF) << 16 | (buf[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeLength(byte[] dst, int dp, int length) {
+        while (length >= 255) {
+            dst[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dst[dp++] = (byte) length;
+        return dp;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int literals, byte[] dst, int dp, int offset, int matchLength) {
+        int tokenPos = dp++;
+        int token;
+
+        if (literals >= 15) {
+            token = 15 << 4;
+            dp = writeLength(dst, dp, literals - 15);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(src, anchor, dst, dp, literals);
+        dp += literals;
+
+        if (offset > 0) {
+            dst[dp++] = (byte) offset;
+            dst[dp++] = (byte) (offset >>> 8);
+
+            int extra = matchLength - MIN_MATCH;
+            if (extra >= 15) {
+                token |= 15;
+                dp = writeLength(dst, dp, extra - 15);
+            } else {
+                token |= extra;
+            }
+        }
+
+        dst[tokenPos] = (byte) token;
+        return dp;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        int end = srcOff + srcLen;
+        int matchLimit = end - MF_LIMIT;
+        int matchEnd = end - LAST_LITERALS;
+        int anchor = srcOff;
+        int ip = srcOff;
+        int dp = dstOff;
+
+        if (srcLen > MF_LIMIT) {
+            int[] table = TABLES.get();
+            Arrays.fill(table, -1);
+            int misses = 1 << SKIP_TRIGGER;
+
+            while (ip < matchLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+
+                if (ref < srcOff || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += misses++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                misses = 1 << SKIP_TRIGGER;
+
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchEnd && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                dp = writeSequence(src, anchor, ip - anchor, dst, dp, ip - ref, matchLength);
+                ip += matchLength;
+                anchor = ip;
+
+                if (ip < matchLimit) {
+                    table[hash(readInt(src, ip - 2))] = ip - 2;
+                }
+            }
+        }
+
+        return writeSequence(src, anchor, end - anchor, dst, dp, 0, 0) - dstOff;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength) throws IOException {
+        int sp = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int dp = dstOff;
+        int dstEnd = dstOff + rawLength;
+
+        try {
+            while (sp < srcEnd) {
+                int token = src[sp++] & 0xFF;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > dstEnd - dp || literals > srcEnd - sp) {
+                    throw new IOException("Corrupted block: literals out of bounds");
+                }
+                System.arraycopy(src, sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+
+                if (sp >= srcEnd) {
+                    break;
+                }
+
+                int offset = (src[sp] & 0xFF) | (src[sp + 1] & 0xFF) << 8;
+                sp += 2;
+
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = dp - offset;
+                if (offset == 0 || ref < dstOff || matchLength > dstEnd - dp) {
+                    throw new IOException("Corrupted block: match out of bounds");
+                }
+
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, dp, matchLength);
+                    dp += matchLength;
+                } else {
+                    for (int i = 0 ; i < matchLength ; i++) {
+                        dst[dp++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupted block: truncated", e);
+        }
+
+        if (dp != dstEnd) {
+            throw new IOException("Corrupted block: " + (dp - dstOff) + " bytes decompressed instead of " + rawLength);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+/**
+ * A field of a schema, resolved to its slot in <code>SchemaData</code>.
+ *
+ * Fields are obtained once from the schema with <code>Schema.getField(String)</code> and then used with the
+ * field based accessors of <code>SchemaData</code>, which read the slot directly.
+ *
+ * @author Eric Boukobza
+ */
+public final class Field {
+    private final Schema schema;
+    private final String name;
+    private final FieldType type;
+    private final boolean required;
+    private final Schema nested;
+    private final int index;
+    private final int slot;
+
+    Field(Schema schema, String name, FieldType type, boolean required, Schema nested, int index, int slot) {
+        this.schema = schema;
+        this.name = name;
+        this.type = type;
+        this.required = required;
+        this.nested = nested;
+        this.index = index;
+        this.slot = slot;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FieldType getType() {
+        return type;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * Get the schema of the values of an object field.
+     *
+     * @return The nested schema, or null if the values are not described.
+     */
+    public Schema getNestedSchema() {
+        return nested;
+    }
+
+    /**
+     * Get the position of this field in its schema.
+     *
+     * @return The index of the field
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the offset of the value of this field in the primitive or the reference slots of <code>SchemaData</code>.
+     *
+     * @return The slot of the field
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + type + (required ? "" : "?");
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+import tech.opencore.commons.data.Data;
+
+/**
+ * The type of a field of a schema.
+ *
+ * @author Eric Boukobza
+ */
+public enum FieldType {
+    BOOLEAN(true),
+    LONG(true),
+    DOUBLE(true),
+    STRING(false),
+    /**
+     * An object, described by a nested schema if there is one.
+     */
+    OBJECT(false),
+    /**
+     * Any value, kept as data.
+     */
+    ANY(false);
+
+    private final boolean primitive;
+
+    private FieldType(boolean primitive) {
+        this.primitive = primitive;
+    }
+
+    /**
+     * Check if values of this type are stored in the primitive slots of <code>SchemaData</code>.
+     *
+     * @return true for booleans, longs and doubles
+     */
+    public boolean isPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * Get the type of a value, as it is stored. A string is a string even if it parses as a number.
+     *
+     * @param value The value
+     * @return The type of the value, or null for a null value.
+     */
+    public static FieldType of(Data value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isObject()) {
+            return OBJECT;
+        }
+        if (!value.isAtomic()) {
+            return ANY;
+        }
+        if (value.isString()) {
+            return STRING;
+        }
+        if (value.isIntegral()) {
+            return LONG;
+        }
+        if (value.isNumeric()) {
+            return DOUBLE;
+        }
+        if (value.isBoolean()) {
+            return BOOLEAN;
+        }
+        return STRING;
+    }
+
+    /**
+     * Check if a value can be held by a field of this type.
+     *
+     * @param value A non null value
+     * @return true if the value has this type, or is integral for a double field
+     */
+    public boolean accepts(Data value) {
+        FieldType type = of(value);
+        switch (this) {
+            case BOOLEAN:
+                return type == BOOLEAN;
+            case LONG:
+                return type == LONG;
+            case DOUBLE:
+                return type == LONG || type == DOUBLE;
+            case STRING:
+                return type == STRING;
+            case OBJECT:
+                return type == OBJECT;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Get the type able to hold the values of both types as they are.
+     *
+     * @param other The type of other values of the field, or null
+     * @return The widened type
+     */
+    FieldType widen(FieldType other) {
+        if (other == null || other == this) {
+            return this;
+        }
+        // converting would change the values read back, like 12 turning into 12.0 or "12"
+        return ANY;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import tech.opencore.commons.data.Data;
+
+/**
+ * The description of the fields of objects, declared with a <code>Builder</code> or inferred from samples.
+ *
+ * A schema assigns each field a fixed slot, so that <code>SchemaData</code> can store the values in arrays
+ * instead of maps. A closed schema rejects fields it does not declare.
+ *
+ * @author Eric Boukobza
+ */
+public final class Schema {
+    private final Field[] fields;
+    private final Map<String, Field> fieldsByName;
+    private final Set<String> fieldNames;
+    private final int primitiveSlots;
+    private final int referenceSlots;
+    private final boolean closed;
+    private final SchemaDataFactory factory;
+
+    private Schema(List<FieldDefinition> definitions, boolean closed) {
+        this.closed = closed;
+        this.fields = new Field[definitions.size()];
+        this.fieldsByName = new HashMap<>(definitions.size() * 2);
+
+        Set<String> names = new LinkedHashSet<>();
+        int primitives = 0;
+        int references = 0;
+        for (int i = 0 ; i < fields.length ; i++) {
+            FieldDefinition definition = definitions.get(i);
+            int slot = definition.type.isPrimitive() ? primitives++ : references++;
+            fields[i] = new Field(this, definition.name, definition.type, definition.required, definition.nested, i, slot);
+            fieldsByName.put(definition.name, fields[i]);
+            names.add(definition.name);
+        }
+
+        this.fieldNames = Collections.unmodifiableSet(names);
+        this.primitiveSlots = primitives;
+        this.referenceSlots = references;
+        this.factory = new SchemaDataFactory(this);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get a field by name.
+     *
+     * @param name The name of the field
+     * @return The field, or null if this schema has no such field.
+     */
+    public Field getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * Get a field by name, failing if it does not exist.
+     *
+     * @param name The name of the field
+     * @return The field
+     * @throws IllegalArgumentException if this schema has no such field
+     */
+    public Field requireField(String name) {
+        Field field = fieldsByName.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("No field " + name + " in schema");
+        }
+        return field;
+    }
+
+    public Field getField(int index) {
+        return fields[index];
+    }
+
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    public Set<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    int getPrimitiveSlots() {
+        return primitiveSlots;
+    }
+
+    int getReferenceSlots() {
+        return referenceSlots;
+    }
+
+    /**
+     * Get the factory creating data bound to this schema and delegating serialization to the default factory.
+     *
+     * @return The factory of this schema
+     */
+    public SchemaDataFactory getDataFactory() {
+        return factory;
+    }
+
+    public SchemaData newData() {
+        return new SchemaData(this);
+    }
+
+    /**
+     * Copy data into a new schema-bound data.
+     *
+     * @param data The data to copy
+     * @return The schema-bound copy
+     * @throws IllegalArgumentException if the data does not conform to this schema
+     */
+    public SchemaData bind(Data data) {
+        requireValid(data);
+        SchemaData result = new SchemaData(this);
+        result.set(data);
+        return result;
+    }
+
+    /**
+     * Validate data against this schema.
+     *
+     * @param data The data to validate
+     * @return The violations found, empty if the data conforms to this schema.
+     */
+    public List<String> validate(Data data) {
+        List<String> errors = new ArrayList<>();
+        validate(data, "", errors);
+        return errors;
+    }
+
+    public boolean isValid(Data data) {
+        return validate(data).isEmpty();
+    }
+
+    public void requireValid(Data data) {
+        List<String> errors = validate(data);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Data does not conform to schema: " + String.join(", ", errors));
+        }
+    }
+
+    private void validate(Data data, String prefix, List<String> errors) {
+        if (data == null || data.isNull()) {
+            for (Field field : fields) {
+                if (field.isRequired()) {
+                    errors.add(prefix + field.getName() + " is required");
+                }
+            }
+            return;
+        }
+
+        if (!data.isObject()) {
+            errors.add((prefix.isEmpty() ? "data" : prefix.substring(0, prefix.length() - 1)) + " is not an object");
+            return;
+        }
+
+        for (Field field : fields) {
+            Data value = data.get(field.getName());
+            if (value == null || value.isNull()) {
+                if (field.isRequired()) {
+                    errors.add(prefix + field.getName() + " is required");
+                }
+            } else if (!field.getType().accepts(value)) {
+                errors.add(prefix + field.getName() + " is not of type " + field.getType());
+            } else if (field.getNestedSchema() != null) {
+                field.getNestedSchema().validate(value, prefix + field.getName() + ".", errors);
+            }
+        }
+
+        if (closed) {
+            for (String key : data.keySet()) {
+                if (!fieldsByName.containsKey(key)) {
+                    errors.add(prefix + key + " is not declared");
+                }
+            }
+        }
+    }
+
+    /**
+     * Infer a closed schema from sample objects. A field is required if all the samples hold it, and its type is
+     * the type of its sample values, or any when they differ. Objects get a nested schema inferred from their values.
+     *
+     * @param samples The sample objects
+     * @return The inferred schema
+     */
+    public static Schema infer(Iterable<? extends Data> samples) {
+        Map<String, FieldType> types = new LinkedHashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, List<Data>> objects = new HashMap<>();
+        int sampleCount = 0;
+
+        for (Data sample : samples) {
+            sampleCount++;
+            for (String key : sample.keySet()) {
+                Data value = sample.get(key);
+                FieldType type = FieldType.of(value);
+                if (type == null) {
+                    types.putIfAbsent(key, null);
+                    continue;
+                }
+
+                types.put(key, type.widen(types.get(key)));
+                counts.merge(key, 1, Integer::sum);
+                if (type == FieldType.OBJECT) {
+                    objects.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+                }
+            }
+        }
+
+        Builder builder = builder();
+        for (Map.Entry<String, FieldType> entry : types.entrySet()) {
+            String name = entry.getKey();
+            FieldType type = entry.getValue() == null ? FieldType.ANY : entry.getValue();
+            boolean required = counts.getOrDefault(name, 0) == sampleCount;
+
+            if (type == FieldType.OBJECT) {
+                builder.object(name, infer(objects.get(name)), required);
+            } else {
+                builder.field(name, type, required);
+            }
+        }
+
+        return builder.build();
+    }
+
+    public static Schema infer(Data... samples) {
+        return infer(Arrays.asList(samples));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (Field field : fields) {
+            if (result.length() > 1) {
+                result.append(", ");
+            }
+            result.append(field);
+            if (field.getNestedSchema() != null) {
+                result.append(' ').append(field.getNestedSchema());
+            }
+        }
+        return result.append('}').toString();
+    }
+
+    private static final class FieldDefinition {
+        final String name;
+        final FieldType type;
+        final boolean required;
+        final Schema nested;
+
+        FieldDefinition(String name, FieldType type, boolean required, Schema nested) {
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            this.nested = nested;
+        }
+    }
+
+    /**
+     * Declares the fields of a schema.
+     */
+    public static class Builder {
+        private final List<FieldDefinition> definitions = new ArrayList<>();
+        private final Set<String> names = new LinkedHashSet<>();
+        private boolean closed = true;
+
+        private Builder add(FieldDefinition definition) {
+            if (!names.add(definition.name)) {
+                throw new IllegalArgumentException("Duplicate field " + definition.name);
+            }
+            definitions.add(definition);
+            return this;
+        }
+
+        public Builder field(String name, FieldType type) {
+            return field(name, type, false);
+        }
+
+        public Builder field(String name, FieldType type, boolean required) {
+            return add(new FieldDefinition(name, type, required, null));
+        }
+
+        public Builder object(String name, Schema nested, boolean required) {
+            return add(new FieldDefinition(name, FieldType.OBJECT, required, nested));
+        }
+
+        /**
+         * Set whether the schema rejects fields it does not declare. Schemas are closed by default.
+         *
+         * @param closed true to reject undeclared fields
+         * @return This builder
+         */
+        public Builder closed(boolean closed) {
+            this.closed = closed;
+            return this;
+        }
+
+        public Schema build() {
+            return new Schema(definitions, closed);
+        }
+    }
+}
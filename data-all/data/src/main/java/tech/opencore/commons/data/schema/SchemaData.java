@@ -0,0 +1,679 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import tech.opencore.commons.data.AbstractData;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * An object bound to a schema, storing its fields at fixed slots instead of in a map.
+ *
+ * Booleans, longs and doubles are stored in a <code>long[]</code>, strings and objects in an
+ * <code>Object[]</code>. The field based accessors such as <code>getLong(Field)</code> read the slot directly,
+ * so fields resolved once with <code>Schema.getField(String)</code> are accessed without any lookup, boxing or
+ * node allocation. Named accessors resolve the field with a single lookup.
+ *
+ * Values are converted to the type of their field when set, and values that cannot be converted are rejected
+ * with an <code>IllegalArgumentException</code>. Fields not declared by the schema are rejected too, unless the
+ * schema is open. Indexed accessors address fields by their index in the schema. The field based accessors
+ * reject fields of other schemas.
+ *
+ * @author Eric Boukobza
+ */
+public class SchemaData extends AbstractData {
+    private final Schema schema;
+    private final long[] primitives;
+    private final Object[] references;
+    private final long[] present;
+    private Map<String, Data> extras = null;
+    private boolean isMutable = true;
+
+    public SchemaData(Schema schema) {
+        this.schema = schema;
+        this.primitives = new long[schema.getPrimitiveSlots()];
+        this.references = new Object[schema.getReferenceSlots()];
+        this.present = new long[(schema.size() + 63) >>> 6];
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public boolean has(Field field) {
+        checkField(field);
+        int index = field.getIndex();
+        return (present[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void checkField(Field field) {
+        if (field.getSchema() != schema) {
+            throw new IllegalArgumentException("Field " + field.getName() + " is not a field of this schema");
+        }
+    }
+
+    private void mark(Field field) {
+        int index = field.getIndex();
+        present[index >>> 6] |= 1L << index;
+    }
+
+    private void unmark(Field field) {
+        int index = field.getIndex();
+        present[index >>> 6] &= ~(1L << index);
+        if (!field.getType().isPrimitive()) {
+            references[field.getSlot()] = null;
+        }
+    }
+
+    private int presentCount() {
+        int count = 0;
+        for (long word : present) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private Field field(String property) {
+        Field field = schema.getField(property);
+        if (field == null && schema.isClosed()) {
+            throw new IllegalArgumentException("No field " + property + " in schema");
+        }
+        return field;
+    }
+
+    private void checkMutable() {
+        if (!isMutable) {
+            throw new IllegalStateException("Data is immutable");
+        }
+    }
+
+    private Data notAtomic() {
+        throw new IllegalArgumentException("Schema-bound data holds an object");
+    }
+
+    @Override
+    public boolean isAtomic() {
+        return false;
+    }
+
+    @Override
+    public boolean isBoolean() {
+        return false;
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return false;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return presentCount() + (extras == null ? 0 : extras.size());
+    }
+
+    @Override
+    public Set<String> keySet() {
+        if (presentCount() == schema.size() && (extras == null || extras.isEmpty())) {
+            return schema.getFieldNames();
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0 ; i < schema.size() ; i++) {
+            Field field = schema.getField(i);
+            if (has(field)) {
+                keys.add(field.getName());
+            }
+        }
+        if (extras != null) {
+            keys.addAll(extras.keySet());
+        }
+        return keys;
+    }
+
+    @Override
+    public DataFactory getDataFactory() {
+        return schema.getDataFactory();
+    }
+
+    @Override
+    public boolean isMutable() {
+        return isMutable;
+    }
+
+    // Getters
+
+    public Data get(Field field) {
+        if (!has(field)) {
+            return GenericData.NULL;
+        }
+
+        switch (field.getType()) {
+            case OBJECT:
+            case ANY:
+                return (Data) references[field.getSlot()];
+            default:
+                return new SchemaValue(this, field);
+        }
+    }
+
+    @Override
+    public Data get(String property) {
+        Field field = schema.getField(property);
+        if (field != null) {
+            return get(field);
+        }
+
+        Data result = extras == null ? null : extras.get(property);
+        return result == null ? GenericData.NULL : result;
+    }
+
+    @Override
+    public Data get(int index) {
+        return index < 0 || index >= schema.size() ? GenericData.NULL : get(schema.getField(index));
+    }
+
+    public boolean getBoolean(Field field) {
+        if (!has(field)) {
+            return false;
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+            case LONG:
+                return primitives[field.getSlot()] != 0;
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[field.getSlot()]) != 0;
+            case STRING:
+                return Boolean.parseBoolean((String) references[field.getSlot()]);
+            default:
+                return ((Data) references[field.getSlot()]).getBoolean();
+        }
+    }
+
+    public long getLong(Field field) {
+        if (!has(field)) {
+            return 0;
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+            case LONG:
+                return primitives[field.getSlot()];
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(primitives[field.getSlot()]);
+            case STRING:
+                return Long.parseLong((String) references[field.getSlot()]);
+            default:
+                return ((Data) references[field.getSlot()]).getLong();
+        }
+    }
+
+    public double getDouble(Field field) {
+        if (!has(field)) {
+            return 0;
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+            case LONG:
+                return primitives[field.getSlot()];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[field.getSlot()]);
+            case STRING:
+                return Double.parseDouble((String) references[field.getSlot()]);
+            default:
+                return ((Data) references[field.getSlot()]).getDouble();
+        }
+    }
+
+    public String getString(Field field) {
+        if (!has(field)) {
+            return null;
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+                return Boolean.toString(primitives[field.getSlot()] != 0);
+            case LONG:
+                return Long.toString(primitives[field.getSlot()]);
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(primitives[field.getSlot()]));
+            case STRING:
+                return (String) references[field.getSlot()];
+            default:
+                return ((Data) references[field.getSlot()]).getString();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String property) {
+        Field field = schema.getField(property);
+        return field == null ? get(property).getBoolean() : getBoolean(field);
+    }
+
+    @Override
+    public String getString(String property) {
+        Field field = schema.getField(property);
+        return field == null ? get(property).getString() : getString(field);
+    }
+
+    @Override
+    public long getLong(String property) {
+        Field field = schema.getField(property);
+        return field == null ? get(property).getLong() : getLong(field);
+    }
+
+    @Override
+    public long getLong(String property, long defaultValue) {
+        Field field = schema.getField(property);
+        if (field == null) {
+            return super.getLong(property, defaultValue);
+        }
+        return has(field) ? getLong(field) : defaultValue;
+    }
+
+    @Override
+    public int getInt(String property) {
+        return (int) getLong(property);
+    }
+
+    @Override
+    public short getShort(String property) {
+        return (short) getLong(property);
+    }
+
+    @Override
+    public byte getByte(String property) {
+        return (byte) getLong(property);
+    }
+
+    @Override
+    public double getDouble(String property) {
+        Field field = schema.getField(property);
+        return field == null ? get(property).getDouble() : getDouble(field);
+    }
+
+    @Override
+    public float getFloat(String property) {
+        return (float) getDouble(property);
+    }
+
+    // Setters
+
+    public SchemaData remove(Field field) {
+        checkField(field);
+        checkMutable();
+        unmark(field);
+        return this;
+    }
+
+    public SchemaData setBoolean(Field field, boolean value) {
+        checkField(field);
+        checkMutable();
+
+        switch (field.getType()) {
+            case BOOLEAN:
+            case LONG:
+                primitives[field.getSlot()] = value ? 1 : 0;
+                break;
+            case DOUBLE:
+                primitives[field.getSlot()] = Double.doubleToRawLongBits(value ? 1 : 0);
+                break;
+            case STRING:
+                references[field.getSlot()] = Boolean.toString(value);
+                break;
+            case ANY:
+                references[field.getSlot()] = new GenericData().setBoolean(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+        }
+
+        mark(field);
+        return this;
+    }
+
+    public SchemaData setLong(Field field, long value) {
+        checkField(field);
+        checkMutable();
+
+        switch (field.getType()) {
+            case LONG:
+                primitives[field.getSlot()] = value;
+                break;
+            case DOUBLE:
+                primitives[field.getSlot()] = Double.doubleToRawLongBits(value);
+                break;
+            case STRING:
+                references[field.getSlot()] = Long.toString(value);
+                break;
+            case ANY:
+                references[field.getSlot()] = new GenericData().setLong(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+        }
+
+        mark(field);
+        return this;
+    }
+
+    public SchemaData setDouble(Field field, double value) {
+        checkField(field);
+        checkMutable();
+
+        switch (field.getType()) {
+            case LONG:
+                if ((long) value != value) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                primitives[field.getSlot()] = (long) value;
+                break;
+            case DOUBLE:
+                primitives[field.getSlot()] = Double.doubleToRawLongBits(value);
+                break;
+            case STRING:
+                references[field.getSlot()] = Double.toString(value);
+                break;
+            case ANY:
+                references[field.getSlot()] = new GenericData().setDouble(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+        }
+
+        mark(field);
+        return this;
+    }
+
+    public SchemaData setString(Field field, String value) {
+        checkField(field);
+        if (value == null) {
+            return remove(field);
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+                if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                return setBoolean(field, Boolean.parseBoolean(value));
+            case LONG:
+                return setLong(field, Long.parseLong(value));
+            case DOUBLE:
+                return setDouble(field, Double.parseDouble(value));
+            case STRING:
+                checkMutable();
+                references[field.getSlot()] = value;
+                break;
+            case ANY:
+                checkMutable();
+                references[field.getSlot()] = new GenericData().setString(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+        }
+
+        mark(field);
+        return this;
+    }
+
+    public SchemaData set(Field field, Data value) {
+        checkField(field);
+        if (value == null || value.isNull()) {
+            return remove(field);
+        }
+
+        switch (field.getType()) {
+            case BOOLEAN:
+                if (!field.getType().accepts(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                return setBoolean(field, value.getBoolean());
+            case LONG:
+                if (!field.getType().accepts(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                return setLong(field, value.getLong());
+            case DOUBLE:
+                if (!field.getType().accepts(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                return setDouble(field, value.getDouble());
+            case STRING:
+                if (!field.getType().accepts(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                return setString(field, value.getString());
+            case OBJECT:
+                if (!field.getType().accepts(value)) {
+                    throw new IllegalArgumentException("Field " + field.getName() + " is not of type " + field.getType());
+                }
+                checkMutable();
+                Schema nested = field.getNestedSchema();
+                if (nested != null && !(value instanceof SchemaData && ((SchemaData) value).getSchema() == nested)) {
+                    value = nested.bind(value);
+                }
+                references[field.getSlot()] = value;
+                break;
+            default:
+                checkMutable();
+                references[field.getSlot()] = value;
+        }
+
+        mark(field);
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        Arrays.fill(present, 0);
+        Arrays.fill(references, null);
+        extras = null;
+    }
+
+    @Override
+    public Data set(Data value) {
+        return set(value, isMutable);
+    }
+
+    @Override
+    public Data set(Data value, boolean mutable) {
+        clear();
+
+        if (!value.isNull()) {
+            if (!value.isObject()) {
+                return notAtomic();
+            }
+            for (String key : value.keySet()) {
+                set(key, value.get(key));
+            }
+        }
+
+        isMutable = mutable;
+        return this;
+    }
+
+    @Override
+    public Data set(String property, Data value) {
+        Field field = field(property);
+        if (field != null) {
+            return set(field, value);
+        }
+
+        checkMutable();
+        if (extras == null) {
+            extras = new LinkedHashMap<>();
+        }
+        if (value == null || value.isNull()) {
+            extras.remove(property);
+        } else {
+            extras.put(property, value);
+        }
+        return this;
+    }
+
+    @Override
+    public Data set(int index, Data value) {
+        return set(schema.getField(index), value);
+    }
+
+    @Override
+    public Data setBoolean(String property, boolean value) {
+        Field field = field(property);
+        return field == null ? set(property, new GenericData().setBoolean(value)) : setBoolean(field, value);
+    }
+
+    @Override
+    public Data setBoolean(int index, boolean value) {
+        return setBoolean(schema.getField(index), value);
+    }
+
+    @Override
+    public Data setString(String property, String value) {
+        Field field = field(property);
+        return field == null ? set(property, new GenericData().setString(value)) : setString(field, value);
+    }
+
+    @Override
+    public Data setString(int index, String value) {
+        return setString(schema.getField(index), value);
+    }
+
+    @Override
+    public Data setLong(String property, long value) {
+        Field field = field(property);
+        return field == null ? set(property, new GenericData().setLong(value)) : setLong(field, value);
+    }
+
+    @Override
+    public Data setLong(int index, long value) {
+        return setLong(schema.getField(index), value);
+    }
+
+    @Override
+    public Data setInt(String property, int value) {
+        return setLong(property, value);
+    }
+
+    @Override
+    public Data setInt(int index, int value) {
+        return setLong(index, value);
+    }
+
+    @Override
+    public Data setShort(String property, short value) {
+        return setLong(property, value);
+    }
+
+    @Override
+    public Data setShort(int index, short value) {
+        return setLong(index, value);
+    }
+
+    @Override
+    public Data setByte(String property, byte value) {
+        return setLong(property, value);
+    }
+
+    @Override
+    public Data setByte(int index, byte value) {
+        return setLong(index, value);
+    }
+
+    @Override
+    public Data setDouble(String property, double value) {
+        Field field = field(property);
+        return field == null ? set(property, new GenericData().setDouble(value)) : setDouble(field, value);
+    }
+
+    @Override
+    public Data setDouble(int index, double value) {
+        return setDouble(schema.getField(index), value);
+    }
+
+    @Override
+    public Data setFloat(String property, float value) {
+        return setDouble(property, value);
+    }
+
+    @Override
+    public Data setFloat(int index, float value) {
+        return setDouble(index, value);
+    }
+
+    @Override
+    public Data setBoolean(boolean value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setString(String value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setLong(long value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setInt(int value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setShort(short value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setByte(byte value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setDouble(double value) {
+        return notAtomic();
+    }
+
+    @Override
+    public Data setFloat(float value) {
+        return notAtomic();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return new GenericData(this).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return keySet().hashCode();
+    }
+}
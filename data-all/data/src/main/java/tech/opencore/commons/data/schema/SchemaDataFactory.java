@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+
+/**
+ * A factory creating data bound to a schema.
+ *
+ * Serialization is delegated to another factory, and deserialized data is validated and bound to the schema.
+ *
+ * @author Eric Boukobza
+ */
+public class SchemaDataFactory implements DataFactory {
+    private final Schema schema;
+    private final DataFactory delegate;
+
+    public SchemaDataFactory(Schema schema) {
+        this(schema, DataFactory.getDefaultFactory());
+    }
+
+    public SchemaDataFactory(Schema schema, DataFactory delegate) {
+        this.schema = schema;
+        this.delegate = delegate;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public SchemaData createData() {
+        return schema.newData();
+    }
+
+    @Override
+    public SchemaData deserialize(InputStream in) throws Exception {
+        return schema.bind(delegate.deserialize(in));
+    }
+
+    @Override
+    public void serialize(Data data, OutputStream out) throws Exception {
+        delegate.serialize(data, out);
+    }
+}
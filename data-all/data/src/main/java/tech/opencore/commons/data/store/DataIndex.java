@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import tech.opencore.commons.data.Data;
+
+/**
+ * A secondary index mapping the atomic value found at a path of the documents to the keys of these documents.
+ *
+ * Documents with no value or a non atomic value at the indexed path are not indexed.
+ *
+ * @author Eric Boukobza
+ */
+public abstract class DataIndex {
+    private final DataPath path;
+    protected final Map<IndexKey, Set<String>> entries;
+
+    protected DataIndex(DataPath path, Map<IndexKey, Set<String>> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    public DataPath getPath() {
+        return path;
+    }
+
+    /**
+     * Get the name of the kind of this index, as persisted by <code>DataStore</code>.
+     *
+     * @return The kind of index
+     */
+    public abstract String getType();
+
+    /**
+     * Get the number of distinct values in this index.
+     *
+     * @return The number of distinct values.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    void add(String key, Data document) {
+        IndexKey value = IndexKey.of(path.resolve(document));
+        if (value == null) {
+            return;
+        }
+
+        Set<String> keys = entries.get(value);
+        if (keys == null) {
+            keys = new HashSet<>(2);
+            entries.put(value, keys);
+        }
+        keys.add(key);
+    }
+
+    void remove(String key, Data document) {
+        IndexKey value = IndexKey.of(path.resolve(document));
+        if (value == null) {
+            return;
+        }
+
+        Set<String> keys = entries.get(value);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            entries.remove(value);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the keys of the documents holding the given value at the indexed path.
+     *
+     * @param value The value to look for
+     * @return A copy of the matching keys, empty if there is none.
+     */
+    public Set<String> lookup(Data value) {
+        IndexKey key = IndexKey.of(value);
+        Set<String> keys = key == null ? null : entries.get(key);
+        return keys == null ? new HashSet<>() : new HashSet<>(keys);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ * A dot separated path into a data tree, for instance <code>address.city</code> or <code>items.0.price</code>.
+ *
+ * Numeric segments are resolved as array indexes when the data at that level is not an object.
+ * The path is split once so resolving it does not allocate.
+ *
+ * @author Eric Boukobza
+ */
+public final class DataPath {
+    private final String path;
+    private final String[] segments;
+    private final int[] indexes;
+
+    public DataPath(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Empty path");
+        }
+
+        this.path = path;
+        this.segments = path.split("\\.");
+        this.indexes = new int[segments.length];
+
+        for (int i = 0 ; i < segments.length ; i++) {
+            indexes[i] = parseIndex(segments[i]);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Resolve this path against the given data.
+     *
+     * @param data The root of the data tree
+     * @return The data found at this path, or <code>GenericData.NULL</code> if there is none.
+     */
+    public Data resolve(Data data) {
+        Data current = data;
+
+        for (int i = 0 ; i < segments.length ; i++) {
+            if (current == null || current.isNull()) {
+                return GenericData.NULL;
+            }
+
+            if (indexes[i] >= 0 && !current.isObject()) {
+                current = current.get(indexes[i]);
+            } else {
+                current = current.get(segments[i]);
+            }
+        }
+
+        return current == null ? GenericData.NULL : current;
+    }
+
+    private static int parseIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return -1;
+        }
+
+        for (int i = 0 ; i < segment.length() ; i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return -1;
+            }
+        }
+
+        return Integer.parseInt(segment);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DataPath && path.equals(((DataPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
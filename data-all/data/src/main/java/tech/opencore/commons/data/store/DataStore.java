@@ -0,0 +1,376 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+
+/**
+ * An embedded key-value store of data documents maintaining secondary indexes on chosen paths.
+ *
+ * Documents are stored as immutable snapshots, so indexes cannot be invalidated by later changes to the
+ * data that was put. Equality lookups are answered by any index on the path, range lookups require a
+ * sorted index. Lookups on a path with no suitable index fail rather than scanning the documents.
+ *
+ * The store is persisted as a single data through a <code>DataFactory</code> codec:
+ * <pre>
+ * { "indexes": { "path": "hash" | "sorted", ... }, "documents": { "key": document, ... } }
+ * </pre>
+ *
+ * @author Eric Boukobza
+ */
+public class DataStore {
+    public static final String INDEXES = "indexes";
+    public static final String DOCUMENTS = "documents";
+
+    private final DataFactory factory;
+    private final Map<String, Data> documents = new HashMap<>();
+    private final Map<String, DataIndex> indexes = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    public DataStore() {
+        this(DataFactory.getDefaultFactory());
+    }
+
+    public DataStore(DataFactory factory) {
+        this.factory = factory;
+    }
+
+    public DataFactory getDataFactory() {
+        return factory;
+    }
+
+    public HashIndex createHashIndex(String path) {
+        return (HashIndex) createIndex(new HashIndex(new DataPath(path)));
+    }
+
+    public SortedIndex createSortedIndex(String path) {
+        return (SortedIndex) createIndex(new SortedIndex(new DataPath(path)));
+    }
+
+    private DataIndex createIndex(DataIndex index) {
+        writeLock.lock();
+        try {
+            String path = index.getPath().getPath();
+            DataIndex existing = indexes.get(path);
+            if (existing != null) {
+                if (!existing.getType().equals(index.getType())) {
+                    throw new IllegalStateException("Path " + path + " already has a " + existing.getType() + " index");
+                }
+                return existing;
+            }
+
+            for (Map.Entry<String, Data> entry : documents.entrySet()) {
+                index.add(entry.getKey(), entry.getValue());
+            }
+            indexes.put(path, index);
+
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean dropIndex(String path) {
+        writeLock.lock();
+        try {
+            return indexes.remove(path) != null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public DataIndex getIndex(String path) {
+        readLock.lock();
+        try {
+            return indexes.get(path);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Collection<DataIndex> getIndexes() {
+        readLock.lock();
+        try {
+            return new ArrayList<>(indexes.values());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Store a document. Mutable documents are copied into an immutable snapshot.
+     *
+     * @param key The key of the document
+     * @param document The document
+     * @return The document previously stored with this key, or null if there was none.
+     */
+    public Data put(String key, Data document) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null key");
+        }
+
+        Data snapshot = document.isMutable() ? factory.createData().set(document, false) : document;
+
+        writeLock.lock();
+        try {
+            return putInternal(key, snapshot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Data putInternal(String key, Data document) {
+        Data previous = documents.put(key, document);
+
+        for (DataIndex index : indexes.values()) {
+            if (previous != null) {
+                index.remove(key, previous);
+            }
+            index.add(key, document);
+        }
+
+        return previous;
+    }
+
+    public Data get(String key) {
+        readLock.lock();
+        try {
+            return documents.get(key);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public List<Data> getAll(Collection<String> keys) {
+        readLock.lock();
+        try {
+            List<Data> result = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                Data document = documents.get(key);
+                if (document != null) {
+                    result.add(document);
+                }
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public boolean containsKey(String key) {
+        readLock.lock();
+        try {
+            return documents.containsKey(key);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Data remove(String key) {
+        writeLock.lock();
+        try {
+            Data previous = documents.remove(key);
+            if (previous != null) {
+                for (DataIndex index : indexes.values()) {
+                    index.remove(key, previous);
+                }
+            }
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        readLock.lock();
+        try {
+            return documents.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Set<String> keySet() {
+        readLock.lock();
+        try {
+            return Collections.unmodifiableSet(new HashSet<>(documents.keySet()));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            documents.clear();
+            for (DataIndex index : indexes.values()) {
+                index.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Get the keys of the documents holding the given value at the given path.
+     *
+     * @param path An indexed path
+     * @param value The value to look for
+     * @return The matching keys
+     * @throws IllegalArgumentException if the path is not indexed
+     */
+    public Set<String> lookup(String path, Data value) {
+        readLock.lock();
+        try {
+            return requireIndex(path).lookup(value);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Get the keys of the documents whose value at the given path is within the given range.
+     * A null bound leaves that side of the range open.
+     *
+     * @param path A path with a sorted index
+     * @param from The lower bound, or null
+     * @param fromInclusive true if the lower bound is part of the range
+     * @param to The upper bound, or null
+     * @param toInclusive true if the upper bound is part of the range
+     * @return The matching keys, in the order of the indexed values.
+     * @throws IllegalArgumentException if the path has no sorted index
+     */
+    public Set<String> range(String path, Data from, boolean fromInclusive, Data to, boolean toInclusive) {
+        readLock.lock();
+        try {
+            DataIndex index = requireIndex(path);
+            if (!(index instanceof SortedIndex)) {
+                throw new IllegalArgumentException("Path " + path + " has no sorted index");
+            }
+            return ((SortedIndex) index).range(from, fromInclusive, to, toInclusive);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public List<Data> find(String path, Data value) {
+        return getAll(lookup(path, value));
+    }
+
+    public List<Data> findRange(String path, Data from, boolean fromInclusive, Data to, boolean toInclusive) {
+        return getAll(range(path, from, fromInclusive, to, toInclusive));
+    }
+
+    private DataIndex requireIndex(String path) {
+        DataIndex index = indexes.get(path);
+        if (index == null) {
+            throw new IllegalArgumentException("Path " + path + " is not indexed");
+        }
+        return index;
+    }
+
+    /**
+     * Serialize the documents and the index definitions with the factory of this store.
+     *
+     * @param out The stream to write to
+     * @throws Exception if the factory fails to serialize the store
+     */
+    public void save(OutputStream out) throws Exception {
+        Data snapshot = factory.createData();
+        Data indexData = factory.createData();
+        Data documentData = factory.createData();
+
+        readLock.lock();
+        try {
+            for (DataIndex index : indexes.values()) {
+                indexData.setString(index.getPath().getPath(), index.getType());
+            }
+            for (Map.Entry<String, Data> entry : documents.entrySet()) {
+                documentData.set(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        snapshot.set(INDEXES, indexData);
+        snapshot.set(DOCUMENTS, documentData);
+        factory.serialize(snapshot, out);
+    }
+
+    public void save(String filename) throws Exception {
+        try (OutputStream out = new FileOutputStream(filename)) {
+            save(out);
+        }
+    }
+
+    /**
+     * Load a store previously saved with the given factory, rebuilding its indexes.
+     *
+     * @param factory The factory used to save the store
+     * @param in The stream to read from
+     * @return The loaded store
+     * @throws Exception if the factory fails to deserialize the store
+     */
+    public static DataStore load(DataFactory factory, InputStream in) throws Exception {
+        Data snapshot = factory.deserialize(in);
+        DataStore store = new DataStore(factory);
+
+        Data documentData = snapshot.get(DOCUMENTS);
+        for (String key : documentData.keySet()) {
+            Data document = documentData.get(key);
+            store.documents.put(key, document.isMutable() ? factory.createData().set(document, false) : document);
+        }
+
+        Data indexData = snapshot.get(INDEXES);
+        for (String path : indexData.keySet()) {
+            String type = indexData.getString(path);
+            if (SortedIndex.TYPE.equals(type)) {
+                store.createSortedIndex(path);
+            } else if (HashIndex.TYPE.equals(type)) {
+                store.createHashIndex(path);
+            } else {
+                throw new IllegalStateException("Unknown index type " + type + " for path " + path);
+            }
+        }
+
+        return store;
+    }
+
+    public static DataStore load(DataFactory factory, String filename) throws Exception {
+        try (InputStream in = new FileInputStream(filename)) {
+            return load(factory, in);
+        }
+    }
+}
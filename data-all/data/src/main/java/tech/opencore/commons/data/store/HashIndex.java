@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import java.util.HashMap;
+
+/**
+ * Index answering equality lookups in constant time.
+ *
+ * @author Eric Boukobza
+ */
+public class HashIndex extends DataIndex {
+    public static final String TYPE = "hash";
+
+    public HashIndex(DataPath path) {
+        super(path, new HashMap<>());
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+}
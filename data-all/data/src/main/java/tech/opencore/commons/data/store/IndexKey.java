@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import tech.opencore.commons.data.Data;
+
+/**
+ * Normalized atomic value used as an index entry.
+ *
+ * Data is loosely typed, so the same value can be held as a string, an integral or a numeric.
+ * Keys are normalized so that <code>"12"</code>, <code>12</code> and <code>12.0</code> are equal, and
+ * ordered as booleans first, then numbers, then strings.
+ *
+ * @author Eric Boukobza
+ */
+final class IndexKey implements Comparable<IndexKey> {
+    private static final int BOOLEAN = 0;
+    private static final int INTEGRAL = 1;
+    private static final int NUMERIC = 2;
+    private static final int STRING = 3;
+
+    private final int type;
+    private final long integralValue;
+    private final double numericValue;
+    private final String stringValue;
+
+    private IndexKey(int type, long integralValue, double numericValue, String stringValue) {
+        this.type = type;
+        this.integralValue = integralValue;
+        this.numericValue = numericValue;
+        this.stringValue = stringValue;
+    }
+
+    /**
+     * Build the key of an atomic data.
+     *
+     * @param data The value to index
+     * @return The key, or null if the value is null or not atomic and therefore cannot be indexed.
+     */
+    static IndexKey of(Data data) {
+        if (data == null || data.isNull() || !data.isAtomic()) {
+            return null;
+        }
+
+        if (data.isIntegral()) {
+            long value = data.getLong();
+            return new IndexKey(INTEGRAL, value, value, null);
+        }
+
+        if (data.isNumeric()) {
+            double value = data.getDouble();
+            if (value >= -0x1p63 && value < 0x1p63 && (long) value == value) {
+                // Integers held as doubles are integral keys, so that numeric keys are never equal to integral ones
+                return new IndexKey(INTEGRAL, (long) value, value, null);
+            }
+            return new IndexKey(NUMERIC, 0, value, null);
+        }
+
+        String value = data.getString();
+        if ("true".equalsIgnoreCase(value)) {
+            return new IndexKey(BOOLEAN, 1, 1, null);
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return new IndexKey(BOOLEAN, 0, 0, null);
+        }
+
+        return new IndexKey(STRING, 0, 0, value);
+    }
+
+    private int rank() {
+        return type == NUMERIC ? INTEGRAL : type;
+    }
+
+    @Override
+    public int compareTo(IndexKey other) {
+        int result = Integer.compare(rank(), other.rank());
+        if (result != 0) {
+            return result;
+        }
+
+        switch (type) {
+            case STRING:
+                return stringValue.compareTo(other.stringValue);
+            case BOOLEAN:
+                return Long.compare(integralValue, other.integralValue);
+            default:
+                if (type == INTEGRAL && other.type == INTEGRAL) {
+                    return Long.compare(integralValue, other.integralValue);
+                }
+                if (type == NUMERIC && other.type == NUMERIC) {
+                    return Double.compare(numericValue, other.numericValue);
+                }
+                return type == INTEGRAL ? compare(integralValue, other.numericValue) : -compare(other.integralValue, numericValue);
+        }
+    }
+
+    /**
+     * Compare a long with a double that is not an integer in the range of longs, without the rounding of the long
+     * to a double. Such values are never equal, and NaN is greater than all the numbers as with
+     * <code>Double.compare</code>.
+     */
+    private static int compare(long integral, double numeric) {
+        if (Double.isNaN(numeric) || numeric >= 0x1p63) {
+            return -1;
+        }
+        if (numeric < -0x1p63) {
+            return 1;
+        }
+        // A double in the range of longs that is not an integer is below 2^52 in magnitude, so its floor is exact
+        return integral <= (long) Math.floor(numeric) ? -1 : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IndexKey && compareTo((IndexKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        switch (type) {
+            case STRING:
+                return stringValue.hashCode();
+            case BOOLEAN:
+                return (int) integralValue;
+            case INTEGRAL:
+                return Long.hashCode(integralValue);
+            default:
+                return Double.hashCode(numericValue);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case STRING:
+                return stringValue;
+            case BOOLEAN:
+                return Boolean.toString(integralValue != 0);
+            case INTEGRAL:
+                return Long.toString(integralValue);
+            default:
+                return Double.toString(numericValue);
+        }
+    }
+}
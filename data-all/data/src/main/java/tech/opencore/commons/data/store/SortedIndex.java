@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import tech.opencore.commons.data.Data;
+
+/**
+ * Index answering equality and range lookups in logarithmic time.
+ *
+ * @author Eric Boukobza
+ */
+public class SortedIndex extends DataIndex {
+    public static final String TYPE = "sorted";
+
+    public SortedIndex(DataPath path) {
+        super(path, new TreeMap<>());
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    /**
+     * Get the keys of the documents whose value at the indexed path is within the given range.
+     * A null bound leaves that side of the range open.
+     *
+     * @param from The lower bound, or null
+     * @param fromInclusive true if the lower bound is part of the range
+     * @param to The upper bound, or null
+     * @param toInclusive true if the upper bound is part of the range
+     * @return The matching keys, in the order of the indexed values.
+     */
+    public Set<String> range(Data from, boolean fromInclusive, Data to, boolean toInclusive) {
+        NavigableMap<IndexKey, Set<String>> sorted = (NavigableMap<IndexKey, Set<String>>) entries;
+        IndexKey fromKey = IndexKey.of(from);
+        IndexKey toKey = IndexKey.of(to);
+
+        if (fromKey != null && toKey != null) {
+            if (fromKey.compareTo(toKey) > 0) {
+                return new LinkedHashSet<>();
+            }
+            sorted = sorted.subMap(fromKey, fromInclusive, toKey, toInclusive);
+        } else if (fromKey != null) {
+            sorted = sorted.tailMap(fromKey, fromInclusive);
+        } else if (toKey != null) {
+            sorted = sorted.headMap(toKey, toInclusive);
+        }
+
+        Set<String> result = new LinkedHashSet<>();
+        for (Set<String> keys : sorted.values()) {
+            result.addAll(keys);
+        }
+
+        return result;
+    }
+}
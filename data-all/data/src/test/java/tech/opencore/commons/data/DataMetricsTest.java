@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.metrics.InMemoryMetricsRegistry;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * The tests run with the in-memory registry declared in the test resources.
+ *
+ * @author Eric Boukobza
+ */
+public class DataMetricsTest {
+
+    @Test
+    public void genericDataTest() throws Exception {
+        Assertions.assertTrue(Metrics.isEnabled());
+        InMemoryMetricsRegistry registry = (InMemoryMetricsRegistry) Metrics.getRegistry();
+
+        DataFactory factory = DataFactory.getDefaultFactory();
+        long created = registry.getCount("data.generic.created");
+        Data data = factory.createData().setLong("id", 1).setString("name", "first");
+        new GenericData().setLong("other", 1);
+        Assertions.assertEquals(created + 1, registry.getCount("data.generic.created"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(data, out);
+        factory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+        Assertions.assertTrue(registry.getHistogram("data.generic.serialize").getCount() > 0);
+        Assertions.assertTrue(registry.getHistogram("data.generic.deserialize").getCount() > 0);
+        Assertions.assertTrue(registry.scrape().contains("data_generic_created "));
+    }
+}
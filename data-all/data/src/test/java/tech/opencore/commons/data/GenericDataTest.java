@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data;
+
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class GenericDataTest {
+
+    @Test
+    public void inPlaceSetTest() {
+        Data data = new GenericData().setLong("count", 1).setString("name", "first");
+        Data count = data.get("count");
+
+        data.setLong("count", 2);
+        Assertions.assertSame(count, data.get("count"));
+        Assertions.assertEquals(2, count.getLong());
+
+        data.setDouble("count", 2.5);
+        Assertions.assertSame(count, data.get("count"));
+        Assertions.assertTrue(count.isNumeric());
+
+        Data frozen = new GenericData().setLong("value", 1);
+        data.set("frozen", new GenericData(frozen, false));
+        Data immutable = data.get("frozen");
+        data.setLong("frozen", 3);
+        Assertions.assertNotSame(immutable, data.get("frozen"));
+        Assertions.assertEquals(3, data.getLong("frozen"));
+        Assertions.assertEquals(1, immutable.getLong("value"));
+
+        // Nodes given by the caller are replaced, not updated
+        Data given = new GenericData().setLong(5);
+        data.set("given", given);
+        data.setLong("given", 6);
+        Assertions.assertEquals(5, given.getLong());
+        Assertions.assertEquals(6, data.getLong("given"));
+
+        Data shared = new GenericData().set("count", data.get("count"));
+        shared.setLong("count", 7);
+        Assertions.assertTrue(data.get("count").isNumeric());
+        Assertions.assertEquals(7, shared.getLong("count"));
+    }
+
+    @Test
+    public void arrayTest() {
+        Data array = new GenericData().setLong(2, 30);
+        Assertions.assertEquals(3, array.size());
+        Assertions.assertTrue(array.get(0).isNull());
+        Assertions.assertEquals(30, array.getLong(2));
+        Assertions.assertTrue(array.get(5).isNull());
+
+        array.setString(0, "first").setLong(3, 40);
+        Assertions.assertEquals(4, array.size());
+        Assertions.assertEquals("first", array.getString(0));
+        Assertions.assertEquals(40, array.getLong(3));
+
+        Data leaf = array.get(3);
+        array.setLong(3, 41);
+        Assertions.assertSame(leaf, array.get(3));
+
+        Data scalar = new GenericData().setLong(7).setLong(1, 8);
+        Assertions.assertEquals(2, scalar.size());
+        Assertions.assertEquals(7, scalar.getLong(0));
+        Assertions.assertEquals(8, scalar.getLong(1));
+        Assertions.assertEquals(scalar, new GenericData(scalar));
+    }
+
+    @Test
+    public void defaultValueTest() {
+        Data data = new GenericData().setLong("a", 5).setBoolean("b", true).setDouble("c", 1.5);
+
+        Assertions.assertEquals(5, data.getLong("a", 9));
+        Assertions.assertEquals(9, data.getLong("missing", 9));
+        Assertions.assertEquals(5, data.getInt("a", 9));
+        Assertions.assertTrue(data.getBoolean("b", false));
+        Assertions.assertTrue(data.getBoolean("missing", true));
+        Assertions.assertEquals(1.5, data.getDouble("c", 0));
+        Assertions.assertEquals(0.5, data.getDouble("missing", 0.5));
+    }
+
+    @Test
+    public void appendTest() throws Exception {
+        long[] longs = { 0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE };
+        double[] doubles = { 0, -1.5, 3.14159, 1e-10, Double.MAX_VALUE };
+
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        for (long value : longs) {
+            Data leaf = new GenericData().setLong(value);
+            Assertions.assertEquals(Long.toString(value), leaf.appendTo(new StringWriter()).toString());
+            Assertions.assertEquals(Long.toString(value), leaf.appendTo(new StringBuilder()).toString());
+
+            buffer.clear();
+            leaf.writeTo(buffer).flip();
+            Assertions.assertEquals(Long.toString(value), StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+        for (double value : doubles) {
+            Data leaf = new GenericData().setDouble(value);
+            Assertions.assertEquals(Double.toString(value), leaf.appendTo(new StringWriter()).toString());
+
+            buffer.clear();
+            leaf.writeTo(buffer).flip();
+            Assertions.assertEquals(Double.toString(value), StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+
+        ByteBuffer small = ByteBuffer.allocate(4);
+        Assertions.assertThrows(BufferOverflowException.class, () -> new GenericData().setDouble(3.14159).writeTo(small));
+        Assertions.assertThrows(BufferOverflowException.class, () -> new GenericData().setLong(123456).writeTo(small));
+        Assertions.assertThrows(BufferOverflowException.class, () -> new GenericData().setString("abcdef").writeTo(small));
+        Assertions.assertThrows(BufferOverflowException.class, () -> new GenericData().setBoolean(false).writeTo(small));
+        Assertions.assertEquals(0, small.position());
+
+        buffer.clear();
+        new GenericData().setString("café").writeTo(buffer).flip();
+        Assertions.assertEquals("café", StandardCharsets.UTF_8.decode(buffer).toString());
+        Assertions.assertEquals("true", new GenericData().setBoolean(true).appendTo(new StringBuilder()).toString());
+        Assertions.assertEquals("", GenericData.NULL.appendTo(new StringBuilder()).toString());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.arena;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DataArenaTest {
+
+    private static Data message(DataFactory factory, int i) {
+        Data message = factory.createData()
+                .setLong("id", i)
+                .setString("type", "order")
+                .setDouble("price", i * 1.5);
+        message.set("client", factory.createData().setString("name", "client" + i).setBoolean("vip", i % 2 == 0));
+        return message;
+    }
+
+    @Test
+    public void reuseTest() {
+        DataArena arena = new DataArena();
+
+        Data first = message(arena, 1);
+        Assertions.assertSame(arena, first.getDataFactory());
+        Assertions.assertEquals(7, arena.getUsed());
+        Assertions.assertEquals(message(DataFactory.getDefaultFactory(), 1), first);
+        Data kept = new GenericData(first);
+
+        arena.reset();
+        Assertions.assertEquals(0, arena.getUsed());
+        Assertions.assertTrue(first.isNull());
+        Assertions.assertTrue(first.keySet().isEmpty());
+        Data second = message(arena, 2);
+        Assertions.assertEquals(7, arena.getUsed());
+        Assertions.assertEquals(7, arena.getCapacity());
+        Assertions.assertEquals(message(DataFactory.getDefaultFactory(), 2), second);
+        Assertions.assertEquals("client1", kept.get("client").getString("name"));
+
+        for (int i = 0 ; i < 100 ; i++) {
+            arena.reset();
+            message(arena, i);
+        }
+        Assertions.assertEquals(7, arena.getCapacity());
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        DataArena arena = new DataArena();
+        Data message = message(arena, 3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        arena.serialize(message, out);
+        arena.reset();
+
+        Data plain = arena.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(GenericData.class, plain.getClass());
+        Assertions.assertEquals(message(DataFactory.getDefaultFactory(), 3), plain);
+        Assertions.assertEquals(0, arena.getUsed());
+
+        Data copy = arena.copy(plain);
+        Assertions.assertSame(arena, copy.getDataFactory());
+        Assertions.assertEquals(plain, copy);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.bind;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+import tech.opencore.commons.data.columnar.ColumnarData;
+import tech.opencore.commons.data.columnar.ColumnarDataFactory;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DataBinderTest {
+
+    public enum Side { BUY, SELL }
+
+    public static class Entity {
+        long id;
+    }
+
+    public static class Order extends Entity {
+        String symbol;
+        int quantity;
+        double price;
+        boolean urgent;
+        Side side;
+        Integer priority;
+        @DataProperty("customer")
+        Client client;
+        @DataProperty(ignore = true)
+        String ignored = "kept";
+        transient String cached;
+
+        private Order() {
+        }
+    }
+
+    public static class Client {
+        String name;
+        Client parent;
+    }
+
+    private static Order order(int i) {
+        Order order = new Order();
+        order.id = i;
+        order.symbol = i % 2 == 0 ? "ABC" : "XYZ";
+        order.quantity = i * 10;
+        order.price = i * 1.5;
+        order.urgent = i % 3 == 0;
+        order.side = i % 2 == 0 ? Side.BUY : Side.SELL;
+        order.priority = i % 4 == 0 ? null : i;
+        return order;
+    }
+
+    @Test
+    public void roundTripTest() {
+        DataBinder<Order> binder = DataBinder.of(Order.class);
+        Assertions.assertSame(binder, DataBinder.of(Order.class));
+        Assertions.assertEquals("id", binder.getPropertyNames().get(0));
+        Assertions.assertFalse(binder.getPropertyNames().contains("ignored"));
+        Assertions.assertFalse(binder.getPropertyNames().contains("cached"));
+
+        Order order = order(3);
+        order.client = new Client();
+        order.client.name = "child";
+        order.client.parent = new Client();
+        order.client.parent.name = "parent";
+
+        Data data = binder.write(order);
+        Assertions.assertEquals(3, data.getLong("id"));
+        Assertions.assertEquals(30, data.getLong("quantity"));
+        Assertions.assertEquals("SELL", data.getString("side"));
+        Assertions.assertEquals("parent", data.get("customer").get("parent").getString("name"));
+        Assertions.assertTrue(data.get("ignored").isNull());
+
+        Order copy = binder.read(data);
+        Assertions.assertEquals(3, copy.id);
+        Assertions.assertEquals("XYZ", copy.symbol);
+        Assertions.assertEquals(30, copy.quantity);
+        Assertions.assertEquals(4.5, copy.price);
+        Assertions.assertTrue(copy.urgent);
+        Assertions.assertEquals(Side.SELL, copy.side);
+        Assertions.assertEquals(Integer.valueOf(3), copy.priority);
+        Assertions.assertEquals("parent", copy.client.parent.name);
+        Assertions.assertNull(copy.client.parent.parent);
+        Assertions.assertEquals("kept", copy.ignored);
+
+        Assertions.assertNull(binder.read(GenericData.NULL));
+        Assertions.assertNull(binder.read(new GenericData().setLong("id", 1)).symbol);
+    }
+
+    @Test
+    public void columnarTest() throws Exception {
+        DataBinder<Order> binder = DataBinder.of(Order.class);
+        List<Data> rows = new ArrayList<>();
+        for (int i = 0 ; i < 20 ; i++) {
+            rows.add(binder.write(order(i)));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarDataFactory.getInstance().serialize(ColumnarData.of(rows), out);
+        ColumnarData table = (ColumnarData) ColumnarDataFactory.getInstance()
+                .deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+        List<Order> orders = binder.readAll(table);
+        Assertions.assertEquals(20, orders.size());
+        for (int i = 0 ; i < 20 ; i++) {
+            Order order = orders.get(i);
+            Assertions.assertEquals(i, order.id);
+            Assertions.assertEquals(i * 10, order.quantity);
+            Assertions.assertEquals(i * 1.5, order.price);
+            Assertions.assertEquals(i % 2 == 0 ? Side.BUY : Side.SELL, order.side);
+            Assertions.assertEquals(i % 4 == 0 ? null : Integer.valueOf(i), order.priority);
+            Assertions.assertEquals(order.symbol, binder.read(table.get(i)).symbol);
+        }
+    }
+
+    @Test
+    public void narrowingTest() {
+        DataBinder<Narrow> binder = DataBinder.of(Narrow.class);
+        Narrow narrow = binder.read(new GenericData().setLong("small", -300).setLong("tiny", 100).setLong("boxed", 7));
+        Assertions.assertEquals(-300, narrow.small);
+        Assertions.assertEquals(100, narrow.tiny);
+        Assertions.assertEquals(Integer.valueOf(7), narrow.boxed);
+
+        Assertions.assertThrows(ArithmeticException.class, () -> binder.read(new GenericData().setLong("small", 40000)));
+        Assertions.assertThrows(ArithmeticException.class, () -> binder.read(new GenericData().setLong("tiny", 128)));
+        Assertions.assertThrows(ArithmeticException.class, () -> binder.read(new GenericData().setLong("boxed", 1L << 31)));
+    }
+
+    @Test
+    public void dataPropertyTest() {
+        DataBinder<Payload> binder = DataBinder.of(Payload.class);
+        Data data = new GenericData().set("content", new GenericData().setLong("x", 1));
+        Payload payload = binder.read(data);
+        payload.content.setLong("x", 2);
+        Assertions.assertEquals(1, data.get("content").getLong("x"));
+
+        Data written = binder.write(payload);
+        payload.content.setLong("x", 3);
+        Assertions.assertEquals(2, written.get("content").getLong("x"));
+    }
+
+    public static class Narrow {
+        short small;
+        byte tiny;
+        Integer boxed;
+    }
+
+    public static class Payload {
+        Data content;
+    }
+
+    @Test
+    public void unsupportedTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataBinder.of(Unsupported.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DataBinder.of(NoConstructor.class));
+    }
+
+    public static class Unsupported {
+        List<String> values;
+    }
+
+    public static class NoConstructor {
+        long id;
+
+        public NoConstructor(long id) {
+            this.id = id;
+        }
+    }
+}
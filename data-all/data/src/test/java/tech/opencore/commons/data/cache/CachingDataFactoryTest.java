@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+import tech.opencore.commons.data.columnar.ColumnarData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class CachingDataFactoryTest {
+
+    @Test
+    public void loadTest() throws Exception {
+        CachingDataFactory factory = new CachingDataFactory(DataFactory.getDefaultFactory(), 1 << 20);
+        File file = File.createTempFile("cache", ".data");
+        file.deleteOnExit();
+
+        factory.store(new GenericData().setString("name", "first"), file);
+        Data first = factory.load(file.getPath());
+        Assertions.assertSame(first, factory.load(file));
+        Assertions.assertFalse(first.isMutable());
+        Assertions.assertEquals("first", first.getString("name"));
+
+        factory.store(new GenericData().setString("name", "second"), file);
+        Data second = factory.load(file);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals("second", second.getString("name"));
+
+        file.setLastModified(file.lastModified() - 10000);
+        Assertions.assertNotSame(second, factory.load(file));
+
+        CacheStats stats = factory.getStats();
+        Assertions.assertEquals(1, stats.getHitCount());
+        Assertions.assertEquals(3, stats.getMissCount());
+    }
+
+    @Test
+    public void deserializeTest() throws Exception {
+        CachingDataFactory factory = new CachingDataFactory(DataFactory.getDefaultFactory(), 1 << 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(new GenericData().setLong("id", 42), out);
+        byte[] bytes = out.toByteArray();
+
+        Data first = factory.deserialize(new ByteArrayInputStream(bytes));
+        Assertions.assertSame(first, factory.deserialize(new ByteArrayInputStream(bytes)));
+        Assertions.assertEquals(42, first.getLong("id"));
+        Assertions.assertEquals(0.5, factory.getStats().getHitRate());
+    }
+
+    @Test
+    public void lruEvictionTest() {
+        DataCache cache = new DataCache(3 * DataWeigher.NODE, DataCache.Policy.LRU);
+        for (int i = 0 ; i < 3 ; i++) {
+            cache.put(i, GenericData.NULL, DataWeigher.NODE, null);
+        }
+        Assertions.assertNotNull(cache.get(0, null));
+
+        cache.put(3, GenericData.NULL, DataWeigher.NODE, null);
+        Assertions.assertNull(cache.get(1, null));
+        Assertions.assertNotNull(cache.get(0, null));
+        Assertions.assertEquals(3 * DataWeigher.NODE, cache.weightedSize());
+        Assertions.assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void tinyLfuAdmissionTest() {
+        DataCache cache = new DataCache(100, DataCache.Policy.WTINYLFU);
+        for (int i = 0 ; i < 10 ; i++) {
+            cache.get("hot", null);
+            cache.put("hot", GenericData.NULL, 90, null);
+        }
+
+        for (int i = 0 ; i < 100 ; i++) {
+            cache.get(i, null);
+            cache.put(i, GenericData.NULL, 90, null);
+        }
+
+        Assertions.assertNotNull(cache.get("hot", null));
+        Assertions.assertTrue(cache.weightedSize() <= 100);
+    }
+
+    @Test
+    public void tinyLfuVictimsTest() {
+        DataCache cache = new DataCache(1000, DataCache.Policy.WTINYLFU);
+        cache.get("x", null);
+        cache.put("x", GenericData.NULL, 100, null);
+        for (int i = 0 ; i < 5 ; i++) {
+            cache.get("y", null);
+        }
+        cache.put("y", GenericData.NULL, 500, null);
+        Assertions.assertEquals(600, cache.weightedSize());
+
+        // Beats x but not y, which would both have to leave: nothing is evicted
+        for (int i = 0 ; i < 3 ; i++) {
+            cache.get("cold", null);
+        }
+        cache.put("cold", GenericData.NULL, 491, null);
+        Assertions.assertEquals(600, cache.weightedSize());
+        Assertions.assertEquals(1, cache.getStats().getEvictionCount());
+
+        for (int i = 0 ; i < 10 ; i++) {
+            cache.get("hot", null);
+        }
+        cache.put("hot", GenericData.NULL, 491, null);
+        Assertions.assertEquals(491, cache.weightedSize());
+        Assertions.assertEquals(3, cache.getStats().getEvictionCount());
+
+        // Heavier than the main region, rejected without disturbing the entries
+        cache.put("small", GenericData.NULL, 5, null);
+        cache.put("huge", GenericData.NULL, 995, null);
+        Assertions.assertNull(cache.get("huge", null));
+        Assertions.assertNotNull(cache.get("small", null));
+        Assertions.assertNotNull(cache.get("hot", null));
+        Assertions.assertEquals(3, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void weighTest() {
+        Data row = new GenericData().setLong("id", 1).setString("name", "a name");
+        ColumnarData single = ColumnarData.of(Collections.singletonList(row));
+        ColumnarData pair = ColumnarData.of(Arrays.asList(row, row));
+
+        Assertions.assertEquals(DataWeigher.NODE, DataWeigher.weigh(new GenericData().setLong(1)));
+        Assertions.assertEquals(DataWeigher.NODE + 16 + DataWeigher.REFERENCE + DataWeigher.weigh(row),
+                DataWeigher.weigh(single));
+        Assertions.assertEquals(DataWeigher.REFERENCE + DataWeigher.weigh(row),
+                DataWeigher.weigh(pair) - DataWeigher.weigh(single));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class ColumnarDataTest {
+
+    private static List<Data> events(int count) {
+        List<Data> events = new ArrayList<>(count);
+        for (int i = 0 ; i < count ; i++) {
+            Data event = new GenericData()
+                    .setLong("timestamp", 1660000000000L + i * 1000L)
+                    .setString("type", i % 3 == 0 ? "click" : "view")
+                    .setDouble("amount", i * 0.5)
+                    .setBoolean("mobile", i % 2 == 0);
+            if (i % 10 != 0) {
+                event.setString("user", "user" + (i % 7));
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    @Test
+    public void rowAccessTest() {
+        ColumnarData table = ColumnarData.of(events(100));
+
+        Assertions.assertEquals(100, table.size());
+        Assertions.assertEquals(ColumnType.LONG, table.getColumn("timestamp").getType());
+        Assertions.assertEquals(ColumnType.DOUBLE, table.getColumn("amount").getType());
+        Assertions.assertEquals(ColumnType.BOOLEAN, table.getColumn("mobile").getType());
+        Assertions.assertEquals(ColumnType.STRING, table.getColumn("type").getType());
+
+        Assertions.assertEquals(1660000005000L, table.get(5).get("timestamp").getLong());
+        Assertions.assertEquals("user5", table.get(5).getString("user"));
+        Assertions.assertTrue(table.get(10).get("user").isNull());
+        Assertions.assertFalse(table.get(10).keySet().contains("user"));
+        Assertions.assertEquals(5, table.get(11).size());
+        Assertions.assertTrue(table.get(200).isNull());
+        Assertions.assertEquals(new GenericData(events(6).get(5)), new GenericData(table.get(5)));
+        Assertions.assertThrows(IllegalStateException.class, () -> table.get(1).setLong("timestamp", 0));
+    }
+
+    @Test
+    public void aggregateTest() {
+        ColumnarData table = ColumnarData.of(events(100));
+
+        Assertions.assertEquals(90, table.count("user"));
+        Assertions.assertEquals(2475.0, table.sum("amount"));
+        Assertions.assertEquals(49.5, table.max("amount"));
+        Assertions.assertEquals(1660000000000L, ((LongColumn) table.getColumn("timestamp")).minLong());
+        Assertions.assertEquals(34, ((StringColumn) table.getColumn("type")).countEqual("click"));
+        Assertions.assertEquals(50, ((BooleanColumn) table.getColumn("mobile")).countTrue());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> table.sum("type"));
+    }
+
+    @Test
+    public void nullValuesTest() throws Exception {
+        List<Data> rows = new ArrayList<>();
+        rows.add(new GenericData().setLong("x", 1).set("y", GenericData.NULL).set("z", GenericData.NULL));
+        rows.add(new GenericData().setLong("x", 2).setString("y", "b").set("z", GenericData.NULL));
+        rows.add(new GenericData().set("x", GenericData.NULL));
+        ColumnarData table = ColumnarData.of(rows);
+
+        Assertions.assertEquals(ColumnType.LONG, table.getColumn("x").getType());
+        Assertions.assertEquals(ColumnType.STRING, table.getColumn("y").getType());
+        Assertions.assertEquals(ColumnType.DATA, table.getColumn("z").getType());
+        Assertions.assertEquals(2, table.count("x"));
+        Assertions.assertEquals(1, table.count("y"));
+        Assertions.assertEquals(0, table.count("z"));
+        for (int i = 0 ; i < rows.size() ; i++) {
+            Assertions.assertTrue(table.getColumn("z").isNull(i));
+        }
+        Assertions.assertTrue(table.get(0).get("y").isNull());
+        Assertions.assertEquals("b", table.get(1).getString("y"));
+        Assertions.assertTrue(table.get(2).get("x").isNull());
+        Assertions.assertTrue(table.get(2).get("y").isNull());
+        Assertions.assertTrue(table.get(2).keySet().isEmpty());
+
+        ColumnarData single = ColumnarData.of(Collections.singletonList(new GenericData().setLong("x", 1).set("y", GenericData.NULL)));
+        Assertions.assertEquals(ColumnType.DATA, single.getColumn("y").getType());
+        Assertions.assertTrue(single.get(0).get("y").isNull());
+
+        ColumnarDataFactory factory = ColumnarDataFactory.getInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(table, out);
+        Assertions.assertEquals(table, factory.deserialize(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void storedTypesTest() throws Exception {
+        List<Data> rows = new ArrayList<>();
+        rows.add(new GenericData().setString("code", "007").setString("exp", "1e3").setLong("mixed", 12).setString("flag", "true"));
+        rows.add(new GenericData().setString("code", "042").setString("exp", "2.5").setDouble("mixed", 0.5).setString("flag", "no"));
+        ColumnarData table = ColumnarData.of(rows);
+
+        Assertions.assertEquals(ColumnType.STRING, table.getColumn("code").getType());
+        Assertions.assertEquals(ColumnType.STRING, table.getColumn("exp").getType());
+        Assertions.assertEquals(ColumnType.STRING, table.getColumn("flag").getType());
+        Assertions.assertEquals(ColumnType.DATA, table.getColumn("mixed").getType());
+        Assertions.assertEquals("007", table.get(0).getString("code"));
+        Assertions.assertEquals("1e3", table.get(0).getString("exp"));
+        Assertions.assertEquals("12", table.get(0).getString("mixed"));
+        Assertions.assertTrue(table.get(0).get("mixed").isIntegral());
+        Assertions.assertTrue(table.get(0).get("code").isString());
+        Assertions.assertFalse(table.get(0).get("code").isIntegral());
+
+        ColumnarDataFactory factory = ColumnarDataFactory.getInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(table, out);
+        Data copy = factory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals("007", copy.get(0).getString("code"));
+        Assertions.assertEquals("12", copy.get(0).getString("mixed"));
+    }
+
+    @Test
+    public void codecTest() throws Exception {
+        List<Data> events = events(1000);
+        ColumnarDataFactory factory = ColumnarDataFactory.getInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(ColumnarData.of(events), out);
+
+        ByteArrayOutputStream generic = new ByteArrayOutputStream();
+        GenericData rows = new GenericData();
+        for (int i = 0 ; i < events.size() ; i++) {
+            rows.set(Integer.toString(i), events.get(i));
+        }
+        GenericData.NULL.getDataFactory().serialize(rows, generic);
+        Assertions.assertTrue(out.size() * 5 < generic.size(), out.size() + " bytes vs " + generic.size());
+
+        Data loaded = factory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(ColumnarData.of(events), loaded);
+        Assertions.assertEquals("view", loaded.get(998).getString("type"));
+        Assertions.assertTrue(loaded.get(990).get("user").isNull());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class BlockCompressionTest {
+
+    private static BlockCodec codec(String name) {
+        return "lz".equals(name) ? BlockCodecs.FAST : BlockCodecs.HIGH_RATIO;
+    }
+
+    private static byte[] sample() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0 ; i < 20000 ; i++) {
+            text.append("{\"id\":").append(i).append(",\"name\":\"item").append(random.nextInt(50)).append("\"}");
+        }
+        byte[] repetitive = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] noise = new byte[70000];
+        random.nextBytes(noise);
+
+        byte[] result = new byte[repetitive.length + noise.length];
+        System.arraycopy(repetitive, 0, result, 0, repetitive.length);
+        System.arraycopy(noise, 0, result, repetitive.length, noise.length);
+        return result;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lz", "deflate"})
+    public void roundTripTest(String name) throws Exception {
+        byte[] sample = sample();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BlockOutputStream output = new BlockOutputStream(out, codec(name), 32 * 1024)) {
+            output.write(sample, 0, 10);
+            output.write(sample[10]);
+            output.write(sample, 11, sample.length - 11);
+        }
+        Assertions.assertTrue(out.size() < sample.length * 2 / 3, name + ": " + out.size() + " / " + sample.length);
+
+        Assertions.assertArrayEquals(sample, readFully(new BlockInputStream(new ByteArrayInputStream(out.toByteArray()))));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Assertions.assertArrayEquals(sample, BlockInputStream.readAll(new ByteArrayInputStream(out.toByteArray()), executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        byte[] corrupted = out.toByteArray();
+        corrupted[corrupted.length / 3] ^= 0x55;
+        Assertions.assertThrows(IOException.class, () -> readFully(new BlockInputStream(new ByteArrayInputStream(corrupted))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lz", "deflate"})
+    public void dataFactoryTest(String name) throws Exception {
+        CompressingDataFactory factory = new CompressingDataFactory(DataFactory.getDefaultFactory(), codec(name), 4096);
+        Data first = new GenericData();
+        for (int i = 0 ; i < 500 ; i++) {
+            first.setString("key" + i, "value" + (i % 10));
+        }
+        Data second = new GenericData().setLong("id", 7);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(first, out);
+        factory.serialize(second, out);
+
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        Assertions.assertEquals(first, factory.deserialize(in));
+        Assertions.assertEquals(7, factory.deserialize(in).getLong("id"));
+        Assertions.assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class SchemaTest {
+
+    private static List<Data> orders(int count) {
+        List<Data> orders = new ArrayList<>(count);
+        for (int i = 0 ; i < count ; i++) {
+            Data order = new GenericData()
+                    .setLong("id", i)
+                    .setString("symbol", i % 2 == 0 ? "ABC" : "XYZ")
+                    .setBoolean("buy", i % 3 == 0)
+                    .set("client", new GenericData().setString("name", "client" + i));
+            order.setDouble("price", i % 2 == 0 ? i * 1.5 : i);
+            if (i % 4 != 0) {
+                order.setString("note", "note" + i);
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    @Test
+    public void inferTest() {
+        Schema schema = Schema.infer(orders(10));
+
+        Assertions.assertEquals(FieldType.LONG, schema.getField("id").getType());
+        Assertions.assertEquals(FieldType.DOUBLE, schema.getField("price").getType());
+        Assertions.assertEquals(FieldType.BOOLEAN, schema.getField("buy").getType());
+        Assertions.assertEquals(FieldType.STRING, schema.getField("symbol").getType());
+        Assertions.assertEquals(FieldType.OBJECT, schema.getField("client").getType());
+        Assertions.assertEquals(FieldType.STRING, schema.getField("client").getNestedSchema().getField("name").getType());
+        Assertions.assertTrue(schema.getField("id").isRequired());
+        Assertions.assertFalse(schema.getField("note").isRequired());
+        Assertions.assertTrue(schema.isClosed());
+        Assertions.assertNull(schema.getField("missing"));
+    }
+
+    @Test
+    public void storedTypesTest() {
+        List<Data> samples = new ArrayList<>();
+        samples.add(new GenericData().setString("code", "007").setString("exp", "1e3").setLong("mixed", 12).setLong("text", 1));
+        samples.add(new GenericData().setString("code", "042").setString("exp", "2.5").setDouble("mixed", 0.5).setString("text", "a"));
+        Schema schema = Schema.infer(samples);
+
+        Assertions.assertEquals(FieldType.STRING, schema.getField("code").getType());
+        Assertions.assertEquals(FieldType.STRING, schema.getField("exp").getType());
+        Assertions.assertEquals(FieldType.ANY, schema.getField("mixed").getType());
+        Assertions.assertEquals(FieldType.ANY, schema.getField("text").getType());
+
+        SchemaData bound = schema.bind(samples.get(0));
+        Assertions.assertEquals("007", bound.getString("code"));
+        Assertions.assertTrue(bound.get("code").isString());
+        Assertions.assertEquals("1e3", bound.getString("exp"));
+        Assertions.assertEquals("12", bound.getString("mixed"));
+        Assertions.assertEquals(samples.get(0), new GenericData(bound));
+
+        Assertions.assertFalse(FieldType.LONG.accepts(new GenericData().setString("43")));
+        Assertions.assertFalse(FieldType.STRING.accepts(new GenericData().setLong(43)));
+        Assertions.assertTrue(FieldType.DOUBLE.accepts(new GenericData().setLong(43)));
+        Assertions.assertSame(bound.getDataFactory(), schema.newData().getDataFactory());
+    }
+
+    @Test
+    public void validateTest() {
+        Schema schema = Schema.builder()
+                .field("id", FieldType.LONG, true)
+                .field("price", FieldType.DOUBLE)
+                .object("client", Schema.builder().field("name", FieldType.STRING, true).build(), false)
+                .build();
+
+        Assertions.assertTrue(schema.isValid(new GenericData().setLong("id", 1).setLong("price", 2)));
+        Assertions.assertEquals(1, schema.validate(new GenericData().setDouble("price", 2)).size());
+        Assertions.assertEquals(1, schema.validate(new GenericData().setLong("id", 1).setString("price", "high")).size());
+        Assertions.assertEquals(1, schema.validate(new GenericData().setLong("id", 1).setLong("other", 1)).size());
+        Assertions.assertEquals("client.name is required", schema.validate(new GenericData().setLong("id", 1)
+                .set("client", new GenericData().setString("other", "x"))).get(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> schema.bind(new GenericData().setDouble("id", 1.5)));
+    }
+
+    @Test
+    public void fieldAccessTest() {
+        Schema schema = Schema.infer(orders(10));
+        Field id = schema.requireField("id");
+        Field price = schema.requireField("price");
+        Field symbol = schema.requireField("symbol");
+
+        SchemaData order = schema.newData();
+        Assertions.assertTrue(order.isEmpty());
+        order.setLong(id, 42).setDouble(price, 10.25).setString(symbol, "ABC");
+
+        Assertions.assertEquals(42, order.getLong(id));
+        Assertions.assertEquals(42, order.getInt("id"));
+        Assertions.assertEquals(10.25, order.getDouble(price));
+        Assertions.assertEquals("ABC", order.getString("symbol"));
+        Assertions.assertTrue(order.get("id").isIntegral());
+        Assertions.assertTrue(order.get("buy").isNull());
+        Assertions.assertEquals(3, order.size());
+        Assertions.assertEquals(-1, order.getLong("buy", -1));
+
+        order.setString("id", "43");
+        Assertions.assertEquals(43, order.getLong(id));
+        order.setLong("price", 11);
+        Assertions.assertEquals(11.0, order.getDouble("price"));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.setDouble(id, 1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.setString("id", "abc"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.setLong("missing", 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.setLong("client", 1));
+
+        order.remove(price);
+        Assertions.assertFalse(order.has(price));
+        Assertions.assertFalse(order.keySet().contains("price"));
+
+        // The same slots in another schema
+        Field other = Schema.infer(orders(10)).requireField("id");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.getLong(other));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.has(other));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> order.setLong(other, 1));
+        Assertions.assertEquals(43, order.getLong(id));
+    }
+
+    @Test
+    public void bindTest() throws Exception {
+        List<Data> orders = orders(10);
+        Schema schema = Schema.infer(orders);
+
+        for (Data order : orders) {
+            SchemaData bound = schema.bind(order);
+            Assertions.assertEquals(order, new GenericData(bound));
+            Assertions.assertEquals("client" + order.getLong("id"), bound.get("client").getString("name"));
+            Assertions.assertTrue(bound.get("client") instanceof SchemaData);
+        }
+
+        SchemaDataFactory factory = new SchemaDataFactory(schema);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        factory.serialize(schema.bind(orders.get(3)), out);
+        SchemaData copy = factory.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(orders.get(3), new GenericData(copy));
+
+        Schema open = Schema.builder().field("id", FieldType.LONG).closed(false).build();
+        SchemaData data = open.newData();
+        data.setLong("id", 1).setString("extra", "value");
+        Assertions.assertEquals("value", data.getString("extra"));
+        Assertions.assertEquals(2, data.size());
+    }
+}
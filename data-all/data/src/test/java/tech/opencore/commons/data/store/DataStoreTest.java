@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.data.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.data.GenericData;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DataStoreTest {
+    private DataStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new DataStore();
+        store.createHashIndex("city");
+        store.createSortedIndex("order.price");
+
+        store.put("1", document("Paris", 120));
+        store.put("2", document("London", 80));
+        store.put("3", document("Paris", 45));
+        store.put("4", document("Berlin", 300));
+    }
+
+    private static Data document(String city, long price) {
+        Data order = new GenericData().setLong("price", price);
+        return new GenericData().setString("city", city).set("order", order);
+    }
+
+    @Test
+    public void lookupTest() {
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("1", "3")), store.lookup("city", new GenericData().setString("Paris")));
+        Assertions.assertTrue(store.lookup("city", new GenericData().setString("Madrid")).isEmpty());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("2")), store.lookup("order.price", new GenericData().setDouble(80.0)));
+    }
+
+    @Test
+    public void keyNormalizationTest() {
+        IndexKey big = IndexKey.of(new GenericData().setLong((1L << 53) + 1));
+        IndexKey rounded = IndexKey.of(new GenericData().setDouble(0x1p53));
+        Assertions.assertNotEquals(big, rounded);
+        Assertions.assertTrue(rounded.compareTo(big) < 0);
+        Assertions.assertEquals(IndexKey.of(new GenericData().setLong(1L << 53)), rounded);
+        Assertions.assertEquals(IndexKey.of(new GenericData().setLong(1L << 53)).hashCode(), rounded.hashCode());
+
+        IndexKey half = IndexKey.of(new GenericData().setDouble(2.5));
+        Assertions.assertTrue(IndexKey.of(new GenericData().setLong(2)).compareTo(half) < 0);
+        Assertions.assertTrue(IndexKey.of(new GenericData().setLong(3)).compareTo(half) > 0);
+        Assertions.assertTrue(IndexKey.of(new GenericData().setLong(Long.MAX_VALUE)).compareTo(IndexKey.of(new GenericData().setDouble(0x1p63))) < 0);
+        Assertions.assertTrue(IndexKey.of(new GenericData().setLong(Long.MAX_VALUE)).compareTo(IndexKey.of(new GenericData().setDouble(Double.NaN))) < 0);
+
+        Assertions.assertEquals(IndexKey.of(new GenericData().setBoolean(true)), IndexKey.of(new GenericData().setString("TRUE")));
+
+        Set<String> found = store.lookup("city", new GenericData().setString("Paris"));
+        found.clear();
+        Assertions.assertEquals(2, store.lookup("city", new GenericData().setString("Paris")).size());
+    }
+
+    @Test
+    public void rangeTest() {
+        Assertions.assertEquals(Arrays.asList("3", "2", "1"),
+                Arrays.asList(store.range("order.price", null, true, new GenericData().setLong(120), true).toArray()));
+        Assertions.assertEquals(Arrays.asList("1", "4"),
+                Arrays.asList(store.range("order.price", new GenericData().setLong(80), false, null, true).toArray()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.range("city", null, true, null, true));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.lookup("country", GenericData.NULL));
+    }
+
+    @Test
+    public void updateTest() {
+        Data mutable = document("Rome", 10);
+        store.put("3", mutable);
+        mutable.setString("city", "Paris");
+
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("1")), store.lookup("city", new GenericData().setString("Paris")));
+        Assertions.assertEquals("Rome", store.get("3").getString("city"));
+        Assertions.assertFalse(store.get("3").isMutable());
+
+        store.remove("1");
+        Assertions.assertTrue(store.lookup("city", new GenericData().setString("Paris")).isEmpty());
+        Assertions.assertEquals(3, store.size());
+    }
+
+    @Test
+    public void persistenceTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.save(out);
+
+        DataStore loaded = DataStore.load(DataFactory.getDefaultFactory(), new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(4, loaded.size());
+        Assertions.assertEquals(2, loaded.getIndexes().size());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("1", "3")), loaded.lookup("city", new GenericData().setString("Paris")));
+        Assertions.assertEquals(Arrays.asList("4"),
+                Arrays.asList(loaded.range("order.price", new GenericData().setLong(200), true, null, true).toArray()));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+/**
+ * A distribution of recorded values, typically latencies in nanoseconds.
+ *
+ * Latencies are measured with <code>startTimer</code> and <code>stopTimer</code> rather than by reading the
+ * clock at the call site, so that no-op histograms also skip reading the clock.
+ *
+ * @author Eric Boukobza
+ */
+public interface Histogram {
+
+    public void record(long value);
+
+    /**
+     * Start measuring a latency.
+     *
+     * @return The start of the measure, to pass to <code>stopTimer</code>
+     */
+    public default long startTimer() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time elapsed since a measure started.
+     *
+     * @param start The value returned by <code>startTimer</code>
+     */
+    public default void stopTimer(long start) {
+        record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry keeping its metrics in memory, to be scraped with <code>scrape</code> or read directly.
+ *
+ * Counters are backed by <code>LongAdder</code> and histograms are <code>LogHistogram</code>, so recording
+ * never blocks.
+ *
+ * @author Eric Boukobza
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private final Map<String, AdderCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LogHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static final class AdderCounter extends LongAdder implements Counter {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new AdderCounter());
+    }
+
+    @Override
+    public LogHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LogHistogram());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Get the value of a counter.
+     *
+     * @param name The name of the counter
+     * @return The value, 0 if there is no such counter.
+     */
+    public long getCount(String name) {
+        AdderCounter counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Get a histogram without creating it.
+     *
+     * @param name The name of the histogram
+     * @return The histogram, or null if there is no such histogram.
+     */
+    public LogHistogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Read a gauge.
+     *
+     * @param name The name of the gauge
+     * @return The value, 0 if there is no such gauge.
+     */
+    public long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text format, dots in names being replaced by underscores.
+     * Histograms are written as summaries with their 50th, 90th, 99th and 99.9th percentiles.
+     *
+     * @param out The destination
+     * @throws IOException if the destination fails
+     */
+    public void scrape(Appendable out) throws IOException {
+        for (Map.Entry<String, AdderCounter> entry : new ConcurrentSkipListMap<>(counters).entrySet()) {
+            String name = sanitize(entry.getKey());
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(Long.toString(entry.getValue().sum())).append('\n');
+        }
+
+        for (Map.Entry<String, LongSupplier> entry : new ConcurrentSkipListMap<>(gauges).entrySet()) {
+            String name = sanitize(entry.getKey());
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(Long.toString(entry.getValue().getAsLong())).append('\n');
+        }
+
+        for (Map.Entry<String, LogHistogram> entry : new ConcurrentSkipListMap<>(histograms).entrySet()) {
+            String name = sanitize(entry.getKey());
+            LogHistogram histogram = entry.getValue();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                        .append(Long.toString(histogram.getPercentile(quantile * 100))).append('\n');
+            }
+            out.append(name).append("_sum ").append(Long.toString(histogram.getSum())).append('\n');
+            out.append(name).append("_count ").append(Long.toString(histogram.getCount())).append('\n');
+        }
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text format.
+     *
+     * @return The metrics
+     */
+    public String scrape() {
+        StringBuilder result = new StringBuilder();
+        try {
+            scrape(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0 ; i < name.length() ; i++) {
+            char c = name.charAt(i);
+            result.append(Character.isLetterOrDigit(c) || c == '_' || c == ':' ? c : '_');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import java.util.function.LongSupplier;
+
+/**
+ * Access to the registry of the process.
+ *
+ * The registry is resolved once, when this class is initialized:
+ * <ul>
+ * <li>the class named by the system property <code>tech.opencore.commons.metrics.registry</code>, if set,</li>
+ * <li>else the first <code>MetricsRegistry</code> service found by <code>ServiceLoader</code>,</li>
+ * <li>else a no-op registry.</li>
+ * </ul>
+ * Instrumented classes read the registry when they are initialized, so it cannot be changed afterwards.
+ *
+ * @author Eric Boukobza
+ */
+public final class Metrics {
+    public static final String REGISTRY_PROPERTY = "tech.opencore.commons.metrics.registry";
+
+    private static final MetricsRegistry REGISTRY = resolve();
+
+    private Metrics() {}
+
+    private static MetricsRegistry resolve() {
+        String className = System.getProperty(REGISTRY_PROPERTY);
+        if (className != null) {
+            try {
+                return (MetricsRegistry) Class.forName(className).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalStateException("Cannot create metrics registry " + className, e);
+            }
+        }
+
+        Iterator<MetricsRegistry> registries = ServiceLoader.load(MetricsRegistry.class).iterator();
+        return registries.hasNext() ? registries.next() : NoopMetricsRegistry.INSTANCE;
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    public static boolean isEnabled() {
+        return REGISTRY != NoopMetricsRegistry.INSTANCE;
+    }
+
+    public static Counter counter(String name) {
+        return REGISTRY.counter(name);
+    }
+
+    public static Histogram histogram(String name) {
+        return REGISTRY.histogram(name);
+    }
+
+    public static void gauge(String name, LongSupplier value) {
+        REGISTRY.gauge(name, value);
+    }
+}
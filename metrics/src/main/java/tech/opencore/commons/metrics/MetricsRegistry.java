@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The service provider interface of metrics. Instrumented code obtains its counters and histograms from the
+ * registry once, usually in static final fields, and updates them on its hot paths.
+ *
+ * @author Eric Boukobza
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Get a counter, creating it if needed.
+     *
+     * @param name The name of the counter, in dotted notation
+     * @return The counter
+     */
+    public Counter counter(String name);
+
+    /**
+     * Get a histogram, creating it if needed.
+     *
+     * @param name The name of the histogram, in dotted notation
+     * @return The histogram
+     */
+    public Histogram histogram(String name);
+
+    /**
+     * Register a gauge, replacing any gauge of the same name.
+     *
+     * @param name The name of the gauge, in dotted notation
+     * @param value The function reading the current value
+     */
+    public void gauge(String name, LongSupplier value);
+}
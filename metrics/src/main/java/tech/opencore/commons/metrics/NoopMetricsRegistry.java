@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The registry used when none is configured. Its instruments do nothing and have a single implementation
+ * each, so the JIT inlines their calls to nothing.
+ *
+ * @author Eric Boukobza
+ */
+final class NoopMetricsRegistry implements MetricsRegistry {
+    static final NoopMetricsRegistry INSTANCE = new NoopMetricsRegistry();
+
+    private static final Counter COUNTER = new Counter() {
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void add(long delta) {
+        }
+    };
+
+    private static final Histogram HISTOGRAM = new Histogram() {
+        @Override
+        public void record(long value) {
+        }
+
+        @Override
+        public long startTimer() {
+            return 0;
+        }
+
+        @Override
+        public void stopTimer(long start) {
+        }
+    };
+
+    private NoopMetricsRegistry() {}
+
+    @Override
+    public Counter counter(String name) {
+        return COUNTER;
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return HISTOGRAM;
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void histogramTest() {
+        LogHistogram histogram = new LogHistogram();
+        Assertions.assertEquals(0, histogram.getPercentile(50));
+
+        for (long i = 1 ; i <= 1000 ; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(1000, histogram.getMin());
+        Assertions.assertEquals(1000000, histogram.getMax());
+        Assertions.assertEquals(500500.0, histogram.getMean());
+        Assertions.assertEquals(500000, histogram.getPercentile(50), 500000 * 0.125);
+        Assertions.assertEquals(990000, histogram.getPercentile(99), 990000 * 0.125);
+        Assertions.assertEquals(1000000, histogram.getPercentile(100));
+
+        for (long value : new long[] { 0, 1, 15, 16, 17, 1000, Long.MAX_VALUE }) {
+            int bucket = LogHistogram.bucket(value);
+            Assertions.assertTrue(LogHistogram.upperBound(bucket) >= value);
+            Assertions.assertTrue(bucket == 0 || LogHistogram.upperBound(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void registryTest() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        registry.counter("data.nodes").increment();
+        registry.counter("data.nodes").add(4);
+        Assertions.assertSame(registry.counter("data.nodes"), registry.counter("data.nodes"));
+        Assertions.assertEquals(5, registry.getCount("data.nodes"));
+        Assertions.assertEquals(0, registry.getCount("missing"));
+
+        AtomicLong open = new AtomicLong(3);
+        registry.gauge("nio.open", open::get);
+        Assertions.assertEquals(3, registry.getGauge("nio.open"));
+
+        Histogram latency = registry.histogram("data.serialize");
+        latency.stopTimer(latency.startTimer());
+        Assertions.assertEquals(1, registry.getHistogram("data.serialize").getCount());
+
+        String scraped = registry.scrape();
+        Assertions.assertTrue(scraped.contains("# TYPE data_nodes counter\ndata_nodes 5\n"));
+        Assertions.assertTrue(scraped.contains("nio_open 3\n"));
+        Assertions.assertTrue(scraped.contains("data_serialize_count 1\n"));
+        Assertions.assertTrue(scraped.contains("data_serialize{quantile=\"0.99\"}"));
+    }
+
+    @Test
+    public void noopTest() {
+        MetricsRegistry registry = NoopMetricsRegistry.INSTANCE;
+        Histogram histogram = registry.histogram("any");
+        Assertions.assertEquals(0, histogram.startTimer());
+        histogram.stopTimer(0);
+        registry.counter("any").increment();
+        Assertions.assertFalse(Metrics.isEnabled());
+        Assertions.assertSame(registry, Metrics.getRegistry());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream writing into a buffer borrowed from a <code>BufferPool</code>, grown as needed.
+ *
+ * The buffer is in write mode, and can be written directly between the writes to the stream, for instance to fill
+ * in a length prefix reserved before serializing. Since it is replaced when it grows, it must be obtained again
+ * with <code>getBuffer</code> after writing to the stream. Once released, the next write borrows a new buffer.
+ *
+ * @author Eric Boukobza
+ */
+public final class BufferOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private ByteBuffer buffer;
+
+    public BufferOutputStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Get the buffer, borrowing it if there is none.
+     *
+     * @param capacity The capacity of the buffer to borrow if there is none
+     * @return The buffer, in write mode
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (buffer == null) {
+            buffer = pool.acquire(capacity);
+        }
+        return buffer;
+    }
+
+    /**
+     * Get the buffer.
+     *
+     * @return The buffer, in write mode, or null if there is none.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Grow the buffer so that it has room for a number of bytes.
+     *
+     * @param length The number of bytes
+     */
+    public void reserve(int length) {
+        if (buffer == null) {
+            buffer = pool.acquire(length);
+        } else if (buffer.remaining() < length) {
+            ByteBuffer grown = pool.acquire(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            pool.release(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Take the buffer out of this stream, which borrows a new one on the next write.
+     *
+     * @return The buffer, in write mode, to release to the pool once done with it, or null if there is none.
+     */
+    public ByteBuffer detach() {
+        ByteBuffer result = buffer;
+        buffer = null;
+        return result;
+    }
+
+    /**
+     * Release the buffer to the pool, discarding its content.
+     */
+    public void release() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        reserve(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        reserve(len);
+        buffer.put(b, off, len);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * A pool of direct buffers, shared by the channels that need a buffer only while data is in flight.
+ *
+ * Capacities are rounded up to a size class, from 4 KB to 1 GB: the powers of two and the midpoints between them,
+ * 6 KB, 12 KB, 24 KB and so on, so that no more than a third of a buffer is lost to rounding. A TLS record of
+ * 16709 bytes takes 24 KB rather than 32 KB. The buffers of each class are reused last in first out from an array
+ * indexed by the class, computed from the exponent of the capacity, so that no key is boxed or looked up.
+ * Released buffers are kept up to a maximum number of bytes, beyond which they are left to the garbage collector.
+ * The pool is thread safe.
+ *
+ * @author Eric Boukobza
+ */
+public final class BufferPool {
+    private static final Counter ALLOCATIONS = Metrics.counter("nio.buffers.allocations");
+    private static final Counter REUSES = Metrics.counter("nio.buffers.reuses");
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 30;
+    private static final BufferPool DEFAULT = new BufferPool(Long.getLong("tech.opencore.commons.nio.pool.max", 64L << 20));
+
+    private final Deque<ByteBuffer>[] free;
+    private final AtomicLong pooled = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final long maxPooled;
+
+    /**
+     * Create a pool.
+     *
+     * @param maxPooled The maximum number of bytes of the buffers kept for reuse
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxPooled) {
+        this.maxPooled = maxPooled;
+        this.free = new Deque[2 * (MAX_SHIFT - MIN_SHIFT) + 1];
+        for (int i = 0 ; i < free.length ; i++) {
+            free[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * Get the pool shared by default, keeping up to 64 MB of buffers unless the system property
+     * <code>tech.opencore.commons.nio.pool.max</code> sets another maximum.
+     *
+     * @return The default pool
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Borrow a buffer.
+     *
+     * @param capacity The minimum capacity of the buffer, up to 1 GB
+     * @return A cleared direct buffer, to give back with <code>release</code>.
+     * @throws IllegalArgumentException if the capacity is negative or larger than 1 GB
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity < 0 || capacity > 1 << MAX_SHIFT) {
+            throw new IllegalArgumentException("Capacity " + capacity + " not between 0 and " + (1 << MAX_SHIFT));
+        }
+        int shift = capacity <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        int index = 2 * (shift - MIN_SHIFT);
+        int size = 1 << shift;
+        if (shift > MIN_SHIFT && capacity <= 3 << (shift - 2)) {
+            // The midpoint below the power of two is large enough
+            index--;
+            size = 3 << (shift - 2);
+        }
+        borrowed.addAndGet(size);
+        ByteBuffer buffer = free[index].pollFirst();
+        if (buffer == null) {
+            ALLOCATIONS.increment();
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        REUSES.increment();
+        pooled.addAndGet(-size);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Give back a buffer. The buffer must not be used anymore.
+     *
+     * @param buffer A buffer from <code>acquire</code>
+     */
+    public void release(ByteBuffer buffer) {
+        int size = buffer.capacity();
+        int index = sizeClass(size);
+        if (!buffer.isDirect() || index < 0) {
+            return;
+        }
+
+        borrowed.addAndGet(-size);
+        if (pooled.addAndGet(size) > maxPooled) {
+            pooled.addAndGet(-size);
+            return;
+        }
+        free[index].addFirst(buffer);
+    }
+
+    /**
+     * Get the index of the size class of a capacity.
+     *
+     * @return The index in <code>free</code>, or -1 if the capacity is not the size of a class.
+     */
+    private static int sizeClass(int size) {
+        int zeros = Integer.numberOfTrailingZeros(size);
+        if (size >>> zeros == 1 && zeros >= MIN_SHIFT && zeros <= MAX_SHIFT) {
+            return 2 * (zeros - MIN_SHIFT);
+        }
+        if (size >>> zeros == 3 && zeros + 2 > MIN_SHIFT && zeros + 2 <= MAX_SHIFT) {
+            return 2 * (zeros + 2 - MIN_SHIFT) - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of bytes of the buffers waiting for reuse.
+     *
+     * @return The pooled bytes
+     */
+    public long getPooledBytes() {
+        return pooled.get();
+    }
+
+    /**
+     * Get the number of bytes of the buffers borrowed and not given back.
+     *
+     * @return The borrowed bytes
+     */
+    public long getBorrowedBytes() {
+        return borrowed.get();
+    }
+}
@@ -18,14 +18,25 @@ package tech.opencore.commons.nio;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
-import java.nio.channels.SelectableChannel;
-import java.nio.channels.spi.AbstractSelectableChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.ssl.SSLChannel;
 
 /**
+ * A channel delegating to another channel, counting the bytes read and written.
+ *
+ * Scattering reads and gathering writes are delegated as such when the channel supports them, and emulated with a
+ * call per buffer otherwise. Files are written without copying them to the heap by <code>transferFrom</code>.
  *
  * @author Eric Boukobza
  */
-public class DelegatedChannel<T extends ByteChannel> implements ByteChannel {
+public class DelegatedChannel<T extends ByteChannel> implements ByteChannel, GatheringByteChannel, ScatteringByteChannel {
+    private static final Counter BYTES_READ = Metrics.counter("nio.channel.bytes.read");
+    private static final Counter BYTES_WRITTEN = Metrics.counter("nio.channel.bytes.written");
+
     protected T channel;
     
     public DelegatedChannel(T channel) {
@@ -34,7 +45,11 @@ public class DelegatedChannel<T extends ByteChannel> implements ByteChannel {
 
     @Override
     public int read(ByteBuffer dst) throws IOException {
-        return channel.read(dst);
+        int read = channel.read(dst);
+        if (read > 0) {
+            BYTES_READ.add(read);
+        }
+        return read;
     }
 
     @Override
@@ -49,6 +64,91 @@ public class DelegatedChannel<T extends ByteChannel> implements ByteChannel {
 
     @Override
     public int write(ByteBuffer src) throws IOException {
-        return channel.write(src);
+        int written = channel.write(src);
+        BYTES_WRITTEN.add(written);
+        return written;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts) throws IOException {
+        return read(dsts, 0, dsts.length);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long read;
+        if (channel instanceof ScatteringByteChannel) {
+            read = ((ScatteringByteChannel) channel).read(dsts, offset, length);
+        } else {
+            read = 0;
+            for (int i = offset ; i < offset + length ; i++) {
+                if (!dsts[i].hasRemaining()) {
+                    continue;
+                }
+                int count = channel.read(dsts[i]);
+                if (count < 0) {
+                    read = read == 0 ? -1 : read;
+                    break;
+                }
+                read += count;
+                if (dsts[i].hasRemaining()) {
+                    break;
+                }
+            }
+        }
+
+        if (read > 0) {
+            BYTES_READ.add(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written;
+        if (channel instanceof GatheringByteChannel) {
+            written = ((GatheringByteChannel) channel).write(srcs, offset, length);
+        } else {
+            written = 0;
+            for (int i = offset ; i < offset + length ; i++) {
+                written += channel.write(srcs[i]);
+                if (srcs[i].hasRemaining()) {
+                    break;
+                }
+            }
+        }
+
+        BYTES_WRITTEN.add(written);
+        return written;
+    }
+
+    /**
+     * Write a region of a file, as far as the channel accepts it without blocking if it does not block. The file is
+     * sent by <code>FileChannel.transferTo</code>, which the kernel does without copying it to user space when the
+     * channel is a socket, or encrypted straight from the file mapped in memory by an <code>SSLChannel</code>.
+     *
+     * @param file The file
+     * @param position The position in the file of the first byte to write
+     * @param count The maximum number of bytes to write
+     * @return The number of bytes written, possibly fewer than requested.
+     * @throws IOException if the file or the channel fails
+     */
+    public long transferFrom(FileChannel file, long position, long count) throws IOException {
+        long written;
+        if (channel instanceof SSLChannel) {
+            written = ((SSLChannel) channel).transferFrom(file, position, count);
+        } else if (channel instanceof DelegatedChannel) {
+            return ((DelegatedChannel<?>) channel).transferFrom(file, position, count);
+        } else {
+            written = file.transferTo(position, count, channel);
+        }
+
+        BYTES_WRITTEN.add(written);
+        return written;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * A publisher of the bytes read from a blocking channel, such as a <code>DelegatedChannel</code> or an
+ * <code>SSLChannel</code> over a blocking socket.
+ *
+ * The channel is read only while the subscriber has requested buffers: each buffer requested is read on the
+ * executor, up to the buffer size, and published. Once the demand is met, nothing is read until more buffers
+ * are requested, so that the data received and not consumed yet stays in the network buffers and the peer is
+ * slowed down by TCP flow control instead of filling memory. The publisher completes at the end of the stream
+ * and fails if the channel fails. It does not close the channel.
+ *
+ * A channel has a single subscriber, and the publisher rejects the next ones. The reads run on the executor
+ * concurrently with whatever else uses the channel, so a publisher must not share an <code>SSLChannel</code> with
+ * a <code>ChannelSubscriber</code> or other writers, as an <code>SSLChannel</code> cannot be read and written
+ * concurrently.
+ *
+ * @author Eric Boukobza
+ */
+public final class ChannelPublisher implements Flow.Publisher<ByteBuffer> {
+    private static final Counter BUFFERS = Metrics.counter("nio.flow.buffers.published");
+
+    private final ReadableByteChannel channel;
+    private final Executor executor;
+    private final int bufferSize;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a publisher.
+     *
+     * @param channel The channel, in blocking mode
+     * @param executor The executor reading the channel
+     * @param bufferSize The maximum number of bytes per buffer published
+     * @throws IllegalArgumentException if the channel is a selectable channel or an <code>SSLChannel</code> in
+     * non-blocking mode, which the executor would poll without end
+     */
+    public ChannelPublisher(ReadableByteChannel channel, Executor executor, int bufferSize) {
+        if ((channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+                || (channel instanceof SSLChannel && !((SSLChannel) channel).isBlocking())) {
+            throw new IllegalArgumentException("The channel is not in blocking mode");
+        }
+        this.channel = channel;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The channel has a subscriber already"));
+            return;
+        }
+        subscriber.onSubscribe(new Reader(subscriber));
+    }
+
+    /**
+     * Reads the channel while buffers are requested.
+     */
+    private final class Reader implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled = false;
+
+        Reader(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Invalid request of " + n + " buffers"));
+                return;
+            }
+
+            long previous = demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            if (previous == 0) {
+                // Reading stopped once the previous demand was met
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!cancelled) {
+                    ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+                    int read = channel.read(buffer);
+                    if (read < 0) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (read == 0) {
+                        // Handshake messages with no data, a blocking channel waits for data on the next read
+                        continue;
+                    }
+
+                    buffer.flip();
+                    BUFFERS.increment();
+                    subscriber.onNext(buffer);
+                    if (demand.get() != Long.MAX_VALUE && demand.decrementAndGet() == 0) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!cancelled) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * A subscriber writing the buffers it receives to a blocking channel, such as a <code>DelegatedChannel</code>
+ * or an <code>SSLChannel</code> over a blocking socket.
+ *
+ * The subscriber requests a maximum number of outstanding buffers, and then one more buffer each time a buffer
+ * is written completely, so that the buffers received and not written yet never exceed that maximum: while the
+ * network does not accept more data, the writes block and the publisher is not asked for more. Buffers are
+ * written on the executor, in order. Once the publisher completes, the data buffered by an
+ * <code>SSLChannel</code> is flushed and the completion future completes. The subscriber does not close the
+ * channel.
+ *
+ * The writes run on the executor concurrently with whatever else uses the channel, so a subscriber must not share
+ * an <code>SSLChannel</code> with a <code>ChannelPublisher</code> or other readers, as an <code>SSLChannel</code>
+ * cannot be read and written concurrently.
+ *
+ * @author Eric Boukobza
+ */
+public final class ChannelSubscriber implements Flow.Subscriber<ByteBuffer> {
+    private static final Counter BUFFERS = Metrics.counter("nio.flow.buffers.written");
+
+    private final WritableByteChannel channel;
+    private final Executor executor;
+    private final int maxOutstanding;
+    private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * The number of signals not handled yet by the writing task, which runs while it is not 0.
+     */
+    private final AtomicInteger signals = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean done = false;
+    private volatile Throwable error;
+
+    /**
+     * Create a subscriber.
+     *
+     * @param channel The channel, in blocking mode
+     * @param executor The executor writing to the channel
+     * @param maxOutstanding The maximum number of buffers received and not written yet
+     * @throws IllegalArgumentException if the channel is a selectable channel or an <code>SSLChannel</code> in
+     * non-blocking mode, which the executor would retry without end
+     */
+    public ChannelSubscriber(WritableByteChannel channel, Executor executor, int maxOutstanding) {
+        if ((channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+                || (channel instanceof SSLChannel && !((SSLChannel) channel).isBlocking())) {
+            throw new IllegalArgumentException("The channel is not in blocking mode");
+        }
+        this.channel = channel;
+        this.executor = executor;
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * Get the completion of the writes.
+     *
+     * @return A future completed once the publisher completed and its buffers are written, or completed
+     * exceptionally if the publisher or the channel fails.
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(maxOutstanding);
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer) {
+        queue.add(buffer);
+        signal();
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        this.error = error;
+        done = true;
+        signal();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        signal();
+    }
+
+    private void signal() {
+        if (signals.getAndIncrement() == 0) {
+            executor.execute(this::write);
+        }
+    }
+
+    private void write() {
+        int handled = signals.get();
+        while (true) {
+            ByteBuffer buffer;
+            while ((buffer = queue.poll()) != null) {
+                if (completion.isDone()) {
+                    // Failed, the remaining buffers are dropped
+                    continue;
+                }
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    subscription.cancel();
+                    completion.completeExceptionally(e);
+                    continue;
+                }
+                BUFFERS.increment();
+                subscription.request(1);
+            }
+
+            if (done && queue.isEmpty() && !completion.isDone()) {
+                complete();
+            }
+
+            handled = signals.addAndGet(-handled);
+            if (handled == 0) {
+                return;
+            }
+        }
+    }
+
+    private void complete() {
+        if (error != null) {
+            completion.completeExceptionally(error);
+            return;
+        }
+        try {
+            if (channel instanceof SSLChannel) {
+                while (!((SSLChannel) channel).flush()) {
+                    // Blocking writes, done once the network accepted the last record
+                }
+            }
+            completion.complete(null);
+        } catch (IOException | RuntimeException e) {
+            completion.completeExceptionally(e);
+        }
+    }
+}
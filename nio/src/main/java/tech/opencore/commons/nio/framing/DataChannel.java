@@ -0,0 +1,224 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferInputStream;
+import tech.opencore.commons.nio.BufferOutputStream;
+import tech.opencore.commons.nio.BufferPool;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * A channel exchanging <code>Data</code> messages, serialized by a <code>DataFactory</code> as length prefixed
+ * frames.
+ *
+ * Messages are serialized straight into a pooled output buffer, behind a reserved length prefix filled in
+ * afterwards, so that they are not copied to intermediate arrays. Many messages can be written before flushing
+ * them with a single write, which happens with <code>flush</code> or once the buffered messages exceed the batch
+ * size. Messages are deserialized straight from the frames received, which may hold many pipelined messages per
+ * read. Over a non-blocking channel, <code>flush</code> writes what the channel accepts and the rest stays
+ * buffered until the next flush, and <code>writeData</code> refuses messages once the buffered messages reach the
+ * maximum buffered size, until flushes make room for them.
+ *
+ * The frames are those of <code>LengthFramedChannel</code>, and frames written with <code>writeFrame</code> are
+ * written after the buffered messages.
+ *
+ * @author Eric Boukobza
+ */
+public class DataChannel<T extends ByteChannel> extends LengthFramedChannel<T> {
+    private static final Counter MESSAGES_READ = Metrics.counter("nio.data.messages.read");
+    private static final Counter MESSAGES_WRITTEN = Metrics.counter("nio.data.messages.written");
+    private static final Counter FLUSHES = Metrics.counter("nio.data.flushes");
+
+    private final DataFactory factory;
+    /**
+     * The messages serialized and not written yet, in a buffer in write mode.
+     */
+    private final BufferOutputStream output = new BufferOutputStream(BufferPool.getDefault());
+    private int batchSize = 65536;
+    private int maxBuffered = 16 << 20;
+
+    public DataChannel(T channel, DataFactory factory) {
+        this(channel, factory, 16 << 20);
+    }
+
+    public DataChannel(T channel, DataFactory factory, int maxFrameLength) {
+        super(channel, maxFrameLength);
+        this.factory = factory;
+    }
+
+    public DataFactory getDataFactory() {
+        return factory;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of bytes of buffered messages beyond which they are flushed by <code>writeData</code>.
+     *
+     * @param batchSize The batch size, 0 to flush every message.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBuffered() {
+        return maxBuffered;
+    }
+
+    /**
+     * Set the number of bytes of buffered messages beyond which <code>writeData</code> refuses new messages when
+     * a flush cannot write them, so that a peer that stops reading does not make the buffer grow without limit.
+     *
+     * @param maxBuffered The maximum buffered size, 16 MB by default.
+     */
+    public void setMaxBuffered(int maxBuffered) {
+        this.maxBuffered = maxBuffered;
+    }
+
+    /**
+     * Read a message.
+     *
+     * @return The message, or null if none is complete yet, or if the end of the stream is reached.
+     * @throws IOException if the channel fails, or a message cannot be deserialized
+     */
+    public Data readData() throws IOException {
+        ByteBuffer frame = readFrame();
+        if (frame == null) {
+            return null;
+        }
+
+        try {
+            Data data = factory.deserialize(new BufferInputStream(frame));
+            MESSAGES_READ.increment();
+            return data;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Invalid message", e);
+        }
+    }
+
+    /**
+     * Write a message. It is buffered, and flushed if the buffered messages exceed the batch size.
+     *
+     * @param data The message
+     * @return true if the message is written or buffered, false if it is not because the buffered messages reach
+     * the maximum buffered size and the channel does not accept them. It must then be written again once the
+     * channel is writable.
+     * @throws IOException if the channel fails, or the message cannot be serialized or is too long
+     */
+    public boolean writeData(Data data) throws IOException {
+        if (bufferedBytes() >= maxBuffered) {
+            flush();
+            if (bufferedBytes() >= maxBuffered) {
+                return false;
+            }
+        }
+
+        int start = output.acquire(Math.max(batchSize, 4096)).position();
+        try {
+            output.reserve(4);
+            output.getBuffer().position(start + 4);
+            factory.serialize(data, output);
+            int length = output.getBuffer().position() - start - 4;
+            checkLength(length);
+            output.getBuffer().putInt(start, length);
+        } catch (Exception e) {
+            output.getBuffer().position(start);
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Message cannot be serialized", e);
+        }
+
+        MESSAGES_WRITTEN.increment();
+        if (output.getBuffer().position() >= batchSize) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Write the buffered messages, as far as the channel accepts them without blocking if it does not block. Over an
+     * <code>SSLChannel</code>, the data it buffered and its pending ciphertext are written too.
+     *
+     * @return true if no message is left to write, including in the <code>SSLChannel</code>
+     * @throws IOException if the channel fails
+     */
+    public boolean flush() throws IOException {
+        ByteBuffer buffer = output.getBuffer();
+        if (buffer == null) {
+            return !(channel instanceof SSLChannel) || ((SSLChannel) channel).flush();
+        }
+
+        buffer.flip();
+        try {
+            if (buffer.hasRemaining()) {
+                FLUSHES.increment();
+                write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+        if (buffer.position() > 0) {
+            return false;
+        }
+        output.release();
+        return !(channel instanceof SSLChannel) || ((SSLChannel) channel).flush();
+    }
+
+    /**
+     * Check if messages are buffered, written by the next flush.
+     *
+     * @return true if messages are buffered
+     */
+    public boolean hasBufferedOutput() {
+        return bufferedBytes() > 0;
+    }
+
+    private int bufferedBytes() {
+        return output.getBuffer() == null ? 0 : output.getBuffer().position();
+    }
+
+    /**
+     * Write a frame after the buffered messages.
+     *
+     * @return true if the frame is written completely, false if it or the buffered messages are not.
+     */
+    @Override
+    public boolean writeFrame(ByteBuffer src) throws IOException {
+        return flush() && super.writeFrame(src);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            output.release();
+            super.close();
+        }
+    }
+}
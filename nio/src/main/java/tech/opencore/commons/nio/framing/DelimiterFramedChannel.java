@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * A channel exchanging frames ended by a delimiter, such as lines. The payloads of the frames must not contain
+ * the delimiter, and do not include it.
+ *
+ * @author Eric Boukobza
+ */
+public class DelimiterFramedChannel<T extends ByteChannel> extends FramedChannel<T> {
+    private final byte[] delimiter;
+    /**
+     * The length of the frame being received already searched for the delimiter.
+     */
+    private int searched = 0;
+
+    public DelimiterFramedChannel(T channel, byte[] delimiter) {
+        this(channel, delimiter, 1 << 20);
+    }
+
+    public DelimiterFramedChannel(T channel, byte[] delimiter, int maxFrameLength) {
+        super(channel, maxFrameLength, delimiter.length);
+        if (delimiter.length == 0) {
+            throw new IllegalArgumentException("Empty delimiter");
+        }
+        this.delimiter = delimiter.clone();
+    }
+
+    @Override
+    protected int decode(ByteBuffer input, int[] payload) throws IOException {
+        int start = input.position();
+        int end = input.limit() - delimiter.length;
+        byte first = delimiter[0];
+        for (int i = start + searched ; i <= end ; i++) {
+            if (input.get(i) == first && matches(input, i)) {
+                searched = 0;
+                payload[0] = 0;
+                payload[1] = i - start;
+                return i - start + delimiter.length;
+            }
+        }
+
+        searched = Math.max(0, end + 1 - start);
+        checkLength(searched);
+        return 0;
+    }
+
+    private boolean matches(ByteBuffer input, int index) {
+        for (int i = 1 ; i < delimiter.length ; i++) {
+            if (input.get(index + i) != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encode(ByteBuffer payload, ByteBuffer header, ByteBuffer trailer) {
+        trailer.put(delimiter);
+    }
+}
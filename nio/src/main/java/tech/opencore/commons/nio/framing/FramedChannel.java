@@ -0,0 +1,275 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferPool;
+import tech.opencore.commons.nio.DelegatedChannel;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * A channel exchanging frames, that is messages delimited in the stream of bytes of another channel.
+ *
+ * Frames are received into a buffer borrowed from a <code>BufferPool</code>, and returned by
+ * <code>readFrame</code> as slices of that buffer, so that a frame is never copied unless it is larger than the
+ * buffer, which then grows. A frame is valid until the next read from this channel. Frames are written with a
+ * gathering write of the header, the payload and the trailer of the frame. Both work over blocking and
+ * non-blocking channels, an <code>SSLChannel</code> included.
+ *
+ * The raw <code>read</code> and <code>write</code> methods remain available, reads returning the bytes received
+ * and not decoded first.
+ *
+ * @author Eric Boukobza
+ */
+public abstract class FramedChannel<T extends ByteChannel> extends DelegatedChannel<T> {
+    private static final Counter FRAMES_READ = Metrics.counter("nio.frames.read");
+    private static final Counter FRAMES_WRITTEN = Metrics.counter("nio.frames.written");
+    private static final Counter GROWS = Metrics.counter("nio.frames.grows");
+    /**
+     * The initial capacity of the receiving buffer.
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    private final int maxFrameLength;
+    private final BufferPool pool;
+    /**
+     * The data received and not decoded yet, in read mode, or null if none.
+     */
+    private ByteBuffer input;
+    private final int[] payload = new int[2];
+    private final ByteBuffer header = ByteBuffer.allocate(16);
+    private final ByteBuffer trailer;
+    private final ByteBuffer[] frame = new ByteBuffer[3];
+    private ByteBuffer pending;
+    private boolean endOfStream = false;
+
+    /**
+     * Create a channel.
+     *
+     * @param channel The channel the frames are exchanged over
+     * @param maxFrameLength The maximum length of the payload of a frame
+     * @param maxTrailerLength The maximum number of bytes written after the payload
+     */
+    protected FramedChannel(T channel, int maxFrameLength, int maxTrailerLength) {
+        super(channel);
+        this.maxFrameLength = maxFrameLength;
+        this.pool = BufferPool.getDefault();
+        this.trailer = ByteBuffer.allocate(maxTrailerLength);
+    }
+
+    /**
+     * Find the frame at the start of the input.
+     *
+     * @param input The data received, in read mode, starting with the frame. It must not be modified.
+     * @param payload Set to the start and the end of the payload of the frame, relative to the position of the
+     * input, when it is complete.
+     * @return The number of bytes of the frame, header and trailer included, if it is complete. Otherwise the
+     * opposite of that number if it is known, or 0.
+     * @throws IOException if the frame is invalid or too long
+     */
+    protected abstract int decode(ByteBuffer input, int[] payload) throws IOException;
+
+    /**
+     * Write the header and the trailer of a frame.
+     *
+     * @param payload The payload of the frame. It must not be modified.
+     * @param header The buffer receiving the header, in write mode, of 16 bytes.
+     * @param trailer The buffer receiving the trailer, in write mode, of the maximum trailer length.
+     */
+    protected abstract void encode(ByteBuffer payload, ByteBuffer header, ByteBuffer trailer);
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    /**
+     * Check the length of the payload of a frame.
+     *
+     * @param length The length
+     * @throws IOException if the length is negative or exceeds the maximum frame length
+     */
+    protected void checkLength(long length) throws IOException {
+        if (length < 0 || length > maxFrameLength) {
+            throw new IOException("Frame of " + length + " bytes exceeds the maximum of " + maxFrameLength);
+        }
+    }
+
+    /**
+     * Read a frame, as far as the channel provides data without blocking if it does not block.
+     *
+     * @return The payload of the frame, valid until the next read from this channel, or null if no frame is
+     * complete yet, or if the end of the stream is reached.
+     * @throws EOFException if the stream ends within a frame
+     * @throws IOException if the channel fails or a frame is invalid
+     */
+    public ByteBuffer readFrame() throws IOException {
+        if (input != null && !input.hasRemaining()) {
+            pool.release(input);
+            input = null;
+        }
+
+        while (true) {
+            if (input != null && input.hasRemaining()) {
+                int length = decode(input, payload);
+                if (length > 0) {
+                    int start = input.position();
+                    ByteBuffer result = input.duplicate();
+                    result.limit(start + payload[1]).position(start + payload[0]);
+                    input.position(start + length);
+                    FRAMES_READ.increment();
+                    return result.slice();
+                }
+
+                int needed = -length;
+                if (needed > input.capacity() || (needed == 0 && input.remaining() == input.capacity())) {
+                    // The frame does not fit in the buffer
+                    GROWS.increment();
+                    ByteBuffer grown = pool.acquire(Math.max(needed, input.capacity() * 2));
+                    grown.put(input);
+                    grown.flip();
+                    pool.release(input);
+                    input = grown;
+                }
+            }
+
+            if (!fill()) {
+                return null;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        if (input == null) {
+            input = pool.acquire(BUFFER_SIZE);
+        } else {
+            input.compact();
+        }
+
+        int read;
+        try {
+            read = channel.read(input);
+        } finally {
+            input.flip();
+        }
+        if (read < 0) {
+            endOfStream = true;
+            if (input.hasRemaining()) {
+                throw new EOFException("End of stream within a frame");
+            }
+        }
+        return read > 0;
+    }
+
+    /**
+     * Check if the end of the stream is reached, after which no frame is read.
+     *
+     * @return true at the end of the stream
+     */
+    public boolean isEndOfStream() {
+        return endOfStream && (input == null || !input.hasRemaining());
+    }
+
+    /**
+     * Check if data is received and not read, for which a selector does not report the channel readable. The data
+     * buffered by an <code>SSLChannel</code> is included.
+     *
+     * @return true if <code>readFrame</code> should be called without waiting for the channel to be readable
+     */
+    public boolean hasBufferedInput() {
+        return (input != null && input.hasRemaining())
+                || (channel instanceof SSLChannel && ((SSLChannel) channel).hasBufferedInput());
+    }
+
+    /**
+     * Write a frame, as far as the channel accepts it without blocking if it does not block. When it is not
+     * written completely, it must be written again with the same buffer, before any other frame.
+     *
+     * @param src The payload of the frame
+     * @return true if the frame is written completely
+     * @throws IOException if the channel fails or the frame is too long
+     */
+    public boolean writeFrame(ByteBuffer src) throws IOException {
+        if (pending == null) {
+            checkLength(src.remaining());
+            header.clear();
+            trailer.clear();
+            encode(src, header, trailer);
+            header.flip();
+            trailer.flip();
+            pending = src;
+        } else if (pending != src) {
+            throw new IllegalStateException("A frame is partially written");
+        }
+
+        frame[0] = header;
+        frame[1] = src;
+        frame[2] = trailer;
+        write(frame, 0, 3);
+        if (header.hasRemaining() || src.hasRemaining() || trailer.hasRemaining()) {
+            return false;
+        }
+
+        pending = null;
+        FRAMES_WRITTEN.increment();
+        return true;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (input != null && input.hasRemaining()) {
+            return drain(dst);
+        }
+        return super.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        if (input != null && input.hasRemaining()) {
+            long read = 0;
+            for (int i = offset ; i < offset + length && input.hasRemaining() ; i++) {
+                read += drain(dsts[i]);
+            }
+            return read;
+        }
+        return super.read(dsts, offset, length);
+    }
+
+    private int drain(ByteBuffer dst) {
+        int count = Math.min(dst.remaining(), input.remaining());
+        ByteBuffer part = input.duplicate();
+        part.limit(part.position() + count);
+        dst.put(part);
+        input.position(input.position() + count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (input != null) {
+            pool.release(input);
+            input = null;
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * A channel exchanging frames prefixed with their length, as a 4 bytes big endian integer.
+ *
+ * @author Eric Boukobza
+ */
+public class LengthFramedChannel<T extends ByteChannel> extends FramedChannel<T> {
+    public LengthFramedChannel(T channel) {
+        this(channel, 16 << 20);
+    }
+
+    public LengthFramedChannel(T channel, int maxFrameLength) {
+        super(channel, maxFrameLength, 0);
+    }
+
+    @Override
+    protected int decode(ByteBuffer input, int[] payload) throws IOException {
+        if (input.remaining() < 4) {
+            return 0;
+        }
+        int length = input.getInt(input.position());
+        checkLength(length);
+        if (input.remaining() < 4 + length) {
+            return -(4 + length);
+        }
+        payload[0] = 4;
+        payload[1] = 4 + length;
+        return 4 + length;
+    }
+
+    @Override
+    protected void encode(ByteBuffer payload, ByteBuffer header, ByteBuffer trailer) {
+        header.putInt(payload.remaining());
+    }
+}
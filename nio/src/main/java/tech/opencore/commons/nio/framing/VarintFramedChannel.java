@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+
+/**
+ * A channel exchanging frames prefixed with their length, as an unsigned variable length integer of 7 bits per
+ * byte, least significant group first, as in Protocol Buffers. Short frames take a single byte of header.
+ *
+ * @author Eric Boukobza
+ */
+public class VarintFramedChannel<T extends ByteChannel> extends FramedChannel<T> {
+    public VarintFramedChannel(T channel) {
+        this(channel, 16 << 20);
+    }
+
+    public VarintFramedChannel(T channel, int maxFrameLength) {
+        super(channel, maxFrameLength, 0);
+    }
+
+    @Override
+    protected int decode(ByteBuffer input, int[] payload) throws IOException {
+        long length = 0;
+        int headerLength = 0;
+        while (true) {
+            if (headerLength == input.remaining()) {
+                return 0;
+            }
+            if (headerLength == 5) {
+                throw new IOException("Invalid frame length");
+            }
+            int b = input.get(input.position() + headerLength);
+            length |= (long) (b & 0x7f) << (7 * headerLength++);
+            if (b >= 0) {
+                break;
+            }
+        }
+
+        checkLength(length);
+        int frameLength = headerLength + (int) length;
+        if (input.remaining() < frameLength) {
+            return -frameLength;
+        }
+        payload[0] = headerLength;
+        payload[1] = frameLength;
+        return frameLength;
+    }
+
+    @Override
+    protected void encode(ByteBuffer payload, ByteBuffer header, ByteBuffer trailer) {
+        int length = payload.remaining();
+        while ((length & ~0x7f) != 0) {
+            header.put((byte) (length & 0x7f | 0x80));
+            length >>>= 7;
+        }
+        header.put((byte) length);
+    }
+}
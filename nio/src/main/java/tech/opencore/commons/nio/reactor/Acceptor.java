@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * A listening socket of a <code>Reactor</code>, handing the connections it accepts to the event loops in turn.
+ *
+ * @author Eric Boukobza
+ */
+public final class Acceptor implements Closeable {
+    private static final Counter ACCEPTS = Metrics.counter("nio.reactor.accepts");
+
+    private final Reactor reactor;
+    private final EventLoop loop;
+    private final ServerSocketChannel server;
+    private final EngineFactory engines;
+    private final ConnectionHandler handler;
+    private SelectionKey key;
+
+    Acceptor(Reactor reactor, EventLoop loop, ServerSocketChannel server, EngineFactory engines, ConnectionHandler handler) {
+        this.reactor = reactor;
+        this.loop = loop;
+        this.server = server;
+        this.engines = engines;
+        this.handler = handler;
+    }
+
+    void register() throws IOException {
+        key = server.register(loop.getSelector(), SelectionKey.OP_ACCEPT, this);
+    }
+
+    void accept() {
+        SocketChannel socket;
+        while (true) {
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            if (socket == null) {
+                return;
+            }
+
+            ACCEPTS.increment();
+            SocketChannel accepted = socket;
+            EventLoop target = reactor.next();
+            target.execute(() -> open(target, accepted));
+        }
+    }
+
+    private void open(EventLoop target, SocketChannel socket) {
+        Connection connection = null;
+        try {
+            socket.configureBlocking(false);
+            InetSocketAddress peer = (InetSocketAddress) socket.getRemoteAddress();
+            connection = new Connection(target, socket, peer, engines, reactor.getTasks(), handler, true);
+            connection.register(false);
+        } catch (Throwable e) {
+            if (connection != null) {
+                connection.fail(e);
+            } else {
+                try {
+                    socket.close();
+                } catch (IOException ex) {
+                    // Dropping the connection anyway
+                }
+            }
+        }
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Stop listening. The connections already accepted are not closed.
+     */
+    @Override
+    public void close() {
+        if (!loop.inLoop()) {
+            loop.execute(this::close);
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+}
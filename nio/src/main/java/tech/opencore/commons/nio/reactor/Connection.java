@@ -0,0 +1,522 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferPool;
+import tech.opencore.commons.nio.ssl.ClientHello;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ * A connection of a <code>Reactor</code>, over TLS or plain TCP.
+ *
+ * The interest operations of the connection are derived from its state: while the TLS handshake runs they follow
+ * what the engine needs, and then the connection waits for reads unless suspended with <code>setReadable</code>,
+ * and for writes while ciphertext is pending or a write was requested. Apart from <code>execute</code> and
+ * <code>close</code>, the methods of a connection must be called on its event loop, that is from the callbacks of
+ * its handler or from tasks given to <code>execute</code>.
+ *
+ * When the engines depend on the ClientHello, as with <code>SNIAcceptor</code>, an accepted connection first reads
+ * it without blocking and then creates its engine.
+ *
+ * The delegated tasks of the TLS engine run in the task executor of the reactor. The connection selects nothing
+ * while they run, and resumes its handshake on its event loop when they are done.
+ *
+ * @author Eric Boukobza
+ */
+public final class Connection implements ByteChannel, GatheringByteChannel {
+    private static final Counter CLOSES = Metrics.counter("nio.reactor.closes");
+
+    private final EventLoop loop;
+    private final SocketChannel socket;
+    private final InetSocketAddress peer;
+    private final EngineFactory engines;
+    private final Executor tasks;
+    private SSLChannel ssl;
+    private ByteChannel channel;
+    /**
+     * The ClientHello being received, when the engine depends on it, or null.
+     */
+    private ByteBuffer hello;
+    private final ConnectionHandler handler;
+    private final boolean accepted;
+    private final CompletableFuture<Connection> ready = new CompletableFuture<>();
+    private SelectionKey key;
+    private boolean readable = true;
+    private boolean writeRequested = false;
+    private boolean flushScheduled = false;
+    /**
+     * Whether the connection is in the buffered reads of its event loop.
+     */
+    private boolean readQueued = false;
+    private boolean endOfStream = false;
+    private boolean closed = false;
+    private Object attachment;
+
+    Connection(EventLoop loop, SocketChannel socket, InetSocketAddress peer, EngineFactory engines, Executor tasks, ConnectionHandler handler, boolean accepted) throws IOException {
+        this.loop = loop;
+        this.socket = socket;
+        this.peer = peer;
+        this.engines = engines;
+        this.tasks = tasks;
+        this.handler = handler;
+        this.accepted = accepted;
+
+        if (engines == null) {
+            this.channel = socket;
+        } else if (accepted && engines.needsClientHello()) {
+            this.hello = BufferPool.getDefault().acquire(ClientHello.MAX_LENGTH);
+        } else {
+            open(engines.createEngine(peer));
+        }
+    }
+
+    private void open(SSLEngine engine) throws IOException {
+        try {
+            ssl = new SSLChannel(socket, engine, tasks);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        channel = ssl;
+    }
+
+    /**
+     * Receive the ClientHello the engine depends on, and open the TLS channel once it is complete.
+     *
+     * @return true if the TLS channel is open
+     */
+    private boolean receiveHello() throws IOException {
+        ClientHello received = ClientHello.read(socket, hello);
+        if (received == null) {
+            return false;
+        }
+
+        open(engines.createEngine(peer, received));
+        hello.flip();
+        ssl.unread(hello);
+        BufferPool.getDefault().release(hello);
+        hello = null;
+        return true;
+    }
+
+    /**
+     * Register the connection on its event loop, once connected or while connecting.
+     */
+    void register(boolean connecting) throws IOException {
+        key = socket.register(loop.getSelector(), connecting ? SelectionKey.OP_CONNECT : 0, this);
+        if (!connecting) {
+            handshake();
+        }
+    }
+
+    /**
+     * Get the readiness of this connection.
+     *
+     * @return A future completed with this connection once its TLS handshake is done, or completed exceptionally
+     * if the connection fails before.
+     */
+    public CompletableFuture<Connection> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Handle the readiness of the connection.
+     */
+    void handle() {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isConnectable()) {
+                if (socket.finishConnect()) {
+                    handshake();
+                }
+                return;
+            }
+            if (!ready.isDone()) {
+                handshake();
+                return;
+            }
+
+            if (key.isWritable() && (ssl == null || ssl.flush()) && writeRequested) {
+                writeRequested = false;
+                handler.onWrite(this);
+            }
+            if (!closed && key.isReadable()) {
+                read();
+            }
+            updateInterest();
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Mark the connection as queued for a buffered read.
+     *
+     * @return false if it already is
+     */
+    boolean markReadQueued() {
+        if (readQueued) {
+            return false;
+        }
+        readQueued = true;
+        return true;
+    }
+
+    void clearReadQueued() {
+        readQueued = false;
+    }
+
+    /**
+     * Deliver decrypted data buffered by the TLS channel, which the selector does not report.
+     */
+    void readBuffered() {
+        try {
+            if (!closed && readable) {
+                read();
+                updateInterest();
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void read() throws IOException {
+        handler.onRead(this);
+        if (endOfStream) {
+            close();
+        } else if (ssl != null && !ssl.getDelegatedTasks().isDone()) {
+            // Tasks of a post-handshake message, to be followed by a read once done
+            ssl.getDelegatedTasks().whenComplete((result, error) -> loop.execute(() -> loop.readLater(this)));
+        } else if (readable && ssl != null && ssl.hasBufferedInput()) {
+            loop.readLater(this);
+        }
+    }
+
+    private void handshake() throws IOException {
+        if (hello != null && !receiveHello()) {
+            updateInterest();
+            return;
+        }
+        if (ssl != null && ssl.isHandshaking()) {
+            CompletableFuture<Void> tasks = ssl.getDelegatedTasks();
+            if (!tasks.isDone()) {
+                // Nothing to select until the tasks are done, registered first as they may complete meanwhile
+                tasks.whenComplete((result, error) -> loop.execute(this::resumeHandshake));
+            }
+            updateInterest();
+            return;
+        }
+
+        if (ssl != null) {
+            engines.onHandshake(ssl);
+        }
+        ready.complete(this);
+        if (accepted) {
+            handler.onAccept(this);
+        } else {
+            handler.onConnect(this);
+        }
+        if (!closed) {
+            updateInterest();
+            if (ssl != null && ssl.hasBufferedInput()) {
+                loop.readLater(this);
+            }
+        }
+    }
+
+    private void resumeHandshake() {
+        try {
+            if (!closed && !ready.isDone()) {
+                handshake();
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void updateInterest() {
+        if (closed || !key.isValid()) {
+            return;
+        }
+
+        int ops;
+        if (hello != null) {
+            ops = SelectionKey.OP_READ;
+        } else if (!ready.isDone() && !ssl.getDelegatedTasks().isDone()) {
+            ops = 0;
+        } else if (!ready.isDone()) {
+            boolean wrap = ssl.hasPendingOutput() || ssl.getSSLEngine().getHandshakeStatus() == HandshakeStatus.NEED_WRAP;
+            ops = wrap ? SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        } else {
+            ops = readable ? SelectionKey.OP_READ : 0;
+            if (writeRequested || (ssl != null && ssl.hasPendingOutput())) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+        }
+
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+        }
+    }
+
+    /**
+     * Read from the connection.
+     *
+     * @param dst The buffer to read into
+     * @return The number of bytes read, 0 if none is available, or -1 at the end of the stream.
+     * @throws IOException if the connection fails
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int read = channel.read(dst);
+        if (read < 0) {
+            endOfStream = true;
+        }
+        return read;
+    }
+
+    /**
+     * Write to the connection, as far as it accepts without blocking. When some data is left,
+     * <code>onWrite</code> is called once the connection can accept more.
+     *
+     * @param src The data to write
+     * @return The number of bytes written
+     * @throws IOException if the connection fails
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = channel.write(src);
+        afterWrite(src.hasRemaining());
+        return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Write the content of buffers to the connection, with a single TLS record or socket write as far as
+     * possible. When some data is left, <code>onWrite</code> is called once the connection can accept more.
+     *
+     * @param srcs The buffers
+     * @param offset The index of the first buffer to write
+     * @param length The number of buffers to write
+     * @return The number of bytes written
+     * @throws IOException if the connection fails
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written = ((GatheringByteChannel) channel).write(srcs, offset, length);
+        boolean remaining = false;
+        for (int i = offset ; i < offset + length && !remaining ; i++) {
+            remaining = srcs[i].hasRemaining();
+        }
+        afterWrite(remaining);
+        return written;
+    }
+
+    private void afterWrite(boolean remaining) {
+        if (remaining || (ssl != null && ssl.hasPendingOutput())) {
+            writeRequested = true;
+            updateInterest();
+        }
+        if (ssl != null && ssl.hasBufferedOutput() && !flushScheduled) {
+            // Flush the buffered data by its deadline if nothing else does
+            flushScheduled = true;
+            loop.schedule(this::flushBuffered, ssl.getWriteDeadline() - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Write the data buffered by the TLS channel, as far as the connection accepts it without blocking. What is
+     * left is written when the connection can accept it.
+     *
+     * @return true if nothing is left to write
+     * @throws IOException if the connection fails
+     */
+    public boolean flush() throws IOException {
+        boolean flushed = ssl == null || ssl.flush();
+        updateInterest();
+        return flushed;
+    }
+
+    private void flushBuffered() {
+        flushScheduled = false;
+        try {
+            if (!closed && ssl.hasBufferedOutput()) {
+                flush();
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Request a call to <code>onWrite</code> when the connection can be written.
+     */
+    public void requestWrite() {
+        writeRequested = true;
+        updateInterest();
+    }
+
+    /**
+     * Suspend or resume the calls to <code>onRead</code>, to stop reading from a peer faster than its data is
+     * processed.
+     *
+     * @param readable false to suspend reading
+     */
+    public void setReadable(boolean readable) {
+        this.readable = readable;
+        updateInterest();
+        if (readable && ssl != null && ssl.hasBufferedInput()) {
+            loop.readLater(this);
+        }
+    }
+
+    public boolean isReadable() {
+        return readable;
+    }
+
+    /**
+     * Run a task on the event loop of this connection. If the task throws, the connection fails with the error.
+     *
+     * @param task The task
+     */
+    public void execute(Runnable task) {
+        loop.execute(() -> run(task));
+    }
+
+    /**
+     * Run a task on the event loop of this connection after a delay. The task runs even if the connection is
+     * closed by then. If the task throws, the connection fails with the error.
+     *
+     * @param task The task
+     * @param delay The delay
+     * @param unit The unit of the delay
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        loop.schedule(() -> run(task), delay, unit);
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            if (closed) {
+                // No connection left to fail, reported by the event loop
+                throw e;
+            }
+            fail(e);
+        }
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    public SocketChannel getSocket() {
+        return socket;
+    }
+
+    /**
+     * Get the TLS channel of this connection.
+     *
+     * @return The channel, or null for a plain TCP connection.
+     */
+    public SSLChannel getSSLChannel() {
+        return ssl;
+    }
+
+    public InetSocketAddress getRemoteAddress() throws IOException {
+        return (InetSocketAddress) socket.getRemoteAddress();
+    }
+
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    void fail(Throwable error) {
+        if (!ready.isDone()) {
+            ready.completeExceptionally(error);
+        }
+        if (!closed) {
+            handler.onError(this, error);
+            close();
+        }
+    }
+
+    /**
+     * Close the connection, sending the TLS close_notify as far as the network accepts it without blocking.
+     */
+    @Override
+    public void close() {
+        if (!loop.inLoop()) {
+            loop.execute(this::close);
+            return;
+        }
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        CLOSES.increment();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            if (hello != null) {
+                BufferPool.getDefault().release(hello);
+                hello = null;
+                socket.close();
+            } else {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // The connection is closed anyway
+        }
+        if (!ready.isDone()) {
+            ready.completeExceptionally(new IOException("Connection closed"));
+        }
+        handler.onClose(this);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.IOException;
+
+/**
+ * The callbacks of connections, called on the event loop of the connection.
+ *
+ * Callbacks must not block, since they share their thread with all the connections of the event loop.
+ *
+ * @author Eric Boukobza
+ */
+public interface ConnectionHandler {
+    /**
+     * Called when an accepted connection is ready, after its TLS handshake if it has one.
+     *
+     * @param connection The connection
+     * @throws IOException to close the connection
+     */
+    default void onAccept(Connection connection) throws IOException {
+    }
+
+    /**
+     * Called when an outgoing connection is ready, after its TLS handshake if it has one.
+     *
+     * @param connection The connection
+     * @throws IOException to close the connection
+     */
+    default void onConnect(Connection connection) throws IOException {
+    }
+
+    /**
+     * Called when data can be read from the connection. The connection is closed after this call if a read
+     * returned -1.
+     *
+     * @param connection The connection
+     * @throws IOException to close the connection
+     */
+    void onRead(Connection connection) throws IOException;
+
+    /**
+     * Called when the connection can be written again after a write did not complete, or after
+     * <code>Connection.requestWrite()</code>.
+     *
+     * @param connection The connection
+     * @throws IOException to close the connection
+     */
+    default void onWrite(Connection connection) throws IOException {
+    }
+
+    /**
+     * Called when the connection fails, before it is closed.
+     *
+     * @param connection The connection
+     * @param error The failure
+     */
+    default void onError(Connection connection, Throwable error) {
+    }
+
+    default void onClose(Connection connection) {
+    }
+}
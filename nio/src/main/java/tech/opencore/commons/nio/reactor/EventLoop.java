@@ -0,0 +1,210 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread selecting the channels registered on it, and running the tasks given to it and its timers between
+ * selections.
+ *
+ * @author Eric Boukobza
+ */
+final class EventLoop implements Runnable, Executor {
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Connection> bufferedReads = new ArrayDeque<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private long timerSequence = 0;
+    private volatile boolean running = true;
+
+    EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Run a task on this loop after a delay.
+     *
+     * @param task The task
+     * @param delay The delay
+     * @param unit The unit of the delay
+     */
+    void schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(delay);
+        if (inLoop()) {
+            timers.add(new Timer(deadline, timerSequence++, task));
+        } else {
+            execute(() -> timers.add(new Timer(deadline, timerSequence++, task)));
+        }
+    }
+
+    /**
+     * Schedule a read of a connection holding buffered data, after the current selection.
+     */
+    void readLater(Connection connection) {
+        if (connection.markReadQueued()) {
+            bufferedReads.add(connection);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                long wait = timers.isEmpty() ? Long.MAX_VALUE : timers.peek().deadline - System.nanoTime();
+                if (!tasks.isEmpty() || !bufferedReads.isEmpty() || wait <= 0) {
+                    selector.selectNow();
+                } else if (wait == Long.MAX_VALUE) {
+                    selector.select();
+                } else {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait + 999999)));
+                }
+            } catch (IOException e) {
+                break;
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Object attachment = key.attachment();
+                if (attachment instanceof Connection) {
+                    ((Connection) attachment).handle();
+                } else {
+                    try {
+                        ((Acceptor) attachment).accept();
+                    } catch (Throwable e) {
+                        report(e);
+                    }
+                }
+            }
+
+            for (int i = bufferedReads.size() ; i > 0 ; i--) {
+                Connection connection = bufferedReads.poll();
+                connection.clearReadQueued();
+                connection.readBuffered();
+            }
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                runTask(task);
+            }
+
+            long now = System.nanoTime();
+            while (!timers.isEmpty() && timers.peek().deadline - now <= 0) {
+                runTask(timers.poll().task);
+            }
+        }
+
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection) {
+                ((Connection) attachment).close();
+            } else if (attachment instanceof Acceptor) {
+                ((Acceptor) attachment).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            report(e);
+        }
+    }
+
+    /**
+     * Report an error thrown by a task not bound to a connection, and keep the loop running for the others.
+     */
+    private void report(Throwable error) {
+        try {
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+        } catch (Throwable e) {
+            // Nothing more to do with it
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    void join() throws InterruptedException {
+        if (!inLoop()) {
+            thread.join();
+        }
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        final long deadline;
+        final long sequence;
+        final Runnable task;
+
+        Timer(long deadline, long sequence, Runnable task) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            long difference = deadline - other.deadline;
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
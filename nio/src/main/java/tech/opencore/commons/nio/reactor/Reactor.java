@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * Non-blocking TCP and TLS connections served by a few selector threads.
+ *
+ * A reactor runs one event loop per processor by default. Each connection is assigned to a loop in turn and all
+ * its callbacks run on that loop, so a handler does not need synchronization as long as it keeps its state per
+ * connection. TLS handshakes run on the loops too, except for the delegated tasks of the engines, such as
+ * certificate validation and key exchange computations, which run in a task executor so that they do not stall
+ * the other connections of a loop.
+ *
+ * @author Eric Boukobza
+ */
+public class Reactor implements Closeable {
+    private static final Counter CONNECTS = Metrics.counter("nio.reactor.connects");
+
+    private final EventLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Executor tasks;
+
+    public Reactor() throws IOException {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Reactor(int threads) throws IOException {
+        this(threads, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a reactor.
+     *
+     * @param threads The number of event loops
+     * @param tasks The executor of the delegated tasks of the TLS engines, or null to run them on the event loops.
+     * @throws IOException if a selector cannot be opened
+     */
+    public Reactor(int threads, Executor tasks) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A reactor needs at least one thread");
+        }
+
+        this.tasks = tasks;
+        loops = new EventLoop[threads];
+        for (int i = 0 ; i < threads ; i++) {
+            loops[i] = new EventLoop("reactor-" + i);
+        }
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    EventLoop next() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    Executor getTasks() {
+        return tasks;
+    }
+
+    public int getThreads() {
+        return loops.length;
+    }
+
+    /**
+     * Listen for connections.
+     *
+     * @param address The address to listen on
+     * @param engines The factory of the server engines, or null for plain TCP connections.
+     * @param handler The handler of the accepted connections
+     * @return The acceptor, to close to stop listening.
+     * @throws IOException if the address cannot be bound
+     */
+    public Acceptor listen(SocketAddress address, EngineFactory engines, ConnectionHandler handler) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.configureBlocking(false);
+            server.bind(address, 1024);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        EventLoop loop = next();
+        Acceptor acceptor = new Acceptor(this, loop, server, engines, handler);
+        CompletableFuture<Void> registered = new CompletableFuture<>();
+        loop.execute(() -> {
+            try {
+                acceptor.register();
+                registered.complete(null);
+            } catch (Throwable e) {
+                registered.completeExceptionally(e);
+            }
+        });
+
+        try {
+            registered.join();
+        } catch (RuntimeException e) {
+            server.close();
+            throw new IOException("Cannot listen on " + address, e.getCause());
+        }
+        return acceptor;
+    }
+
+    /**
+     * Open a connection.
+     *
+     * @param address The address to connect to
+     * @param engines The factory of the client engine, or null for a plain TCP connection.
+     * @param handler The handler of the connection
+     * @return A future completed with the connection when it is ready, after its TLS handshake if it has one.
+     */
+    public CompletableFuture<Connection> connect(InetSocketAddress address, EngineFactory engines, ConnectionHandler handler) {
+        EventLoop loop = next();
+        CompletableFuture<Connection> result = new CompletableFuture<>();
+        loop.execute(() -> {
+            SocketChannel socket = null;
+            Connection connection = null;
+            try {
+                socket = SocketChannel.open();
+                socket.configureBlocking(false);
+                connection = new Connection(loop, socket, address, engines, tasks, handler, false);
+                connection.whenReady().whenComplete((c, e) -> {
+                    if (e == null) {
+                        result.complete(c);
+                    } else {
+                        result.completeExceptionally(e);
+                    }
+                });
+
+                CONNECTS.increment();
+                boolean connected = socket.connect(address);
+                connection.register(!connected);
+            } catch (Throwable e) {
+                if (connection != null) {
+                    connection.fail(e);
+                } else {
+                    if (socket != null) {
+                        try {
+                            socket.close();
+                        } catch (IOException ex) {
+                            // Failing anyway
+                        }
+                    }
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stop the event loops and close their connections.
+     */
+    @Override
+    public void close() {
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+        try {
+            for (EventLoop loop : loops) {
+                loop.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
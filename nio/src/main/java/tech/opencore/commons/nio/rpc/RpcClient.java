@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.rpc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.ConnectionHandler;
+import tech.opencore.commons.nio.reactor.Reactor;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * A client calling an <code>RpcServer</code> over a single connection of a <code>Reactor</code>.
+ *
+ * Calls are thread safe and do not block: each call is serialized on the calling thread, given an id and sent
+ * on the event loop of the connection, and its future is completed on the event loop when the response with
+ * the same id arrives. Many calls are in flight at once over the connection, up to a maximum beyond which they
+ * wait for earlier calls to complete before being sent. Responses arrive in the order the server completes
+ * them, and a long message does not delay the others, since messages are written one chunk at a time in turn.
+ *
+ * A call fails with an <code>IOException</code> if the request cannot be serialized or is too long, if the
+ * server answers with an error, or if the connection closes before the response arrives.
+ *
+ * @author Eric Boukobza
+ */
+public final class RpcClient implements Closeable {
+    private static final Counter CALLS = Metrics.counter("nio.rpc.calls");
+    private static final Counter WAITS = Metrics.counter("nio.rpc.waits");
+
+    private final DataFactory factory;
+    private final int maxInFlight;
+    private final int maxMessageLength;
+    private volatile Connection connection;
+    private Endpoint endpoint;
+    private final Map<Integer, CompletableFuture<Data>> inFlight = new HashMap<>();
+    private final ArrayDeque<Call> waiting = new ArrayDeque<>();
+    private int nextId = 0;
+    private Throwable failure;
+
+    private RpcClient(DataFactory factory, int maxInFlight, int maxMessageLength) {
+        this.factory = factory;
+        this.maxInFlight = maxInFlight;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param reactor The reactor of the connection
+     * @param address The address of the server
+     * @param engines The factory of the client engine, or null for a plain TCP connection.
+     * @param factory The factory serializing the messages
+     * @return A future completed with the client once connected.
+     */
+    public static CompletableFuture<RpcClient> connect(Reactor reactor, InetSocketAddress address, EngineFactory engines, DataFactory factory) {
+        return connect(reactor, address, engines, factory, 1024, 16 << 20);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param reactor The reactor of the connection
+     * @param address The address of the server
+     * @param engines The factory of the client engine, or null for a plain TCP connection.
+     * @param factory The factory serializing the messages
+     * @param maxInFlight The maximum number of calls sent and not answered yet
+     * @param maxMessageLength The maximum length of a serialized message
+     * @return A future completed with the client once connected.
+     */
+    public static CompletableFuture<RpcClient> connect(Reactor reactor, InetSocketAddress address, EngineFactory engines, DataFactory factory, int maxInFlight, int maxMessageLength) {
+        RpcClient client = new RpcClient(factory, maxInFlight, maxMessageLength);
+        return reactor.connect(address, engines, client.new Handler()).thenApply(connection -> {
+            // On the event loop, before the first call
+            client.endpoint = client.new Endpoint(connection);
+            client.connection = connection;
+            return client;
+        });
+    }
+
+    /**
+     * Call the server.
+     *
+     * @param request The request
+     * @return A future completed with the response on the event loop of the connection.
+     */
+    public CompletableFuture<Data> call(Data request) {
+        CompletableFuture<Data> result = new CompletableFuture<>();
+        Call call;
+        try {
+            call = new Call(endpoint.serialize(request), result);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        CALLS.increment();
+        connection.execute(() -> start(call));
+        return result;
+    }
+
+    private void start(Call call) {
+        if (!connection.isOpen()) {
+            call.fail(closed());
+            return;
+        }
+        if (inFlight.size() >= maxInFlight) {
+            WAITS.increment();
+            waiting.add(call);
+            return;
+        }
+
+        int id = nextId++;
+        inFlight.put(id, call.result);
+        try {
+            endpoint.send(RpcEndpoint.REQUEST, id, call.message);
+        } catch (Throwable e) {
+            failure = e;
+            connection.close();
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Close the connection, failing the calls not answered yet.
+     */
+    @Override
+    public void close() {
+        connection.close();
+    }
+
+    private IOException closed() {
+        IOException error = new ClosedChannelException();
+        if (failure != null) {
+            error.initCause(failure);
+        }
+        return error;
+    }
+
+    /**
+     * A call waiting to be sent.
+     */
+    private final class Call {
+        final ByteBuffer message;
+        final CompletableFuture<Data> result;
+
+        Call(ByteBuffer message, CompletableFuture<Data> result) {
+            this.message = message;
+            this.result = result;
+        }
+
+        void fail(Throwable error) {
+            endpoint.release(message);
+            result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * The responses of the connection.
+     */
+    private final class Endpoint extends RpcEndpoint {
+        Endpoint(Connection connection) {
+            super(connection, factory, maxMessageLength);
+        }
+
+        @Override
+        protected void receive(int type, int id, Data response) throws IOException {
+            CompletableFuture<Data> result = inFlight.remove(id);
+            if (result == null || (type != RESPONSE && type != ERROR)) {
+                throw new IOException("Unexpected message " + id + " of type " + type);
+            }
+
+            if (type == RESPONSE) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(new IOException(response.getString("error", "Remote error")));
+            }
+            while (!waiting.isEmpty() && inFlight.size() < maxInFlight && connection.isOpen()) {
+                start(waiting.poll());
+            }
+        }
+    }
+
+    private final class Handler implements ConnectionHandler {
+        @Override
+        public void onRead(Connection connection) throws IOException {
+            endpoint.read();
+        }
+
+        @Override
+        public void onWrite(Connection connection) throws IOException {
+            endpoint.write();
+        }
+
+        @Override
+        public void onError(Connection connection, Throwable error) {
+            failure = error;
+        }
+
+        @Override
+        public void onClose(Connection connection) {
+            if (endpoint == null) {
+                return;
+            }
+            IOException error = closed();
+            List<CompletableFuture<Data>> calls = new ArrayList<>(inFlight.values());
+            inFlight.clear();
+            for (CompletableFuture<Data> call : calls) {
+                call.completeExceptionally(error);
+            }
+            while (!waiting.isEmpty()) {
+                waiting.poll().fail(error);
+            }
+            endpoint.close();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.rpc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferInputStream;
+import tech.opencore.commons.nio.BufferOutputStream;
+import tech.opencore.commons.nio.BufferPool;
+import tech.opencore.commons.nio.framing.LengthFramedChannel;
+import tech.opencore.commons.nio.reactor.Connection;
+
+/**
+ * The messages of a connection of an <code>RpcClient</code> or an <code>RpcServer</code>, multiplexed over the
+ * connection as chunks.
+ *
+ * A chunk is a length prefixed frame holding a flags byte, the id of the message and a part of its serialized
+ * bytes, and it fits in a single TLS record. The flags byte holds the type of the message, and marks the last
+ * chunk of the message. The messages waiting to be written are written one chunk at a time in turn, so that a
+ * long message is interleaved with the messages queued after it instead of delaying them until it is written
+ * completely. The chunks of a message are reassembled by id on reception, and a message sent as a single chunk
+ * is deserialized straight from the frame received.
+ *
+ * Messages are serialized into buffers borrowed from the default <code>BufferPool</code>, with room for the
+ * header of the first chunk before them. The header of the next chunks is written in place, over the end of the
+ * previous chunk which is written by then, so that a chunk is written as a single frame without copying.
+ *
+ * Apart from <code>serialize</code>, the methods of an endpoint must be called on the event loop of its
+ * connection.
+ *
+ * @author Eric Boukobza
+ */
+abstract class RpcEndpoint {
+    static final int REQUEST = 1;
+    static final int RESPONSE = 2;
+    static final int ERROR = 3;
+    /**
+     * The flag of the last chunk of a message.
+     */
+    static final int LAST = 0x80;
+    /**
+     * The length of the header of a chunk, after the length of its frame.
+     */
+    static final int HEADER = 5;
+    /**
+     * The maximum number of bytes of a message per chunk, for a frame to fill a TLS record.
+     */
+    static final int CHUNK_SIZE = 16384 - 4 - HEADER;
+
+    private static final Counter MESSAGES_SENT = Metrics.counter("nio.rpc.messages.sent");
+    private static final Counter MESSAGES_RECEIVED = Metrics.counter("nio.rpc.messages.received");
+    private static final Counter CHUNKS_SENT = Metrics.counter("nio.rpc.chunks.sent");
+
+    protected final Connection connection;
+    private final DataFactory factory;
+    private final int maxMessageLength;
+    private final BufferPool pool = BufferPool.getDefault();
+    private final LengthFramedChannel<Connection> frames;
+    /**
+     * The messages waiting for their next chunk to be written.
+     */
+    private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+    /**
+     * The message whose chunk is partially written, or null if none.
+     */
+    private Outgoing current;
+    private long queuedBytes = 0;
+    /**
+     * The messages received partially by id, in buffers in write mode.
+     */
+    private final Map<Integer, BufferOutputStream> incoming = new HashMap<>();
+
+    RpcEndpoint(Connection connection, DataFactory factory, int maxMessageLength) {
+        this.connection = connection;
+        this.factory = factory;
+        this.maxMessageLength = maxMessageLength;
+        this.frames = new LengthFramedChannel<>(connection, HEADER + CHUNK_SIZE);
+    }
+
+    /**
+     * Handle a message received.
+     *
+     * @param type The type of the message
+     * @param id The id of the message
+     * @param data The message
+     * @throws IOException to close the connection
+     */
+    protected abstract void receive(int type, int id, Data data) throws IOException;
+
+    /**
+     * Serialize a message, on any thread.
+     *
+     * @param data The message
+     * @return The serialized message, in a borrowed buffer to give to <code>send</code> or to release.
+     * @throws IOException if the message cannot be serialized or is too long
+     */
+    ByteBuffer serialize(Data data) throws IOException {
+        BufferOutputStream output = new BufferOutputStream(pool);
+        output.acquire(4096).position(HEADER);
+        try {
+            factory.serialize(data, output);
+        } catch (Exception e) {
+            output.release();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Message cannot be serialized", e);
+        }
+
+        ByteBuffer message = output.detach();
+        message.flip();
+        message.position(HEADER);
+        if (message.remaining() > maxMessageLength) {
+            int length = message.remaining();
+            pool.release(message);
+            throw new IOException("Message of " + length + " bytes exceeds the maximum of " + maxMessageLength);
+        }
+        return message;
+    }
+
+    /**
+     * Release a message returned by <code>serialize</code> and not sent.
+     *
+     * @param message The message
+     */
+    void release(ByteBuffer message) {
+        pool.release(message);
+    }
+
+    /**
+     * Queue a message and write what the connection accepts.
+     *
+     * @param type The type of the message
+     * @param id The id of the message
+     * @param message The message returned by <code>serialize</code>, released once written
+     * @throws IOException if the connection fails
+     */
+    void send(int type, int id, ByteBuffer message) throws IOException {
+        MESSAGES_SENT.increment();
+        queue.add(new Outgoing(type, id, message));
+        queuedBytes += message.remaining();
+        if (current == null) {
+            write();
+        }
+    }
+
+    /**
+     * Write the queued messages, a chunk of each in turn, as far as the connection accepts them.
+     *
+     * @return true if no message is left to write
+     * @throws IOException if the connection fails
+     */
+    boolean write() throws IOException {
+        while (true) {
+            if (current == null) {
+                current = queue.poll();
+                if (current == null) {
+                    return true;
+                }
+                current.next();
+            }
+
+            if (!frames.writeFrame(current.chunk)) {
+                return false;
+            }
+            CHUNKS_SENT.increment();
+            queuedBytes -= current.chunk.limit() - HEADER;
+            if (current.message.hasRemaining()) {
+                queue.add(current);
+            } else {
+                pool.release(current.message);
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * Get the number of bytes of the messages not written yet.
+     *
+     * @return The number of bytes queued
+     */
+    long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    /**
+     * Read the messages received, as long as the connection is readable.
+     *
+     * @throws IOException if the connection fails, or a message is invalid
+     */
+    void read() throws IOException {
+        ByteBuffer frame;
+        while (connection.isOpen() && connection.isReadable() && (frame = frames.readFrame()) != null) {
+            if (frame.remaining() < HEADER) {
+                throw new IOException("Invalid chunk of " + frame.remaining() + " bytes");
+            }
+            int flags = frame.get() & 0xff;
+            int id = frame.getInt();
+            int type = flags & ~LAST;
+            boolean last = (flags & LAST) != 0;
+
+            BufferOutputStream partial = incoming.get(id);
+            if (partial == null && last) {
+                deliver(type, id, frame);
+                continue;
+            }
+
+            if (partial == null) {
+                partial = new BufferOutputStream(pool);
+                incoming.put(id, partial);
+            }
+            int length = frame.remaining() + (partial.getBuffer() == null ? 0 : partial.getBuffer().position());
+            if (length > maxMessageLength) {
+                throw new IOException("Message of more than " + maxMessageLength + " bytes received");
+            }
+            partial.reserve(frame.remaining());
+            partial.getBuffer().put(frame);
+
+            if (last) {
+                incoming.remove(id);
+                ByteBuffer message = partial.getBuffer();
+                message.flip();
+                try {
+                    deliver(type, id, message);
+                } finally {
+                    partial.release();
+                }
+            }
+        }
+    }
+
+    private void deliver(int type, int id, ByteBuffer message) throws IOException {
+        Data data;
+        try {
+            data = factory.deserialize(new BufferInputStream(message));
+        } catch (Exception e) {
+            throw new IOException("Invalid message " + id, e);
+        }
+        MESSAGES_RECEIVED.increment();
+        receive(type, id, data);
+    }
+
+    /**
+     * Release the buffers of the endpoint, once its connection is closed.
+     */
+    void close() {
+        if (current != null) {
+            pool.release(current.message);
+            current = null;
+        }
+        for (Outgoing outgoing : queue) {
+            pool.release(outgoing.message);
+        }
+        queue.clear();
+        queuedBytes = 0;
+        for (BufferOutputStream partial : incoming.values()) {
+            partial.release();
+        }
+        incoming.clear();
+        try {
+            frames.close();
+        } catch (IOException e) {
+            // The connection is closed already
+        }
+    }
+
+    /**
+     * A message being written.
+     */
+    private static final class Outgoing {
+        final int type;
+        final int id;
+        /**
+         * The message, in read mode from its next chunk.
+         */
+        final ByteBuffer message;
+        /**
+         * The chunk being written, with its header.
+         */
+        ByteBuffer chunk;
+
+        Outgoing(int type, int id, ByteBuffer message) {
+            this.type = type;
+            this.id = id;
+            this.message = message;
+        }
+
+        /**
+         * Prepare the next chunk, writing its header over the bytes before it.
+         */
+        void next() {
+            int start = message.position();
+            int length = Math.min(CHUNK_SIZE, message.remaining());
+            boolean last = length == message.remaining();
+            message.put(start - HEADER, (byte) (last ? type | LAST : type));
+            message.putInt(start - HEADER + 1, id);
+
+            chunk = message.duplicate();
+            chunk.limit(start + length);
+            chunk.position(start - HEADER);
+            chunk = chunk.slice();
+            message.position(start + length);
+        }
+    }
+}
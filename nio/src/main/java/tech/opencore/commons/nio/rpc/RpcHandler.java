@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.rpc;
+
+import java.util.concurrent.CompletableFuture;
+import tech.opencore.commons.data.Data;
+
+/**
+ * The handler of the requests of an <code>RpcServer</code>.
+ *
+ * The handler is called on the event loop of the connection of the request, so it must not block: a response
+ * that takes time is computed elsewhere and completes the future returned. Requests of a connection are handled
+ * concurrently, and their responses are sent in the order they complete.
+ *
+ * @author Eric Boukobza
+ */
+@FunctionalInterface
+public interface RpcHandler {
+    /**
+     * Handle a request.
+     *
+     * @param request The request
+     * @return A future completed with the response, or completed exceptionally to send the message of the error
+     * to the client.
+     * @throws Exception to send the message of the error to the client
+     */
+    CompletableFuture<Data> handle(Data request) throws Exception;
+}
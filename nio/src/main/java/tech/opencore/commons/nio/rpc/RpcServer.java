@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.rpc;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.ConnectionHandler;
+import tech.opencore.commons.nio.reactor.Reactor;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ * A server answering the requests of <code>RpcClient</code> connections with an <code>RpcHandler</code>.
+ *
+ * Each connection carries many requests at once, identified by the id the client gives them, and their
+ * responses are sent as soon as they complete, in any order. A failed request is answered with the message of
+ * its error. A connection stops reading requests while too many of its requests are being handled, or while its
+ * responses not written yet exceed the maximum queued bytes, and resumes once they drop to half.
+ *
+ * @author Eric Boukobza
+ */
+public class RpcServer implements ConnectionHandler {
+    private static final Counter REQUESTS = Metrics.counter("nio.rpc.requests");
+    private static final Counter ERRORS = Metrics.counter("nio.rpc.errors");
+    private static final Counter PAUSES = Metrics.counter("nio.rpc.pauses");
+
+    private final DataFactory factory;
+    private final RpcHandler handler;
+    private final int maxMessageLength;
+    private int maxActiveRequests = 1024;
+    private long maxQueuedBytes = 4 << 20;
+
+    public RpcServer(DataFactory factory, RpcHandler handler) {
+        this(factory, handler, 16 << 20);
+    }
+
+    public RpcServer(DataFactory factory, RpcHandler handler, int maxMessageLength) {
+        this.factory = factory;
+        this.handler = handler;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public int getMaxActiveRequests() {
+        return maxActiveRequests;
+    }
+
+    /**
+     * Set the number of requests of a connection handled at once beyond which it stops reading requests.
+     *
+     * @param maxActiveRequests The maximum number of requests handled per connection
+     */
+    public void setMaxActiveRequests(int maxActiveRequests) {
+        this.maxActiveRequests = maxActiveRequests;
+    }
+
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    /**
+     * Set the number of bytes of responses not written yet beyond which a connection stops reading requests.
+     *
+     * @param maxQueuedBytes The maximum number of bytes queued per connection
+     */
+    public void setMaxQueuedBytes(long maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Listen for connections.
+     *
+     * @param reactor The reactor of the connections
+     * @param address The address to listen on
+     * @param engines The factory of the server engines, or null for plain TCP connections.
+     * @return The acceptor, to close to stop listening.
+     * @throws IOException if the address cannot be bound
+     */
+    public Acceptor listen(Reactor reactor, SocketAddress address, EngineFactory engines) throws IOException {
+        return reactor.listen(address, engines, this);
+    }
+
+    @Override
+    public void onAccept(Connection connection) {
+        connection.setAttachment(new Endpoint(connection));
+    }
+
+    @Override
+    public void onRead(Connection connection) throws IOException {
+        ((Endpoint) connection.getAttachment()).read();
+    }
+
+    @Override
+    public void onWrite(Connection connection) throws IOException {
+        Endpoint endpoint = (Endpoint) connection.getAttachment();
+        endpoint.write();
+        endpoint.throttle();
+    }
+
+    @Override
+    public void onClose(Connection connection) {
+        if (connection.getAttachment() != null) {
+            ((Endpoint) connection.getAttachment()).close();
+        }
+    }
+
+    /**
+     * The requests of a connection.
+     */
+    private final class Endpoint extends RpcEndpoint {
+        private int activeRequests = 0;
+        private boolean paused = false;
+
+        Endpoint(Connection connection) {
+            super(connection, factory, maxMessageLength);
+        }
+
+        @Override
+        protected void receive(int type, int id, Data request) throws IOException {
+            if (type != REQUEST) {
+                throw new IOException("Unexpected message of type " + type);
+            }
+
+            REQUESTS.increment();
+            activeRequests++;
+            CompletableFuture<Data> response;
+            try {
+                response = handler.handle(request);
+            } catch (Exception e) {
+                response = new CompletableFuture<>();
+                response.completeExceptionally(e);
+            }
+
+            if (response.isDone()) {
+                respond(id, response);
+            } else {
+                CompletableFuture<Data> pending = response;
+                response.whenComplete((result, error) -> connection.execute(() -> respond(id, pending)));
+            }
+            throttle();
+        }
+
+        private void respond(int id, CompletableFuture<Data> response) {
+            activeRequests--;
+            if (!connection.isOpen()) {
+                return;
+            }
+
+            try {
+                ByteBuffer message;
+                int type = RESPONSE;
+                try {
+                    Data result = response.join();
+                    message = serialize(result == null ? factory.createData() : result);
+                } catch (CompletionException | IOException e) {
+                    ERRORS.increment();
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    String error = cause.getMessage() == null ? cause.getClass().getName() : cause.getMessage();
+                    message = serialize(factory.createData().setString("error", error));
+                    type = ERROR;
+                }
+                send(type, id, message);
+                throttle();
+            } catch (Throwable e) {
+                connection.close();
+            }
+        }
+
+        /**
+         * Stop reading requests while too many are handled or queued, and resume once they drop to half.
+         */
+        void throttle() throws IOException {
+            if (!paused && (activeRequests >= maxActiveRequests || getQueuedBytes() > maxQueuedBytes)) {
+                PAUSES.increment();
+                paused = true;
+                connection.setReadable(false);
+            } else if (paused && activeRequests <= maxActiveRequests / 2 && getQueuedBytes() <= maxQueuedBytes / 2) {
+                paused = false;
+                connection.setReadable(true);
+                // Requests may be buffered already, which the connection does not report
+                connection.execute(this::resume);
+            }
+        }
+
+        private void resume() {
+            try {
+                read();
+            } catch (Throwable e) {
+                connection.close();
+            }
+        }
+    }
+}
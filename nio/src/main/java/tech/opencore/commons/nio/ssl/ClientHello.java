@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import javax.net.ssl.SSLHandshakeException;
+
+/**
+ * The ClientHello opening a TLS connection, inspected before the server engine is chosen.
+ *
+ * The ClientHello is parsed from the records received without decrypting anything, as it is sent in clear, and
+ * may span several records.
+ *
+ * @author Eric Boukobza
+ */
+public final class ClientHello {
+    /**
+     * The maximum length of the records of a ClientHello that can be inspected, and so the capacity the buffers
+     * receiving them must have.
+     */
+    public static final int MAX_LENGTH = 16384 + 5;
+    private static final int HANDSHAKE = 22;
+    private static final int CLIENT_HELLO = 1;
+    private static final int SERVER_NAME = 0;
+    private static final int HOST_NAME = 0;
+
+    private final String serverName;
+
+    private ClientHello(String serverName) {
+        this.serverName = serverName;
+    }
+
+    /**
+     * Get the host name requested with the server name indication extension.
+     *
+     * @return The host name, in lower case, or null if the client did not send one.
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * Read the ClientHello from a channel, as far as it is available without blocking if the channel does not
+     * block.
+     *
+     * @param channel The channel
+     * @param received The buffer receiving the records, in write mode, kept between the calls for the same
+     * connection. Its capacity must be at least <code>MAX_LENGTH</code>.
+     * @return The ClientHello, or null if it is not complete yet.
+     * @throws IOException if the channel fails, or is closed before the ClientHello is complete
+     * @throws SSLHandshakeException if the records received are not a valid ClientHello, or too large
+     */
+    public static ClientHello read(ByteChannel channel, ByteBuffer received) throws IOException {
+        int read = channel.read(received);
+        ByteBuffer data = received.duplicate();
+        data.flip();
+        ClientHello hello = parse(data);
+        if (hello == null) {
+            if (read < 0) {
+                throw new SSLHandshakeException("Connection closed before the ClientHello");
+            }
+            if (!received.hasRemaining()) {
+                throw new SSLHandshakeException("ClientHello longer than " + received.capacity() + " bytes");
+            }
+        }
+        return hello;
+    }
+
+    /**
+     * Parse a ClientHello.
+     *
+     * @param data The records received, in read mode. The buffer is not modified.
+     * @return The ClientHello, or null if the data does not hold all of it.
+     * @throws SSLHandshakeException if the data is not a valid ClientHello
+     */
+    public static ClientHello parse(ByteBuffer data) throws SSLHandshakeException {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int position = data.position();
+        while (data.limit() - position >= 5) {
+            if ((data.get(position) & 0xff) != HANDSHAKE) {
+                throw new SSLHandshakeException("Not a TLS handshake record");
+            }
+            int length = ((data.get(position + 3) & 0xff) << 8) | (data.get(position + 4) & 0xff);
+            if (data.limit() - position - 5 < length) {
+                return null;
+            }
+            for (int i = position + 5 ; i < position + 5 + length ; i++) {
+                message.write(data.get(i));
+            }
+            position += 5 + length;
+
+            byte[] bytes = message.toByteArray();
+            if (bytes.length >= 4) {
+                if (bytes[0] != CLIENT_HELLO) {
+                    throw new SSLHandshakeException("Not a ClientHello");
+                }
+                int bodyLength = ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+                if (bytes.length >= 4 + bodyLength) {
+                    try {
+                        return parseBody(ByteBuffer.wrap(bytes, 4, bodyLength));
+                    } catch (BufferUnderflowException | IllegalArgumentException e) {
+                        throw new SSLHandshakeException("Malformed ClientHello");
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ClientHello parseBody(ByteBuffer body) {
+        // Version and random
+        skip(body, 2 + 32);
+        // Session id, cipher suites and compression methods
+        skip(body, body.get() & 0xff);
+        skip(body, body.getShort() & 0xffff);
+        skip(body, body.get() & 0xff);
+        if (!body.hasRemaining()) {
+            return new ClientHello(null);
+        }
+
+        ByteBuffer extensions = slice(body, body.getShort() & 0xffff);
+        while (extensions.hasRemaining()) {
+            int type = extensions.getShort() & 0xffff;
+            ByteBuffer extension = slice(extensions, extensions.getShort() & 0xffff);
+            if (type != SERVER_NAME) {
+                continue;
+            }
+
+            ByteBuffer names = slice(extension, extension.getShort() & 0xffff);
+            while (names.hasRemaining()) {
+                int nameType = names.get() & 0xff;
+                byte[] name = new byte[names.getShort() & 0xffff];
+                names.get(name);
+                if (nameType == HOST_NAME) {
+                    return new ClientHello(new String(name, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return new ClientHello(null);
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer result = buffer.slice();
+        result.limit(length);
+        skip(buffer, length);
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * Creates the TLS engine of a connection.
+ *
+ * @author Eric Boukobza
+ */
+@FunctionalInterface
+public interface EngineFactory {
+    /**
+     * Create the engine of a connection.
+     *
+     * @param peer The address of the peer
+     * @return The engine, in client or server mode.
+     * @throws IOException if the engine cannot be created
+     */
+    SSLEngine createEngine(InetSocketAddress peer) throws IOException;
+
+    /**
+     * Check if the server engines depend on the ClientHello of the peer. The engines of accepted connections are
+     * then created with <code>createEngine(InetSocketAddress, ClientHello)</code> once it is received.
+     *
+     * @return true if the engines depend on the ClientHello
+     */
+    default boolean needsClientHello() {
+        return false;
+    }
+
+    /**
+     * Create the engine of an accepted connection for its ClientHello.
+     *
+     * @param peer The address of the peer
+     * @param hello The ClientHello of the peer
+     * @return The engine, in server mode.
+     * @throws IOException if the engine cannot be created, or the ClientHello is not acceptable
+     */
+    default SSLEngine createEngine(InetSocketAddress peer, ClientHello hello) throws IOException {
+        return createEngine(peer);
+    }
+
+    /**
+     * Called when the handshake of a channel using an engine of this factory is complete.
+     *
+     * @param channel The channel
+     */
+    default void onHandshake(SSLChannel channel) {
+    }
+
+    static EngineFactory server(SSLContext context) {
+        return peer -> {
+            SSLEngine engine = context.createSSLEngine();
+            engine.setUseClientMode(false);
+            return engine;
+        };
+    }
+
+    /**
+     * Get a factory of client engines, whose peer host and port are those the connection was opened to, so that
+     * the context can resume sessions with the same peer.
+     *
+     * @param context The context of the engines
+     * @return The factory
+     */
+    static EngineFactory client(SSLContext context) {
+        return peer -> {
+            SSLEngine engine = context.createSSLEngine(peer.getHostString(), peer.getPort());
+            engine.setUseClientMode(true);
+            return engine;
+        };
+    }
+}
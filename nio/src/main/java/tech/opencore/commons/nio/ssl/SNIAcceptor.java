@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLHandshakeException;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferPool;
+
+/**
+ * Accepts TLS connections for many host names, choosing the context of each connection by the server name
+ * indication of its ClientHello.
+ *
+ * The contexts are kept in an immutable map replaced as a whole when it changes, so that choosing a context is a
+ * plain map read without locking, and certificates can be added, removed or renewed while connections are
+ * accepted. A name is matched exactly first, and then by a wildcard name such as <code>*.example.com</code>
+ * covering a single label. Clients sending no server name, or a name with no context, get the default context,
+ * and are refused if there is none.
+ *
+ * The acceptor is an <code>EngineFactory</code> for the <code>Reactor</code>, and can also accept the connections
+ * of other servers with <code>accept</code>.
+ *
+ * @author Eric Boukobza
+ */
+public class SNIAcceptor implements EngineFactory {
+    private static final Counter UNKNOWN_NAMES = Metrics.counter("nio.ssl.sni.unknown");
+
+    private final AtomicReference<Map<String, SSLContext>> contexts = new AtomicReference<>(Collections.emptyMap());
+    private volatile SSLContext defaultContext;
+
+    /**
+     * Create an acceptor.
+     *
+     * @param defaultContext The context of the clients sending no known server name, or null to refuse them.
+     */
+    public SNIAcceptor(SSLContext defaultContext) {
+        this.defaultContext = defaultContext;
+    }
+
+    public SNIAcceptor(SSLContext defaultContext, Map<String, SSLContext> contexts) {
+        this(defaultContext);
+        setContexts(contexts);
+    }
+
+    /**
+     * Replace all the contexts.
+     *
+     * @param contexts The contexts by host name, or wildcard name.
+     */
+    public void setContexts(Map<String, SSLContext> contexts) {
+        Map<String, SSLContext> copy = new HashMap<>(contexts.size() * 2);
+        contexts.forEach((name, context) -> copy.put(name.toLowerCase(Locale.ROOT), context));
+        this.contexts.set(Collections.unmodifiableMap(copy));
+    }
+
+    public Map<String, SSLContext> getContexts() {
+        return contexts.get();
+    }
+
+    /**
+     * Add or replace the context of a host name.
+     *
+     * @param name The host name, or a wildcard name
+     * @param context The context
+     */
+    public void put(String name, SSLContext context) {
+        update(map -> {
+            map.put(name.toLowerCase(Locale.ROOT), context);
+            return map;
+        });
+    }
+
+    /**
+     * Remove the context of a host name.
+     *
+     * @param name The host name, or a wildcard name
+     * @return The context removed, or null if there was none.
+     */
+    public SSLContext remove(String name) {
+        SSLContext[] removed = new SSLContext[1];
+        update(map -> {
+            removed[0] = map.remove(name.toLowerCase(Locale.ROOT));
+            return map;
+        });
+        return removed[0];
+    }
+
+    private void update(UnaryOperator<Map<String, SSLContext>> change) {
+        contexts.updateAndGet(map -> Collections.unmodifiableMap(change.apply(new HashMap<>(map))));
+    }
+
+    public SSLContext getDefaultContext() {
+        return defaultContext;
+    }
+
+    public void setDefaultContext(SSLContext defaultContext) {
+        this.defaultContext = defaultContext;
+    }
+
+    /**
+     * Get the context of a host name.
+     *
+     * @param name The host name, in lower case, or null.
+     * @return The context of the name, or of its wildcard name, or else the default context, null if there is
+     * none.
+     */
+    public SSLContext select(String name) {
+        if (name != null) {
+            Map<String, SSLContext> map = contexts.get();
+            SSLContext context = map.get(name);
+            int dot = name.indexOf('.');
+            if (context == null && dot > 0) {
+                context = map.get("*" + name.substring(dot));
+            }
+            if (context != null) {
+                return context;
+            }
+            UNKNOWN_NAMES.increment();
+        }
+        return defaultContext;
+    }
+
+    @Override
+    public boolean needsClientHello() {
+        return true;
+    }
+
+    /**
+     * Create an engine of the default context, for a client whose ClientHello is not known.
+     */
+    @Override
+    public SSLEngine createEngine(InetSocketAddress peer) throws IOException {
+        return createEngine((String) null);
+    }
+
+    @Override
+    public SSLEngine createEngine(InetSocketAddress peer, ClientHello hello) throws IOException {
+        return createEngine(hello.getServerName());
+    }
+
+    private SSLEngine createEngine(String name) throws SSLHandshakeException {
+        SSLContext context = select(name);
+        if (context == null) {
+            throw new SSLHandshakeException("No certificate for " + (name == null ? "clients without server name" : name));
+        }
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        return engine;
+    }
+
+    /**
+     * Accept a connection, reading its ClientHello as far as it is available without blocking if the channel
+     * does not block, and creating its TLS channel once it is complete.
+     *
+     * @param channel The network channel of the connection
+     * @param received The buffer receiving the ClientHello, in write mode, kept between the calls for the same
+     * connection. Its capacity must be at least <code>ClientHello.MAX_LENGTH</code>, and it can be reused once the
+     * channel is returned.
+     * @param executor The executor of the delegated tasks of the engine, or null to run them in the calling thread.
+     * @return The TLS channel, whose handshake goes on with the ClientHello received, or null if the ClientHello
+     * is not complete yet.
+     * @throws IOException if the channel fails, or the ClientHello is invalid or has no context
+     */
+    public SSLChannel accept(ByteChannel channel, ByteBuffer received, Executor executor) throws IOException {
+        ClientHello hello = ClientHello.read(channel, received);
+        if (hello == null) {
+            return null;
+        }
+
+        InetSocketAddress peer = null;
+        if (channel instanceof SocketChannel) {
+            peer = (InetSocketAddress) ((SocketChannel) channel).getRemoteAddress();
+        }
+        SSLChannel result;
+        try {
+            result = new SSLChannel(channel, createEngine(peer, hello), executor, BufferPool.getDefault());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        received.flip();
+        result.unread(received);
+        received.clear();
+        return result;
+    }
+}
@@ -16,94 +16,793 @@
 package tech.opencore.commons.nio.ssl;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SocketChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Histogram;
+import tech.opencore.commons.metrics.Metrics;
+import tech.opencore.commons.nio.BufferPool;
 
 /**
+ * A TLS channel over a network channel, which may be blocking or non-blocking.
  *
- * @author Eroc Boukobza
+ * Over a non-blocking channel, no method waits for the network: <code>read</code> and <code>write</code> return 0
+ * when they cannot progress, and <code>read</code> returns -1 at the end of the stream. Partial TLS records are
+ * buffered until the rest arrives, and the ciphertext the network did not accept is kept until
+ * <code>flush()</code>, which <code>write</code> calls before encrypting anything new. <code>read</code> also pushes
+ * it but goes on reading when the network does not accept it, as the peer may be waiting for this side to read
+ * before it reads itself. Decrypted data that did not fit the caller's buffer is kept for the next
+ * <code>read</code>, so <code>hasBufferedInput()</code> must be checked before waiting for the network to be
+ * readable.
+ *
+ * Over a blocking channel, the channel is in blocking mode: the methods wait in the network channel rather than
+ * return early, and wait for the delegated tasks running in the executor by parking the calling thread, so that
+ * <code>isHandshaking</code> completes the handshake, <code>read</code> returns at least one byte unless the stream
+ * ends, and <code>write</code> consumes all the data. Nothing holds a monitor while waiting, so a channel can be
+ * served by a virtual thread without pinning its carrier thread.
+ *
+ * The buffers of the channel are borrowed from a <code>BufferPool</code> while they hold data and given back as soon
+ * as they are empty, so an idle connection holds no buffer.
+ *
+ * A channel is not thread safe, and must not be read and written concurrently: reads write the pending ciphertext
+ * and the answers to handshake messages, writes read the handshake messages of the peer, and both give back the
+ * idle buffers of either direction to the shared pool. Reading and writing from different threads requires the
+ * callers to serialize the calls.
+ *
+ * @author Eric Boukobza
  */
-public class SSLChannel implements ByteChannel {
+public class SSLChannel implements ByteChannel, GatheringByteChannel, ScatteringByteChannel {
+    private static final Counter BYTES_READ = Metrics.counter("nio.ssl.bytes.read");
+    private static final Counter BYTES_WRITTEN = Metrics.counter("nio.ssl.bytes.written");
+    private static final Counter HANDSHAKES = Metrics.counter("nio.ssl.handshakes");
+    private static final Histogram HANDSHAKE_TIME = Metrics.histogram("nio.ssl.handshake");
+
     public static final ByteBuffer emptyBuffer = ByteBuffer.allocate(0);
+    private static final ByteBuffer[] EMPTY = {emptyBuffer};
+    /**
+     * The number of full records that <code>encryptedOutput</code> holds at least, to write them with one call. The
+     * pool rounds 4 records up to 96 KB, and records are wrapped as long as one more fits, so 5 are written.
+     */
+    private static final int RECORDS_PER_WRITE = 4;
+    /**
+     * The maximum length of the data of a TLS record.
+     */
+    private static final int MAX_RECORD_DATA = 16384;
+    /**
+     * The maximum length of the regions of files mapped by <code>transferFrom</code>.
+     */
+    private static final int MAPPED_REGION = 4 << 20;
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
     private Executor executor = null;
     private SSLEngine sslEngine;
     private ByteChannel networkChannel;
-    private ByteBuffer encryptedInput = ByteBuffer.allocate(65536);
-    private ByteBuffer encryptedOutput = ByteBuffer.allocate(65536);
+    private final BufferPool pool;
+    /**
+     * The ciphertext read and not unwrapped yet, in write mode, or null if none.
+     */
+    private ByteBuffer encryptedInput;
+    /**
+     * The ciphertext wrapped and not written yet, in read mode, or null if none.
+     */
+    private ByteBuffer encryptedOutput;
+    /**
+     * The data unwrapped and not read yet, in read mode, or null if none.
+     */
+    private ByteBuffer clearInput;
+    /**
+     * The data written and not wrapped yet with write buffering, in write mode, or null if none.
+     */
+    private ByteBuffer plainOutput;
+    private boolean buffering = false;
+    /**
+     * The region of a file mapped by the last <code>transferFrom</code>, or null if none.
+     */
+    private MappedByteBuffer mapped;
+    private FileChannel mappedFile;
+    private long mappedPosition;
+    private long maxWriteDelay = TimeUnit.MILLISECONDS.toNanos(1);
+    private long bufferedSince;
+    private final ByteBuffer[] singleInput = new ByteBuffer[1];
+    private final ByteBuffer[] singleOutput = new ByteBuffer[1];
+    private final ByteBuffer[] bufferedOutput = new ByteBuffer[1];
+    private volatile CompletableFuture<Void> tasks = DONE;
+    private boolean blocking;
+    private boolean started = false;
+    private boolean handshaking = false;
+    private boolean inputClosed = false;
+    private long handshakeStart;
+    private final SessionResumption resumption = new SessionResumption();
 
     public SSLChannel(ByteChannel channel) throws NoSuchAlgorithmException, SSLException {
         this(channel, null, null);
     }
     
     public SSLChannel(ByteChannel channel, SSLEngine engine, Executor executor) throws NoSuchAlgorithmException, SSLException {
+        this(channel, engine, executor, BufferPool.getDefault());
+    }
+
+    /**
+     * Create a TLS channel.
+     *
+     * @param channel The network channel
+     * @param engine The engine, or null for a client engine of the default context. The default engine is created
+     * for the peer of the channel if it is a connected socket channel, so that its session can be resumed.
+     * @param executor The executor of the delegated tasks of the engine, or null to run them in the calling thread.
+     * @param pool The pool of the buffers of the channel
+     * @throws NoSuchAlgorithmException if there is no default context
+     * @throws SSLException if the engine cannot be created
+     */
+
+    public SSLChannel(ByteChannel channel, SSLEngine engine, Executor executor, BufferPool pool) throws NoSuchAlgorithmException, SSLException {
         this.networkChannel = channel;
         this.sslEngine = engine;
         this.executor = executor;
+        this.pool = pool;
+        this.blocking = channel instanceof SelectableChannel && ((SelectableChannel) channel).isBlocking();
         
         if (sslEngine == null) {
-            sslEngine = SSLContext.getDefault().createSSLEngine();
+            InetSocketAddress peer = null;
+            if (channel instanceof SocketChannel) {
+                try {
+                    peer = (InetSocketAddress) ((SocketChannel) channel).getRemoteAddress();
+                } catch (IOException e) {
+                    // Not connected
+                }
+            }
+
+            if (peer == null) {
+                sslEngine = SSLContext.getDefault().createSSLEngine();
+            } else {
+                sslEngine = SSLContext.getDefault().createSSLEngine(peer.getHostString(), peer.getPort());
+            }
             sslEngine.setUseClientMode(true);
         }
     }
     
+    /**
+     * Give the channel ciphertext read from the network channel before it was created, such as a ClientHello
+     * inspected to choose the engine. It is unwrapped before what is read from the network channel.
+     *
+     * @param src The ciphertext
+     * @throws IllegalStateException if the channel already read ciphertext
+     */
+    public void unread(ByteBuffer src) {
+        if (encryptedInput != null && encryptedInput.position() > 0) {
+            throw new IllegalStateException("Ciphertext already read");
+        }
+
+        int capacity = Math.max(sslEngine.getSession().getPacketBufferSize(), src.remaining());
+        if (encryptedInput != null && encryptedInput.capacity() < capacity) {
+            pool.release(encryptedInput);
+            encryptedInput = null;
+        }
+        if (encryptedInput == null) {
+            encryptedInput = pool.acquire(capacity);
+        }
+        encryptedInput.put(src);
+    }
+
     public SSLEngine getSSLEngine() {
         return sslEngine;
     }
-    
+
+    /**
+     * Set whether the channel waits rather than return early, which is the case by default over a blocking
+     * selectable channel. The network channel must block when it is set.
+     *
+     * @param blocking true for the blocking mode
+     */
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Advance the handshake as far as possible without blocking, or complete it in blocking mode. The handshake is
+     * started by the first call if it was not started on the engine.
+     *
+     * @return true if the handshake is still in progress, false once it is complete.
+     * @throws IOException if the handshake fails or the network channel is closed before it completes
+     */
     public boolean isHandshaking() throws IOException {
-        System.out.println("HS status: " + sslEngine.getHandshakeStatus());
-        switch (sslEngine.getHandshakeStatus()) {
-            case FINISHED:
+        try {
+            return handshake();
+        } finally {
+            releaseIdle();
+        }
+    }
+
+    /**
+     * Advance the handshake, then write the pending ciphertext.
+     *
+     * @return true if the handshake is in progress or its last messages are still pending
+     */
+    private boolean handshake() throws IOException {
+        return advanceHandshake() || !flushOutput();
+    }
+
+    /**
+     * Advance the handshake as far as possible without blocking, or complete it in blocking mode.
+     *
+     * @return true while the engine is handshaking
+     */
+    private boolean advanceHandshake() throws IOException {
+        if (!started) {
+            started = true;
+            HandshakeStatus status = sslEngine.getHandshakeStatus();
+            if (status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED) {
+                sslEngine.beginHandshake();
+            }
+        }
+
+        while (true) {
+            HandshakeStatus status = sslEngine.getHandshakeStatus();
+            if (status == HandshakeStatus.FINISHED || status == HandshakeStatus.NOT_HANDSHAKING) {
+                if (handshaking) {
+                    handshaking = false;
+                    HANDSHAKES.increment();
+                    HANDSHAKE_TIME.stopTimer(handshakeStart);
+                }
                 return false;
-            case NEED_TASK:
-                Runnable task;
-                while ((task = sslEngine.getDelegatedTask()) != null) {
-                    if (executor == null) {
-                        task.run();
-                    } else {
-                        executor.execute(task);
+            } else if (!handshaking) {
+                handshaking = true;
+                handshakeStart = HANDSHAKE_TIME.startTimer();
+                resumption.reset();
+            }
+
+            switch (status) {
+                case NEED_TASK:
+                    if (!runTasks()) {
+                        if (!blocking) {
+                            return true;
+                        }
+                        // Parks the thread, which unmounts a virtual thread
+                        tasks.join();
                     }
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (unwrap(null, 0, 0) < 0) {
+                        if (inputClosed) {
+                            throw new SSLHandshakeException("Connection closed during handshake");
+                        }
+                        return true;
+                    }
+                    break;
+                case NEED_WRAP:
+                    if (!wrap(EMPTY, 0, 1)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Check if the session of the last handshake was resumed from a previous connection rather than negotiated
+     * with a full handshake: with TLS 1.2 the server answered with the session id offered by the client, and with
+     * TLS 1.3 it accepted a pre-shared key of the client.
+     *
+     * @return true if the handshake resumed a session
+     */
+    public boolean isSessionResumed() {
+        return resumption.isResumed();
+    }
+
+    /**
+     * Run the delegated tasks of the engine, in the executor if there is one.
+     *
+     * @return true if the tasks are done, false if they are still running in the executor.
+     */
+    private boolean runTasks() {
+        if (!tasks.isDone()) {
+            return false;
+        }
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        Runnable task;
+        while ((task = sslEngine.getDelegatedTask()) != null) {
+            if (executor == null) {
+                task.run();
+            } else {
+                running.add(CompletableFuture.runAsync(task, executor));
+            }
+        }
+
+        if (!running.isEmpty()) {
+            // A failed task is reported by the engine on the next step of the handshake
+            tasks = CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).handle((result, error) -> null);
+        }
+        return tasks.isDone();
+    }
+
+    /**
+     * Get the delegated tasks of the engine running in the executor. While they run, <code>isHandshaking</code>
+     * returns true without doing anything unless in blocking mode, so the handshake should be resumed once they are
+     * done rather than polled.
+     *
+     * @return A future completed when the tasks are done, whether they succeed or not. It is already completed if
+     * no task is running.
+     */
+    public CompletableFuture<Void> getDelegatedTasks() {
+        return tasks;
+    }
+
+    /**
+     * Unwrap one record from the buffered ciphertext, reading from the network when the record is incomplete. The
+     * record is unwrapped directly into the given buffers when they have room for a full record, which saves a
+     * copy, and into <code>clearInput</code> otherwise.
+     *
+     * @param dsts The buffers to unwrap into, or null to unwrap into <code>clearInput</code>
+     * @return The number of bytes unwrapped into <code>dsts</code>, 0 if the record was unwrapped into
+     * <code>clearInput</code> or held no application data, or -1 if more ciphertext is needed and none is
+     * available, or if the inbound side is closed.
+     */
+    private long unwrap(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        while (!sslEngine.isInboundDone()) {
+            SSLSession session = sslEngine.getSession();
+            if (encryptedInput == null) {
+                encryptedInput = pool.acquire(session.getPacketBufferSize());
+            }
+            boolean direct = dsts != null && remaining(dsts, offset, length) >= session.getApplicationBufferSize();
+            if (!direct && clearInput == null) {
+                clearInput = pool.acquire(session.getApplicationBufferSize());
+                clearInput.flip();
+            }
+
+            encryptedInput.flip();
+            if (handshaking && resumption.isPending()) {
+                resumption.inspect(encryptedInput);
+            }
+            SSLEngineResult result;
+            if (direct) {
+                try {
+                    result = sslEngine.unwrap(encryptedInput, dsts, offset, length);
+                } finally {
+                    encryptedInput.compact();
                 }
-                
-                return true;
-            case NEED_UNWRAP:
-            case NEED_UNWRAP_AGAIN:
-                networkChannel.read(encryptedInput);
-                encryptedInput.flip();
-                sslEngine.unwrap(encryptedInput, emptyBuffer);
-                encryptedInput.compact();
-                return true;
-            case NEED_WRAP:
-                sslEngine.wrap(emptyBuffer, encryptedOutput);
+            } else {
+                clearInput.compact();
+                try {
+                    result = sslEngine.unwrap(encryptedInput, clearInput);
+                } finally {
+                    clearInput.flip();
+                    encryptedInput.compact();
+                }
+            }
+
+            switch (result.getStatus()) {
+                case OK:
+                    if (direct) {
+                        BYTES_READ.add(result.bytesProduced());
+                        return result.bytesProduced();
+                    }
+                    return 0;
+                case CLOSED:
+                    inputClosed = true;
+                    if (sslEngine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                        // Answer the close_notify of the peer
+                        wrap(EMPTY, 0, 1);
+                    }
+                    return -1;
+                case BUFFER_OVERFLOW:
+                    if (direct) {
+                        dsts = null;
+                    } else {
+                        // Keep what is already decrypted and make room for a full record
+                        clearInput = grow(clearInput, clearInput.remaining() + session.getApplicationBufferSize());
+                    }
+                    break;
+                case BUFFER_UNDERFLOW:
+                    if (encryptedInput.capacity() < session.getPacketBufferSize()) {
+                        encryptedInput.flip();
+                        encryptedInput = grow(encryptedInput, session.getPacketBufferSize());
+                        encryptedInput.compact();
+                    }
+                    if (!fill()) {
+                        return -1;
+                    }
+                    break;
+            }
+        }
+
+        inputClosed = true;
+        return -1;
+    }
+
+    /**
+     * Read ciphertext from the network.
+     *
+     * @return true if some ciphertext was read
+     */
+    private boolean fill() throws IOException {
+        if (inputClosed) {
+            return false;
+        }
+
+        int read = networkChannel.read(encryptedInput);
+        if (read < 0) {
+            inputClosed = true;
+            try {
+                sslEngine.closeInbound();
+            } catch (SSLException e) {
+                // The peer closed the connection without close_notify
+            }
+            return false;
+        }
+        return read > 0;
+    }
+
+    /**
+     * Wrap data into <code>encryptedOutput</code> and write it to the network. The engine fills each record from as
+     * many buffers as needed, and as many records as fit in <code>encryptedOutput</code> are written at once. Nothing
+     * is wrapped while previous ciphertext is pending.
+     *
+     * @return true if the data was wrapped, false if the network did not accept the pending ciphertext.
+     */
+    private boolean wrap(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (!flushOutput()) {
+            return false;
+        }
+
+        int packetSize = sslEngine.getSession().getPacketBufferSize();
+        if (encryptedOutput == null) {
+            encryptedOutput = pool.acquire(packetSize * RECORDS_PER_WRITE);
+            encryptedOutput.flip();
+        }
+
+        while (true) {
+            int produced = encryptedOutput.remaining();
+            encryptedOutput.compact();
+            SSLEngineResult result;
+            try {
+                result = sslEngine.wrap(srcs, offset, length, encryptedOutput);
+            } finally {
                 encryptedOutput.flip();
-                networkChannel.write(encryptedOutput);
-                encryptedOutput.compact();
+            }
+            if (handshaking && resumption.isPending() && result.bytesProduced() > 0) {
+                ByteBuffer records = encryptedOutput.duplicate();
+                records.position(produced);
+                resumption.inspect(records);
+            }
+
+            switch (result.getStatus()) {
+                case OK:
+                    BYTES_WRITTEN.add(result.bytesConsumed());
+                    break;
+                case CLOSED:
+                    flushOutput();
+                    if (result.bytesProduced() == 0 && remaining(srcs, offset, length) > 0) {
+                        throw new ClosedChannelException();
+                    }
+                    return true;
+                case BUFFER_OVERFLOW:
+                    if (encryptedOutput.hasRemaining()) {
+                        // Write the records wrapped so far
+                        flushOutput();
+                        return true;
+                    }
+                    int capacity = Math.max(encryptedOutput.capacity() * 2, packetSize);
+                    pool.release(encryptedOutput);
+                    encryptedOutput = pool.acquire(capacity);
+                    encryptedOutput.flip();
+                    continue;
+                default:
+                    throw new SSLException("Unexpected wrap status " + result.getStatus());
+            }
+
+            if (remaining(srcs, offset, length) == 0 || sslEngine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING
+                    || encryptedOutput.capacity() - encryptedOutput.remaining() < packetSize) {
+                flushOutput();
                 return true;
-            case NOT_HANDSHAKING:
+            }
+        }
+    }
+
+    /**
+     * Copy data into <code>plainOutput</code>, wrapping it whenever it is full, and when the write delay is over.
+     *
+     * @return The number of bytes left in <code>srcs</code>
+     */
+    private long buffer(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (plainOutput == null) {
+            plainOutput = pool.acquire(MAX_RECORD_DATA);
+            plainOutput.limit(MAX_RECORD_DATA);
+        }
+        if (plainOutput.position() == 0) {
+            bufferedSince = System.nanoTime();
+        }
+
+        for (int i = offset ; i < offset + length ; i++) {
+            ByteBuffer src = srcs[i];
+            while (src.hasRemaining()) {
+                if (!plainOutput.hasRemaining()) {
+                    if (!wrapBuffered()) {
+                        return remaining(srcs, offset, length);
+                    }
+                    bufferedSince = System.nanoTime();
+                }
+
+                int count = Math.min(src.remaining(), plainOutput.remaining());
+                int srcLimit = src.limit();
+                src.limit(src.position() + count);
+                plainOutput.put(src);
+                src.limit(srcLimit);
+            }
+        }
+
+        if (!buffering || System.nanoTime() - bufferedSince >= maxWriteDelay) {
+            wrapBuffered();
+        }
+        return 0;
+    }
+
+    private static long remaining(ByteBuffer[] buffers, int offset, int length) {
+        long remaining = 0;
+        for (int i = offset ; i < offset + length ; i++) {
+            remaining += buffers[i].remaining();
+        }
+        return remaining;
+    }
+
+    /**
+     * Move the content of a buffer in read mode to a larger buffer, giving back the old one.
+     */
+    private ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer result = pool.acquire(Math.max(capacity, buffer.capacity()));
+        result.put(buffer);
+        result.flip();
+        pool.release(buffer);
+        return result;
+    }
+
+    /**
+     * Give back the buffers holding no data.
+     */
+    private void releaseIdle() {
+        if (encryptedInput != null && encryptedInput.position() == 0) {
+            pool.release(encryptedInput);
+            encryptedInput = null;
+        }
+        if (clearInput != null && !clearInput.hasRemaining()) {
+            pool.release(clearInput);
+            clearInput = null;
+        }
+        if (encryptedOutput != null && !encryptedOutput.hasRemaining()) {
+            pool.release(encryptedOutput);
+            encryptedOutput = null;
+        }
+        if (plainOutput != null && plainOutput.position() == 0) {
+            pool.release(plainOutput);
+            plainOutput = null;
+        }
+    }
+
+    /**
+     * Wrap the buffered data and write the pending ciphertext to the network, as far as the network accepts it
+     * without blocking.
+     *
+     * @return true if nothing is left to write
+     * @throws IOException if the network channel fails
+     */
+    public boolean flush() throws IOException {
+        try {
+            if (plainOutput != null && plainOutput.position() > 0 && !wrapBuffered()) {
                 return false;
+            }
+            return flushOutput();
+        } finally {
+            releaseIdle();
+        }
+    }
+
+    /**
+     * Write the pending ciphertext to the network.
+     *
+     * @return true if no ciphertext is pending
+     */
+    private boolean flushOutput() throws IOException {
+        if (encryptedOutput == null) {
+            return true;
+        }
+        while (encryptedOutput.hasRemaining()) {
+            if (networkChannel.write(encryptedOutput) == 0) {
+                return false;
+            }
+        }
+        pool.release(encryptedOutput);
+        encryptedOutput = null;
+        return true;
+    }
+
+    /**
+     * Wrap the buffered data into a record.
+     *
+     * @return true if the data was wrapped, false if the network did not accept the pending ciphertext.
+     */
+    private boolean wrapBuffered() throws IOException {
+        plainOutput.flip();
+        bufferedOutput[0] = plainOutput;
+        try {
+            return wrap(bufferedOutput, 0, 1);
+        } finally {
+            bufferedOutput[0] = null;
+            plainOutput.compact();
+            plainOutput.limit(Math.min(plainOutput.capacity(), MAX_RECORD_DATA));
+        }
+    }
+
+    /**
+     * Enable or disable write buffering. While enabled, writes smaller than a record are buffered until they fill a
+     * record, until <code>flush()</code>, or until a write comes after the maximum write delay, so that small
+     * messages share records and network writes. Disabling buffering does not flush the buffered data.
+     *
+     * @param buffering true to buffer writes
+     */
+    public void setWriteBuffering(boolean buffering) {
+        this.buffering = buffering;
+    }
+
+    public boolean isWriteBuffering() {
+        return buffering;
+    }
+
+    /**
+     * Set how long written data may stay buffered. The delay is checked by writes, so a caller that may stop
+     * writing must also call <code>flush()</code> by <code>getWriteDeadline()</code>.
+     *
+     * @param delay The maximum delay, 1 millisecond by default.
+     * @param unit The unit of the delay
+     */
+    public void setMaxWriteDelay(long delay, TimeUnit unit) {
+        this.maxWriteDelay = unit.toNanos(delay);
+    }
+
+    /**
+     * Get the time by which the buffered data should be flushed.
+     *
+     * @return The deadline, in the time base of <code>System.nanoTime()</code>, meaningful only if
+     * <code>hasBufferedOutput()</code>.
+     */
+    public long getWriteDeadline() {
+        return bufferedSince + maxWriteDelay;
+    }
+
+    /**
+     * Check if written data is buffered and not wrapped yet.
+     *
+     * @return true if data is buffered
+     */
+    public boolean hasBufferedOutput() {
+        return plainOutput != null && plainOutput.position() > 0;
+    }
+
+    /**
+     * Check if ciphertext is waiting for the network to accept it. When it is, the network channel must be
+     * waited on for writing and <code>flush()</code> called again.
+     *
+     * @return true if ciphertext is pending
+     */
+    public boolean hasPendingOutput() {
+        return encryptedOutput != null && encryptedOutput.hasRemaining();
+    }
+
+    /**
+     * Check if a read could return data without reading from the network, because decrypted data or a complete
+     * TLS record is buffered. A selector does not report such a channel as readable.
+     *
+     * @return true if input is buffered
+     */
+    public boolean hasBufferedInput() {
+        if (clearInput != null && clearInput.hasRemaining()) {
+            return true;
+        }
+        if (encryptedInput == null) {
+            return false;
+        }
+
+        // A record is a 5 bytes header, ending with the length of the record, and its content
+        int buffered = encryptedInput.position();
+        return buffered >= 5 && buffered >= 5 + (((encryptedInput.get(3) & 0xff) << 8) | (encryptedInput.get(4) & 0xff));
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        singleInput[0] = dst;
+        try {
+            return (int) read(singleInput, 0, 1);
+        } finally {
+            singleInput[0] = null;
         }
-        
-        return false;
     }
 
     @Override
-    public int read(ByteBuffer clearInput) throws IOException {
-        if (!isHandshaking()) {
-            if (networkChannel.read(encryptedInput) > 0) {
-                encryptedInput.flip();
-                SSLEngineResult result = sslEngine.unwrap(encryptedInput, clearInput);
-                encryptedInput.compact();
-                return result.bytesProduced();
+    public long read(ByteBuffer[] dsts) throws IOException {
+        return read(dsts, 0, dsts.length);
+    }
+
+    /**
+     * Read into a sequence of buffers. When the buffers have room for a full record, it is unwrapped directly into
+     * them.
+     */
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        try {
+            if (clearInput == null || !clearInput.hasRemaining()) {
+                // Pending ciphertext does not hold back reading, the peer may itself be waiting for this side to read
+                flushOutput();
+                if (advanceHandshake()) {
+                    return inputClosed ? -1 : 0;
+                }
+
+                while (clearInput == null || !clearInput.hasRemaining()) {
+                    long unwrapped = unwrap(dsts, offset, length);
+                    if (unwrapped < 0) {
+                        return inputClosed ? -1 : 0;
+                    }
+                    if (sslEngine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING && advanceHandshake()) {
+                        // Post-handshake messages or a renegotiation, to be continued by the next call
+                        return unwrapped + transfer(dsts, offset, length);
+                    }
+                    if (unwrapped > 0) {
+                        return unwrapped;
+                    }
+                }
             }
+
+            return transfer(dsts, offset, length);
+        } finally {
+            releaseIdle();
         }
-        
-        return 0;
+    }
+
+    private long transfer(ByteBuffer[] dsts, int offset, int length) {
+        if (clearInput == null) {
+            return 0;
+        }
+
+        long count = 0;
+        for (int i = offset ; i < offset + length && clearInput.hasRemaining() ; i++) {
+            ByteBuffer dst = dsts[i];
+            int chunk = Math.min(dst.remaining(), clearInput.remaining());
+            if (chunk == clearInput.remaining()) {
+                dst.put(clearInput);
+            } else {
+                int limit = clearInput.limit();
+                clearInput.limit(clearInput.position() + chunk);
+                dst.put(clearInput);
+                clearInput.limit(limit);
+            }
+            count += chunk;
+        }
+        BYTES_READ.add(count);
+        return count;
     }
 
     @Override
@@ -111,23 +810,134 @@ public class SSLChannel implements ByteChannel {
         return networkChannel.isOpen();
     }
 
+    /**
+     * Send close_notify, as far as the network accepts it without blocking, and close the network channel.
+     *
+     * @throws IOException if the network channel fails
+     */
     @Override
     public void close() throws IOException {
-        sslEngine.closeInbound();
-        sslEngine.closeOutbound();
-        networkChannel.close();
+        try {
+            if (networkChannel.isOpen() && !sslEngine.isOutboundDone()) {
+                if (hasBufferedOutput()) {
+                    flush();
+                }
+                sslEngine.closeOutbound();
+                while (!sslEngine.isOutboundDone() && wrap(EMPTY, 0, 1)) {
+                    // Wrap close_notify
+                }
+                flushOutput();
+            }
+        } finally {
+            networkChannel.close();
+            for (ByteBuffer buffer : new ByteBuffer[] {encryptedInput, encryptedOutput, clearInput, plainOutput}) {
+                if (buffer != null) {
+                    pool.release(buffer);
+                }
+            }
+            encryptedInput = null;
+            encryptedOutput = null;
+            clearInput = null;
+            plainOutput = null;
+            mapped = null;
+            mappedFile = null;
+        }
+    }
+
+    /**
+     * Write a region of a file, as far as the network accepts it without blocking. The file is mapped by regions of
+     * up to 4 MB, which the engine encrypts straight from the mapping, so that the file is not copied to the heap.
+     * The region mapped is kept while the next calls continue the transfer within it, and the file must not be
+     * truncated meanwhile.
+     *
+     * @param file The file
+     * @param position The position in the file of the first byte to write
+     * @param count The maximum number of bytes to write
+     * @return The number of bytes of the file consumed, possibly fewer than requested even in blocking mode, and 0 if
+     * the position is at or beyond the end of the file.
+     * @throws IOException if the file cannot be mapped, the channel is closed or the network fails
+     */
+    public long transferFrom(FileChannel file, long position, long count) throws IOException {
+        long size = file.size();
+        if (position >= size || count <= 0) {
+            return 0;
+        }
+
+        if (mapped == null || mappedFile != file || position < mappedPosition || position >= mappedPosition + mapped.capacity()) {
+            mapped = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION, size - position));
+            mappedFile = file;
+            mappedPosition = position;
+        }
+
+        ByteBuffer region = mapped.duplicate();
+        int start = (int) (position - mappedPosition);
+        region.limit((int) Math.min(region.capacity(), start + count));
+        region.position(start);
+        int written = write(region);
+        if (!region.hasRemaining() && region.limit() == region.capacity()) {
+            // The region is transferred, and unmapped once collected
+            mapped = null;
+            mappedFile = null;
+        }
+        return written;
     }
 
+    /**
+     * Write data, as far as the network accepts it without blocking.
+     *
+     * @param src The data to write
+     * @return The number of bytes consumed from <code>src</code>. The last of them may still be pending as
+     * ciphertext, see <code>hasPendingOutput()</code>.
+     * @throws IOException if the channel is closed or the network fails
+     */
     @Override
     public int write(ByteBuffer src) throws IOException {
-        if (!isHandshaking()) {
-            SSLEngineResult result = sslEngine.wrap(src, encryptedOutput);
-            encryptedOutput.flip();
-            networkChannel.write(encryptedOutput);
-            encryptedOutput.compact();
-            return result.bytesConsumed();
+        singleOutput[0] = src;
+        try {
+            return (int) write(singleOutput, 0, 1);
+        } finally {
+            singleOutput[0] = null;
+        }
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Write a sequence of buffers, as far as the network accepts it without blocking. The buffers are coalesced
+     * into full records, and several records are written to the network at once. With write buffering, what does
+     * not fill a record is kept for the next writes.
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (sslEngine.isOutboundDone()) {
+            throw new ClosedChannelException();
+        }
+
+        try {
+            if (handshake()) {
+                return 0;
+            }
+
+            long remaining = remaining(srcs, offset, length);
+            long left = remaining;
+            if (hasBufferedOutput() || (buffering && left < MAX_RECORD_DATA)) {
+                // Push the pending records before buffering more
+                flushOutput();
+                return remaining - buffer(srcs, offset, length);
+            }
+
+            while (left > 0 && wrap(srcs, offset, length)) {
+                left = remaining(srcs, offset, length);
+                if (hasPendingOutput()) {
+                    break;
+                }
+            }
+            return remaining - left;
+        } finally {
+            releaseIdle();
         }
-        
-        return 0;
     }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLSessionContext;
+import tech.opencore.commons.metrics.Counter;
+import tech.opencore.commons.metrics.Metrics;
+
+/**
+ * Opens client TLS connections able to resume their sessions.
+ *
+ * The engines are created for the host and port of the peer, which is what the client session cache of the
+ * context is keyed by, so that reconnecting to a peer resumes the session of the previous connection instead of
+ * paying a full handshake: with the session identifier in TLS 1.2, and with a session ticket in TLS 1.3. The
+ * tickets of TLS 1.3 are sent by the server after the handshake, and are only received by reading from the
+ * connection, so a connection closed without any read leaves no ticket to resume.
+ *
+ * The factory counts the handshakes of its connections and the resumed ones, which are also reported as the
+ * <code>nio.ssl.client.handshakes</code> and <code>nio.ssl.client.resumptions</code> metrics.
+ *
+ * @author Eric Boukobza
+ */
+public class SSLConnectionFactory implements EngineFactory {
+    private static final Counter HANDSHAKES = Metrics.counter("nio.ssl.client.handshakes");
+    private static final Counter RESUMPTIONS = Metrics.counter("nio.ssl.client.resumptions");
+    private static final long HANDSHAKE_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+
+    private final SSLContext context;
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder resumptions = new LongAdder();
+
+    public SSLConnectionFactory(SSLContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Create a factory, configuring the client session cache of the context. The cache belongs to the context, so
+     * this changes it for every user of the context, and for the whole process if it is
+     * <code>SSLContext.getDefault()</code>. Give the factory a context of its own to leave other connections
+     * unaffected.
+     *
+     * @param context The context of the connections
+     * @param cacheSize The maximum number of sessions cached, 0 for no limit.
+     * @param timeout The time in seconds after which a session cannot be resumed, 0 for no limit.
+     */
+    public SSLConnectionFactory(SSLContext context, int cacheSize, int timeout) {
+        this(context);
+        SSLSessionContext sessions = context.getClientSessionContext();
+        sessions.setSessionCacheSize(cacheSize);
+        sessions.setSessionTimeout(timeout);
+    }
+
+    /**
+     * Create a factory using the default context.
+     *
+     * @return The factory
+     * @throws NoSuchAlgorithmException if there is no default context
+     */
+    public static SSLConnectionFactory getDefault() throws NoSuchAlgorithmException {
+        return new SSLConnectionFactory(SSLContext.getDefault());
+    }
+
+    public SSLContext getContext() {
+        return context;
+    }
+
+    @Override
+    public SSLEngine createEngine(InetSocketAddress peer) {
+        SSLEngine engine = context.createSSLEngine(peer.getHostString(), peer.getPort());
+        engine.setUseClientMode(true);
+        return engine;
+    }
+
+    @Override
+    public void onHandshake(SSLChannel channel) {
+        handshakes.increment();
+        HANDSHAKES.increment();
+        if (channel.isSessionResumed()) {
+            resumptions.increment();
+            RESUMPTIONS.increment();
+        }
+    }
+
+    /**
+     * Connect to a peer and complete the handshake, blocking until it is done or for up to 30 seconds.
+     *
+     * @param peer The address of the peer
+     * @return The channel, over a blocking socket channel.
+     * @throws IOException if the connection or the handshake fails or times out
+     */
+    public SSLChannel connect(InetSocketAddress peer) throws IOException {
+        return connect(peer, HANDSHAKE_TIMEOUT, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Connect to a peer and complete the handshake, blocking until it is done. The connection and the handshake run
+     * over a non-blocking socket channel waited on with a selector, so that a peer that stops answering cannot
+     * block the caller beyond the timeout, and the channel is made blocking once connected.
+     *
+     * @param peer The address of the peer
+     * @param timeout The maximum time to connect and complete the handshake
+     * @param unit The unit of the timeout
+     * @return The channel, over a blocking socket channel.
+     * @throws SocketTimeoutException if the timeout expires first
+     * @throws IOException if the connection or the handshake fails
+     */
+    public SSLChannel connect(InetSocketAddress peer, long timeout, TimeUnit unit) throws IOException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        SocketChannel socket = SocketChannel.open();
+        try {
+            SSLChannel channel;
+            try (Selector selector = Selector.open()) {
+                socket.configureBlocking(false);
+                SelectionKey key = socket.register(selector, SelectionKey.OP_CONNECT);
+                if (!socket.connect(peer)) {
+                    while (!socket.finishConnect()) {
+                        await(selector, deadline, peer);
+                    }
+                }
+
+                channel = new SSLChannel(socket, createEngine(peer), null);
+                while (channel.isHandshaking()) {
+                    boolean wrap = channel.hasPendingOutput()
+                            || channel.getSSLEngine().getHandshakeStatus() == HandshakeStatus.NEED_WRAP;
+                    key.interestOps(wrap ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                    await(selector, deadline, peer);
+                }
+            }
+
+            // Closing the selector deregistered the socket
+            socket.configureBlocking(true);
+            channel.setBlocking(true);
+            onHandshake(channel);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        } catch (NoSuchAlgorithmException e) {
+            socket.close();
+            throw new IOException(e);
+        }
+    }
+
+    private static void await(Selector selector, long deadline, InetSocketAddress peer) throws IOException {
+        long left = deadline - System.nanoTime();
+        if (left <= 0) {
+            throw new SocketTimeoutException("TLS connection to " + peer + " timed out");
+        }
+        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+        selector.selectedKeys().clear();
+    }
+
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    public long getResumptions() {
+        return resumptions.sum();
+    }
+
+    /**
+     * Get the proportion of the handshakes that resumed a session.
+     *
+     * @return The resumption rate, between 0 and 1, or 0 if there was no handshake.
+     */
+    public double getResumptionRate() {
+        long count = handshakes.sum();
+        return count == 0 ? 0 : (double) resumptions.sum() / count;
+    }
+}
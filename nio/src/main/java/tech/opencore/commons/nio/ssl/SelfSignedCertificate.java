@@ -0,0 +1,262 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * A key pair and a self-signed certificate, generated in memory for tests and benchmarks.
+ *
+ * The certificate names its host in its subject and in its subject alternative names, with the loopback address.
+ * <code>createContext()</code> creates a context presenting the certificate and trusting it, so that the same
+ * context serves both ends of a loopback connection.
+ *
+ * @author Eric Boukobza
+ */
+public final class SelfSignedCertificate {
+    private static final int[] CN = {2, 5, 4, 3};
+    private static final int[] SUBJECT_ALT_NAME = {2, 5, 29, 17};
+    private static final int[] SHA256_WITH_ECDSA = {1, 2, 840, 10045, 4, 3, 2};
+    private static final int[] SHA256_WITH_RSA = {1, 2, 840, 113549, 1, 1, 11};
+    private static final char[] PASSWORD = new char[0];
+
+    private final PrivateKey privateKey;
+    private final X509Certificate certificate;
+
+    private SelfSignedCertificate(PrivateKey privateKey, X509Certificate certificate) {
+        this.privateKey = privateKey;
+        this.certificate = certificate;
+    }
+
+    /**
+     * Generate an EC P-256 key and its certificate, valid for a year.
+     *
+     * @param host The host name of the certificate
+     * @return The certificate
+     * @throws GeneralSecurityException if the key or the signature cannot be generated
+     */
+    public static SelfSignedCertificate generate(String host) throws GeneralSecurityException {
+        return generate(host, "EC", 365);
+    }
+
+    /**
+     * Generate a key and its certificate.
+     *
+     * @param host The host name of the certificate
+     * @param algorithm The key algorithm, <code>EC</code> for a P-256 key or <code>RSA</code> for a 2048 bits
+     * key.
+     * @param days The number of days the certificate is valid for
+     * @return The certificate
+     * @throws GeneralSecurityException if the key or the signature cannot be generated
+     */
+    public static SelfSignedCertificate generate(String host, String algorithm, int days) throws GeneralSecurityException {
+        boolean ec = "EC".equalsIgnoreCase(algorithm);
+        if (!ec && !"RSA".equalsIgnoreCase(algorithm)) {
+            throw new IllegalArgumentException("Unsupported key algorithm " + algorithm);
+        }
+
+        SecureRandom random = new SecureRandom();
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(ec ? "EC" : "RSA");
+        generator.initialize(ec ? 256 : 2048, random);
+        KeyPair keys = generator.generateKeyPair();
+
+        Der signatureAlgorithm = new Der();
+        signatureAlgorithm.oid(ec ? SHA256_WITH_ECDSA : SHA256_WITH_RSA);
+        if (!ec) {
+            signatureAlgorithm.write(0x05, new byte[0]);
+        }
+
+        Der name = new Der().sequence(new Der().set(new Der().sequence(new Der().oid(CN).utf8(host))));
+
+        long now = System.currentTimeMillis();
+        Der validity = new Der()
+                .time(new Date(now - TimeUnit.DAYS.toMillis(1)))
+                .time(new Date(now + TimeUnit.DAYS.toMillis(days)));
+
+        Der altNames = new Der()
+                .write(0x82, host.getBytes(StandardCharsets.US_ASCII))
+                .write(0x87, InetAddress.getLoopbackAddress().getAddress());
+        Der extensions = new Der().sequence(new Der()
+                .oid(SUBJECT_ALT_NAME)
+                .write(0x04, new Der().sequence(altNames).toByteArray()));
+
+        Der tbs = new Der()
+                .write(0xa0, new Der().integer(BigInteger.valueOf(2)).toByteArray())
+                .integer(new BigInteger(64, random))
+                .sequence(signatureAlgorithm)
+                .write(name.toByteArray())
+                .sequence(validity)
+                .write(name.toByteArray())
+                .write(keys.getPublic().getEncoded())
+                .write(0xa3, new Der().sequence(extensions).toByteArray());
+        byte[] tbsBytes = new Der().sequence(tbs).toByteArray();
+
+        Signature signer = Signature.getInstance(ec ? "SHA256withECDSA" : "SHA256withRSA");
+        signer.initSign(keys.getPrivate());
+        signer.update(tbsBytes);
+        byte[] signature = signer.sign();
+        byte[] bits = new byte[signature.length + 1];
+        System.arraycopy(signature, 0, bits, 1, signature.length);
+
+        Der certificate = new Der()
+                .write(tbsBytes)
+                .sequence(signatureAlgorithm)
+                .write(0x03, bits);
+        byte[] encoded = new Der().sequence(certificate).toByteArray();
+        X509Certificate x509 = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(encoded));
+        return new SelfSignedCertificate(keys.getPrivate(), x509);
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+
+    /**
+     * Create an in-memory key store holding the key, and the certificate as a trusted entry.
+     *
+     * @param password The password of the key
+     * @return The key store
+     * @throws GeneralSecurityException if the key store cannot be created
+     */
+    public KeyStore toKeyStore(char[] password) throws GeneralSecurityException {
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("key", privateKey, password, new Certificate[] {certificate});
+            keyStore.setCertificateEntry("trusted", certificate);
+            return keyStore;
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+    }
+
+    /**
+     * Create a context presenting this certificate and trusting only it.
+     *
+     * @return The context
+     * @throws GeneralSecurityException if the context cannot be created
+     */
+    public SSLContext createContext() throws GeneralSecurityException {
+        KeyStore keyStore = toKeyStore(PASSWORD);
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * A minimal DER encoder for the structures of a certificate.
+     */
+    private static final class Der {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Der write(byte[] encoded) {
+            out.write(encoded, 0, encoded.length);
+            return this;
+        }
+
+        Der write(int tag, byte[] content) {
+            out.write(tag);
+            int length = content.length;
+            if (length < 0x80) {
+                out.write(length);
+            } else {
+                int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+                out.write(0x80 | bytes);
+                for (int i = bytes - 1 ; i >= 0 ; i--) {
+                    out.write(length >>> (i * 8));
+                }
+            }
+            return write(content);
+        }
+
+        Der sequence(Der content) {
+            return write(0x30, content.toByteArray());
+        }
+
+        Der set(Der content) {
+            return write(0x31, content.toByteArray());
+        }
+
+        Der integer(BigInteger value) {
+            return write(0x02, value.toByteArray());
+        }
+
+        Der utf8(String value) {
+            return write(0x0c, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Der oid(int[] arcs) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            content.write(arcs[0] * 40 + arcs[1]);
+            for (int i = 2 ; i < arcs.length ; i++) {
+                int arc = arcs[i];
+                for (int shift = (31 - Integer.numberOfLeadingZeros(arc | 1)) / 7 * 7 ; shift > 0 ; shift -= 7) {
+                    content.write(0x80 | (arc >>> shift) & 0x7f);
+                }
+                content.write(arc & 0x7f);
+            }
+            return write(0x06, content.toByteArray());
+        }
+
+        /**
+         * Write a UTCTime before 2050 and a GeneralizedTime from 2050, as required by RFC 5280.
+         */
+        Der time(Date date) {
+            SimpleDateFormat year = new SimpleDateFormat("yyyy");
+            year.setTimeZone(TimeZone.getTimeZone("UTC"));
+            boolean utc = Integer.parseInt(year.format(date)) < 2050;
+            SimpleDateFormat format = new SimpleDateFormat(utc ? "yyMMddHHmmss'Z'" : "yyyyMMddHHmmss'Z'");
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return write(utc ? 0x17 : 0x18, format.format(date).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
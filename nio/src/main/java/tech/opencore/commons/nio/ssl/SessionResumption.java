@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tells whether a handshake resumed a session, from the hellos exchanged in clear at its start.
+ *
+ * A TLS 1.2 server resumes a session by answering the ClientHello with the session id it offers, and a TLS 1.3
+ * server by accepting one of its pre-shared keys, which the ServerHello acknowledges with the pre_shared_key
+ * extension. The hellos are read from the records as the engine produces or consumes them, whichever side the
+ * channel is.
+ *
+ * @author Eric Boukobza
+ */
+final class SessionResumption {
+    private static final int HANDSHAKE = 22;
+    private static final int CLIENT_HELLO = 1;
+    private static final int SERVER_HELLO = 2;
+    private static final int PRE_SHARED_KEY = 41;
+    private static final int SUPPORTED_VERSIONS = 43;
+    /**
+     * The random of a HelloRetryRequest, which is a ServerHello asking for another ClientHello.
+     */
+    private static final byte[] HELLO_RETRY_REQUEST = {
+        (byte) 0xcf, 0x21, (byte) 0xad, 0x74, (byte) 0xe5, (byte) 0x9a, 0x61, 0x11,
+        (byte) 0xbe, 0x1d, (byte) 0x8c, 0x02, 0x1e, 0x65, (byte) 0xb8, (byte) 0x91,
+        (byte) 0xc2, (byte) 0xa2, 0x11, 0x16, 0x7a, (byte) 0xbb, (byte) 0x8c, 0x5e,
+        0x07, (byte) 0x9e, 0x09, (byte) 0xe2, (byte) 0xc8, (byte) 0xa8, 0x33, (byte) 0x9c
+    };
+
+    private byte[] offeredId;
+    private boolean answered = false;
+    private boolean resumed = false;
+
+    /**
+     * Forget the previous handshake, as a new one starts.
+     */
+    void reset() {
+        offeredId = null;
+        answered = false;
+        resumed = false;
+    }
+
+    /**
+     * Check if the ServerHello of the handshake is still to be seen.
+     *
+     * @return true while records should be given to <code>inspect</code>
+     */
+    boolean isPending() {
+        return !answered;
+    }
+
+    boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Look for a hello at the start of records.
+     *
+     * @param records The records, in read mode, starting at their position. The buffer is not modified.
+     */
+    void inspect(ByteBuffer records) {
+        int position = records.position();
+        if (records.limit() - position < 9 || (records.get(position) & 0xff) != HANDSHAKE) {
+            return;
+        }
+
+        int length = ((records.get(position + 3) & 0xff) << 8) | (records.get(position + 4) & 0xff);
+        int type = records.get(position + 5) & 0xff;
+        if (type != CLIENT_HELLO && type != SERVER_HELLO) {
+            return;
+        }
+
+        ByteBuffer body = records.duplicate();
+        body.position(position + 9);
+        body.limit(Math.min(records.limit(), position + 5 + length));
+        try {
+            if (type == CLIENT_HELLO) {
+                skip(body, 2 + 32);
+                offeredId = new byte[body.get() & 0xff];
+                body.get(offeredId);
+            } else {
+                inspectServerHello(body);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // A hello split across records, left to the engine and considered a full handshake
+        }
+    }
+
+    private void inspectServerHello(ByteBuffer body) {
+        skip(body, 2);
+        byte[] random = new byte[32];
+        body.get(random);
+        if (Arrays.equals(random, HELLO_RETRY_REQUEST)) {
+            return;
+        }
+
+        byte[] sessionId = new byte[body.get() & 0xff];
+        body.get(sessionId);
+        // Cipher suite and compression method
+        skip(body, 2 + 1);
+
+        boolean tls13 = false;
+        boolean preSharedKey = false;
+        if (body.hasRemaining()) {
+            ByteBuffer extensions = slice(body, body.getShort() & 0xffff);
+            while (extensions.hasRemaining()) {
+                int type = extensions.getShort() & 0xffff;
+                skip(extensions, extensions.getShort() & 0xffff);
+                tls13 |= type == SUPPORTED_VERSIONS;
+                preSharedKey |= type == PRE_SHARED_KEY;
+            }
+        }
+
+        answered = true;
+        if (tls13) {
+            resumed = preSharedKey;
+        } else {
+            resumed = sessionId.length > 0 && Arrays.equals(sessionId, offeredId);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer result = buffer.slice();
+        result.limit(length);
+        skip(buffer, length);
+        return result;
+    }
+}
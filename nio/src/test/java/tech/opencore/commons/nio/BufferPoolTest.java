@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class BufferPoolTest {
+    @Test
+    public void reuseTest() {
+        BufferPool pool = new BufferPool(1 << 20);
+        ByteBuffer buffer = pool.acquire(16709);
+        Assertions.assertTrue(buffer.isDirect());
+        Assertions.assertEquals(24576, buffer.capacity());
+        Assertions.assertEquals(24576, pool.getBorrowedBytes());
+
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+        Assertions.assertEquals(24576, pool.getPooledBytes());
+
+        ByteBuffer reused = pool.acquire(24576);
+        Assertions.assertSame(buffer, reused);
+        Assertions.assertEquals(0, reused.position());
+        Assertions.assertEquals(reused.capacity(), reused.limit());
+        Assertions.assertEquals(0, pool.getPooledBytes());
+
+        Assertions.assertNotSame(buffer, pool.acquire(4096));
+        Assertions.assertEquals(4096, pool.acquire(1).capacity());
+        Assertions.assertEquals(4096, pool.acquire(0).capacity());
+        Assertions.assertEquals(6144, pool.acquire(4097).capacity());
+        Assertions.assertEquals(8192, pool.acquire(6145).capacity());
+        Assertions.assertEquals(24576, pool.acquire(16385).capacity());
+        Assertions.assertEquals(32768, pool.acquire(24577).capacity());
+        Assertions.assertEquals(98304, pool.acquire(4 * 16709).capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.acquire((1 << 30) + 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.acquire(-1));
+    }
+
+    @Test
+    public void maxPooledTest() {
+        BufferPool pool = new BufferPool(8192);
+        ByteBuffer first = pool.acquire(4096);
+        ByteBuffer second = pool.acquire(4096);
+        ByteBuffer third = pool.acquire(4096);
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        Assertions.assertEquals(8192, pool.getPooledBytes());
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+
+        pool.release(ByteBuffer.allocate(4096));
+        pool.release(ByteBuffer.allocateDirect(10000));
+        Assertions.assertEquals(8192, pool.getPooledBytes());
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+
+        ByteBuffer midpoint = pool.acquire(5000);
+        Assertions.assertEquals(6144, midpoint.capacity());
+        pool.release(midpoint);
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+    }
+
+    @Test
+    public void emptyWriteTest() {
+        BufferPool pool = new BufferPool(1 << 20);
+        BufferOutputStream out = new BufferOutputStream(pool);
+        out.write(new byte[0], 0, 0);
+        Assertions.assertEquals(0, out.getBuffer().position());
+        Assertions.assertEquals(4096, pool.getBorrowedBytes());
+        out.release();
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DelegatedChannelTest {
+    /**
+     * Joins a readable and a writable channel, neither supporting scattering or gathering.
+     */
+    private static final class Pipe implements ByteChannel {
+        private final ReadableByteChannel in;
+        private final WritableByteChannel out;
+
+        Pipe(ReadableByteChannel in, WritableByteChannel out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return in.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return out.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void scatterGatherTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] data = "header:body".getBytes(StandardCharsets.US_ASCII);
+        DelegatedChannel<Pipe> channel = new DelegatedChannel<>(
+                new Pipe(Channels.newChannel(new ByteArrayInputStream(data)), Channels.newChannel(out)));
+
+        ByteBuffer header = ByteBuffer.allocate(7);
+        ByteBuffer body = ByteBuffer.allocate(10);
+        Assertions.assertEquals(11, channel.read(new ByteBuffer[] {header, body}));
+        Assertions.assertEquals("header:", new String(header.array(), StandardCharsets.US_ASCII));
+        Assertions.assertEquals(4, body.position());
+        Assertions.assertEquals(-1, channel.read(new ByteBuffer[] {body}));
+
+        header.flip();
+        body.flip();
+        Assertions.assertEquals(11, channel.write(new ByteBuffer[] {header, body}));
+        Assertions.assertArrayEquals(data, out.toByteArray());
+    }
+
+    /**
+     * Send a region of a file over a loopback connection, and check what the peer receives.
+     *
+     * @param tls true to send it over TLS
+     */
+    private void transfer(Path directory, boolean tls) throws Exception {
+        // Larger than a mapped region
+        byte[] data = new byte[(5 << 20) + 123];
+        new Random(5).nextBytes(data);
+        Path path = directory.resolve("data");
+        Files.write(path, data);
+        int offset = 1000;
+        int length = data.length - 2000;
+
+        SSLContext context = TestContexts.loopback();
+        try (ServerSocketChannel listener = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                SocketChannel socket = SocketChannel.open(listener.getLocalAddress());
+                FileChannel file = FileChannel.open(path)) {
+            CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> {
+                try (SocketChannel accepted = listener.accept()) {
+                    ByteChannel channel = accepted;
+                    if (tls) {
+                        SSLEngine engine = context.createSSLEngine();
+                        engine.setUseClientMode(false);
+                        channel = new SSLChannel(accepted, engine, null);
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(length);
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // Until everything is received
+                    }
+                    return buffer.array();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            DelegatedChannel<ByteChannel> channel;
+            if (tls) {
+                SSLEngine engine = context.createSSLEngine("localhost", 443);
+                engine.setUseClientMode(true);
+                channel = new DelegatedChannel<>(new SSLChannel(socket, engine, null));
+            } else {
+                channel = new DelegatedChannel<>(socket);
+            }
+
+            long position = offset;
+            while (position < offset + length) {
+                position += channel.transferFrom(file, position, offset + length - position);
+            }
+            Assertions.assertEquals(0, channel.transferFrom(file, data.length, 10));
+
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), received.get(30, TimeUnit.SECONDS));
+            channel.close();
+        }
+    }
+
+    @Test
+    public void transferTest(@TempDir Path directory) throws Exception {
+        transfer(directory, false);
+    }
+
+    @Test
+    public void tlsTransferTest(@TempDir Path directory) throws Exception {
+        transfer(directory, true);
+    }
+}
@@ -15,73 +15,105 @@
  */
 package tech.opencore.commons.nio;
 
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import tech.opencore.commons.nio.ssl.SSLChannel;
+import tech.opencore.commons.nio.ssl.SelfSignedCertificate;
 
 /**
+ * A client and a server <code>SSLChannel</code> over loopback socket channels, with a generated certificate.
  *
  * @author Eric Boukobza
  */
 public class SSLTest {
-    
-    public SSLTest() {
-        System.out.println("SSLTest created.");
-    }
-    
-    @BeforeAll
-    public static void setUpClass() {
-        System.out.println("SSLTest: setupClass");
-    }
-    
-    @AfterAll
-    public static void tearDownClass() {
-        System.out.println("SSLTest: tearDownClass");
-    }
-    
+    private SelfSignedCertificate certificate;
+    private SSLContext context;
+    private ServerSocketChannel server;
+    private CompletableFuture<Void> served;
+
     @BeforeEach
-    public void setUp() {
-        System.out.println("SSLTest: setUp");
+    public void setUp() throws Exception {
+        certificate = SelfSignedCertificate.generate("localhost");
+        context = certificate.createContext();
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        served = CompletableFuture.runAsync(this::echo);
     }
-    
+
     @AfterEach
-    public void tearDown() {
-        System.out.println("SSLTest: tearDown");
+    public void tearDown() throws IOException {
+        server.close();
     }
-    
-    @Test
-    public void sslClientTest() {
-        System.out.println("SSLTest: sslClientTest");
-        try {
-            SocketChannel channel = SocketChannel.open();
-            channel.connect(new InetSocketAddress("www.infundity.vc", 443));
-            System.out.println("Connected to: " + channel.getRemoteAddress());
-            SSLChannel sslChannel = new SSLChannel(channel);
 
-            ByteBuffer buf = ByteBuffer.allocate(65536);
-            buf.put("HTTP\n".getBytes());
-            buf.flip();
-            int len = 0;
-            while (buf.hasRemaining()) {
-                len += sslChannel.write(buf);
-                System.out.println(len + " Bytes written.");
+    /**
+     * Accept a connection with a blocking server-mode channel and write back what it reads.
+     */
+    private void echo() {
+        try (SocketChannel socket = server.accept()) {
+            SSLEngine engine = context.createSSLEngine();
+            engine.setUseClientMode(false);
+            SSLChannel channel = new SSLChannel(socket, engine, null);
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
             }
-            
-            System.out.println("Local principal: " + sslChannel.getSSLEngine().getSession().getLocalPrincipal());
-            System.out.println("Peer principal: " + sslChannel.getSSLEngine().getSession().getPeerPrincipal());
-            
-            Assertions.assertTrue(true);
-//            sslChannel.close();
+            channel.close();
         } catch (Exception e) {
-            e.printStackTrace();
-            Assertions.assertTrue(false);
+            throw new IllegalStateException(e);
         }
     }
+
+    @Test
+    public void sslClientTest() throws Exception {
+        InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+        try (SocketChannel socket = SocketChannel.open(address)) {
+            SSLEngine engine = context.createSSLEngine("localhost", address.getPort());
+            engine.setUseClientMode(true);
+            SSLChannel channel = new SSLChannel(socket, engine, null);
+
+            ByteBuffer request = ByteBuffer.wrap("HTTP\n".getBytes(StandardCharsets.US_ASCII));
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+
+            ByteBuffer response = ByteBuffer.allocate(5);
+            while (response.hasRemaining()) {
+                Assertions.assertTrue(channel.read(response) >= 0);
+            }
+            Assertions.assertEquals("HTTP\n", new String(response.array(), StandardCharsets.US_ASCII));
+            Assertions.assertEquals(certificate.getCertificate().getSubjectX500Principal(),
+                    channel.getSSLEngine().getSession().getPeerPrincipal());
+
+            channel.close();
+        }
+        served.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void certificateTest() throws Exception {
+        SelfSignedCertificate rsa = SelfSignedCertificate.generate("example.org", "RSA", 2);
+        rsa.getCertificate().verify(rsa.getCertificate().getPublicKey());
+        rsa.getCertificate().checkValidity();
+        Assertions.assertEquals("CN=example.org", rsa.getCertificate().getSubjectX500Principal().getName());
+        Assertions.assertEquals(2, rsa.getCertificate().getSubjectAlternativeNames().size());
+
+        certificate.getCertificate().verify(certificate.getCertificate().getPublicKey());
+        Assertions.assertEquals("EC", certificate.getCertificate().getPublicKey().getAlgorithm());
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio;
+
+import javax.net.ssl.SSLContext;
+import tech.opencore.commons.nio.ssl.SelfSignedCertificate;
+
+/**
+ * TLS contexts for the tests.
+ *
+ * @author Eric Boukobza
+ */
+public final class TestContexts {
+    private static SelfSignedCertificate certificate;
+
+    private TestContexts() {
+    }
+
+    /**
+     * Create a context trusting and presenting a self-signed certificate of localhost, generated once for all
+     * the tests.
+     *
+     * @return The context
+     * @throws Exception if the certificate cannot be generated
+     */
+    public static synchronized SSLContext loopback() throws Exception {
+        if (certificate == null) {
+            certificate = SelfSignedCertificate.generate("localhost");
+        }
+        return certificate.createContext();
+    }
+}
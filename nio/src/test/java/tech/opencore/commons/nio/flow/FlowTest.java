@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.flow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class FlowTest {
+    private ExecutorService executor;
+    private ServerSocketChannel server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Collects the buffers received, requesting one at a time.
+     */
+    private static final class Collector implements Flow.Subscriber<ByteBuffer> {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final CompletableFuture<byte[]> done = new CompletableFuture<>();
+        final AtomicInteger buffers = new AtomicInteger();
+        final boolean requesting;
+        Flow.Subscription subscription;
+
+        Collector(boolean requesting) {
+            this.requesting = requesting;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(requesting ? 1 : 2);
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            buffers.incrementAndGet();
+            received.write(buffer.array(), buffer.position(), buffer.remaining());
+            if (requesting) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            done.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(received.toByteArray());
+        }
+    }
+
+    private SSLChannel channel(SocketChannel socket, SSLContext context, boolean client) throws Exception {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(client);
+        return new SSLChannel(socket, engine, null);
+    }
+
+    @Test
+    public void tlsTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        byte[] data = new byte[1 << 20];
+        new Random(3).nextBytes(data);
+
+        try (SocketChannel client = SocketChannel.open(server.getLocalAddress()); SocketChannel accepted = server.accept()) {
+            SSLChannel sender = channel(client, context, true);
+            SSLChannel receiver = channel(accepted, context, false);
+
+            Collector collector = new Collector(true);
+            new ChannelPublisher(receiver, executor, 8192).subscribe(collector);
+
+            ChannelSubscriber subscriber = new ChannelSubscriber(sender, executor, 4);
+            try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(executor, 4)) {
+                publisher.subscribe(subscriber);
+                for (int i = 0 ; i < data.length ; i += 10000) {
+                    publisher.submit(ByteBuffer.wrap(data, i, Math.min(10000, data.length - i)));
+                }
+            }
+            subscriber.getCompletion().get(30, TimeUnit.SECONDS);
+            for (int i = 0 ; i < 3000 && collector.received.size() < data.length ; i++) {
+                Thread.sleep(10);
+            }
+            Assertions.assertArrayEquals(data, collector.received.toByteArray());
+        }
+    }
+
+    @Test
+    public void publisherBackpressureTest() throws Exception {
+        try (SocketChannel client = SocketChannel.open(server.getLocalAddress()); SocketChannel accepted = server.accept()) {
+            Collector collector = new Collector(false);
+            ChannelPublisher publisher = new ChannelPublisher(accepted, executor, 4096);
+            publisher.subscribe(collector);
+
+            // Nothing is read beyond the 2 buffers requested, so the writes stop once the network buffers are full
+            client.configureBlocking(false);
+            ByteBuffer chunk = ByteBuffer.allocate(65536);
+            long written = 0;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+            while (System.nanoTime() < deadline) {
+                chunk.clear();
+                int count = client.write(chunk);
+                written += count;
+                if (count == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            Assertions.assertEquals(2, collector.buffers.get());
+            Assertions.assertTrue(written < 64 << 20);
+
+            // Resumed by the next request
+            collector.subscription.request(1);
+            for (int i = 0 ; i < 1000 && collector.buffers.get() < 3 ; i++) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(3, collector.buffers.get());
+
+            Collector rejected = new Collector(true);
+            publisher.subscribe(rejected);
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> rejected.done.get(10, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+
+            // A non-blocking channel would be polled without end
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new ChannelPublisher(client, executor, 4096));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new ChannelSubscriber(client, executor, 4));
+        }
+    }
+
+    @Test
+    public void subscriberBackpressureTest() throws Exception {
+        // A channel blocking its writes until released
+        CountDownLatch released = new CountDownLatch(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (src.get(src.position()) < 0) {
+                    throw new IOException("Invalid byte");
+                }
+                int count = src.remaining();
+                out.write(src.array(), src.position(), count);
+                src.position(src.limit());
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        AtomicLong requested = new AtomicLong();
+        AtomicInteger cancelled = new AtomicInteger();
+        Flow.Subscription subscription = new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requested.addAndGet(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.incrementAndGet();
+            }
+        };
+
+        ChannelSubscriber subscriber = new ChannelSubscriber(channel, executor, 4);
+        subscriber.onSubscribe(subscription);
+        Assertions.assertEquals(4, requested.get());
+        for (int i = 0 ; i < 4 ; i++) {
+            subscriber.onNext(ByteBuffer.wrap(new byte[] {(byte) i}));
+        }
+        Thread.sleep(100);
+        Assertions.assertEquals(4, requested.get());
+
+        // One more buffer requested per buffer written
+        released.countDown();
+        for (int i = 0 ; i < 1000 && requested.get() < 8 ; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(8, requested.get());
+        Assertions.assertArrayEquals(new byte[] {0, 1, 2, 3}, out.toByteArray());
+
+        // A failed write cancels the subscription
+        subscriber.onNext(ByteBuffer.wrap(new byte[] {-1}));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> subscriber.getCompletion().get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IOException.class, e.getCause());
+        Assertions.assertEquals(1, cancelled.get());
+    }
+}
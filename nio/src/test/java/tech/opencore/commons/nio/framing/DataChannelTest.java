@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class DataChannelTest {
+    private static final DataFactory FACTORY = DataFactory.getDefaultFactory();
+
+    /**
+     * A channel counting its writes, then reading back what was written.
+     */
+    private static final class Memory implements ByteChannel {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer in;
+        int writes = 0;
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (in == null) {
+                in = ByteBuffer.wrap(out.toByteArray());
+            }
+            if (!in.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(dst.remaining(), in.remaining());
+            ByteBuffer part = in.duplicate();
+            part.limit(part.position() + count);
+            dst.put(part);
+            in.position(in.position() + count);
+            return count;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            out.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static Data message(int index, int padding) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0 ; i < padding ; i++) {
+            text.append('x');
+        }
+        return FACTORY.createData()
+                .setLong("id", index)
+                .setString("text", text.toString())
+                .set("nested", FACTORY.createData().setBoolean("even", index % 2 == 0));
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        Memory memory = new Memory();
+        DataChannel<Memory> channel = new DataChannel<>(memory, FACTORY);
+        channel.setBatchSize(1 << 20);
+        for (int i = 0 ; i < 100 ; i++) {
+            channel.writeData(message(i, 10));
+        }
+        Assertions.assertTrue(channel.hasBufferedOutput());
+        Assertions.assertEquals(0, memory.writes);
+        Assertions.assertTrue(channel.flush());
+        Assertions.assertEquals(1, memory.writes);
+        Assertions.assertFalse(channel.hasBufferedOutput());
+
+        // Larger than the batch, and than the receiving buffer
+        channel.setBatchSize(65536);
+        channel.writeData(message(100, 200000));
+        Assertions.assertFalse(channel.hasBufferedOutput());
+        Assertions.assertTrue(channel.writeFrame(ByteBuffer.allocate(3)));
+
+        for (int i = 0 ; i < 100 ; i++) {
+            Assertions.assertEquals(message(i, 10), channel.readData());
+        }
+        Assertions.assertEquals(message(100, 200000), channel.readData());
+        Assertions.assertEquals(3, channel.readFrame().remaining());
+        Assertions.assertNull(channel.readData());
+        Assertions.assertTrue(channel.isEndOfStream());
+    }
+
+    @Test
+    public void invalidTest() throws Exception {
+        DataChannel<Memory> channel = new DataChannel<>(new Memory(), FACTORY, 2000);
+        channel.writeData(message(1, 0));
+        Assertions.assertThrows(IOException.class, () -> channel.writeData(message(2, 5000)));
+        // The message too long is dropped
+        channel.setBatchSize(0);
+        channel.writeData(message(3, 0));
+        channel.writeFrame(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+
+        Assertions.assertEquals(message(1, 0), channel.readData());
+        Assertions.assertEquals(message(3, 0), channel.readData());
+        Assertions.assertThrows(IOException.class, () -> channel.readData());
+    }
+
+    @Test
+    public void maxBufferedTest() throws Exception {
+        Stalled stalled = new Stalled();
+        DataChannel<Stalled> channel = new DataChannel<>(stalled, FACTORY);
+        channel.setBatchSize(0);
+        channel.setMaxBuffered(1000);
+
+        int written = 0;
+        while (channel.writeData(message(written, 100))) {
+            written++;
+            Assertions.assertTrue(written < 100);
+        }
+        Assertions.assertTrue(written > 1);
+        Assertions.assertFalse(channel.flush());
+
+        stalled.accepting = true;
+        Assertions.assertTrue(channel.writeData(message(written, 100)));
+        Assertions.assertFalse(channel.hasBufferedOutput());
+    }
+
+    /**
+     * A channel accepting nothing until told to, as a non-blocking socket whose peer stopped reading.
+     */
+    private static final class Stalled implements ByteChannel {
+        boolean accepting = false;
+
+        @Override
+        public int read(ByteBuffer dst) {
+            return 0;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (!accepting) {
+                return 0;
+            }
+            int count = src.remaining();
+            src.position(src.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void pipelineTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        int count = 2000;
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            // Answers each request with its id doubled
+            CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+                try (SocketChannel socket = server.accept()) {
+                    SSLEngine engine = context.createSSLEngine();
+                    engine.setUseClientMode(false);
+                    DataChannel<SSLChannel> channel = new DataChannel<>(new SSLChannel(socket, engine, null), FACTORY);
+                    Data request;
+                    while ((request = channel.readData()) != null || !channel.isEndOfStream()) {
+                        if (request != null) {
+                            channel.writeData(FACTORY.createData().setLong("id", request.getLong("id") * 2));
+                        }
+                        if (!channel.hasBufferedInput()) {
+                            channel.flush();
+                        }
+                    }
+                    channel.close();
+                } catch (IOException | GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+                socket.configureBlocking(false);
+                SSLEngine engine = context.createSSLEngine();
+                engine.setUseClientMode(true);
+                SSLChannel ssl = new SSLChannel(socket, engine, null);
+                // Only flushing the data channel sends what the TLS channel buffers
+                ssl.setWriteBuffering(true);
+                ssl.setMaxWriteDelay(1, TimeUnit.HOURS);
+                DataChannel<SSLChannel> channel = new DataChannel<>(ssl, FACTORY);
+                int sent = 0;
+                int received = 0;
+                while (received < count) {
+                    // Up to 100 requests in flight
+                    while (sent < count && sent - received < 100) {
+                        channel.writeData(message(sent++, 20));
+                    }
+                    channel.flush();
+                    Data response = channel.readData();
+                    if (response != null) {
+                        Assertions.assertEquals(received++ * 2L, response.getLong("id"));
+                    }
+                }
+                channel.close();
+            }
+            served.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
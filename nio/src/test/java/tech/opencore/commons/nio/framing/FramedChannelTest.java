@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.framing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.ssl.SSLChannel;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class FramedChannelTest {
+    /**
+     * A non-blocking channel reading from and writing to memory, transferring at most a chunk per call and
+     * nothing every other call.
+     */
+    private static final class Chunked implements ByteChannel {
+        private final ByteBuffer in;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int chunk;
+        private boolean stall = false;
+
+        Chunked(byte[] in, int chunk) {
+            this.in = ByteBuffer.wrap(in);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!in.hasRemaining()) {
+                return -1;
+            }
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+            stall = !stall;
+            if (stall) {
+                return 0;
+            }
+            int count = Math.min(chunk, Math.min(dst.remaining(), in.remaining()));
+            ByteBuffer part = in.duplicate();
+            part.limit(part.position() + count);
+            dst.put(part);
+            in.position(in.position() + count);
+            return count;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (!src.hasRemaining()) {
+                return 0;
+            }
+            stall = !stall;
+            if (stall) {
+                return 0;
+            }
+            int count = Math.min(chunk, src.remaining());
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            out.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static List<byte[]> frames() {
+        List<byte[]> frames = new ArrayList<>();
+        Random random = new Random(45);
+        for (int size : new int[] {0, 1, 127, 128, 300, 16383, 16384, 100000, 5, 70000, 3}) {
+            byte[] frame = new byte[size];
+            random.nextBytes(frame);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static <C extends FramedChannel<Chunked>> void roundTrip(Function<Chunked, C> codec, List<byte[]> frames) throws Exception {
+        for (int chunk : new int[] {1, 7, 1000, 1 << 20}) {
+            Chunked sink = new Chunked(new byte[0], chunk);
+            C writer = codec.apply(sink);
+            for (byte[] frame : frames) {
+                ByteBuffer src = ByteBuffer.wrap(frame);
+                while (!writer.writeFrame(src)) {
+                    // Retried with the same buffer
+                }
+            }
+
+            C reader = codec.apply(new Chunked(sink.out.toByteArray(), chunk));
+            for (byte[] frame : frames) {
+                ByteBuffer read;
+                while ((read = reader.readFrame()) == null) {
+                    Assertions.assertFalse(reader.isEndOfStream());
+                }
+                byte[] bytes = new byte[read.remaining()];
+                read.get(bytes);
+                Assertions.assertArrayEquals(frame, bytes);
+            }
+            while (reader.readFrame() == null && !reader.isEndOfStream()) {
+                // Until the end of the stream
+            }
+            Assertions.assertTrue(reader.isEndOfStream());
+            reader.close();
+        }
+    }
+
+    @Test
+    public void lengthTest() throws Exception {
+        roundTrip(LengthFramedChannel::new, frames());
+    }
+
+    @Test
+    public void varintTest() throws Exception {
+        roundTrip(VarintFramedChannel::new, frames());
+    }
+
+    @Test
+    public void delimiterTest() throws Exception {
+        List<byte[]> lines = new ArrayList<>();
+        for (byte[] frame : frames()) {
+            for (int i = 0 ; i < frame.length ; i++) {
+                // No delimiter in the payloads
+                frame[i] = (byte) ('a' + (frame[i] & 0xf));
+            }
+            lines.add(frame);
+        }
+        roundTrip(channel -> new DelimiterFramedChannel<>(channel, "\r\n".getBytes(StandardCharsets.US_ASCII)), lines);
+    }
+
+    @Test
+    public void zeroCopyTest() throws Exception {
+        byte[] data = "one\ntwo\nthree\n".getBytes(StandardCharsets.US_ASCII);
+        DelimiterFramedChannel<Chunked> channel = new DelimiterFramedChannel<>(new Chunked(data, data.length), new byte[] {'\n'});
+        ByteBuffer one = channel.readFrame();
+        if (one == null) {
+            one = channel.readFrame();
+        }
+        ByteBuffer two = channel.readFrame();
+        Assertions.assertTrue(one.isDirect());
+        Assertions.assertEquals(3, one.remaining());
+        Assertions.assertEquals('t', two.get(0));
+        Assertions.assertTrue(channel.hasBufferedInput());
+
+        // The raw reads get what is not decoded
+        ByteBuffer rest = ByteBuffer.allocate(10);
+        Assertions.assertEquals(6, channel.read(rest));
+        Assertions.assertFalse(channel.hasBufferedInput());
+    }
+
+    @Test
+    public void invalidTest() throws Exception {
+        LengthFramedChannel<Chunked> tooLong = new LengthFramedChannel<>(new Chunked(new byte[] {0, 0, 1, 0}, 4), 255);
+        Assertions.assertThrows(IOException.class, () -> {
+            while (tooLong.readFrame() == null) {
+                // Until the header is read
+            }
+        });
+        Assertions.assertThrows(IOException.class, () -> tooLong.writeFrame(ByteBuffer.allocate(256)));
+
+        VarintFramedChannel<Chunked> truncated = new VarintFramedChannel<>(new Chunked(new byte[] {10, 1, 2}, 4));
+        Assertions.assertThrows(EOFException.class, () -> {
+            while (truncated.readFrame() == null) {
+                // Until the end of the stream
+            }
+        });
+
+        DelimiterFramedChannel<Chunked> unterminated = new DelimiterFramedChannel<>(new Chunked(new byte[100], 100), new byte[] {'\n'}, 50);
+        Assertions.assertThrows(IOException.class, () -> {
+            while (unterminated.readFrame() == null) {
+                // Until the maximum length is exceeded
+            }
+        });
+    }
+
+    @Test
+    public void sslTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        List<byte[]> frames = frames();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            CompletableFuture<List<byte[]>> received = CompletableFuture.supplyAsync(() -> {
+                try (SocketChannel socket = server.accept()) {
+                    SSLEngine engine = context.createSSLEngine();
+                    engine.setUseClientMode(false);
+                    VarintFramedChannel<SSLChannel> channel = new VarintFramedChannel<>(new SSLChannel(socket, engine, null));
+                    List<byte[]> result = new ArrayList<>();
+                    ByteBuffer frame;
+                    while (result.size() < frames.size()) {
+                        while ((frame = channel.readFrame()) == null) {
+                            Assertions.assertFalse(channel.isEndOfStream());
+                        }
+                        byte[] bytes = new byte[frame.remaining()];
+                        frame.get(bytes);
+                        result.add(bytes);
+                    }
+                    channel.writeFrame(ByteBuffer.wrap(new byte[] {'o', 'k'}));
+                    while (channel.readFrame() == null && !channel.isEndOfStream()) {
+                        // Until the client closes the connection
+                    }
+                    return result;
+                } catch (IOException | GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+                SSLEngine engine = context.createSSLEngine();
+                engine.setUseClientMode(true);
+                VarintFramedChannel<SSLChannel> channel = new VarintFramedChannel<>(new SSLChannel(socket, engine, null));
+                for (byte[] frame : frames) {
+                    Assertions.assertTrue(channel.writeFrame(ByteBuffer.wrap(frame)));
+                }
+                // Read the acknowledgement, and the session tickets before it
+                ByteBuffer ack;
+                while ((ack = channel.readFrame()) == null) {
+                    Assertions.assertFalse(channel.isEndOfStream());
+                }
+                Assertions.assertEquals(2, ack.remaining());
+                channel.close();
+            }
+
+            List<byte[]> result = received.get(30, TimeUnit.SECONDS);
+            Assertions.assertEquals(frames.size(), result.size());
+            for (int i = 0 ; i < frames.size() ; i++) {
+                Assertions.assertArrayEquals(frames.get(i), result.get(i));
+            }
+        }
+    }
+}
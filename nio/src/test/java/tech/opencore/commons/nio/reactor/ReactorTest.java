@@ -0,0 +1,206 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.reactor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class ReactorTest {
+    private Reactor reactor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        reactor = new Reactor(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reactor.close();
+    }
+
+    /**
+     * Writes back what it reads, suspending reads while the peer does not accept the echo.
+     */
+    private static final class Echo implements ConnectionHandler {
+        @Override
+        public void onAccept(Connection connection) {
+            connection.setAttachment(ByteBuffer.allocate(8192));
+        }
+
+        @Override
+        public void onRead(Connection connection) throws IOException {
+            ByteBuffer buffer = (ByteBuffer) connection.getAttachment();
+            if (connection.read(buffer) > 0) {
+                onWrite(connection);
+            }
+        }
+
+        @Override
+        public void onWrite(Connection connection) throws IOException {
+            ByteBuffer buffer = (ByteBuffer) connection.getAttachment();
+            buffer.flip();
+            connection.write(buffer);
+            connection.setReadable(!buffer.hasRemaining());
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Sends its data and completes when it read it all back.
+     */
+    private static final class Client implements ConnectionHandler {
+        final ByteBuffer sent;
+        final ByteBuffer received;
+        final CompletableFuture<byte[]> done = new CompletableFuture<>();
+        boolean buffering = false;
+
+        Client(byte[] data) {
+            this.sent = ByteBuffer.wrap(data);
+            this.received = ByteBuffer.allocate(data.length);
+        }
+
+        @Override
+        public void onConnect(Connection connection) throws IOException {
+            if (buffering) {
+                connection.getSSLChannel().setWriteBuffering(true);
+            }
+            onWrite(connection);
+        }
+
+        @Override
+        public void onWrite(Connection connection) throws IOException {
+            connection.write(sent);
+        }
+
+        @Override
+        public void onRead(Connection connection) throws IOException {
+            connection.read(received);
+            if (!received.hasRemaining()) {
+                done.complete(received.array());
+                connection.close();
+            }
+        }
+
+        @Override
+        public void onError(Connection connection, Throwable error) {
+            done.completeExceptionally(error);
+        }
+    }
+
+    private void echo(EngineFactory server, EngineFactory client, int clients, int size) throws Exception {
+        try (Acceptor acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), server, new Echo())) {
+            List<byte[]> sent = new ArrayList<>();
+            List<Client> handlers = new ArrayList<>();
+            Random random = new Random(size);
+            for (int i = 0 ; i < clients ; i++) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                Client handler = new Client(data);
+                sent.add(data);
+                handlers.add(handler);
+                reactor.connect(acceptor.getAddress(), client, handler);
+            }
+
+            for (int i = 0 ; i < clients ; i++) {
+                Assertions.assertArrayEquals(sent.get(i), handlers.get(i).done.get(30, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void plainEchoTest() throws Exception {
+        echo(null, null, 20, 100000);
+    }
+
+    @Test
+    public void tlsEchoTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        echo(EngineFactory.server(context), EngineFactory.client(context), 20, 100000);
+    }
+
+    @Test
+    public void writeBufferingTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        try (Acceptor acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EngineFactory.server(context), new Echo())) {
+            // Never flushed by the client, so written by the deadline of the buffered data
+            Client client = new Client(new byte[] {1, 2, 3});
+            client.buffering = true;
+            reactor.connect(acceptor.getAddress(), EngineFactory.client(context), client);
+            Assertions.assertArrayEquals(new byte[] {1, 2, 3}, client.done.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void inlineTasksTest() throws Exception {
+        reactor.close();
+        reactor = new Reactor(1, null);
+        SSLContext context = TestContexts.loopback();
+        echo(EngineFactory.server(context), EngineFactory.client(context), 5, 10000);
+    }
+
+    @Test
+    public void connectFailureTest() throws Exception {
+        InetSocketAddress address;
+        try (Acceptor acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, new Echo())) {
+            address = acceptor.getAddress();
+        }
+        Thread.sleep(100);
+
+        CompletableFuture<Connection> connection = reactor.connect(address, null, new Client(new byte[1]));
+        Assertions.assertThrows(Exception.class, () -> connection.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failingTaskTest() throws Exception {
+        reactor.close();
+        reactor = new Reactor(1);
+        try (Acceptor acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, new Echo())) {
+            Client failing = new Client(new byte[0]);
+            Connection first = reactor.connect(acceptor.getAddress(), null, failing).get(30, TimeUnit.SECONDS);
+            Connection second = reactor.connect(acceptor.getAddress(), null, new Client(new byte[0])).get(30, TimeUnit.SECONDS);
+
+            first.execute(() -> {
+                throw new IllegalStateException("Failing task");
+            });
+            CompletableFuture<Void> ran = new CompletableFuture<>();
+            second.schedule(() -> ran.complete(null), 10, TimeUnit.MILLISECONDS);
+
+            ran.get(30, TimeUnit.SECONDS);
+            Exception error = Assertions.assertThrows(Exception.class, () -> failing.done.get(30, TimeUnit.SECONDS));
+            Assertions.assertTrue(error.getCause() instanceof IllegalStateException);
+            Assertions.assertFalse(first.isOpen());
+            Assertions.assertTrue(second.isOpen());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.rpc;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.data.Data;
+import tech.opencore.commons.data.DataFactory;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.Reactor;
+import tech.opencore.commons.nio.ssl.EngineFactory;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class RpcTest {
+    private static final DataFactory FACTORY = DataFactory.getDefaultFactory();
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private Reactor reactor;
+    private ScheduledExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        reactor = new Reactor(2);
+        executor = Executors.newScheduledThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        reactor.close();
+    }
+
+    private static Data message(String text) {
+        return FACTORY.createData().setString("text", text);
+    }
+
+    private static CompletableFuture<Data> echo(Data request) {
+        return CompletableFuture.completedFuture(request);
+    }
+
+    private static IOException failure(CompletableFuture<Data> call) throws Exception {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> call.get(30, TimeUnit.SECONDS));
+        return Assertions.assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    private void echo(EngineFactory server, EngineFactory client) throws Exception {
+        try (Acceptor acceptor = new RpcServer(FACTORY, RpcTest::echo).listen(reactor, LOOPBACK, server);
+                RpcClient rpc = RpcClient.connect(reactor, acceptor.getAddress(), client, FACTORY).get(30, TimeUnit.SECONDS)) {
+            Assertions.assertEquals("hello", rpc.call(message("hello")).get(30, TimeUnit.SECONDS).getString("text"));
+
+            // Sent as several chunks
+            char[] text = new char[100000];
+            Arrays.fill(text, 'x');
+            Data response = rpc.call(message(new String(text))).get(30, TimeUnit.SECONDS);
+            Assertions.assertEquals(new String(text), response.getString("text"));
+        }
+    }
+
+    @Test
+    public void echoTest() throws Exception {
+        echo(null, null);
+    }
+
+    @Test
+    public void tlsEchoTest() throws Exception {
+        SSLContext context = TestContexts.loopback();
+        echo(EngineFactory.server(context), EngineFactory.client(context));
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        // Responses completed in a random order
+        Random random = new Random(7);
+        RpcHandler handler = request -> {
+            CompletableFuture<Data> response = new CompletableFuture<>();
+            executor.schedule(() -> response.complete(request), random.nextInt(20), TimeUnit.MILLISECONDS);
+            return response;
+        };
+
+        SSLContext context = TestContexts.loopback();
+        RpcServer server = new RpcServer(FACTORY, handler);
+        server.setMaxActiveRequests(100);
+        try (Acceptor acceptor = server.listen(reactor, LOOPBACK, EngineFactory.server(context));
+                RpcClient rpc = RpcClient.connect(reactor, acceptor.getAddress(), EngineFactory.client(context), FACTORY, 256, 1 << 20).get(30, TimeUnit.SECONDS)) {
+            List<CompletableFuture<Data>> calls = new ArrayList<>();
+            for (int i = 0 ; i < 1000 ; i++) {
+                calls.add(rpc.call(message(Integer.toString(i))));
+            }
+            for (int i = 0 ; i < calls.size() ; i++) {
+                Assertions.assertEquals(Integer.toString(i), calls.get(i).get(30, TimeUnit.SECONDS).getString("text"));
+            }
+        }
+    }
+
+    @Test
+    public void fairnessTest() throws Exception {
+        char[] text = new char[4 << 20];
+        Arrays.fill(text, 'x');
+        Data big = message(new String(text));
+        CountDownLatch received = new CountDownLatch(11);
+        RpcHandler handler = request -> {
+            received.countDown();
+            return CompletableFuture.completedFuture("big".equals(request.getString("text")) ? big : request);
+        };
+
+        // A small send buffer, for the big response not to fit in the buffers of the network
+        RpcServer server = new RpcServer(FACTORY, handler) {
+            @Override
+            public void onAccept(Connection connection) {
+                try {
+                    connection.getSocket().setOption(StandardSocketOptions.SO_SNDBUF, 65536);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                super.onAccept(connection);
+            }
+        };
+        try (Acceptor acceptor = server.listen(reactor, LOOPBACK, null);
+                RpcClient rpc = RpcClient.connect(reactor, acceptor.getAddress(), null, FACTORY).get(30, TimeUnit.SECONDS)) {
+            Connection connection = rpc.getConnection();
+            CompletableFuture<Void> paused = new CompletableFuture<>();
+            connection.execute(() -> {
+                connection.setReadable(false);
+                paused.complete(null);
+            });
+            paused.get(30, TimeUnit.SECONDS);
+
+            // The small responses are queued after the big one is partially written
+            List<String> completed = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Data>> calls = new ArrayList<>();
+            calls.add(rpc.call(message("big")));
+            for (int i = 0 ; i < 10 ; i++) {
+                calls.add(rpc.call(message(Integer.toString(i))));
+            }
+            List<CompletableFuture<Void>> responses = new ArrayList<>();
+            for (CompletableFuture<Data> call : calls) {
+                responses.add(call.thenAccept(response -> completed.add(response.getString("text").length() > 100 ? "big" : response.getString("text"))));
+            }
+            Assertions.assertTrue(received.await(30, TimeUnit.SECONDS));
+
+            connection.execute(() -> connection.setReadable(true));
+            CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            Assertions.assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "big"), completed);
+            Assertions.assertEquals(big.getString("text"), calls.get(0).get().getString("text"));
+        }
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        CompletableFuture<Data> never = new CompletableFuture<>();
+        RpcHandler handler = request -> {
+            switch (request.getString("text")) {
+                case "throw":
+                    throw new IllegalArgumentException("Invalid request");
+                case "fail":
+                    CompletableFuture<Data> response = new CompletableFuture<>();
+                    executor.execute(() -> response.completeExceptionally(new IOException("Failed request")));
+                    return response;
+                case "never":
+                    return never;
+                default:
+                    return echo(request);
+            }
+        };
+
+        try (Acceptor acceptor = new RpcServer(FACTORY, handler).listen(reactor, LOOPBACK, null)) {
+            RpcClient rpc = RpcClient.connect(reactor, acceptor.getAddress(), null, FACTORY).get(30, TimeUnit.SECONDS);
+            Assertions.assertEquals("Invalid request", failure(rpc.call(message("throw"))).getMessage());
+            Assertions.assertEquals("Failed request", failure(rpc.call(message("fail"))).getMessage());
+            Assertions.assertEquals("ok", rpc.call(message("ok")).get(30, TimeUnit.SECONDS).getString("text"));
+
+            // Failed by the closing of the connection
+            CompletableFuture<Data> pending = rpc.call(message("never"));
+            rpc.call(message("ok")).get(30, TimeUnit.SECONDS);
+            rpc.close();
+            Assertions.assertInstanceOf(ClosedChannelException.class, failure(pending));
+            Assertions.assertInstanceOf(ClosedChannelException.class, failure(rpc.call(message("ok"))));
+        }
+    }
+
+    @Test
+    public void limitTest() throws Exception {
+        char[] text = new char[5000];
+        Arrays.fill(text, 'x');
+        try (Acceptor acceptor = new RpcServer(FACTORY, RpcTest::echo, 100000).listen(reactor, LOOPBACK, null)) {
+            // Rejected by the client, which remains connected
+            RpcClient rpc = RpcClient.connect(reactor, acceptor.getAddress(), null, FACTORY, 16, 2000).get(30, TimeUnit.SECONDS);
+            Assertions.assertTrue(failure(rpc.call(message(new String(text)))).getMessage().contains("exceeds the maximum"));
+            Assertions.assertEquals("ok", rpc.call(message("ok")).get(30, TimeUnit.SECONDS).getString("text"));
+            rpc.close();
+
+            // Rejected by the server, which closes the connection
+            text = new char[200000];
+            rpc = RpcClient.connect(reactor, acceptor.getAddress(), null, FACTORY).get(30, TimeUnit.SECONDS);
+            Assertions.assertInstanceOf(ClosedChannelException.class, failure(rpc.call(message(new String(text)))));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.ConnectionHandler;
+import tech.opencore.commons.nio.reactor.Reactor;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class SNIAcceptorTest {
+    private static final Map<String, SSLContext> SERVERS = new HashMap<>();
+    private static SSLContext client;
+
+    private Reactor reactor;
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        trusted.load(null, null);
+        for (String name : new String[] {"default.test", "a.test", "b.test", "*.wild.test"}) {
+            SelfSignedCertificate certificate = SelfSignedCertificate.generate(name);
+            SERVERS.put(name, certificate.createContext());
+            trusted.setCertificateEntry(name, certificate.getCertificate());
+        }
+
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trusted);
+        client = SSLContext.getInstance("TLS");
+        client.init(null, trustManagers.getTrustManagers(), null);
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        reactor = new Reactor(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reactor.close();
+    }
+
+    /**
+     * Create a client engine requesting a server name, or none if null.
+     */
+    private static SSLEngine clientEngine(String name) {
+        SSLEngine engine = client.createSSLEngine();
+        engine.setUseClientMode(true);
+        if (name != null) {
+            SSLParameters parameters = engine.getSSLParameters();
+            parameters.setServerNames(Collections.singletonList(new SNIHostName(name)));
+            engine.setSSLParameters(parameters);
+        }
+        return engine;
+    }
+
+    private static ByteBuffer clientHello(String name) throws Exception {
+        SSLEngine engine = clientEngine(name);
+        ByteBuffer records = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        engine.wrap(ByteBuffer.allocate(0), records);
+        records.flip();
+        return records;
+    }
+
+    @Test
+    public void parseTest() throws Exception {
+        ByteBuffer records = clientHello("A.Test");
+        int length = records.remaining();
+        Assertions.assertEquals("a.test", ClientHello.parse(records).getServerName());
+        Assertions.assertEquals(length, records.remaining());
+
+        records.limit(length - 1);
+        Assertions.assertNull(ClientHello.parse(records));
+        records.limit(3);
+        Assertions.assertNull(ClientHello.parse(records));
+
+        Assertions.assertNull(ClientHello.parse(clientHello(null)).getServerName());
+        Assertions.assertThrows(SSLHandshakeException.class,
+                () -> ClientHello.parse(ByteBuffer.wrap("GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void selectTest() throws Exception {
+        SNIAcceptor acceptor = new SNIAcceptor(null, Collections.singletonMap("A.test", SERVERS.get("a.test")));
+        acceptor.put("*.wild.test", SERVERS.get("*.wild.test"));
+
+        Assertions.assertSame(SERVERS.get("a.test"), acceptor.select("a.test"));
+        Assertions.assertSame(SERVERS.get("*.wild.test"), acceptor.select("x.wild.test"));
+        Assertions.assertNull(acceptor.select("x.y.wild.test"));
+        Assertions.assertNull(acceptor.select(null));
+        Assertions.assertThrows(SSLHandshakeException.class, () -> acceptor.createEngine(null, ClientHello.parse(clientHello("c.test"))));
+
+        acceptor.setDefaultContext(SERVERS.get("default.test"));
+        Assertions.assertSame(SERVERS.get("default.test"), acceptor.select("c.test"));
+        Assertions.assertSame(SERVERS.get("a.test"), acceptor.remove("a.test"));
+        Assertions.assertSame(SERVERS.get("default.test"), acceptor.select("a.test"));
+        Assertions.assertFalse(acceptor.createEngine(null, ClientHello.parse(clientHello("a.test"))).getUseClientMode());
+    }
+
+    /**
+     * Connect with a server name and get the name of the certificate presented by the server.
+     */
+    private String connect(Acceptor acceptor, String name) throws Exception {
+        CompletableFuture<String> subject = new CompletableFuture<>();
+        reactor.connect(acceptor.getAddress(), peer -> clientEngine(name), new ConnectionHandler() {
+            @Override
+            public void onConnect(Connection connection) throws IOException {
+                subject.complete(connection.getSSLChannel().getSSLEngine().getSession().getPeerPrincipal().getName());
+                connection.close();
+            }
+
+            @Override
+            public void onRead(Connection connection) throws IOException {
+                connection.read(ByteBuffer.allocate(256));
+            }
+
+            @Override
+            public void onError(Connection connection, Throwable error) {
+                subject.completeExceptionally(error);
+            }
+        });
+        return subject.get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void reactorTest() throws Exception {
+        Map<String, SSLContext> contexts = new HashMap<>(SERVERS);
+        contexts.remove("default.test");
+        SNIAcceptor sni = new SNIAcceptor(SERVERS.get("default.test"), contexts);
+        try (Acceptor acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), sni, connection -> connection.read(ByteBuffer.allocate(256)))) {
+            Assertions.assertEquals("CN=a.test", connect(acceptor, "a.test"));
+            Assertions.assertEquals("CN=b.test", connect(acceptor, "b.test"));
+            Assertions.assertEquals("CN=*.wild.test", connect(acceptor, "x.wild.test"));
+            Assertions.assertEquals("CN=default.test", connect(acceptor, "c.test"));
+            Assertions.assertEquals("CN=default.test", connect(acceptor, null));
+
+            // Renewed while accepting
+            sni.put("a.test", SERVERS.get("b.test"));
+            Assertions.assertEquals("CN=b.test", connect(acceptor, "a.test"));
+
+            sni.setDefaultContext(null);
+            Assertions.assertThrows(Exception.class, () -> connect(acceptor, "c.test"));
+        }
+    }
+
+    @Test
+    public void acceptTest() throws Exception {
+        SNIAcceptor sni = new SNIAcceptor(null, Collections.singletonMap("a.test", SERVERS.get("a.test")));
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+                try (SocketChannel socket = server.accept()) {
+                    ByteBuffer received = ByteBuffer.allocate(ClientHello.MAX_LENGTH);
+                    SSLChannel channel;
+                    while ((channel = sni.accept(socket, received, null)) == null) {
+                        // Blocking reads until the ClientHello is complete
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(1);
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // Blocking read
+                    }
+                    buffer.flip();
+                    channel.write(buffer);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+                SSLChannel channel = new SSLChannel(socket, clientEngine("a.test"), null);
+                channel.write(ByteBuffer.wrap(new byte[] {42}));
+                ByteBuffer buffer = ByteBuffer.allocate(1);
+                while (buffer.hasRemaining()) {
+                    Assertions.assertTrue(channel.read(buffer) >= 0);
+                }
+                Assertions.assertEquals(42, buffer.get(0));
+                Assertions.assertEquals("CN=a.test", channel.getSSLEngine().getSession().getPeerPrincipal().getName());
+            }
+            served.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
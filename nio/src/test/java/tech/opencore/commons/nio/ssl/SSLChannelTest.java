@@ -0,0 +1,457 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.opencore.commons.nio.BufferPool;
+import tech.opencore.commons.nio.TestContexts;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class SSLChannelTest {
+    private static SSLContext context;
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        context = TestContexts.loopback();
+    }
+
+    /**
+     * One direction of an in-memory connection, accepting and delivering at most <code>chunk</code> bytes per call
+     * and never blocking, as a non-blocking socket would.
+     */
+    private static final class Link {
+        private final ByteBuffer buffer;
+        private final int chunk;
+        private boolean closed;
+
+        Link(int capacity, int chunk) {
+            this.buffer = ByteBuffer.allocate(capacity);
+            this.chunk = chunk;
+        }
+
+        int write(ByteBuffer src) {
+            int count = Math.min(Math.min(src.remaining(), chunk), buffer.remaining());
+            for (int i = 0 ; i < count ; i++) {
+                buffer.put(src.get());
+            }
+            return count;
+        }
+
+        int read(ByteBuffer dst) {
+            buffer.flip();
+            try {
+                if (!buffer.hasRemaining() && closed) {
+                    return -1;
+                }
+                int count = Math.min(Math.min(dst.remaining(), chunk), buffer.remaining());
+                for (int i = 0 ; i < count ; i++) {
+                    dst.put(buffer.get());
+                }
+                return count;
+            } finally {
+                buffer.compact();
+            }
+        }
+    }
+
+    private static final class Endpoint implements ByteChannel {
+        private final Link in;
+        private final Link out;
+        private boolean open = true;
+
+        Endpoint(Link in, Link out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return in.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return out.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            out.closed = true;
+        }
+    }
+
+    private final BufferPool pool = new BufferPool(1 << 20);
+    private SSLChannel client;
+    private SSLChannel server;
+    private Endpoint clientEndpoint;
+
+    private void open(int chunk, Executor executor) throws Exception {
+        Link up = new Link(4096, chunk);
+        Link down = new Link(4096, chunk);
+        clientEndpoint = new Endpoint(down, up);
+
+        SSLEngine clientEngine = context.createSSLEngine("localhost", 443);
+        clientEngine.setUseClientMode(true);
+        SSLEngine serverEngine = context.createSSLEngine();
+        serverEngine.setUseClientMode(false);
+
+        client = new SSLChannel(clientEndpoint, clientEngine, executor, pool);
+        server = new SSLChannel(new Endpoint(up, down), serverEngine, null, pool);
+    }
+
+    private void connect(int chunk) throws Exception {
+        open(chunk, null);
+
+        boolean clientHandshaking = true;
+        boolean serverHandshaking = true;
+        for (int i = 0 ; i < 100000 && (clientHandshaking || serverHandshaking) ; i++) {
+            clientHandshaking = client.isHandshaking();
+            serverHandshaking = server.isHandshaking();
+        }
+        Assertions.assertFalse(clientHandshaking || serverHandshaking);
+    }
+
+    private static void transfer(SSLChannel from, SSLChannel to, byte[] data, int readSize) throws IOException {
+        ByteBuffer src = ByteBuffer.wrap(data);
+        ByteBuffer received = ByteBuffer.allocate(data.length);
+        ByteBuffer dst = ByteBuffer.allocate(readSize);
+
+        for (int i = 0 ; i < 10000000 && received.hasRemaining() ; i++) {
+            if (src.hasRemaining()) {
+                from.write(src);
+            } else {
+                from.flush();
+            }
+
+            dst.clear();
+            int read = to.read(dst);
+            Assertions.assertTrue(read >= 0);
+            dst.flip();
+            received.put(dst);
+        }
+
+        Assertions.assertFalse(from.hasPendingOutput());
+        Assertions.assertArrayEquals(data, received.array());
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 1000, 4096})
+    public void fragmentedTransferTest(int chunk) throws Exception {
+        connect(chunk);
+        transfer(client, server, random(100000), 65536);
+        transfer(server, client, random(50000), 65536);
+    }
+
+    @Test
+    public void smallReadBufferTest() throws Exception {
+        connect(4096);
+        transfer(client, server, random(40000), 10);
+        Assertions.assertFalse(server.hasBufferedInput());
+    }
+
+    @Test
+    public void idleBuffersTest() throws Exception {
+        connect(1000);
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+
+        transfer(client, server, random(100000), 65536);
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+
+        // Ciphertext the link does not accept holds a buffer until flushed
+        client.write(ByteBuffer.wrap(random(10000)));
+        Assertions.assertTrue(client.hasPendingOutput());
+        Assertions.assertTrue(pool.getBorrowedBytes() > 0);
+
+        ByteBuffer dst = ByteBuffer.allocate(65536);
+        int received = 0;
+        for (int i = 0 ; i < 100000 && received < 10000 ; i++) {
+            client.flush();
+            dst.clear();
+            received += server.read(dst);
+        }
+        Assertions.assertEquals(10000, received);
+        Assertions.assertEquals(0, pool.getBorrowedBytes());
+        Assertions.assertTrue(pool.getPooledBytes() > 0);
+    }
+
+    @Test
+    public void bothPeersPendingTest() throws Exception {
+        connect(4096);
+        byte[] up = random(100000);
+        byte[] down = random(90000);
+        ByteBuffer clientSrc = ByteBuffer.wrap(up);
+        ByteBuffer serverSrc = ByteBuffer.wrap(down);
+        ByteBuffer clientReceived = ByteBuffer.allocate(down.length);
+        ByteBuffer serverReceived = ByteBuffer.allocate(up.length);
+        ByteBuffer dst = ByteBuffer.allocate(65536);
+
+        // Both sides write more than the links hold and never flush: only reading lets the other side progress
+        boolean bothPending = false;
+        for (int i = 0 ; i < 1000000 && (clientReceived.hasRemaining() || serverReceived.hasRemaining()) ; i++) {
+            client.write(clientSrc);
+            server.write(serverSrc);
+            bothPending |= client.hasPendingOutput() && server.hasPendingOutput();
+
+            dst.clear();
+            Assertions.assertTrue(client.read(dst) >= 0);
+            clientReceived.put(dst.flip());
+            dst.clear();
+            Assertions.assertTrue(server.read(dst) >= 0);
+            serverReceived.put(dst.flip());
+        }
+
+        Assertions.assertTrue(bothPending);
+        Assertions.assertArrayEquals(down, clientReceived.array());
+        Assertions.assertArrayEquals(up, serverReceived.array());
+        Assertions.assertFalse(client.hasPendingOutput() || server.hasPendingOutput());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {7, 4096})
+    public void scatterGatherTest(int chunk) throws Exception {
+        connect(chunk);
+        byte[] data = random(70000);
+        ByteBuffer[] srcs = {ByteBuffer.wrap(data, 0, 10), ByteBuffer.wrap(data, 10, 50000), ByteBuffer.wrap(data, 50010, 19990)};
+        ByteBuffer header = ByteBuffer.allocate(10);
+        ByteBuffer body = ByteBuffer.allocate(69990);
+        ByteBuffer[] dsts = {header, body};
+
+        long written = 0;
+        long read = 0;
+        for (int i = 0 ; i < 10000000 && read < data.length ; i++) {
+            written += client.write(srcs);
+            client.flush();
+            long count = server.read(dsts);
+            Assertions.assertTrue(count >= 0);
+            read += count;
+        }
+
+        Assertions.assertEquals(data.length, written);
+        Assertions.assertEquals(data.length, read);
+        ByteBuffer received = ByteBuffer.allocate(data.length);
+        received.put(header.array()).put(body.array());
+        Assertions.assertArrayEquals(data, received.array());
+    }
+
+    @Test
+    public void writeBufferingTest() throws Exception {
+        connect(4096);
+        client.setWriteBuffering(true);
+        client.setMaxWriteDelay(1, TimeUnit.HOURS);
+
+        byte[] data = random(1000);
+        for (int i = 0 ; i < 100 ; i++) {
+            Assertions.assertEquals(10, client.write(ByteBuffer.wrap(data, i * 10, 10)));
+        }
+        Assertions.assertTrue(client.hasBufferedOutput());
+        Assertions.assertFalse(client.hasPendingOutput());
+
+        ByteBuffer dst = ByteBuffer.allocate(2000);
+        Assertions.assertEquals(0, server.read(dst));
+
+        Assertions.assertTrue(client.flush());
+        Assertions.assertFalse(client.hasBufferedOutput());
+        Assertions.assertEquals(1000, server.read(dst));
+        Assertions.assertArrayEquals(data, Arrays.copyOf(dst.array(), 1000));
+
+        // A full record is written without flush
+        ByteBuffer message = ByteBuffer.allocate(10);
+        ByteBuffer received = ByteBuffer.allocate(65536);
+        for (int i = 0 ; i < 2000 ; i++) {
+            message.clear();
+            while (message.hasRemaining()) {
+                client.write(message);
+                server.read(received);
+            }
+        }
+        for (int i = 0 ; i < 100 ; i++) {
+            client.write(message);
+            server.read(received);
+        }
+        Assertions.assertEquals(16384, received.position());
+        Assertions.assertTrue(client.hasBufferedOutput());
+    }
+
+    @Test
+    public void maxWriteDelayTest() throws Exception {
+        connect(4096);
+        client.setWriteBuffering(true);
+        client.setMaxWriteDelay(1, TimeUnit.MILLISECONDS);
+
+        client.write(ByteBuffer.wrap(random(10)));
+        ByteBuffer dst = ByteBuffer.allocate(100);
+        Assertions.assertEquals(0, server.read(dst));
+
+        Thread.sleep(5);
+        client.write(ByteBuffer.wrap(random(10)));
+        Assertions.assertFalse(client.hasBufferedOutput());
+        Assertions.assertEquals(20, server.read(dst));
+    }
+
+    @Test
+    public void closeNotifyTest() throws Exception {
+        connect(4096);
+        transfer(client, server, random(1000), 65536);
+        client.close();
+        Assertions.assertFalse(client.isOpen());
+
+        ByteBuffer dst = ByteBuffer.allocate(1024);
+        Assertions.assertEquals(-1, server.read(dst));
+        Assertions.assertEquals(-1, server.read(dst));
+    }
+
+    @Test
+    public void truncatedStreamTest() throws Exception {
+        connect(4096);
+        clientEndpoint.close();
+
+        ByteBuffer dst = ByteBuffer.allocate(1024);
+        Assertions.assertEquals(-1, server.read(dst));
+    }
+
+    @Test
+    public void noDataTest() throws Exception {
+        connect(4096);
+        ByteBuffer dst = ByteBuffer.allocate(1024);
+        Assertions.assertEquals(0, server.read(dst));
+        Assertions.assertEquals(0, client.read(dst));
+    }
+
+    @Test
+    public void delegatedTasksTest() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        open(4096, tasks::add);
+
+        boolean delegated = false;
+        boolean clientHandshaking = true;
+        boolean serverHandshaking = true;
+        for (int i = 0 ; i < 100000 && (clientHandshaking || serverHandshaking) ; i++) {
+            clientHandshaking = client.isHandshaking();
+            serverHandshaking = server.isHandshaking();
+
+            CompletableFuture<Void> running = client.getDelegatedTasks();
+            if (!running.isDone()) {
+                delegated = true;
+                Assertions.assertTrue(client.isHandshaking());
+                Assertions.assertFalse(running.isDone());
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Assertions.assertTrue(running.isDone());
+            }
+        }
+
+        Assertions.assertTrue(delegated);
+        Assertions.assertFalse(clientHandshaking || serverHandshaking);
+        transfer(client, server, random(1000), 65536);
+    }
+
+    @Test
+    public void blockingModeTest() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (ServerSocketChannel listener = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                SocketChannel socket = SocketChannel.open(listener.getLocalAddress())) {
+            // A blocking echo server, with its delegated tasks running in the executor
+            CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+                try (SocketChannel accepted = listener.accept()) {
+                    SSLEngine engine = context.createSSLEngine();
+                    engine.setUseClientMode(false);
+                    SSLChannel channel = new SSLChannel(accepted, engine, executor, pool);
+                    Assertions.assertTrue(channel.isBlocking());
+                    ByteBuffer buffer = ByteBuffer.allocate(8192);
+                    int read;
+                    while ((read = channel.read(buffer)) >= 0) {
+                        Assertions.assertTrue(read > 0);
+                        buffer.flip();
+                        channel.write(buffer);
+                        Assertions.assertFalse(buffer.hasRemaining());
+                        buffer.clear();
+                    }
+                    channel.close();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+
+            SSLEngine engine = context.createSSLEngine("localhost", 443);
+            engine.setUseClientMode(true);
+            SSLChannel channel = new SSLChannel(socket, engine, executor, pool);
+            Assertions.assertTrue(channel.isBlocking());
+            Assertions.assertFalse(channel.isHandshaking());
+
+            // Writes consume everything, and reads return data without polling
+            byte[] data = random(100000);
+            ByteBuffer src = ByteBuffer.wrap(data);
+            Assertions.assertEquals(data.length, channel.write(src));
+            ByteBuffer received = ByteBuffer.allocate(data.length);
+            int reads = 0;
+            while (received.hasRemaining()) {
+                Assertions.assertTrue(channel.read(received) > 0);
+                reads++;
+            }
+            Assertions.assertArrayEquals(data, received.array());
+            Assertions.assertTrue(reads < 100);
+
+            channel.close();
+            served.get(10, TimeUnit.SECONDS);
+
+            try (SocketChannel unconnected = SocketChannel.open()) {
+                unconnected.configureBlocking(false);
+                Assertions.assertFalse(new SSLChannel(unconnected, context.createSSLEngine(), null, pool).isBlocking());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 opencore.tech
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.opencore.commons.nio.ssl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.opencore.commons.nio.TestContexts;
+import tech.opencore.commons.nio.reactor.Acceptor;
+import tech.opencore.commons.nio.reactor.Connection;
+import tech.opencore.commons.nio.reactor.ConnectionHandler;
+import tech.opencore.commons.nio.reactor.Reactor;
+
+/**
+ *
+ * @author Eric Boukobza
+ */
+public class SSLConnectionFactoryTest {
+    private Reactor reactor;
+    private Acceptor acceptor;
+    private final Queue<Boolean> serverResumptions = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        reactor = new Reactor(1);
+        acceptor = reactor.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EngineFactory.server(TestContexts.loopback()), new ConnectionHandler() {
+            @Override
+            public void onAccept(Connection connection) {
+                serverResumptions.add(connection.getSSLChannel().isSessionResumed());
+            }
+
+            @Override
+            public void onRead(Connection connection) throws IOException {
+                ByteBuffer buffer = ByteBuffer.allocate(16);
+                connection.read(buffer);
+                buffer.flip();
+                connection.write(buffer);
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        acceptor.close();
+        reactor.close();
+    }
+
+    /**
+     * Exchange a byte, reading so that the session tickets sent after the handshake are received.
+     */
+    private static void ping(SSLChannel channel) throws IOException {
+        channel.write(ByteBuffer.wrap(new byte[] {42}));
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        while (buffer.hasRemaining()) {
+            Assertions.assertTrue(channel.read(buffer) >= 0);
+        }
+        Assertions.assertEquals(42, buffer.get(0));
+    }
+
+    private void resumption(String protocol) throws Exception {
+        SSLConnectionFactory factory = new SSLConnectionFactory(TestContexts.loopback()) {
+            @Override
+            public SSLEngine createEngine(InetSocketAddress peer) {
+                SSLEngine engine = super.createEngine(peer);
+                engine.setEnabledProtocols(new String[] {protocol});
+                return engine;
+            }
+        };
+        for (int i = 0 ; i < 3 ; i++) {
+            try (SSLChannel channel = factory.connect(acceptor.getAddress())) {
+                Assertions.assertEquals(protocol, channel.getSSLEngine().getSession().getProtocol());
+                Assertions.assertEquals(i > 0, channel.isSessionResumed());
+                ping(channel);
+            }
+        }
+
+        Assertions.assertEquals(3, factory.getHandshakes());
+        Assertions.assertEquals(2, factory.getResumptions());
+        Assertions.assertEquals(2.0 / 3, factory.getResumptionRate(), 1e-9);
+        Assertions.assertArrayEquals(new Object[] {false, true, true}, serverResumptions.toArray());
+    }
+
+    @Test
+    public void resumptionTest() throws Exception {
+        resumption("TLSv1.3");
+    }
+
+    @Test
+    public void tls12ResumptionTest() throws Exception {
+        resumption("TLSv1.2");
+    }
+
+    @Test
+    public void handshakeTimeoutTest() throws Exception {
+        // The backlog accepts the connection, and nothing ever answers the ClientHello
+        try (ServerSocketChannel silent = ServerSocketChannel.open()) {
+            silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SSLConnectionFactory factory = new SSLConnectionFactory(TestContexts.loopback());
+            long start = System.nanoTime();
+            Assertions.assertThrows(SocketTimeoutException.class,
+                    () -> factory.connect((InetSocketAddress) silent.getLocalAddress(), 200, TimeUnit.MILLISECONDS));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+            Assertions.assertEquals(0, factory.getHandshakes());
+        }
+    }
+
+    @Test
+    public void sessionTimeoutTest() throws Exception {
+        SSLConnectionFactory factory = new SSLConnectionFactory(TestContexts.loopback(), 0, 1);
+        for (int i = 0 ; i < 2 ; i++) {
+            try (SSLChannel channel = factory.connect(acceptor.getAddress())) {
+                ping(channel);
+            }
+            Thread.sleep(1100);
+        }
+
+        Assertions.assertEquals(2, factory.getHandshakes());
+        Assertions.assertEquals(0, factory.getResumptions());
+    }
+
+    @Test
+    public void reactorTest() throws Exception {
+        SSLConnectionFactory factory = new SSLConnectionFactory(TestContexts.loopback());
+        for (int i = 0 ; i < 2 ; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            reactor.connect(acceptor.getAddress(), factory, new ConnectionHandler() {
+                @Override
+                public void onConnect(Connection connection) throws IOException {
+                    connection.write(ByteBuffer.wrap(new byte[] {42}));
+                }
+
+                @Override
+                public void onRead(Connection connection) throws IOException {
+                    if (connection.read(ByteBuffer.allocate(1)) > 0) {
+                        connection.close();
+                        done.complete(null);
+                    }
+                }
+
+                @Override
+                public void onError(Connection connection, Throwable error) {
+                    done.completeExceptionally(error);
+                }
+            });
+            done.get(30, TimeUnit.SECONDS);
+        }
+
+        Assertions.assertEquals(2, factory.getHandshakes());
+        Assertions.assertEquals(1, factory.getResumptions());
+    }
+}